@@ -19,9 +19,13 @@
 
 package org.elasticsearch.action.admin.cluster.state;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionResponse;
 import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.service.SerializedClusterStateCache;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 
@@ -35,6 +39,11 @@ public class ClusterStateResponse extends ActionResponse {
     private ClusterName clusterName;
     private ClusterState clusterState;
 
+    // set on the node that serves the request, the serialized form of the response is shared by all equal requests
+    private SerializedClusterStateCache serializedStateCache;
+    private ClusterState sourceState;
+    private String variant;
+
     public ClusterStateResponse() {
     }
 
@@ -43,6 +52,18 @@ public class ClusterStateResponse extends ActionResponse {
         this.clusterState = clusterState;
     }
 
+    /**
+     * Creates a response whose cluster state was derived from the given source state, and which is serialized through the
+     * given cache. The variant must uniquely identify how the response state was derived from the source state.
+     */
+    public ClusterStateResponse(ClusterName clusterName, ClusterState clusterState,
+                                @Nullable SerializedClusterStateCache serializedStateCache, ClusterState sourceState, String variant) {
+        this(clusterName, clusterState);
+        this.serializedStateCache = serializedStateCache;
+        this.sourceState = sourceState;
+        this.variant = variant;
+    }
+
     public ClusterState getState() {
         return this.clusterState;
     }
@@ -55,13 +76,30 @@ public class ClusterStateResponse extends ActionResponse {
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
         clusterName = ClusterName.readClusterName(in);
-        clusterState = ClusterState.Builder.readFrom(in, null);
+        if (in.getVersion().onOrAfter(Version.V_5_0_0_alpha1)) {
+            BytesReference bytes = in.readBytesReference();
+            try (StreamInput stateIn = SerializedClusterStateCache.decompress(bytes, in.getVersion())) {
+                clusterState = ClusterState.Builder.readFrom(stateIn, null);
+            }
+        } else {
+            clusterState = ClusterState.Builder.readFrom(in, null);
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         super.writeTo(out);
         clusterName.writeTo(out);
-        clusterState.writeTo(out);
+        if (out.getVersion().onOrAfter(Version.V_5_0_0_alpha1)) {
+            final BytesReference bytes;
+            if (serializedStateCache != null) {
+                bytes = serializedStateCache.serialize(sourceState, variant, out.getVersion(), clusterState);
+            } else {
+                bytes = SerializedClusterStateCache.compress(clusterState, out.getVersion());
+            }
+            out.writeBytesReference(bytes);
+        } else {
+            clusterState.writeTo(out);
+        }
     }
 }
@@ -32,23 +32,29 @@ import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.metadata.MetaData.Custom;
 import org.elasticsearch.cluster.routing.RoutingTable;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.cluster.service.SerializedClusterStateCache;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
+import java.util.Arrays;
+
 /**
  *
  */
 public class TransportClusterStateAction extends TransportMasterNodeReadAction<ClusterStateRequest, ClusterStateResponse> {
 
     private final ClusterName clusterName;
+    private final SerializedClusterStateCache serializedStateCache;
 
     @Inject
     public TransportClusterStateAction(Settings settings, TransportService transportService, ClusterService clusterService, ThreadPool threadPool,
-                                       ClusterName clusterName, ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver) {
+                                       ClusterName clusterName, ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver,
+                                       SerializedClusterStateCache serializedStateCache) {
         super(settings, ClusterStateAction.NAME, transportService, clusterService, threadPool, actionFilters, indexNameExpressionResolver, ClusterStateRequest::new);
         this.clusterName = clusterName;
+        this.serializedStateCache = serializedStateCache;
     }
 
     @Override
@@ -127,8 +133,17 @@ public class TransportClusterStateAction extends TransportMasterNodeReadAction<C
         if (request.customs()) {
             builder.customs(currentState.customs());
         }
-        listener.onResponse(new ClusterStateResponse(clusterName, builder.build()));
+        listener.onResponse(new ClusterStateResponse(clusterName, builder.build(), serializedStateCache, currentState, variant(request)));
     }
 
+    /**
+     * Identifies the parts of the cluster state that are returned for the given request, equal requests against the same
+     * cluster state share their serialized response.
+     */
+    static String variant(ClusterStateRequest request) {
+        return "api[nodes=" + request.nodes() + ",routing_table=" + request.routingTable() + ",blocks=" + request.blocks()
+            + ",metadata=" + request.metaData() + ",customs=" + request.customs() + ",indices=" + Arrays.toString(request.indices())
+            + ",indices_options=" + request.indicesOptions() + "]";
+    }
 
 }
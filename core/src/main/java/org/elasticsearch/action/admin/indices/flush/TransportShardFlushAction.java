@@ -63,6 +63,12 @@ public class TransportShardFlushAction extends TransportReplicationAction<ShardF
         return new Tuple<>(new ReplicationResponse(), shardRequest);
     }
 
+    @Override
+    protected ShardFlushRequest replicaRequestForParallelReplication(ShardFlushRequest request) {
+        // a flush doesn't depend on the outcome on the primary, so the replicas don't need to wait for it
+        return request;
+    }
+
     @Override
     protected void shardOperationOnReplica(ShardFlushRequest request) {
         IndexShard indexShard = indicesService.indexServiceSafe(request.shardId().getIndex()).getShard(request.shardId().id());
@@ -65,6 +65,12 @@ public class TransportShardRefreshAction extends TransportReplicationAction<Basi
         return new Tuple<>(new ReplicationResponse(), shardRequest);
     }
 
+    @Override
+    protected BasicReplicationRequest replicaRequestForParallelReplication(BasicReplicationRequest request) {
+        // a refresh doesn't depend on the outcome on the primary, so the replicas don't need to wait for it
+        return request;
+    }
+
     @Override
     protected void shardOperationOnReplica(BasicReplicationRequest request) {
         final ShardId shardId = request.shardId();
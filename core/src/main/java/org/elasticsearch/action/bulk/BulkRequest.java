@@ -50,7 +50,7 @@ import static org.elasticsearch.action.ValidateActions.addValidationError;
  * A bulk request holds an ordered {@link IndexRequest}s, {@link DeleteRequest}s and {@link UpdateRequest}s
  * and allows to executes it in a single batch.
  *
- * Note that we only support refresh on the bulk request not per item.
+ * Note that we only support refresh and wait for refresh on the bulk request not per item.
  * @see org.elasticsearch.client.Client#bulk(BulkRequest)
  */
 public class BulkRequest extends ActionRequest<BulkRequest> implements CompositeIndicesRequest {
@@ -63,6 +63,7 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
     protected TimeValue timeout = BulkShardRequest.DEFAULT_TIMEOUT;
     private WriteConsistencyLevel consistencyLevel = WriteConsistencyLevel.DEFAULT;
     private boolean refresh = false;
+    private boolean waitForRefresh = false;
 
     private long sizeInBytes = 0;
 
@@ -127,8 +128,7 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
     BulkRequest internalAdd(IndexRequest request, @Nullable Object payload) {
         requests.add(request);
         addPayload(payload);
-        // lack of source is validated in validate() method
-        sizeInBytes += (request.source() != null ? request.source().length() : 0) + REQUEST_OVERHEAD;
+        sizeInBytes += estimatedSizeInBytes(request);
         return this;
     }
 
@@ -146,15 +146,7 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
     BulkRequest internalAdd(UpdateRequest request, @Nullable Object payload) {
         requests.add(request);
         addPayload(payload);
-        if (request.doc() != null) {
-            sizeInBytes += request.doc().source().length();
-        }
-        if (request.upsertRequest() != null) {
-            sizeInBytes += request.upsertRequest().source().length();
-        }
-        if (request.script() != null) {
-            sizeInBytes += request.script().getScript().length() * 2;
-        }
+        sizeInBytes += estimatedSizeInBytes(request);
         return this;
     }
 
@@ -168,7 +160,7 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
     public BulkRequest add(DeleteRequest request, @Nullable Object payload) {
         requests.add(request);
         addPayload(payload);
-        sizeInBytes += REQUEST_OVERHEAD;
+        sizeInBytes += estimatedSizeInBytes(request);
         return this;
     }
 
@@ -228,6 +220,33 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
         return sizeInBytes;
     }
 
+    /**
+     * The estimated size in bytes of a single index, delete or update request of a bulk.
+     */
+    static long estimatedSizeInBytes(ActionRequest<?> request) {
+        if (request instanceof IndexRequest) {
+            IndexRequest indexRequest = (IndexRequest) request;
+            // lack of source is validated in validate() method
+            return (indexRequest.source() != null ? indexRequest.source().length() : 0) + REQUEST_OVERHEAD;
+        } else if (request instanceof UpdateRequest) {
+            UpdateRequest updateRequest = (UpdateRequest) request;
+            long size = 0;
+            if (updateRequest.doc() != null) {
+                size += updateRequest.doc().source().length();
+            }
+            if (updateRequest.upsertRequest() != null) {
+                size += updateRequest.upsertRequest().source().length();
+            }
+            if (updateRequest.script() != null) {
+                size += updateRequest.script().getScript().length() * 2;
+            }
+            return size;
+        } else if (request instanceof DeleteRequest) {
+            return REQUEST_OVERHEAD;
+        }
+        return 0;
+    }
+
     /**
      * Adds a framed data in binary format
      */
@@ -447,6 +466,19 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
         return this.refresh;
     }
 
+    /**
+     * Should the response to this bulk operation wait until a refresh made it searchable instead of forcing a refresh like
+     * {@link #refresh(boolean)} does. Ignored if {@link #refresh()} is set. Defaults to <tt>false</tt>.
+     */
+    public BulkRequest waitForRefresh(boolean waitForRefresh) {
+        this.waitForRefresh = waitForRefresh;
+        return this;
+    }
+
+    public boolean waitForRefresh() {
+        return this.waitForRefresh;
+    }
+
     /**
      * A timeout to wait if the index operation can't be performed immediately. Defaults to <tt>1m</tt>.
      */
@@ -499,9 +531,9 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
         }
         for (ActionRequest<?> request : requests) {
             // We first check if refresh has been set
-            if ((request instanceof DeleteRequest && ((DeleteRequest)request).refresh()) ||
-                    (request instanceof UpdateRequest && ((UpdateRequest)request).refresh()) ||
-                    (request instanceof IndexRequest && ((IndexRequest)request).refresh())) {
+            if ((request instanceof DeleteRequest && (((DeleteRequest)request).refresh() || ((DeleteRequest)request).waitForRefresh())) ||
+                    (request instanceof UpdateRequest && (((UpdateRequest)request).refresh() || ((UpdateRequest)request).waitForRefresh())) ||
+                    (request instanceof IndexRequest && (((IndexRequest)request).refresh() || ((IndexRequest)request).waitForRefresh()))) {
                     validationException = addValidationError("Refresh is not supported on an item request, set the refresh flag on the BulkRequest instead.", validationException);
             }
             ActionRequestValidationException ex = request.validate();
@@ -527,17 +559,21 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
                 IndexRequest request = new IndexRequest();
                 request.readFrom(in);
                 requests.add(request);
+                sizeInBytes += estimatedSizeInBytes(request);
             } else if (type == 1) {
                 DeleteRequest request = new DeleteRequest();
                 request.readFrom(in);
                 requests.add(request);
+                sizeInBytes += estimatedSizeInBytes(request);
             } else if (type == 2) {
                 UpdateRequest request = new UpdateRequest();
                 request.readFrom(in);
                 requests.add(request);
+                sizeInBytes += estimatedSizeInBytes(request);
             }
         }
         refresh = in.readBoolean();
+        waitForRefresh = in.readBoolean();
         timeout = TimeValue.readTimeValue(in);
     }
 
@@ -557,6 +593,7 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
             request.writeTo(out);
         }
         out.writeBoolean(refresh);
+        out.writeBoolean(waitForRefresh);
         timeout.writeTo(out);
     }
 }
@@ -126,6 +126,15 @@ public class BulkRequestBuilder extends ActionRequestBuilder<BulkRequest, BulkRe
         return this;
     }
 
+    /**
+     * Should the response wait until a refresh made the changes searchable instead of forcing a refresh. Defaults
+     * to <tt>false</tt>.
+     */
+    public BulkRequestBuilder setWaitForRefresh(boolean waitForRefresh) {
+        request.waitForRefresh(waitForRefresh);
+        return this;
+    }
+
     /**
      * A timeout to wait if the index operation can't be performed immediately. Defaults to <tt>1m</tt>.
      */
@@ -37,23 +37,61 @@ public class BulkShardRequest extends ReplicationRequest<BulkShardRequest> {
 
     private boolean refresh;
 
+    private boolean waitForRefresh;
+
     public BulkShardRequest() {
     }
 
-    BulkShardRequest(BulkRequest bulkRequest, ShardId shardId, boolean refresh, BulkItemRequest[] items) {
+    BulkShardRequest(BulkRequest bulkRequest, ShardId shardId, boolean refresh, boolean waitForRefresh, BulkItemRequest[] items) {
         super(shardId);
         this.items = items;
         this.refresh = refresh;
+        this.waitForRefresh = waitForRefresh;
     }
 
     boolean refresh() {
         return this.refresh;
     }
 
+    boolean waitForRefresh() {
+        return this.waitForRefresh;
+    }
+
     BulkItemRequest[] items() {
         return items;
     }
 
+    /**
+     * Returns a request for the replicas that wraps the same index and delete requests in new items, so that the primary can record
+     * its responses on the items of this request while the copy is being sent to the replicas.
+     */
+    BulkShardRequest copyForReplicas() {
+        final BulkItemRequest[] copies = new BulkItemRequest[items.length];
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] != null) {
+                copies[i] = new BulkItemRequest(items[i].id(), items[i].request());
+            }
+        }
+        final BulkShardRequest copy = new BulkShardRequest(null, shardId, refresh, waitForRefresh, copies);
+        copy.timeout(timeout);
+        copy.consistencyLevel(consistencyLevel());
+        copy.setParentTask(getParentTask().getNodeId(), getParentTask().getId());
+        return copy;
+    }
+
+    /**
+     * The estimated size in bytes of the items of this request, see {@link BulkRequest#estimatedSizeInBytes()}.
+     */
+    long estimatedSizeInBytes() {
+        long size = 0;
+        for (BulkItemRequest item : items) {
+            if (item != null) {
+                size += BulkRequest.estimatedSizeInBytes(item.request());
+            }
+        }
+        return size;
+    }
+
     @Override
     public String[] indices() {
         List<String> indices = new ArrayList<>();
@@ -78,6 +116,7 @@ public class BulkShardRequest extends ReplicationRequest<BulkShardRequest> {
             }
         }
         out.writeBoolean(refresh);
+        out.writeBoolean(waitForRefresh);
     }
 
     @Override
@@ -90,6 +129,18 @@ public class BulkShardRequest extends ReplicationRequest<BulkShardRequest> {
             }
         }
         refresh = in.readBoolean();
+        waitForRefresh = in.readBoolean();
+    }
+
+    @Override
+    public void onRetry() {
+        for (BulkItemRequest item : items) {
+            if (item != null && item.request() instanceof ReplicationRequest) {
+                // items might have been executed already, make sure the engine knows they can be duplicates
+                // see IndexRequest#isRetry()
+                ((ReplicationRequest<?>) item.request()).onRetry();
+            }
+        }
     }
 
     @Override
@@ -99,6 +150,8 @@ public class BulkShardRequest extends ReplicationRequest<BulkShardRequest> {
         b.append(index).append("] containing [").append(items.length).append("] requests");
         if (refresh) {
             b.append(" and a refresh");
+        } else if (waitForRefresh) {
+            b.append(" and waits for a refresh");
         }
         return b.toString();
     }
@@ -0,0 +1,288 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.WriteConsistencyLevel;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Coalesces {@link BulkShardRequest}s for the same shard that are sent concurrently by this node into a single shard level
+ * request, so that they share one replication round-trip, one translog sync and one thread handoff on the primary and its replicas.
+ * <p>
+ * The first request for a shard opens a batch that is sent once {@link #COALESCE_WINDOW_SETTING} elapsed or the items of the batch
+ * reach {@link #COALESCE_MAX_SIZE_SETTING}, whatever happens first. Only requests with the same refresh, consistency and timeout
+ * settings and the same thread context are coalesced. A batch is sent in the thread context of its requests and each listener is
+ * called in the thread context of the request it belongs to. The item responses of a coalesced request are mapped back to the
+ * requests they originated from. Coalescing is disabled by default, a window of zero sends every request right away.
+ */
+public final class BulkShardRequestCoalescer {
+
+    public static final Setting<TimeValue> COALESCE_WINDOW_SETTING =
+        Setting.positiveTimeSetting("action.bulk.coalesce.window", TimeValue.timeValueMillis(0), Property.Dynamic, Property.NodeScope);
+    public static final Setting<ByteSizeValue> COALESCE_MAX_SIZE_SETTING =
+        Setting.byteSizeSetting("action.bulk.coalesce.max_size", new ByteSizeValue(1024 * 1024), Property.Dynamic, Property.NodeScope);
+
+    private final ThreadPool threadPool;
+    private final BiConsumer<BulkShardRequest, ActionListener<BulkShardResponse>> shardBulkAction;
+    private final Map<Key, Batch> batches = new HashMap<>();
+
+    private volatile TimeValue window;
+    private volatile long maxSizeInBytes;
+
+    BulkShardRequestCoalescer(Settings settings, ClusterSettings clusterSettings, ThreadPool threadPool,
+                              BiConsumer<BulkShardRequest, ActionListener<BulkShardResponse>> shardBulkAction) {
+        this.threadPool = threadPool;
+        this.shardBulkAction = shardBulkAction;
+        this.window = COALESCE_WINDOW_SETTING.get(settings);
+        this.maxSizeInBytes = COALESCE_MAX_SIZE_SETTING.get(settings).bytes();
+        clusterSettings.addSettingsUpdateConsumer(COALESCE_WINDOW_SETTING, this::setWindow);
+        clusterSettings.addSettingsUpdateConsumer(COALESCE_MAX_SIZE_SETTING, this::setMaxSize);
+    }
+
+    private void setWindow(TimeValue window) {
+        this.window = window;
+    }
+
+    private void setMaxSize(ByteSizeValue maxSize) {
+        this.maxSizeInBytes = maxSize.bytes();
+    }
+
+    /**
+     * Executes the given request, possibly as part of a request that is coalesced with other requests for the same shard.
+     */
+    void execute(BulkShardRequest request, ActionListener<BulkShardResponse> listener) {
+        final TimeValue window = this.window;
+        final long requestSizeInBytes = request.estimatedSizeInBytes();
+        if (window.millis() == 0 || requestSizeInBytes >= maxSizeInBytes) {
+            shardBulkAction.accept(request, listener);
+            return;
+        }
+        final ThreadContext threadContext = threadPool.getThreadContext();
+        final Key key = new Key(request, threadContext);
+        final Batch toSend;
+        Batch toSchedule = null;
+        synchronized (batches) {
+            Batch batch = batches.get(key);
+            if (batch == null) {
+                batch = new Batch(key, threadContext.newStoredContext());
+                batches.put(key, batch);
+                toSchedule = batch;
+            }
+            batch.add(request, preserveContext(listener), requestSizeInBytes);
+            if (batch.sizeInBytes >= maxSizeInBytes) {
+                batches.remove(key);
+                toSend = batch;
+            } else {
+                toSend = null;
+            }
+        }
+        if (toSend != null) {
+            send(toSend);
+        } else if (toSchedule != null) {
+            final Batch batch = toSchedule;
+            threadPool.schedule(window, ThreadPool.Names.GENERIC, () -> {
+                synchronized (batches) {
+                    if (batches.get(key) != batch) {
+                        // the batch filled up and was sent already
+                        return;
+                    }
+                    batches.remove(key);
+                }
+                send(batch);
+            });
+        }
+    }
+
+    /**
+     * Wraps the given listener so that it is called in the current thread context, no matter which thread completes the batch
+     */
+    private ActionListener<BulkShardResponse> preserveContext(ActionListener<BulkShardResponse> listener) {
+        final ThreadContext threadContext = threadPool.getThreadContext();
+        final ThreadContext.StoredContext context = threadContext.newStoredContext();
+        return new ActionListener<BulkShardResponse>() {
+            @Override
+            public void onResponse(BulkShardResponse response) {
+                try (ThreadContext.StoredContext ignore = threadContext.stashContext()) {
+                    context.restore();
+                    listener.onResponse(response);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                try (ThreadContext.StoredContext ignore = threadContext.stashContext()) {
+                    context.restore();
+                    listener.onFailure(e);
+                }
+            }
+        };
+    }
+
+    private void send(Batch batch) {
+        // the batch might be sent from the scheduler or from a request with another context that filled it up
+        try (ThreadContext.StoredContext ignore = threadPool.getThreadContext().stashContext()) {
+            batch.context.restore();
+            doSend(batch);
+        }
+    }
+
+    private void doSend(Batch batch) {
+        if (batch.requests.size() == 1) {
+            shardBulkAction.accept(batch.requests.get(0), batch.listeners.get(0));
+            return;
+        }
+        final List<BulkItemRequest> items = new ArrayList<>();
+        // for each item of the coalesced request the index of the request it originates from and its id within that request
+        final List<int[]> origins = new ArrayList<>();
+        for (int r = 0; r < batch.requests.size(); r++) {
+            for (BulkItemRequest item : batch.requests.get(r).items()) {
+                origins.add(new int[] {r, item.id()});
+                items.add(new BulkItemRequest(items.size(), item.request()));
+            }
+        }
+        final BulkShardRequest coalesced = new BulkShardRequest(null, batch.key.shardId, batch.key.refresh, batch.key.waitForRefresh,
+            items.toArray(new BulkItemRequest[items.size()]));
+        coalesced.consistencyLevel(batch.key.consistencyLevel);
+        coalesced.timeout(batch.key.timeout);
+        // the coordinating node accounted for the bytes of the original bulk requests already
+        coalesced.markIndexingPressureAccounted();
+        shardBulkAction.accept(coalesced, new ActionListener<BulkShardResponse>() {
+            @Override
+            public void onResponse(BulkShardResponse response) {
+                final List<List<BulkItemResponse>> itemResponses = new ArrayList<>(batch.requests.size());
+                for (int r = 0; r < batch.requests.size(); r++) {
+                    itemResponses.add(new ArrayList<>());
+                }
+                for (BulkItemResponse itemResponse : response.getResponses()) {
+                    final int[] origin = origins.get(itemResponse.getItemId());
+                    final BulkItemResponse originalItemResponse;
+                    if (itemResponse.isFailed()) {
+                        originalItemResponse = new BulkItemResponse(origin[1], itemResponse.getOpType(), itemResponse.getFailure());
+                    } else {
+                        originalItemResponse = new BulkItemResponse(origin[1], itemResponse.getOpType(), itemResponse.getResponse());
+                    }
+                    itemResponses.get(origin[0]).add(originalItemResponse);
+                }
+                for (int r = 0; r < batch.requests.size(); r++) {
+                    final List<BulkItemResponse> responses = itemResponses.get(r);
+                    final BulkShardResponse shardResponse = new BulkShardResponse(response.getShardId(),
+                        responses.toArray(new BulkItemResponse[responses.size()]));
+                    shardResponse.setShardInfo(response.getShardInfo());
+                    batch.listeners.get(r).onResponse(shardResponse);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                for (ActionListener<BulkShardResponse> listener : batch.listeners) {
+                    listener.onFailure(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * The number of batches that are waiting to be sent, for testing.
+     */
+    int pendingBatches() {
+        synchronized (batches) {
+            return batches.size();
+        }
+    }
+
+    private static final class Batch {
+        private final Key key;
+        // the thread context of the first request, all requests of the batch have an equivalent context
+        private final ThreadContext.StoredContext context;
+        private final List<BulkShardRequest> requests = new ArrayList<>();
+        private final List<ActionListener<BulkShardResponse>> listeners = new ArrayList<>();
+        private long sizeInBytes;
+
+        Batch(Key key, ThreadContext.StoredContext context) {
+            this.key = key;
+            this.context = context;
+        }
+
+        void add(BulkShardRequest request, ActionListener<BulkShardResponse> listener, long requestSizeInBytes) {
+            requests.add(request);
+            listeners.add(listener);
+            sizeInBytes += requestSizeInBytes;
+        }
+    }
+
+    /**
+     * The properties that requests need to share to be coalesced. This includes the headers and transient headers of the thread
+     * context, so that no request runs with the headers or security context of another one.
+     */
+    private static final class Key {
+        private final ShardId shardId;
+        private final boolean refresh;
+        private final boolean waitForRefresh;
+        private final WriteConsistencyLevel consistencyLevel;
+        private final TimeValue timeout;
+        private final Map<String, String> headers;
+        private final Map<String, Object> transientHeaders;
+
+        Key(BulkShardRequest request, ThreadContext threadContext) {
+            this.shardId = request.shardId();
+            this.refresh = request.refresh();
+            this.waitForRefresh = request.waitForRefresh();
+            this.consistencyLevel = request.consistencyLevel();
+            this.timeout = request.timeout();
+            this.headers = threadContext.getHeaders();
+            this.transientHeaders = new HashMap<>(threadContext.getTransientHeaders());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key other = (Key) o;
+            return refresh == other.refresh && waitForRefresh == other.waitForRefresh && shardId.equals(other.shardId)
+                && consistencyLevel == other.consistencyLevel && Objects.equals(timeout, other.timeout)
+                && headers.equals(other.headers) && transientHeaders.equals(other.transientHeaders);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(shardId, refresh, waitForRefresh, consistencyLevel, timeout, headers, transientHeaders);
+        }
+    }
+}
@@ -45,10 +45,12 @@ import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexNotFoundException;
+import org.elasticsearch.index.IndexingPressure;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.IndexAlreadyExistsException;
 import org.elasticsearch.indices.IndexClosedException;
@@ -78,23 +80,26 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
     private final TransportShardBulkAction shardBulkAction;
     private final TransportCreateIndexAction createIndexAction;
     private final LongSupplier relativeTimeProvider;
+    private final IndexingPressure indexingPressure;
+    private final BulkShardRequestCoalescer shardRequestCoalescer;
 
     @Inject
     public TransportBulkAction(Settings settings, ThreadPool threadPool, TransportService transportService, ClusterService clusterService,
                                TransportShardBulkAction shardBulkAction, TransportCreateIndexAction createIndexAction,
                                ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver,
-                               AutoCreateIndex autoCreateIndex) {
+                               AutoCreateIndex autoCreateIndex, IndexingPressure indexingPressure) {
         this(settings, threadPool, transportService, clusterService,
                 shardBulkAction, createIndexAction,
                 actionFilters, indexNameExpressionResolver,
-                autoCreateIndex,
+                autoCreateIndex, indexingPressure,
                 System::nanoTime);
     }
 
     public TransportBulkAction(Settings settings, ThreadPool threadPool, TransportService transportService, ClusterService clusterService,
                                TransportShardBulkAction shardBulkAction, TransportCreateIndexAction createIndexAction,
                                ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver,
-                               AutoCreateIndex autoCreateIndex, LongSupplier relativeTimeProvider) {
+                               AutoCreateIndex autoCreateIndex, IndexingPressure indexingPressure,
+                               LongSupplier relativeTimeProvider) {
         super(settings, BulkAction.NAME, threadPool, transportService, actionFilters, indexNameExpressionResolver, BulkRequest::new);
         Objects.requireNonNull(relativeTimeProvider);
         this.clusterService = clusterService;
@@ -102,12 +107,38 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
         this.createIndexAction = createIndexAction;
 
         this.autoCreateIndex = autoCreateIndex;
+        this.indexingPressure = indexingPressure;
         this.allowIdGeneration = this.settings.getAsBoolean("action.bulk.action.allow_id_generation", true);
         this.relativeTimeProvider = relativeTimeProvider;
+        this.shardRequestCoalescer = new BulkShardRequestCoalescer(settings, clusterService.getClusterSettings(), threadPool,
+            (request, listener) -> this.shardBulkAction.execute(request, listener));
     }
 
     @Override
     protected void doExecute(final BulkRequest bulkRequest, final ActionListener<BulkResponse> listener) {
+        // the whole bulk request is held on to until all of its shard level requests completed
+        final Releasable releasable = indexingPressure.markCoordinatingOperationStarted(bulkRequest.estimatedSizeInBytes());
+        try {
+            doExecuteAccounted(bulkRequest, new ActionListener<BulkResponse>() {
+                @Override
+                public void onResponse(BulkResponse response) {
+                    releasable.close();
+                    listener.onResponse(response);
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    releasable.close();
+                    listener.onFailure(e);
+                }
+            });
+        } catch (Throwable t) {
+            releasable.close();
+            throw t;
+        }
+    }
+
+    private void doExecuteAccounted(final BulkRequest bulkRequest, final ActionListener<BulkResponse> listener) {
         final long startTime = relativeTime();
         final AtomicArray<BulkItemResponse> responses = new AtomicArray<>(bulkRequest.requests.size());
 
@@ -336,10 +367,12 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
         for (Map.Entry<ShardId, List<BulkItemRequest>> entry : requestsByShard.entrySet()) {
             final ShardId shardId = entry.getKey();
             final List<BulkItemRequest> requests = entry.getValue();
-            BulkShardRequest bulkShardRequest = new BulkShardRequest(bulkRequest, shardId, bulkRequest.refresh(), requests.toArray(new BulkItemRequest[requests.size()]));
+            BulkShardRequest bulkShardRequest = new BulkShardRequest(bulkRequest, shardId, bulkRequest.refresh(), bulkRequest.waitForRefresh(), requests.toArray(new BulkItemRequest[requests.size()]));
             bulkShardRequest.consistencyLevel(bulkRequest.consistencyLevel());
             bulkShardRequest.timeout(bulkRequest.timeout());
-            shardBulkAction.execute(bulkShardRequest, new ActionListener<BulkShardResponse>() {
+            // the coordinating node accounts for the bytes of the whole bulk request in doExecute
+            bulkShardRequest.markIndexingPressureAccounted();
+            shardRequestCoalescer.execute(bulkShardRequest, new ActionListener<BulkShardResponse>() {
                 @Override
                 public void onResponse(BulkShardResponse bulkShardResponse) {
                     for (BulkItemResponse bulkItemResponse : bulkShardResponse.getResponses()) {
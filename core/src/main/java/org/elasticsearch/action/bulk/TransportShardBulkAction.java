@@ -48,6 +48,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.IndexingPressure;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.VersionConflictEngineException;
@@ -80,10 +81,10 @@ public class TransportShardBulkAction extends TransportReplicationAction<BulkSha
     public TransportShardBulkAction(Settings settings, TransportService transportService, ClusterService clusterService,
                                     IndicesService indicesService, ThreadPool threadPool, ShardStateAction shardStateAction,
                                     MappingUpdatedAction mappingUpdatedAction, UpdateHelper updateHelper, ActionFilters actionFilters,
-                                    IndexNameExpressionResolver indexNameExpressionResolver) {
+                                    IndexNameExpressionResolver indexNameExpressionResolver, IndexingPressure indexingPressure) {
         super(settings, ACTION_NAME, transportService, clusterService, indicesService, threadPool, shardStateAction,
             actionFilters, indexNameExpressionResolver,
-                BulkShardRequest::new, BulkShardRequest::new, ThreadPool.Names.BULK);
+                BulkShardRequest::new, BulkShardRequest::new, ThreadPool.Names.BULK, indexingPressure);
         this.updateHelper = updateHelper;
         this.allowIdGeneration = settings.getAsBoolean("action.allow_id_generation", true);
         this.mappingUpdatedAction = mappingUpdatedAction;
@@ -104,6 +105,16 @@ public class TransportShardBulkAction extends TransportReplicationAction<BulkSha
         return false;
     }
 
+    @Override
+    protected long operationSizeInBytes(BulkShardRequest request) {
+        return request.estimatedSizeInBytes();
+    }
+
+    @Override
+    protected long replicaOperationSizeInBytes(BulkShardRequest request) {
+        return request.estimatedSizeInBytes();
+    }
+
     @Override
     protected Tuple<BulkShardResponse, BulkShardRequest> shardOperationOnPrimary(MetaData metaData, BulkShardRequest request) {
         ShardId shardId = request.shardId();
@@ -118,7 +129,7 @@ public class TransportShardBulkAction extends TransportReplicationAction<BulkSha
             location = handleItem(metaData, request, indexShard, preVersions, preVersionTypes, location, requestIndex, item);
         }
 
-        processAfterWrite(request.refresh(), indexShard, location);
+        processAfterWrite(request, request.refresh(), request.waitForRefresh(), indexShard, location);
         BulkItemResponse[] responses = new BulkItemResponse[request.items().length];
         BulkItemRequest[] items = request.items();
         for (int i = 0; i < items.length; i++) {
@@ -127,6 +138,42 @@ public class TransportShardBulkAction extends TransportReplicationAction<BulkSha
         return new Tuple<>(new BulkShardResponse(request.shardId(), responses), request);
     }
 
+    @Override
+    protected BulkShardRequest replicaRequestForParallelReplication(BulkShardRequest request) {
+        if (request.waitForRefresh()) {
+            // the response waits for the location that the primary writes to, which isn't known before it completed
+            return null;
+        }
+        for (BulkItemRequest item : request.items()) {
+            if (item != null && canReplicateInParallel(item.request()) == false) {
+                return null;
+            }
+        }
+        return request.copyForReplicas();
+    }
+
+    /**
+     * Replicas can only apply an item without waiting for the primary if it doesn't need anything the primary resolves for it. This
+     * is the case for index and delete requests that carry their own version, since the primary only sets the same version and
+     * version type on them again. Internally versioned requests get their version from the primary, updates are translated into
+     * index and delete requests on the primary and creates depend on whether the primary already had the document.
+     */
+    private static boolean canReplicateInParallel(ActionRequest request) {
+        final VersionType versionType;
+        if (request instanceof IndexRequest) {
+            final IndexRequest indexRequest = (IndexRequest) request;
+            if (indexRequest.opType() != IndexRequest.OpType.INDEX) {
+                return false;
+            }
+            versionType = indexRequest.versionType();
+        } else if (request instanceof DeleteRequest) {
+            versionType = ((DeleteRequest) request).versionType();
+        } else {
+            return false;
+        }
+        return versionType.versionTypeForReplicationAndRecovery() == versionType;
+    }
+
     private Translog.Location handleItem(MetaData metaData, BulkShardRequest request, IndexShard indexShard, long[] preVersions, VersionType[] preVersionTypes, Translog.Location location, int requestIndex, BulkItemRequest item) {
         if (item.request() instanceof IndexRequest) {
             location = index(metaData, request, indexShard, preVersions, preVersionTypes, location, requestIndex, item);
@@ -477,7 +524,7 @@ public class TransportShardBulkAction extends TransportReplicationAction<BulkSha
             }
         }
 
-        processAfterWrite(request.refresh(), indexShard, location);
+        processAfterWrite(request, request.refresh(), request.waitForRefresh(), indexShard, location);
     }
 
     private void applyVersion(BulkItemRequest item, long version, VersionType versionType) {
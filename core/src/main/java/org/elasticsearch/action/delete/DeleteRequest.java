@@ -52,6 +52,7 @@ public class DeleteRequest extends ReplicationRequest<DeleteRequest> implements
     @Nullable
     private String parent;
     private boolean refresh;
+    private boolean waitForRefresh;
     private long version = Versions.MATCH_ANY;
     private VersionType versionType = VersionType.INTERNAL;
 
@@ -179,6 +180,19 @@ public class DeleteRequest extends ReplicationRequest<DeleteRequest> implements
         return this.refresh;
     }
 
+    /**
+     * Should the response to this delete operation wait until a refresh made it searchable instead of forcing a refresh like
+     * {@link #refresh(boolean)} does. Ignored if {@link #refresh()} is set. Defaults to <tt>false</tt>.
+     */
+    public DeleteRequest waitForRefresh(boolean waitForRefresh) {
+        this.waitForRefresh = waitForRefresh;
+        return this;
+    }
+
+    public boolean waitForRefresh() {
+        return this.waitForRefresh;
+    }
+
     /**
      * Sets the version, which will cause the delete operation to only be performed if a matching
      * version exists and no changes happened on the doc since then.
@@ -209,6 +223,7 @@ public class DeleteRequest extends ReplicationRequest<DeleteRequest> implements
         routing = in.readOptionalString();
         parent = in.readOptionalString();
         refresh = in.readBoolean();
+        waitForRefresh = in.readBoolean();
         version = in.readLong();
         versionType = VersionType.fromValue(in.readByte());
     }
@@ -221,6 +236,7 @@ public class DeleteRequest extends ReplicationRequest<DeleteRequest> implements
         out.writeOptionalString(routing());
         out.writeOptionalString(parent());
         out.writeBoolean(refresh);
+        out.writeBoolean(waitForRefresh);
         out.writeLong(version);
         out.writeByte(versionType.getValue());
     }
@@ -81,6 +81,15 @@ public class DeleteRequestBuilder extends ReplicationRequestBuilder<DeleteReques
         return this;
     }
 
+    /**
+     * Should the response wait until a refresh made the changes searchable instead of forcing a refresh. Defaults
+     * to <tt>false</tt>.
+     */
+    public DeleteRequestBuilder setWaitForRefresh(boolean waitForRefresh) {
+        request.waitForRefresh(waitForRefresh);
+        return this;
+    }
+
     /**
      * Sets the version, which will cause the delete operation to only be performed if a matching
      * version exists and no changes happened on the doc since then.
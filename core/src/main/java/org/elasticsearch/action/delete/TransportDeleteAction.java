@@ -131,7 +131,7 @@ public class TransportDeleteAction extends TransportReplicationAction<DeleteRequ
     protected Tuple<DeleteResponse, DeleteRequest> shardOperationOnPrimary(MetaData metaData, DeleteRequest request) {
         IndexShard indexShard = indicesService.indexServiceSafe(request.shardId().getIndex()).getShard(request.shardId().id());
         final WriteResult<DeleteResponse> result = executeDeleteRequestOnPrimary(request, indexShard);
-        processAfterWrite(request.refresh(), indexShard, result.location);
+        processAfterWrite(request, request.refresh(), request.waitForRefresh(), indexShard, result.location);
         return new Tuple<>(result.response, request);
     }
 
@@ -159,7 +159,7 @@ public class TransportDeleteAction extends TransportReplicationAction<DeleteRequ
         final ShardId shardId = request.shardId();
         IndexShard indexShard = indicesService.indexServiceSafe(shardId.getIndex()).getShard(shardId.id());
         Engine.Delete delete = executeDeleteRequestOnReplica(request, indexShard);
-        processAfterWrite(request.refresh(), indexShard, delete.getTranslogLocation());
+        processAfterWrite(request, request.refresh(), request.waitForRefresh(), indexShard, delete.getTranslogLocation());
     }
 
 }
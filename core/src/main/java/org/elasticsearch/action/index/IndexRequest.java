@@ -134,6 +134,12 @@ public class IndexRequest extends ReplicationRequest<IndexRequest> implements Do
 
     }
 
+    /**
+     * Value for {@link #getAutoGeneratedTimestamp()} if the document has an external
+     * provided ID.
+     */
+    public static final long UNSET_AUTO_GENERATED_TIMESTAMP = -1L;
+
     private String type;
     private String id;
     @Nullable
@@ -150,6 +156,7 @@ public class IndexRequest extends ReplicationRequest<IndexRequest> implements Do
     private OpType opType = OpType.INDEX;
 
     private boolean refresh = false;
+    private boolean waitForRefresh = false;
     private long version = Versions.MATCH_ANY;
     private VersionType versionType = VersionType.INTERNAL;
 
@@ -157,6 +164,10 @@ public class IndexRequest extends ReplicationRequest<IndexRequest> implements Do
 
     private String pipeline;
 
+    private long autoGeneratedTimestamp = UNSET_AUTO_GENERATED_TIMESTAMP;
+
+    private boolean isRetry = false;
+
     public IndexRequest() {
     }
 
@@ -560,6 +571,19 @@ public class IndexRequest extends ReplicationRequest<IndexRequest> implements Do
         return this.refresh;
     }
 
+    /**
+     * Should the response to this index operation wait until a refresh made it searchable instead of forcing a refresh like
+     * {@link #refresh(boolean)} does. Ignored if {@link #refresh()} is set. Defaults to <tt>false</tt>.
+     */
+    public IndexRequest waitForRefresh(boolean waitForRefresh) {
+        this.waitForRefresh = waitForRefresh;
+        return this;
+    }
+
+    public boolean waitForRefresh() {
+        return this.waitForRefresh;
+    }
+
     /**
      * Sets the version, which will cause the index operation to only be performed if a matching
      * version exists and no changes happened on the doc since then.
@@ -586,6 +610,26 @@ public class IndexRequest extends ReplicationRequest<IndexRequest> implements Do
     }
 
 
+    /**
+     * Returns <code>true</code> if this request has been sent to a shard copy more than once.
+     */
+    public boolean isRetry() {
+        return isRetry;
+    }
+
+    @Override
+    public void onRetry() {
+        isRetry = true;
+    }
+
+    /**
+     * Returns the timestamp the auto generated ID was created or {@link #UNSET_AUTO_GENERATED_TIMESTAMP} if the
+     * document has no auto generated timestamp. This method will return a positive value iff the id was auto generated.
+     */
+    public long getAutoGeneratedTimestamp() {
+        return autoGeneratedTimestamp;
+    }
+
     public void process(MetaData metaData, @Nullable MappingMetaData mappingMd, boolean allowIdGeneration, String concreteIndex) {
         // resolve the routing if needed
         routing(metaData.resolveIndexRouting(parent, routing, index));
@@ -613,6 +657,9 @@ public class IndexRequest extends ReplicationRequest<IndexRequest> implements Do
         // generate id if not already provided and id generation is allowed
         if (allowIdGeneration) {
             if (id == null) {
+                assert autoGeneratedTimestamp == UNSET_AUTO_GENERATED_TIMESTAMP : "timestamp has already been generated!";
+                // never set this to a negative value, the engine relies on it to tell generated ids apart from user provided ones
+                autoGeneratedTimestamp = Math.max(0, System.currentTimeMillis());
                 id(Strings.base64UUID());
             }
         }
@@ -655,9 +702,12 @@ public class IndexRequest extends ReplicationRequest<IndexRequest> implements Do
 
         opType = OpType.fromId(in.readByte());
         refresh = in.readBoolean();
+        waitForRefresh = in.readBoolean();
         version = in.readLong();
         versionType = VersionType.fromValue(in.readByte());
         pipeline = in.readOptionalString();
+        isRetry = in.readBoolean();
+        autoGeneratedTimestamp = in.readLong();
     }
 
     @Override
@@ -677,9 +727,12 @@ public class IndexRequest extends ReplicationRequest<IndexRequest> implements Do
         out.writeBytesReference(source);
         out.writeByte(opType.id());
         out.writeBoolean(refresh);
+        out.writeBoolean(waitForRefresh);
         out.writeLong(version);
         out.writeByte(versionType.getValue());
         out.writeOptionalString(pipeline);
+        out.writeBoolean(isRetry);
+        out.writeLong(autoGeneratedTimestamp);
     }
 
     @Override
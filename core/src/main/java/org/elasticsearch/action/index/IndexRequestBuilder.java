@@ -230,6 +230,15 @@ public class IndexRequestBuilder extends ReplicationRequestBuilder<IndexRequest,
         return this;
     }
 
+    /**
+     * Should the response wait until a refresh made the changes searchable instead of forcing a refresh. Defaults
+     * to <tt>false</tt>.
+     */
+    public IndexRequestBuilder setWaitForRefresh(boolean waitForRefresh) {
+        request.waitForRefresh(waitForRefresh);
+        return this;
+    }
+
     /**
      * Sets the version, which will cause the index operation to only be performed if a matching
      * version exists and no changes happened on the doc since then.
@@ -42,6 +42,13 @@ public abstract class ChildTaskActionRequest<Request extends ActionRequest<Reque
         this.parentTaskId = new TaskId(parentTaskNode, parentTaskId);
     }
 
+    /**
+     * The task that this request is a child of, or {@link TaskId#EMPTY_TASK_ID} if it has no parent
+     */
+    public TaskId getParentTask() {
+        return parentTaskId;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
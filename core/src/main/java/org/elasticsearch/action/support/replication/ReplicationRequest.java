@@ -28,7 +28,9 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.tasks.Task;
 import org.elasticsearch.tasks.TaskId;
 
@@ -60,6 +62,15 @@ public abstract class ReplicationRequest<Request extends ReplicationRequest<Requ
 
     private long routedBasedOnClusterVersion = 0;
 
+    // the shard and location the response for this request has to wait for to become visible, set on the node that executes the
+    // request by TransportReplicationAction#processAfterWrite and never serialized
+    IndexShard waitForRefreshShard;
+    Translog.Location waitForRefreshLocation;
+
+    // set once the node coordinating this request accounted for its bytes in the IndexingPressure, never serialized so that only
+    // a primary on the coordinating node itself skips accounting for them again
+    private boolean indexingPressureAccounted = false;
+
     public ReplicationRequest() {
 
     }
@@ -150,6 +161,22 @@ public abstract class ReplicationRequest<Request extends ReplicationRequest<Requ
         return routedBasedOnClusterVersion;
     }
 
+    /**
+     * Marks that the bytes of this request are accounted for in the {@link org.elasticsearch.index.IndexingPressure} of the
+     * coordinating node until the request completed.
+     */
+    public void markIndexingPressureAccounted() {
+        this.indexingPressureAccounted = true;
+    }
+
+    /**
+     * Returns <code>true</code> if the bytes of this request are already accounted for by the coordinating node. Always
+     * <code>false</code> on any other node.
+     */
+    public boolean isIndexingPressureAccounted() {
+        return indexingPressureAccounted;
+    }
+
     /** returns the primary term active at the time the operation was performed on the primary shard */
     public long primaryTerm() {
         return primaryTerm;
@@ -160,6 +187,14 @@ public abstract class ReplicationRequest<Request extends ReplicationRequest<Requ
         primaryTerm = term;
     }
 
+    /**
+     * This method is called before this replication request is retried
+     * the first time.
+     */
+    public void onRetry() {
+        // nothing by default
+    }
+
     @Override
     public ActionRequestValidationException validate() {
         ActionRequestValidationException validationException = null;
@@ -53,6 +53,7 @@ import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.IndexingPressure;
 import org.elasticsearch.index.engine.VersionConflictEngineException;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardState;
@@ -65,6 +66,7 @@ import org.elasticsearch.tasks.Task;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.BaseTransportResponseHandler;
 import org.elasticsearch.transport.ConnectTransportException;
+import org.elasticsearch.transport.DelegatingTransportChannel;
 import org.elasticsearch.transport.EmptyTransportResponseHandler;
 import org.elasticsearch.transport.TransportChannel;
 import org.elasticsearch.transport.TransportChannelResponseHandler;
@@ -72,6 +74,7 @@ import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportRequestHandler;
 import org.elasticsearch.transport.TransportRequestOptions;
 import org.elasticsearch.transport.TransportResponse;
+import org.elasticsearch.transport.TransportResponseOptions;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
@@ -106,6 +109,8 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
     final String transportPrimaryAction;
     final String executor;
     final boolean checkWriteConsistency;
+    @Nullable
+    private final IndexingPressure indexingPressure;
 
     protected TransportReplicationAction(Settings settings, String actionName, TransportService transportService,
                                          ClusterService clusterService, IndicesService indicesService,
@@ -113,11 +118,27 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
                                          ActionFilters actionFilters,
                                          IndexNameExpressionResolver indexNameExpressionResolver, Supplier<Request> request,
                                          Supplier<ReplicaRequest> replicaRequest, String executor) {
+        this(settings, actionName, transportService, clusterService, indicesService, threadPool, shardStateAction, actionFilters,
+            indexNameExpressionResolver, request, replicaRequest, executor, null);
+    }
+
+    /**
+     * Creates an action whose operations are accounted for in the given {@link IndexingPressure}, see
+     * {@link #operationSizeInBytes(ReplicationRequest)}.
+     */
+    protected TransportReplicationAction(Settings settings, String actionName, TransportService transportService,
+                                         ClusterService clusterService, IndicesService indicesService,
+                                         ThreadPool threadPool, ShardStateAction shardStateAction,
+                                         ActionFilters actionFilters,
+                                         IndexNameExpressionResolver indexNameExpressionResolver, Supplier<Request> request,
+                                         Supplier<ReplicaRequest> replicaRequest, String executor,
+                                         @Nullable IndexingPressure indexingPressure) {
         super(settings, actionName, threadPool, actionFilters, indexNameExpressionResolver, transportService.getTaskManager());
         this.transportService = transportService;
         this.clusterService = clusterService;
         this.indicesService = indicesService;
         this.shardStateAction = shardStateAction;
+        this.indexingPressure = indexingPressure;
 
         this.transportPrimaryAction = actionName + "[p]";
         this.transportReplicaAction = actionName + "[r]";
@@ -140,7 +161,29 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
 
     @Override
     protected void doExecute(Task task, Request request, ActionListener<Response> listener) {
-        new ReroutePhase((ReplicationTask) task, request, listener).run();
+        if (indexingPressure == null || request.isIndexingPressureAccounted()) {
+            new ReroutePhase((ReplicationTask) task, request, listener).run();
+            return;
+        }
+        final Releasable releasable = indexingPressure.markCoordinatingOperationStarted(operationSizeInBytes(request));
+        request.markIndexingPressureAccounted();
+        new ReroutePhase((ReplicationTask) task, request, new ReleasingActionListener<>(releasable, listener)).run();
+    }
+
+    /**
+     * Returns the estimated number of bytes the given request holds on to while it is executed on the coordinating node and the
+     * primary. Only actions created with an {@link IndexingPressure} account for these bytes, actions returning 0 are never rejected.
+     */
+    protected long operationSizeInBytes(Request request) {
+        return 0;
+    }
+
+    /**
+     * Returns the estimated number of bytes the given request holds on to while it is executed on a replica, see
+     * {@link #operationSizeInBytes(ReplicationRequest)}.
+     */
+    protected long replicaOperationSizeInBytes(ReplicaRequest request) {
+        return 0;
     }
 
     protected abstract Response newResponseInstance();
@@ -166,6 +209,18 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
      */
     protected abstract void shardOperationOnReplica(ReplicaRequest shardRequest);
 
+    /**
+     * Returns the request to send to the replicas while the operation is still executing on the primary, or null (the default)
+     * to only replicate once the primary operation completed. Replicating in parallel is only safe for operations that don't need
+     * anything from the primary operation, like the versions that the primary resolves for index and delete operations. If the
+     * primary operation fails the request fails and replica requests that weren't sent yet are skipped, but replicas that already
+     * received the request still execute it.
+     */
+    @Nullable
+    protected ReplicaRequest replicaRequestForParallelReplication(Request request) {
+        return null;
+    }
+
     /**
      * True if write consistency should be checked for an implementation
      */
@@ -251,7 +306,15 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
     class OperationTransportHandler implements TransportRequestHandler<Request> {
         @Override
         public void messageReceived(final Request request, final TransportChannel channel, Task task) throws Exception {
-            execute(task, request, new ActionListener<Response>() {
+            final Releasable releasable;
+            if (indexingPressure == null) {
+                releasable = null;
+            } else {
+                // another node routed the request here, usually because this node holds the primary
+                releasable = indexingPressure.markPrimaryOperationStarted(operationSizeInBytes(request));
+                request.markIndexingPressureAccounted();
+            }
+            execute(task, request, new ReleasingActionListener<>(releasable, new ActionListener<Response>() {
                 @Override
                 public void onResponse(Response result) {
                     try {
@@ -269,7 +332,7 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
                         logger.warn("Failed to send response for {}", e1, actionName);
                     }
                 }
-            });
+            }));
         }
 
         @Override
@@ -286,6 +349,10 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
 
         @Override
         public void messageReceived(Request request, TransportChannel channel, Task task) throws Exception {
+            if (indexingPressure != null && request.isIndexingPressureAccounted() == false) {
+                final Releasable releasable = indexingPressure.markPrimaryOperationStarted(operationSizeInBytes(request));
+                channel = new ReleasingTransportChannel(releasable, channel);
+            }
             new PrimaryPhase((ReplicationTask) task, request, channel).run();
         }
     }
@@ -298,10 +365,72 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
 
         @Override
         public void messageReceived(ReplicaRequest request, TransportChannel channel, Task task) throws Exception {
+            if (indexingPressure != null) {
+                final Releasable releasable = indexingPressure.markReplicaOperationStarted(replicaOperationSizeInBytes(request));
+                channel = new ReleasingTransportChannel(releasable, channel);
+            }
             new AsyncReplicaAction(request, channel, (ReplicationTask) task).run();
         }
     }
 
+    /**
+     * Releases the bytes of an operation once its response was sent.
+     */
+    private static class ReleasingTransportChannel extends DelegatingTransportChannel {
+
+        private final Releasable releasable;
+
+        ReleasingTransportChannel(Releasable releasable, TransportChannel channel) {
+            super(channel);
+            this.releasable = releasable;
+        }
+
+        @Override
+        public void sendResponse(TransportResponse response) throws IOException {
+            releasable.close();
+            super.sendResponse(response);
+        }
+
+        @Override
+        public void sendResponse(TransportResponse response, TransportResponseOptions options) throws IOException {
+            releasable.close();
+            super.sendResponse(response, options);
+        }
+
+        @Override
+        public void sendResponse(Throwable error) throws IOException {
+            releasable.close();
+            super.sendResponse(error);
+        }
+    }
+
+    /**
+     * Releases the bytes of an operation once it completed.
+     */
+    private static class ReleasingActionListener<Response> implements ActionListener<Response> {
+
+        @Nullable
+        private final Releasable releasable;
+        private final ActionListener<Response> listener;
+
+        ReleasingActionListener(@Nullable Releasable releasable, ActionListener<Response> listener) {
+            this.releasable = releasable;
+            this.listener = listener;
+        }
+
+        @Override
+        public void onResponse(Response response) {
+            Releasables.close(releasable);
+            listener.onResponse(response);
+        }
+
+        @Override
+        public void onFailure(Throwable e) {
+            Releasables.close(releasable);
+            listener.onFailure(e);
+        }
+    }
+
     public static class RetryOnReplicaException extends ElasticsearchException {
 
         public RetryOnReplicaException(ShardId shardId, String msg) {
@@ -381,8 +510,21 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
                     logger.trace("action [{}] completed on shard [{}] for request [{}]", transportReplicaAction, request.shardId(), request);
                 }
             }
-            setPhase(task, "finished");
-            channel.sendResponse(TransportResponse.Empty.INSTANCE);
+            final IndexShard waitForRefreshShard = request.waitForRefreshShard;
+            if (waitForRefreshShard == null) {
+                setPhase(task, "finished");
+                channel.sendResponse(TransportResponse.Empty.INSTANCE);
+            } else {
+                setPhase(task, "waiting_for_refresh");
+                waitForRefreshShard.addRefreshListener(request.waitForRefreshLocation, forcedRefresh -> {
+                    setPhase(task, "finished");
+                    try {
+                        channel.sendResponse(TransportResponse.Empty.INSTANCE);
+                    } catch (IOException e) {
+                        logger.warn("failed to send response back to primary for action [{}]", e, transportReplicaAction);
+                    }
+                });
+            }
         }
     }
 
@@ -571,6 +713,7 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
                 return;
             }
             setPhase(task, "waiting_for_retry");
+            request.onRetry();
             final ThreadContext.StoredContext context = threadPool.getThreadContext().newStoredContext();
             observer.waitForNextChange(new ClusterStateObserver.Listener() {
                 @Override
@@ -687,6 +830,11 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
         }
 
         private void executeLocally() throws Exception {
+            final ReplicaRequest parallelReplicaRequest = replicaRequestForParallelReplication(request);
+            if (parallelReplicaRequest != null) {
+                executeLocallyInParallelWithReplicas(parallelReplicaRequest);
+                return;
+            }
             // execute locally
             Tuple<Response, ReplicaRequest> primaryResponse = shardOperationOnPrimary(state.metaData(), request);
             primaryResponse.v2().primaryTerm(indexShardReference.opPrimaryTerm());
@@ -694,9 +842,36 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
                 logger.trace("action [{}] completed on shard [{}] for request [{}] with cluster state version [{}]", transportPrimaryAction, shardId, request, state.version());
             }
             ReplicationPhase replicationPhase = new ReplicationPhase(task, primaryResponse.v2(), primaryResponse.v1(), shardId, channel, indexShardReference);
+            if (request.waitForRefreshLocation != null) {
+                replicationPhase.waitForRefresh(request.waitForRefreshShard, request.waitForRefreshLocation);
+                request.waitForRefreshShard = null;
+                request.waitForRefreshLocation = null;
+            }
             finishAndMoveToReplication(replicationPhase);
         }
 
+        private void executeLocallyInParallelWithReplicas(ReplicaRequest replicaRequest) {
+            replicaRequest.primaryTerm(indexShardReference.opPrimaryTerm());
+            ReplicationPhase replicationPhase = new ReplicationPhase(task, replicaRequest, null, shardId, channel, indexShardReference);
+            replicationPhase.waitForPrimary();
+            // start sending the replica requests, the response is held back until the primary operation completed as well
+            finishAndMoveToReplication(replicationPhase);
+            final Response response;
+            try {
+                response = shardOperationOnPrimary(state.metaData(), request).v1();
+            } catch (Throwable t) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("failed to execute [{}] on [{}] while replicating in parallel", t, request, shardId);
+                }
+                replicationPhase.onPrimaryFailure(t);
+                return;
+            }
+            if (logger.isTraceEnabled()) {
+                logger.trace("action [{}] completed on shard [{}] for request [{}] with cluster state version [{}]", transportPrimaryAction, shardId, request, state.version());
+            }
+            replicationPhase.onPrimaryResponse(response);
+        }
+
         private void executeRemotely() {
             // delegate primary phase to relocation target
             // it is safe to execute primary phase on relocation target as there are no more in-flight operations where primary
@@ -820,18 +995,20 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
 
         private final ReplicationTask task;
         private final ReplicaRequest replicaRequest;
-        private final Response finalResponse;
+        private volatile Response finalResponse;
         private final TransportChannel channel;
         private final ShardId shardId;
         private final List<ShardRouting> shards;
         private final DiscoveryNodes nodes;
         private final boolean executeOnReplica;
         private final AtomicBoolean finished = new AtomicBoolean();
-        private final AtomicInteger success = new AtomicInteger(1); // We already wrote into the primary shard
+        private final AtomicInteger success;
         private final ConcurrentMap<String, Throwable> shardReplicaFailures = ConcurrentCollections.newConcurrentMap();
         private final AtomicInteger pending;
         private final int totalShards;
         private final IndexShardReference indexShardReference;
+        private IndexShard waitForRefreshShard;
+        private Translog.Location waitForRefreshLocation;
 
         public ReplicationPhase(ReplicationTask task, ReplicaRequest replicaRequest, Response finalResponse, ShardId shardId,
                                 TransportChannel channel, IndexShardReference indexShardReference) {
@@ -839,6 +1016,8 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
             this.replicaRequest = replicaRequest;
             this.channel = channel;
             this.finalResponse = finalResponse;
+            // We already wrote into the primary shard unless we replicate while the primary operation executes
+            this.success = new AtomicInteger(finalResponse == null ? 0 : 1);
             this.indexShardReference = indexShardReference;
             this.shardId = shardId;
 
@@ -945,12 +1124,44 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
             forceFinishAsFailed(t);
         }
 
+        /**
+         * delays the response until a refresh made the given location of the primary visible, must be called before the phase runs
+         */
+        void waitForRefresh(IndexShard indexShard, Translog.Location location) {
+            pending.incrementAndGet();
+            waitForRefreshShard = indexShard;
+            waitForRefreshLocation = location;
+        }
+
+        /**
+         * delays the response until the primary operation, that executes concurrently with this phase, completed. Must be called
+         * before the phase runs.
+         */
+        void waitForPrimary() {
+            assert finalResponse == null : "primary operation already completed";
+            pending.incrementAndGet();
+        }
+
+        void onPrimaryResponse(Response response) {
+            finalResponse = response;
+            success.incrementAndGet();
+            decPendingAndFinishIfNeeded();
+        }
+
+        void onPrimaryFailure(Throwable t) {
+            // replica requests that are still to be sent are skipped once the phase is finished
+            forceFinishAsFailed(t);
+        }
+
         /**
          * start sending replica requests to target nodes
          */
         @Override
         protected void doRun() {
             setPhase(task, "replicating");
+            if (waitForRefreshShard != null) {
+                waitForRefreshShard.addRefreshListener(waitForRefreshLocation, forcedRefresh -> decPendingAndFinishIfNeeded());
+            }
             if (pending.get() == 0) {
                 doFinish();
                 return;
@@ -962,6 +1173,11 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
          * send replica operation to target node
          */
         void performOnReplica(final ShardRouting shard) {
+            if (finished.get()) {
+                // the primary operation failed while replicating in parallel, no need to bother the remaining replicas
+                logger.trace("skipping action [{}] on replica [{}] for request [{}] as the operation already finished", transportReplicaAction, shard.shardId(), replicaRequest);
+                return;
+            }
             // if we don't have that node, it means that it might have failed and will be created again, in
             // this case, we don't have to do the operation, and just let it failover
             String nodeId = shard.currentNodeId();
@@ -1156,13 +1372,22 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
         }
     }
 
-    protected final void processAfterWrite(boolean refresh, IndexShard indexShard, Translog.Location location) {
+    /**
+     * Refreshes, syncs and flushes the shard after a write as requested. If <code>waitForRefresh</code> is set but
+     * <code>refresh</code> isn't, no refresh is forced. Instead the response for <code>request</code> is delayed until a refresh
+     * made <code>location</code> visible.
+     */
+    protected final void processAfterWrite(ReplicationRequest<?> request, boolean refresh, boolean waitForRefresh, IndexShard indexShard,
+                                           Translog.Location location) {
         if (refresh) {
             try {
                 indexShard.refresh("refresh_flag_index");
             } catch (Throwable e) {
                 // ignore
             }
+        } else if (waitForRefresh && location != null) {
+            request.waitForRefreshShard = indexShard;
+            request.waitForRefreshLocation = location;
         }
         if (indexShard.getTranslogDurability() == Translog.Durability.REQUEST && location != null) {
             indexShard.sync(location);
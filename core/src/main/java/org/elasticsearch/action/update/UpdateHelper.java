@@ -128,6 +128,7 @@ public class UpdateHelper extends AbstractComponent {
                     .create(true)
                     .ttl(ttl)
                     .refresh(request.refresh())
+                    .waitForRefresh(request.waitForRefresh())
                     .routing(request.routing())
                     .parent(request.parent())
                     .consistencyLevel(request.consistencyLevel());
@@ -225,7 +226,8 @@ public class UpdateHelper extends AbstractComponent {
                     .version(updateVersion).versionType(request.versionType())
                     .consistencyLevel(request.consistencyLevel())
                     .timestamp(timestamp).ttl(ttl)
-                    .refresh(request.refresh());
+                    .refresh(request.refresh())
+                    .waitForRefresh(request.waitForRefresh());
             return new Result(indexRequest, Operation.INDEX, updatedSourceAsMap, updateSourceContentType);
         } else if ("delete".equals(operation)) {
             DeleteRequest deleteRequest = Requests.deleteRequest(request.index()).type(request.type()).id(request.id()).routing(routing).parent(parent)
@@ -73,6 +73,7 @@ public class UpdateRequest extends InstanceShardOperationRequest<UpdateRequest>
     private int retryOnConflict = 0;
 
     private boolean refresh = false;
+    private boolean waitForRefresh = false;
 
     private WriteConsistencyLevel consistencyLevel = WriteConsistencyLevel.DEFAULT;
 
@@ -436,6 +437,19 @@ public class UpdateRequest extends InstanceShardOperationRequest<UpdateRequest>
         return this.refresh;
     }
 
+    /**
+     * Should the response to this update operation wait until a refresh made it searchable instead of forcing a refresh like
+     * {@link #refresh(boolean)} does. Ignored if {@link #refresh()} is set. Defaults to <tt>false</tt>.
+     */
+    public UpdateRequest waitForRefresh(boolean waitForRefresh) {
+        this.waitForRefresh = waitForRefresh;
+        return this;
+    }
+
+    public boolean waitForRefresh() {
+        return this.waitForRefresh;
+    }
+
     public WriteConsistencyLevel consistencyLevel() {
         return this.consistencyLevel;
     }
@@ -731,6 +745,7 @@ public class UpdateRequest extends InstanceShardOperationRequest<UpdateRequest>
         }
         retryOnConflict = in.readVInt();
         refresh = in.readBoolean();
+        waitForRefresh = in.readBoolean();
         if (in.readBoolean()) {
             doc = new IndexRequest();
             doc.readFrom(in);
@@ -768,6 +783,7 @@ public class UpdateRequest extends InstanceShardOperationRequest<UpdateRequest>
         }
         out.writeVInt(retryOnConflict);
         out.writeBoolean(refresh);
+        out.writeBoolean(waitForRefresh);
         if (doc == null) {
             out.writeBoolean(false);
         } else {
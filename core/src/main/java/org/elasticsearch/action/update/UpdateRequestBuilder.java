@@ -132,6 +132,15 @@ public class UpdateRequestBuilder extends InstanceShardOperationRequestBuilder<U
         return this;
     }
 
+    /**
+     * Should the response wait until a refresh made the changes searchable instead of forcing a refresh. Defaults
+     * to <tt>false</tt>.
+     */
+    public UpdateRequestBuilder setWaitForRefresh(boolean waitForRefresh) {
+        request.waitForRefresh(waitForRefresh);
+        return this;
+    }
+
     /**
      * Sets the consistency level of write. Defaults to {@link org.elasticsearch.action.WriteConsistencyLevel#DEFAULT}
      */
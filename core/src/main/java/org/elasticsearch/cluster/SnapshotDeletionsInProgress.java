@@ -0,0 +1,153 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster;
+
+import org.elasticsearch.cluster.ClusterState.Custom;
+import org.elasticsearch.cluster.metadata.SnapshotId;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Meta data about snapshots that are currently being deleted from their repositories. No snapshot can be started while
+ * a deletion is in progress since the deletion might remove files that the new snapshot would reuse.
+ */
+public class SnapshotDeletionsInProgress extends AbstractDiffable<Custom> implements Custom {
+
+    public static final String TYPE = "snapshot_deletions";
+
+    public static final SnapshotDeletionsInProgress PROTO = new SnapshotDeletionsInProgress();
+
+    private final List<SnapshotId> entries;
+
+    /**
+     * Constructs new snapshot deletion metadata
+     *
+     * @param entries list of snapshots that are currently being deleted
+     */
+    public SnapshotDeletionsInProgress(List<SnapshotId> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Constructs new snapshot deletion metadata
+     *
+     * @param entries list of snapshots that are currently being deleted
+     */
+    public SnapshotDeletionsInProgress(SnapshotId... entries) {
+        this(Arrays.asList(entries));
+    }
+
+    /**
+     * Returns list of snapshots that are currently being deleted
+     *
+     * @return list of snapshots that are currently being deleted
+     */
+    public List<SnapshotId> entries() {
+        return this.entries;
+    }
+
+    /**
+     * Returns a copy of this metadata that additionally contains the given snapshot
+     */
+    public SnapshotDeletionsInProgress withAddedEntry(SnapshotId snapshotId) {
+        List<SnapshotId> newEntries = new ArrayList<>(entries);
+        newEntries.add(snapshotId);
+        return new SnapshotDeletionsInProgress(newEntries);
+    }
+
+    /**
+     * Returns a copy of this metadata without the given snapshot
+     */
+    public SnapshotDeletionsInProgress withRemovedEntry(SnapshotId snapshotId) {
+        List<SnapshotId> newEntries = new ArrayList<>(entries);
+        newEntries.remove(snapshotId);
+        return new SnapshotDeletionsInProgress(newEntries);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        SnapshotDeletionsInProgress that = (SnapshotDeletionsInProgress) o;
+
+        return entries.equals(that.entries);
+    }
+
+    @Override
+    public int hashCode() {
+        return entries.hashCode();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SnapshotDeletionsInProgress readFrom(StreamInput in) throws IOException {
+        SnapshotId[] entries = new SnapshotId[in.readVInt()];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = SnapshotId.readSnapshotId(in);
+        }
+        return new SnapshotDeletionsInProgress(entries);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(entries.size());
+        for (SnapshotId entry : entries) {
+            entry.writeTo(out);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, ToXContent.Params params) throws IOException {
+        builder.startArray("snapshots");
+        for (SnapshotId entry : entries) {
+            builder.startObject();
+            builder.field("snapshot", entry.getSnapshot());
+            builder.field("repository", entry.getRepository());
+            builder.endObject();
+        }
+        builder.endArray();
+        return builder;
+    }
+}
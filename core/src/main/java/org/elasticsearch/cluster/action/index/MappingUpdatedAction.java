@@ -19,9 +19,13 @@
 
 package org.elasticsearch.cluster.action.index;
 
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchTimeoutException;
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingRequestBuilder;
+import org.elasticsearch.action.support.PlainActionFuture;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.IndicesAdminClient;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.ClusterSettings;
@@ -33,6 +37,8 @@ import org.elasticsearch.index.Index;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.Mapping;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeoutException;
 
 /**
@@ -48,6 +54,11 @@ public class MappingUpdatedAction extends AbstractComponent {
     private IndicesAdminClient client;
     private volatile TimeValue dynamicMappingUpdateTimeout;
 
+    // dynamic updates of a type that come in while an update of that type is in flight are merged into a single
+    // queued update, which is sent to the master as soon as the in flight update completes
+    private final Map<Tuple<Index, String>, PendingUpdate> queuedUpdates = new HashMap<>();
+    private final Map<Tuple<Index, String>, PendingUpdate> inFlightUpdates = new HashMap<>();
+
     @Inject
     public MappingUpdatedAction(Settings settings, ClusterSettings clusterSettings) {
         super(settings);
@@ -84,10 +95,158 @@ public class MappingUpdatedAction extends AbstractComponent {
      * Update mappings synchronously on the master node, waiting for at most
      * {@code timeout}. When this method returns successfully mappings have
      * been applied to the master node and propagated to data nodes.
+     * Concurrent updates of the same type are merged and sent to the master
+     * as a single update. If a merged update fails, every update that is
+     * part of it is retried on its own within what is left of its timeout.
      */
     public void updateMappingOnMaster(Index index, String type, Mapping mappingUpdate, TimeValue timeout) throws Exception {
-        if (updateMappingRequest(index, type, mappingUpdate, timeout).get().isAcknowledged() == false) {
+        final long deadline = System.nanoTime() + timeout.nanos();
+        final Tuple<Index, String> key = new Tuple<>(index, type);
+        final PendingUpdate update = new PendingUpdate(mappingUpdate);
+        final PendingUpdate joined;
+        final PendingUpdate inFlight;
+        synchronized (this) {
+            final PendingUpdate queued = queuedUpdates.get(key);
+            if (queued != null && queued.tryMerge(mappingUpdate)) {
+                joined = queued;
+                inFlight = null;
+            } else {
+                joined = null;
+                inFlight = inFlightUpdates.get(key);
+                if (inFlight == null) {
+                    inFlightUpdates.put(key, update);
+                } else if (queued == null) {
+                    queuedUpdates.put(key, update);
+                }
+                // otherwise this update conflicts with the queued one and is sent on its own
+            }
+        }
+
+        if (joined != null) {
+            try {
+                joined.result.actionGet(remainingTimeout(deadline, timeout));
+                return;
+            } catch (ElasticsearchTimeoutException e) {
+                throw e;
+            } catch (Exception e) {
+                // the merged update may have failed because of one of the other updates, try this one on its own
+                logger.debug("{} merged dynamic mapping update of [{}] failed, sending it separately", e, index, type);
+            }
+            sendUpdate(index, type, mappingUpdate, remainingTimeout(deadline, timeout));
+            return;
+        }
+
+        try {
+            if (inFlight != null) {
+                try {
+                    inFlight.result.actionGet(remainingTimeout(deadline, timeout));
+                } catch (ElasticsearchTimeoutException e) {
+                    throw e;
+                } catch (Exception e) {
+                    // the outcome of the previous update doesn't matter for this one
+                }
+                synchronized (this) {
+                    queuedUpdates.remove(key, update);
+                    inFlightUpdates.put(key, update);
+                }
+            }
+            try {
+                update.send(index, type, remainingTimeout(deadline, timeout));
+            } catch (ElasticsearchTimeoutException e) {
+                throw e;
+            } catch (Exception e) {
+                if (update.isMerged() == false) {
+                    throw e;
+                }
+                // like the updates that joined this one, retry the update of this caller on its own
+                logger.debug("{} merged dynamic mapping update of [{}] failed, sending it separately", e, index, type);
+                sendUpdate(index, type, mappingUpdate, remainingTimeout(deadline, timeout));
+            }
+        } finally {
+            synchronized (this) {
+                queuedUpdates.remove(key, update);
+                inFlightUpdates.remove(key, update);
+            }
+            if (update.result.isDone() == false) {
+                // this caller gave up before its update was sent, the callers that joined it send their updates on their own
+                update.result.onFailure(new ElasticsearchException("dynamic mapping update of [{}] was not sent", type));
+            }
+        }
+    }
+
+    /**
+     * Returns the part of the timeout that is left until the deadline, or throws if there is none left
+     */
+    private static TimeValue remainingTimeout(long deadline, TimeValue timeout) {
+        final long remainingNanos = deadline - System.nanoTime();
+        if (remainingNanos <= 0) {
+            throw new ElasticsearchTimeoutException("Failed to update mapping within [" + timeout + "]");
+        }
+        return TimeValue.timeValueNanos(remainingNanos);
+    }
+
+    private void sendUpdate(Index index, String type, Mapping mapping, TimeValue timeout) throws Exception {
+        if (updateMappingRequest(index, type, mapping, timeout).get().isAcknowledged() == false) {
             throw new TimeoutException("Failed to acknowledge mapping update within [" + timeout + "]");
         }
     }
+
+    /**
+     * The number of updates that are merged into the queued update of the given type, for testing.
+     */
+    synchronized int queuedUpdateSize(Index index, String type) {
+        final PendingUpdate queued = queuedUpdates.get(new Tuple<>(index, type));
+        return queued == null ? 0 : queued.size;
+    }
+
+    private class PendingUpdate {
+
+        private final PlainActionFuture<Void> result = new PlainActionFuture<>();
+        // the update of the caller that queued this update
+        private final Mapping original;
+        // the update of the caller merged with the updates that joined it
+        private Mapping mapping;
+        private int size = 1;
+
+        PendingUpdate(Mapping mapping) {
+            this.original = mapping;
+            this.mapping = mapping;
+        }
+
+        /**
+         * Merges the given update into this one unless they conflict. Must be called with the lock held.
+         */
+        boolean tryMerge(Mapping other) {
+            try {
+                mapping = mapping.merge(other, false);
+                size++;
+                return true;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Returns <code>true</code> if other updates were merged into this one
+         */
+        boolean isMerged() {
+            synchronized (MappingUpdatedAction.this) {
+                return mapping != original;
+            }
+        }
+
+        void send(Index index, String type, TimeValue timeout) throws Exception {
+            final Mapping toSend;
+            synchronized (MappingUpdatedAction.this) {
+                toSend = mapping;
+            }
+            try {
+                sendUpdate(index, type, toSend, timeout);
+                result.onResponse(null);
+            } catch (Exception e) {
+                result.onFailure(e);
+                throw e;
+            }
+        }
+    }
 }
@@ -26,6 +26,7 @@ import org.elasticsearch.cluster.metadata.MetaDataIndexStateService;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.rest.RestStatus;
 
 import java.io.IOException;
@@ -318,6 +319,9 @@ public class ClusterBlocks extends AbstractDiffable<ClusterBlocks> {
             if (IndexMetaData.INDEX_BLOCKS_METADATA_SETTING.get(indexMetaData.getSettings())) {
                 addIndexBlock(indexMetaData.getIndex().getName(), IndexMetaData.INDEX_METADATA_BLOCK);
             }
+            if (IndexSettings.INDEX_FROZEN_SETTING.get(indexMetaData.getSettings())) {
+                addIndexBlock(indexMetaData.getIndex().getName(), IndexMetaData.INDEX_FROZEN_BLOCK);
+            }
             return this;
         }
 
@@ -327,6 +331,7 @@ public class ClusterBlocks extends AbstractDiffable<ClusterBlocks> {
             removeIndexBlock(indexMetaData.getIndex().getName(), IndexMetaData.INDEX_READ_BLOCK);
             removeIndexBlock(indexMetaData.getIndex().getName(), IndexMetaData.INDEX_WRITE_BLOCK);
             removeIndexBlock(indexMetaData.getIndex().getName(), IndexMetaData.INDEX_METADATA_BLOCK);
+            removeIndexBlock(indexMetaData.getIndex().getName(), IndexMetaData.INDEX_FROZEN_BLOCK);
             return addBlocks(indexMetaData);
         }
 
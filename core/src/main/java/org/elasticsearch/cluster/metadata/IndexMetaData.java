@@ -123,6 +123,7 @@ public class IndexMetaData implements Diffable<IndexMetaData>, FromXContentBuild
     public static final ClusterBlock INDEX_READ_BLOCK = new ClusterBlock(7, "index read (api)", false, false, RestStatus.FORBIDDEN, EnumSet.of(ClusterBlockLevel.READ));
     public static final ClusterBlock INDEX_WRITE_BLOCK = new ClusterBlock(8, "index write (api)", false, false, RestStatus.FORBIDDEN, EnumSet.of(ClusterBlockLevel.WRITE));
     public static final ClusterBlock INDEX_METADATA_BLOCK = new ClusterBlock(9, "index metadata (api)", false, false, RestStatus.FORBIDDEN, EnumSet.of(ClusterBlockLevel.METADATA_WRITE, ClusterBlockLevel.METADATA_READ));
+    public static final ClusterBlock INDEX_FROZEN_BLOCK = new ClusterBlock(12, "index frozen", false, false, RestStatus.FORBIDDEN, EnumSet.of(ClusterBlockLevel.WRITE));
 
     public static enum State {
         OPEN((byte) 0),
@@ -172,6 +173,10 @@ public class IndexMetaData implements Diffable<IndexMetaData>, FromXContentBuild
     public static final Setting<Boolean> INDEX_SHARED_FILESYSTEM_SETTING =
         Setting.boolSetting(SETTING_SHARED_FILESYSTEM, false, Property.IndexScope);
 
+    public static final String SETTING_SEGMENT_REPLICATION = "index.segment_replication";
+    public static final Setting<Boolean> INDEX_SEGMENT_REPLICATION_SETTING =
+        Setting.boolSetting(SETTING_SEGMENT_REPLICATION, false, Property.IndexScope);
+
     public static final String SETTING_AUTO_EXPAND_REPLICAS = "index.auto_expand_replicas";
     public static final Setting<AutoExpandReplicas> INDEX_AUTO_EXPAND_REPLICAS_SETTING = AutoExpandReplicas.SETTING;
     public static final String SETTING_READ_ONLY = "index.blocks.read_only";
@@ -1107,6 +1112,15 @@ public class IndexMetaData implements Diffable<IndexMetaData>, FromXContentBuild
         return settings.getAsBoolean(SETTING_SHADOW_REPLICAS, false);
     }
 
+    /**
+     * Returns <code>true</code> iff the given settings indicate that the replicas of the index
+     * associated with these settings copy segment files from their primary instead of indexing
+     * documents themselves. Otherwise <code>false</code>. The default setting for this is <code>false</code>.
+     */
+    public static boolean isIndexUsingSegmentReplication(Settings settings) {
+        return settings.getAsBoolean(SETTING_SEGMENT_REPLICATION, false);
+    }
+
     /**
      * Adds human readable version and creation date settings.
      * This method is used to display the settings in a human readable format in REST API
@@ -32,6 +32,7 @@ import org.elasticsearch.common.joda.DateMathParser;
 import org.elasticsearch.common.joda.FormatDateTimeFormatter;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.indices.IndexClosedException;
@@ -49,7 +50,9 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 public class IndexNameExpressionResolver extends AbstractComponent {
@@ -555,6 +558,14 @@ public class IndexNameExpressionResolver extends AbstractComponent {
      */
     final static class WildcardExpressionResolver implements ExpressionResolver {
 
+        /**
+         * The maximum number of wildcard expansions that are cached for the same meta data.
+         */
+        static final int MAX_CACHED_EXPANSIONS = 1024;
+
+        // the same wildcard expressions are typically resolved by every request until the meta data changes
+        private volatile ExpansionCache expansionCache;
+
         @Override
         public List<String> resolve(Context context, List<String> expressions) {
             IndicesOptions options = context.getOptions();
@@ -627,24 +638,47 @@ public class IndexNameExpressionResolver extends AbstractComponent {
                     result = new HashSet<>(expressions.subList(0, i));
                 }
 
-                final IndexMetaData.State excludeState = excludeState(options);
-                final Map<String, AliasOrIndex> matches = matches(metaData, expression);
-                Set<String> expand = expand(context, excludeState, matches);
+                final Expansion expansion = expand(context, excludeState(options), metaData, expression);
                 if (add) {
-                    result.addAll(expand);
+                    result.addAll(expansion.names);
                 } else {
-                    result.removeAll(expand);
+                    result.removeAll(expansion.names);
                 }
 
-                if (!noIndicesAllowedOrMatches(options, matches)) {
+                if (!noIndicesAllowedOrMatches(options, expansion)) {
                     throw infe(expression);
                 }
             }
             return result;
         }
 
-        private boolean noIndicesAllowedOrMatches(IndicesOptions options, Map<String, AliasOrIndex> matches) {
-            return options.allowNoIndices() || !matches.isEmpty();
+        private boolean noIndicesAllowedOrMatches(IndicesOptions options, Expansion expansion) {
+            return options.allowNoIndices() || expansion.matchedAny;
+        }
+
+        /**
+         * Expands the given wildcard expression against the given meta data, reusing the expansion of an earlier call
+         * against the same meta data if there is one.
+         */
+        private Expansion expand(Context context, IndexMetaData.State excludeState, MetaData metaData, String expression) {
+            ExpansionCache cache = expansionCache;
+            if (cache == null || (cache.metaData != metaData && cache.metaData.version() <= metaData.version())) {
+                cache = new ExpansionCache(metaData);
+                expansionCache = cache;
+            } else if (cache.metaData != metaData) {
+                // resolving against an older meta data, don't evict the expansions of the newer one
+                cache = null;
+            }
+            final String key = excludeState + "|" + context.isPreserveAliases() + "|" + expression;
+            Expansion expansion = cache == null ? null : cache.expansions.get(key);
+            if (expansion == null) {
+                final Map<String, AliasOrIndex> matches = matches(metaData, expression);
+                expansion = new Expansion(expand(context, excludeState, matches), matches.isEmpty() == false);
+                if (cache != null && cache.expansions.size() < MAX_CACHED_EXPANSIONS) {
+                    cache.expansions.putIfAbsent(key, expansion);
+                }
+            }
+            return expansion;
         }
 
         private boolean unavailableIgnoredOrExists(IndicesOptions options, MetaData metaData, String expression) {
@@ -689,7 +723,10 @@ public class IndexNameExpressionResolver extends AbstractComponent {
 
         private static Map<String, AliasOrIndex> suffixWildcard(MetaData metaData, String expression) {
             assert expression.length() >= 2 : "expression [" + expression + "] should have at least a length of 2";
-            String fromPrefix = expression.substring(0, expression.length() - 1);
+            return prefixMatches(metaData, expression.substring(0, expression.length() - 1));
+        }
+
+        private static SortedMap<String, AliasOrIndex> prefixMatches(MetaData metaData, String fromPrefix) {
             char[] toPrefixCharArr = fromPrefix.toCharArray();
             toPrefixCharArr[toPrefixCharArr.length - 1]++;
             String toPrefix = new String(toPrefixCharArr);
@@ -698,7 +735,16 @@ public class IndexNameExpressionResolver extends AbstractComponent {
 
         private static Map<String, AliasOrIndex> otherWildcard(MetaData metaData, String expression) {
             final String pattern = expression;
-            return metaData.getAliasAndIndexLookup()
+            // only names that start with the part of the pattern before its first wildcard can match it, these are
+            // adjacent in the sorted lookup so there is no need to look at all other names
+            final int firstWildcard = expression.indexOf('*');
+            final SortedMap<String, AliasOrIndex> candidates;
+            if (firstWildcard > 0) {
+                candidates = prefixMatches(metaData, expression.substring(0, firstWildcard));
+            } else {
+                candidates = metaData.getAliasAndIndexLookup();
+            }
+            return candidates
                 .entrySet()
                 .stream()
                 .filter(e -> Regex.simpleMatch(pattern, e.getKey()))
@@ -722,6 +768,27 @@ public class IndexNameExpressionResolver extends AbstractComponent {
             return expand;
         }
 
+        private static final class ExpansionCache {
+
+            private final MetaData metaData;
+            private final ConcurrentMap<String, Expansion> expansions = ConcurrentCollections.newConcurrentMap();
+
+            private ExpansionCache(MetaData metaData) {
+                this.metaData = metaData;
+            }
+        }
+
+        private static final class Expansion {
+
+            private final Set<String> names;
+            private final boolean matchedAny;
+
+            private Expansion(Set<String> names, boolean matchedAny) {
+                this.names = Collections.unmodifiableSet(names);
+                this.matchedAny = matchedAny;
+            }
+        }
+
         private boolean isEmptyOrTrivialWildcard(List<String> expressions) {
             return expressions.isEmpty() || (expressions.size() == 1 && (MetaData.ALL.equals(expressions.get(0)) || Regex.isMatchAllPattern(expressions.get(0))));
         }
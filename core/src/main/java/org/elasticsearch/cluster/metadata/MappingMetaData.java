@@ -25,6 +25,7 @@ import org.elasticsearch.cluster.AbstractDiffable;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.common.compress.CompressedXContentInterner;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.joda.FormatDateTimeFormatter;
@@ -174,7 +175,7 @@ public class MappingMetaData extends AbstractDiffable<MappingMetaData> {
 
     public MappingMetaData(DocumentMapper docMapper) {
         this.type = docMapper.type();
-        this.source = docMapper.mappingSource();
+        this.source = CompressedXContentInterner.MAPPING_SOURCES.intern(docMapper.mappingSource());
         this.routing = new Routing(docMapper.routingFieldMapper().required());
         this.timestamp = new Timestamp(docMapper.timestampFieldMapper().enabled(),
                 docMapper.timestampFieldMapper().fieldType().dateTimeFormatter().format(), docMapper.timestampFieldMapper().defaultTimestamp(),
@@ -183,7 +184,7 @@ public class MappingMetaData extends AbstractDiffable<MappingMetaData> {
     }
 
     public MappingMetaData(CompressedXContent mapping) throws IOException {
-        this.source = mapping;
+        this.source = CompressedXContentInterner.MAPPING_SOURCES.intern(mapping);
         Map<String, Object> mappingMap;
         try (XContentParser parser = XContentHelper.createParser(mapping.compressedReference())) {
             mappingMap = parser.mapOrdered();
@@ -202,7 +203,7 @@ public class MappingMetaData extends AbstractDiffable<MappingMetaData> {
     public MappingMetaData(String type, Map<String, Object> mapping) throws IOException {
         this.type = type;
         XContentBuilder mappingBuilder = XContentFactory.jsonBuilder().map(mapping);
-        this.source = new CompressedXContent(mappingBuilder.bytes());
+        this.source = CompressedXContentInterner.MAPPING_SOURCES.intern(new CompressedXContent(mappingBuilder.bytes()));
         Map<String, Object> withoutType = mapping;
         if (mapping.size() == 1 && mapping.containsKey(type)) {
             withoutType = (Map<String, Object>) mapping.get(type);
@@ -266,7 +267,7 @@ public class MappingMetaData extends AbstractDiffable<MappingMetaData> {
 
     public MappingMetaData(String type, CompressedXContent source, Routing routing, Timestamp timestamp, boolean hasParentField) {
         this.type = type;
-        this.source = source;
+        this.source = CompressedXContentInterner.MAPPING_SOURCES.intern(source);
         this.routing = routing;
         this.timestamp = timestamp;
         this.hasParentField = hasParentField;
@@ -48,6 +48,7 @@ import org.elasticsearch.indices.InvalidTypeNameException;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -213,9 +214,22 @@ public class MetaDataMappingService extends AbstractComponent {
                                                                         List<PutMappingClusterStateUpdateRequest> tasks) throws Exception {
             Set<Index> indicesToClose = new HashSet<>();
             BatchResult.Builder<PutMappingClusterStateUpdateRequest> builder = BatchResult.builder();
+            // identical requests, like the same dynamic mapping update coming from several shards, are only applied once
+            Map<List<Object>, Throwable> outcomes = new HashMap<>();
             try {
                 // precreate incoming indices;
                 for (PutMappingClusterStateUpdateRequest request : tasks) {
+                    final List<Object> requestKey = Arrays.asList(Arrays.asList(request.indices()), request.type(),
+                        request.source(), request.updateAllTypes());
+                    if (outcomes.containsKey(requestKey)) {
+                        Throwable failure = outcomes.get(requestKey);
+                        if (failure == null) {
+                            builder.success(request);
+                        } else {
+                            builder.failure(request, failure);
+                        }
+                        continue;
+                    }
                     try {
                         for (Index index : request.indices()) {
                             final IndexMetaData indexMetaData = currentState.metaData().getIndexSafe(index);
@@ -234,8 +248,10 @@ public class MetaDataMappingService extends AbstractComponent {
                         }
                         currentState = applyRequest(currentState, request);
                         builder.success(request);
+                        outcomes.put(requestKey, null);
                     } catch (Throwable t) {
                         builder.failure(request, t);
+                        outcomes.put(requestKey, t);
                     }
                 }
                 return builder.build(currentState);
@@ -43,6 +43,7 @@ import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.IndexSettings;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -233,6 +234,8 @@ public class MetaDataUpdateSettingsService extends AbstractComponent implements
                 maybeUpdateClusterBlock(actualIndices, blocks, IndexMetaData.INDEX_METADATA_BLOCK, IndexMetaData.INDEX_BLOCKS_METADATA_SETTING, openSettings);
                 maybeUpdateClusterBlock(actualIndices, blocks, IndexMetaData.INDEX_WRITE_BLOCK, IndexMetaData.INDEX_BLOCKS_WRITE_SETTING, openSettings);
                 maybeUpdateClusterBlock(actualIndices, blocks, IndexMetaData.INDEX_READ_BLOCK, IndexMetaData.INDEX_BLOCKS_READ_SETTING, openSettings);
+                // indices can only be frozen while closed, so the block is updated from the settings for closed indices
+                maybeUpdateClusterBlock(actualIndices, blocks, IndexMetaData.INDEX_FROZEN_BLOCK, IndexSettings.INDEX_FROZEN_SETTING, closedSettings);
 
                 if (!openIndices.isEmpty()) {
                     for (Index index : openIndices) {
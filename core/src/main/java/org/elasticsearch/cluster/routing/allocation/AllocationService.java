@@ -389,7 +389,9 @@ public class AllocationService extends AbstractComponent {
                         }
                     }
                     IndexMetaData index = allocation.metaData().getIndexSafe(candidate.index());
-                    if (IndexMetaData.isIndexUsingShadowReplicas(index.getSettings())) {
+                    if (IndexMetaData.isIndexUsingShadowReplicas(index.getSettings())
+                        || IndexMetaData.isIndexUsingSegmentReplication(index.getSettings())) {
+                        // these replicas can't be promoted in place, they are reinitialized and recover from their local store
                         routingNodes.reinitShadowPrimary(candidate);
                         changed = true;
                     }
@@ -210,6 +210,8 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         private final float threshold;
         private final MetaData metaData;
         private final float avgShardsPerNode;
+        /* rebalance decisions are memoized until this balancer changes the routing nodes */
+        private final Map<ShardRouting, Decision> rebalanceDecisions = new IdentityHashMap<>();
 
         public Balancer(ESLogger logger, RoutingAllocation allocation, WeightFunction weight, float threshold) {
             this.logger = logger;
@@ -253,6 +255,34 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
             return new NodeSorter(nodesArray(), weight, this);
         }
 
+        /**
+         * Returns the weight delta between the heaviest and the lightest of the given nodes with respect to the given
+         * index. This is the same as {@link NodeSorter#delta()} after a reset of the sorter but doesn't sort the nodes.
+         */
+        private float weightDelta(ModelNode[] modelNodes, String index) {
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (ModelNode node : modelNodes) {
+                final float nodeWeight = weight.weight(this, node, index);
+                min = Math.min(min, nodeWeight);
+                max = Math.max(max, nodeWeight);
+            }
+            return max - min;
+        }
+
+        /**
+         * Returns whether the given shard may be rebalanced. Decisions are memoized until the routing nodes are changed
+         * by this balancer, since shards are checked again and again while the balancer walks through the nodes.
+         */
+        private Decision canRebalance(ShardRouting shard) {
+            Decision decision = rebalanceDecisions.get(shard);
+            if (decision == null) {
+                decision = allocation.deciders().canRebalance(shard, allocation);
+                rebalanceDecisions.put(shard, decision);
+            }
+            return decision;
+        }
+
         private static float absDelta(float lower, float higher) {
             assert higher >= lower : higher + " lt " + lower +" but was expected to be gte";
             return Math.abs(higher - lower);
@@ -319,6 +349,12 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
             final ModelNode[] modelNodes = sorter.modelNodes;
             final float[] weights = sorter.weights;
             for (String index : buildWeightOrderedIndices(sorter)) {
+                if (lessThan(weightDelta(modelNodes, index), threshold)) {
+                    /* the delta between any two relevant nodes can't be larger than the delta between all nodes, so this index
+                     * is balanced and we don't need to ask the deciders which nodes are relevant. Most indices of a large cluster
+                     * are balanced, such that the cost of balancing scales with the number of indices that are not. */
+                    continue;
+                }
                 IndexMetaData indexMetaData = metaData.index(index);
 
                 // find nodes that have a shard of this index or where shards of this index are allowed to stay
@@ -429,8 +465,7 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
             final String[] indices = allocation.routingTable().indicesRouting().keys().toArray(String.class);
             final float[] deltas = new float[indices.length];
             for (int i = 0; i < deltas.length; i++) {
-                sorter.reset(indices[i]);
-                deltas[i] = sorter.delta();
+                deltas[i] = weightDelta(sorter.modelNodes, indices[i]);
             }
             new IntroSorter() {
 
@@ -527,10 +562,11 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                 if (currentNode != sourceNode) {
                     RoutingNode target = currentNode.getRoutingNode();
                     Decision allocationDecision = allocation.deciders().canAllocate(shardRouting, target, allocation);
-                    Decision rebalanceDecision = allocation.deciders().canRebalance(shardRouting, allocation);
+                    Decision rebalanceDecision = canRebalance(shardRouting);
                     if (allocationDecision.type() == Type.YES && rebalanceDecision.type() == Type.YES) { // TODO maybe we can respect throttling here too?
                         sourceNode.removeShard(shardRouting);
                         ShardRouting targetRelocatingShard = routingNodes.relocate(shardRouting, target.nodeId(), allocation.clusterInfo().getShardSize(shardRouting, ShardRouting.UNAVAILABLE_EXPECTED_SHARD_SIZE));
+                        rebalanceDecisions.clear();
                         currentNode.addShard(targetRelocatingShard);
                         if (logger.isTraceEnabled()) {
                             logger.trace("Moved shard [{}] to node [{}]", shardRouting, routingNode.node());
@@ -705,6 +741,7 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                                 logger.trace("Assigned shard [{}] to [{}]", shard, minNode.getNodeId());
                             }
                             routingNodes.initialize(shard, minNode.getNodeId(), null, allocation.clusterInfo().getShardSize(shard, ShardRouting.UNAVAILABLE_EXPECTED_SHARD_SIZE));
+                            rebalanceDecisions.clear();
                             changed = true;
                             continue; // don't add to ignoreUnassigned
                         } else {
@@ -758,7 +795,7 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                     if (shard.started()) {
                         // skip initializing, unassigned and relocating shards we can't relocate them anyway
                         Decision allocationDecision = deciders.canAllocate(shard, minNode.getRoutingNode(), allocation);
-                        Decision rebalanceDecision = deciders.canRebalance(shard, allocation);
+                        Decision rebalanceDecision = canRebalance(shard);
                         if (((allocationDecision.type() == Type.YES) || (allocationDecision.type() == Type.THROTTLE))
                                 && ((rebalanceDecision.type() == Type.YES) || (rebalanceDecision.type() == Type.THROTTLE))) {
                             if (maxNode.containsShard(shard)) {
@@ -788,6 +825,7 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                         }
                         /* now allocate on the cluster */
                         routingNodes.relocate(candidate, minNode.getNodeId(), allocation.clusterInfo().getShardSize(candidate, ShardRouting.UNAVAILABLE_EXPECTED_SHARD_SIZE));
+                        rebalanceDecisions.clear();
                         return true;
                     }
                 }
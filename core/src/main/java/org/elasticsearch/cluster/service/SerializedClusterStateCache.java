@@ -0,0 +1,119 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.service;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Caches the compressed serialized form of the latest cluster state, so that a cluster state that is sent to many nodes
+ * or clients is serialized and compressed only once per wire version. Each cached form is identified by a variant that
+ * describes which parts of the cluster state it contains. All cached forms are dropped as soon as a newer cluster state
+ * is serialized, so the cache never holds more than one cluster state version.
+ */
+public class SerializedClusterStateCache {
+
+    /**
+     * The maximum number of variants that are cached for a single cluster state, further variants are serialized on every call.
+     */
+    static final int MAX_ENTRIES = 64;
+
+    private final Map<Tuple<String, Version>, Entry> entries = new HashMap<>();
+    private long clusterStateVersion = -1;
+    private String clusterStateUUID;
+
+    /**
+     * Returns the compressed serialized form of the given content, which is the given variant of the given cluster state,
+     * for nodes on the given version. The content is only serialized if the same variant wasn't serialized before for
+     * the same cluster state and version.
+     */
+    public BytesReference serialize(ClusterState clusterState, String variant, Version version, Writeable<?> content) throws IOException {
+        Entry entry = null;
+        synchronized (this) {
+            if (clusterState.stateUUID().equals(clusterStateUUID) == false && clusterState.version() >= clusterStateVersion) {
+                entries.clear();
+                clusterStateVersion = clusterState.version();
+                clusterStateUUID = clusterState.stateUUID();
+            }
+            // an older cluster state that is still in use somewhere isn't worth evicting the current one for
+            if (clusterState.stateUUID().equals(clusterStateUUID)) {
+                final Tuple<String, Version> key = new Tuple<>(variant, version);
+                entry = entries.get(key);
+                if (entry == null && entries.size() < MAX_ENTRIES) {
+                    entry = new Entry();
+                    entries.put(key, entry);
+                }
+            }
+        }
+        return entry == null ? compress(content, version) : entry.get(content, version);
+    }
+
+    /**
+     * Serializes and compresses the given content for nodes on the given version.
+     */
+    public static BytesReference compress(Writeable<?> content, Version version) throws IOException {
+        BytesStreamOutput bStream = new BytesStreamOutput();
+        try (StreamOutput stream = CompressorFactory.defaultCompressor().streamOutput(bStream)) {
+            stream.setVersion(version);
+            content.writeTo(stream);
+        }
+        return bStream.bytes();
+    }
+
+    /**
+     * Opens a stream to read content that was serialized with {@link #compress(Writeable, Version)} by a node on the given version.
+     */
+    public static StreamInput decompress(BytesReference bytes, Version version) throws IOException {
+        Compressor compressor = CompressorFactory.compressor(bytes);
+        StreamInput in;
+        if (compressor != null) {
+            in = compressor.streamInput(bytes.streamInput());
+        } else {
+            in = bytes.streamInput();
+        }
+        in.setVersion(version);
+        return in;
+    }
+
+    private static class Entry {
+
+        private BytesReference bytes;
+
+        // concurrent callers of the same variant wait for the first one instead of serializing the cluster state again
+        synchronized BytesReference get(Writeable<?> content, Version version) throws IOException {
+            if (bytes == null) {
+                bytes = compress(content, version);
+            }
+            return bytes;
+        }
+    }
+}
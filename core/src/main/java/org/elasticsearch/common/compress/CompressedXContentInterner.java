@@ -0,0 +1,113 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress;
+
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Returns canonical instances of {@link CompressedXContent}s with the same content. Mappings of indices that are created from
+ * the same template are usually identical, interning them means that all these indices share a single copy of the mapping.
+ * Canonical instances are only weakly referenced, so contents that are no longer used can be collected. Instances are
+ * thread-safe and don't lock.
+ */
+public final class CompressedXContentInterner {
+
+    /**
+     * The interner of mapping sources. It is shared by the mappings in the cluster state, whether they were built on the
+     * master, received from it or loaded from disk, and by the parsed mappers of all indices, so that all of them share a
+     * single copy of each mapping source.
+     */
+    public static final CompressedXContentInterner MAPPING_SOURCES = new CompressedXContentInterner();
+
+    private final ConcurrentMap<WeakKey, WeakKey> interned = ConcurrentCollections.newConcurrentMap();
+
+    private final ReferenceQueue<CompressedXContent> collected = new ReferenceQueue<>();
+
+    /**
+     * Returns a canonical instance that is equal to the given one
+     */
+    public CompressedXContent intern(CompressedXContent xcontent) {
+        purgeCollected();
+        final WeakKey key = new WeakKey(xcontent, collected);
+        while (true) {
+            final WeakKey existing = interned.putIfAbsent(key, key);
+            if (existing == null) {
+                return xcontent;
+            }
+            final CompressedXContent canonical = existing.get();
+            if (canonical != null) {
+                return canonical;
+            }
+            // the canonical instance was collected concurrently, replace it
+            interned.remove(existing, existing);
+        }
+    }
+
+    /**
+     * Returns the number of canonical instances, for testing.
+     */
+    int size() {
+        purgeCollected();
+        return interned.size();
+    }
+
+    private void purgeCollected() {
+        Reference<? extends CompressedXContent> ref;
+        while ((ref = collected.poll()) != null) {
+            interned.remove(ref, ref);
+        }
+    }
+
+    /**
+     * Weakly references a {@link CompressedXContent} and is equal to keys that reference equal contents. A key whose
+     * content was collected is only equal to itself.
+     */
+    private static final class WeakKey extends WeakReference<CompressedXContent> {
+
+        private final int hashCode;
+
+        WeakKey(CompressedXContent referent, ReferenceQueue<CompressedXContent> queue) {
+            super(referent, queue);
+            this.hashCode = referent.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final CompressedXContent referent = get();
+            return referent != null && referent.equals(((WeakKey) o).get());
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -200,6 +200,13 @@ public final class ThreadContext implements Closeable, Writeable<ThreadContext.T
         return (T) threadLocal.get().transientHeaders.get(key);
     }
 
+    /**
+     * Returns all of the current transient headers
+     */
+    public Map<String, Object> getTransientHeaders() {
+        return Collections.unmodifiableMap(threadLocal.get().transientHeaders);
+    }
+
     /**
      * Saves the current thread context and wraps command in a Runnable that restores that context before running command. If
      * <code>command</code> has already been passed through this method then it is returned unaltered rather than wrapped twice.
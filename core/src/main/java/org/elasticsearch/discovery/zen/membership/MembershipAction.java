@@ -19,9 +19,12 @@
 
 package org.elasticsearch.discovery.zen.membership;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.cluster.service.SerializedClusterStateCache;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -68,8 +71,12 @@ public class MembershipAction extends AbstractComponent {
 
     private final ClusterService clusterService;
 
-    public MembershipAction(Settings settings, ClusterService clusterService, TransportService transportService, DiscoveryNodesProvider nodesProvider, MembershipListener listener) {
+    private final SerializedClusterStateCache serializedStateCache;
+
+    public MembershipAction(Settings settings, ClusterService clusterService, TransportService transportService, DiscoveryNodesProvider nodesProvider,
+                            MembershipListener listener, SerializedClusterStateCache serializedStateCache) {
         super(settings);
+        this.serializedStateCache = serializedStateCache;
         this.transportService = transportService;
         this.nodesProvider = nodesProvider;
         this.listener = listener;
@@ -171,13 +178,25 @@ public class MembershipAction extends AbstractComponent {
         @Override
         public void readFrom(StreamInput in) throws IOException {
             super.readFrom(in);
-            this.state = ClusterState.Builder.readFrom(in, nodesProvider.nodes().localNode());
+            if (in.getVersion().onOrAfter(Version.V_5_0_0_alpha1)) {
+                BytesReference bytes = in.readBytesReference();
+                try (StreamInput stateIn = SerializedClusterStateCache.decompress(bytes, in.getVersion())) {
+                    this.state = ClusterState.Builder.readFrom(stateIn, nodesProvider.nodes().localNode());
+                }
+            } else {
+                this.state = ClusterState.Builder.readFrom(in, nodesProvider.nodes().localNode());
+            }
         }
 
         @Override
         public void writeTo(StreamOutput out) throws IOException {
             super.writeTo(out);
-            this.state.writeTo(out);
+            if (out.getVersion().onOrAfter(Version.V_5_0_0_alpha1)) {
+                // nodes that join at the same time are all validated against the same cluster state
+                out.writeBytesReference(serializedStateCache.serialize(state, "validate_join", out.getVersion(), state));
+            } else {
+                this.state.writeTo(out);
+            }
         }
     }
 
@@ -49,6 +49,9 @@ public class GatewayAllocator extends AbstractComponent {
 
     private RoutingService routingService;
 
+    private final TransportNodesListGatewayStartedShards startedAction;
+    private final TransportNodesListShardStoreMetaData storeAction;
+
     private final PrimaryShardAllocator primaryShardAllocator;
     private final ReplicaShardAllocator replicaShardAllocator;
 
@@ -58,6 +61,8 @@ public class GatewayAllocator extends AbstractComponent {
     @Inject
     public GatewayAllocator(Settings settings, final TransportNodesListGatewayStartedShards startedAction, final TransportNodesListShardStoreMetaData storeAction) {
         super(settings);
+        this.startedAction = startedAction;
+        this.storeAction = storeAction;
         this.primaryShardAllocator = new InternalPrimaryShardAllocator(settings, startedAction);
         this.replicaShardAllocator = new InternalReplicaShardAllocator(settings, storeAction);
     }
@@ -117,9 +122,15 @@ public class GatewayAllocator extends AbstractComponent {
         RoutingNodes.UnassignedShards unassigned = allocation.routingNodes().unassigned();
         unassigned.sort(PriorityComparator.getAllocationComparator(allocation)); // sort for priority ordering
 
-        changed |= primaryShardAllocator.allocateUnassigned(allocation);
-        changed |= replicaShardAllocator.processExistingRecoveries(allocation);
-        changed |= replicaShardAllocator.allocateUnassigned(allocation);
+        try {
+            changed |= primaryShardAllocator.allocateUnassigned(allocation);
+            changed |= replicaShardAllocator.processExistingRecoveries(allocation);
+            changed |= replicaShardAllocator.allocateUnassigned(allocation);
+        } finally {
+            // send the fetches of all shards of this round with a single request per node
+            startedAction.flushBatchedFetches();
+            storeAction.flushBatchedFetches();
+        }
         return changed;
     }
 
@@ -149,7 +160,7 @@ public class GatewayAllocator extends AbstractComponent {
         protected AsyncShardFetch.FetchResult<TransportNodesListGatewayStartedShards.NodeGatewayStartedShards> fetchData(ShardRouting shard, RoutingAllocation allocation) {
             AsyncShardFetch<TransportNodesListGatewayStartedShards.NodeGatewayStartedShards> fetch = asyncFetchStarted.get(shard.shardId());
             if (fetch == null) {
-                fetch = new InternalAsyncFetch<>(logger, "shard_started", shard.shardId(), startedAction);
+                fetch = new InternalAsyncFetch<>(logger, "shard_started", shard.shardId(), startedAction.batched());
                 asyncFetchStarted.put(shard.shardId(), fetch);
             }
             AsyncShardFetch.FetchResult<TransportNodesListGatewayStartedShards.NodeGatewayStartedShards> shardState =
@@ -175,7 +186,7 @@ public class GatewayAllocator extends AbstractComponent {
         protected AsyncShardFetch.FetchResult<TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData> fetchData(ShardRouting shard, RoutingAllocation allocation) {
             AsyncShardFetch<TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData> fetch = asyncFetchStore.get(shard.shardId());
             if (fetch == null) {
-                fetch = new InternalAsyncFetch<>(logger, "shard_store", shard.shardId(), storeAction);
+                fetch = new InternalAsyncFetch<>(logger, "shard_store", shard.shardId(), storeAction.batched());
                 asyncFetchStore.put(shard.shardId(), fetch);
             }
             AsyncShardFetch.FetchResult<TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData> shardStores =
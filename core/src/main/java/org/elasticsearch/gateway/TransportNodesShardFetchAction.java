@@ -0,0 +1,402 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.gateway;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.action.NoSuchNodeException;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.nodes.BaseNodeRequest;
+import org.elasticsearch.action.support.nodes.BaseNodeResponse;
+import org.elasticsearch.action.support.nodes.BaseNodesRequest;
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.action.support.nodes.TransportNodesAction;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.BaseTransportResponseHandler;
+import org.elasticsearch.transport.TransportChannel;
+import org.elasticsearch.transport.TransportException;
+import org.elasticsearch.transport.TransportRequest;
+import org.elasticsearch.transport.TransportRequestHandler;
+import org.elasticsearch.transport.TransportRequestOptions;
+import org.elasticsearch.transport.TransportResponse;
+import org.elasticsearch.transport.TransportService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * A nodes action that lists shard data from other nodes for the {@link AsyncShardFetch} of the {@link GatewayAllocator}.
+ * <p>
+ * Next to listing the data of a single shard, fetches can be queued through {@link #batched()} and are then sent with
+ * {@link #flushBatchedFetches()} as a single request per node that holds the fetches of many shards. This reduces the
+ * number of messages that are needed to allocate the shards of a full cluster restart from one per shard and node to
+ * one per batch of {@link #BATCH_SIZE_SETTING} shards and node.
+ */
+public abstract class TransportNodesShardFetchAction<NodesRequest extends BaseNodesRequest<NodesRequest>,
+                                                     NodesResponse extends BaseNodesResponse<NodeResponse>,
+                                                     NodeRequest extends BaseNodeRequest,
+                                                     NodeResponse extends BaseNodeResponse>
+        extends TransportNodesAction<NodesRequest, NodesResponse, NodeRequest, NodeResponse>
+        implements AsyncShardFetch.List<NodesResponse, NodeResponse> {
+
+    /**
+     * The maximum number of shards that are fetched from a node with a single batched request
+     */
+    public static final Setting<Integer> BATCH_SIZE_SETTING =
+        Setting.intSetting("gateway.shard_fetch.batch_size", 100, 1, Property.NodeScope);
+
+    private final String transportBatchAction;
+    private final Supplier<NodeRequest> nodeRequest;
+    private final String nodeExecutor;
+    private final int batchSize;
+    private final Object pendingMutex = new Object();
+    private Map<String, List<PendingNodeFetch>> pendingFetches = new HashMap<>();
+
+    protected TransportNodesShardFetchAction(Settings settings, String actionName, ClusterName clusterName, ThreadPool threadPool,
+                                             ClusterService clusterService, TransportService transportService, ActionFilters actionFilters,
+                                             IndexNameExpressionResolver indexNameExpressionResolver, Supplier<NodesRequest> request,
+                                             Supplier<NodeRequest> nodeRequest, String nodeExecutor) {
+        super(settings, actionName, clusterName, threadPool, clusterService, transportService, actionFilters, indexNameExpressionResolver,
+            request, nodeRequest, nodeExecutor);
+        this.nodeRequest = nodeRequest;
+        this.nodeExecutor = nodeExecutor;
+        this.batchSize = BATCH_SIZE_SETTING.get(settings);
+        this.transportBatchAction = actionName + "[n][batch]";
+        transportService.registerRequestHandler(transportBatchAction, NodeBatchRequest::new, nodeExecutor, new NodeBatchTransportHandler());
+    }
+
+    /**
+     * Creates the request to list the data of the given shard on the given nodes
+     */
+    protected abstract NodesRequest newShardRequest(ShardId shardId, IndexMetaData indexMetaData, String[] nodesIds);
+
+    @Override
+    public void list(ShardId shardId, IndexMetaData indexMetaData, String[] nodesIds, ActionListener<NodesResponse> listener) {
+        execute(newShardRequest(shardId, indexMetaData, nodesIds), listener);
+    }
+
+    /**
+     * Returns a lister that queues the fetches until the next call to {@link #flushBatchedFetches()}
+     */
+    public AsyncShardFetch.List<NodesResponse, NodeResponse> batched() {
+        return this::listBatched;
+    }
+
+    private void listBatched(ShardId shardId, IndexMetaData indexMetaData, String[] nodesIds, ActionListener<NodesResponse> listener) {
+        final ShardFetch shardFetch = new ShardFetch(newShardRequest(shardId, indexMetaData, nodesIds), nodesIds, listener);
+        synchronized (pendingMutex) {
+            for (int i = 0; i < nodesIds.length; i++) {
+                pendingFetches.computeIfAbsent(nodesIds[i], k -> new ArrayList<>()).add(new PendingNodeFetch(shardFetch, i));
+            }
+        }
+        if (nodesIds.length == 0) {
+            shardFetch.finish();
+        }
+    }
+
+    /**
+     * Sends all fetches that were queued through {@link #batched()}, using one request per node and batch of shards.
+     */
+    public void flushBatchedFetches() {
+        final Map<String, List<PendingNodeFetch>> toSend;
+        synchronized (pendingMutex) {
+            if (pendingFetches.isEmpty()) {
+                return;
+            }
+            toSend = pendingFetches;
+            pendingFetches = new HashMap<>();
+        }
+        final DiscoveryNodes nodes = clusterService.state().nodes();
+        final TransportRequestOptions options = TransportRequestOptions.builder().withCompress(transportCompress()).build();
+        for (Map.Entry<String, List<PendingNodeFetch>> entry : toSend.entrySet()) {
+            final String nodeId = entry.getKey();
+            final DiscoveryNode node = nodes.get(nodeId);
+            final List<PendingNodeFetch> fetches = entry.getValue();
+            for (int from = 0; from < fetches.size(); from += batchSize) {
+                final List<PendingNodeFetch> batch = fetches.subList(from, Math.min(from + batchSize, fetches.size()));
+                if (node == null) {
+                    onBatchFailure(batch, nodeId, new NoSuchNodeException(nodeId));
+                } else {
+                    sendBatch(node, batch, options);
+                }
+            }
+        }
+    }
+
+    private void sendBatch(DiscoveryNode node, List<PendingNodeFetch> batch, TransportRequestOptions options) {
+        logger.trace("fetching [{}] shards from {} in a single batch", batch.size(), node);
+        try {
+            final List<NodeRequest> requests = new ArrayList<>(batch.size());
+            for (PendingNodeFetch fetch : batch) {
+                requests.add(newNodeRequest(node.getId(), fetch.shardFetch.request));
+            }
+            transportService.sendRequest(node, transportBatchAction, new NodeBatchRequest(requests), options,
+                new BaseTransportResponseHandler<NodeBatchResponse>() {
+                    @Override
+                    public NodeBatchResponse newInstance() {
+                        return new NodeBatchResponse();
+                    }
+
+                    @Override
+                    public void handleResponse(NodeBatchResponse response) {
+                        assert response.responses.size() == batch.size();
+                        for (int i = 0; i < batch.size(); i++) {
+                            final PendingNodeFetch fetch = batch.get(i);
+                            final Object result = response.responses.get(i);
+                            if (result instanceof Throwable) {
+                                fetch.shardFetch.onFailure(fetch.nodeIndex, node.getId(), (Throwable) result);
+                            } else {
+                                fetch.shardFetch.onResponse(fetch.nodeIndex, result);
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void handleException(TransportException exp) {
+                        onBatchFailure(batch, node.getId(), exp);
+                    }
+
+                    @Override
+                    public String executor() {
+                        return ThreadPool.Names.SAME;
+                    }
+                });
+        } catch (Throwable t) {
+            onBatchFailure(batch, node.getId(), t);
+        }
+    }
+
+    private void onBatchFailure(List<PendingNodeFetch> batch, String nodeId, Throwable t) {
+        logger.debug("failed to fetch [{}] shards from node [{}]", t, batch.size(), nodeId);
+        for (PendingNodeFetch fetch : batch) {
+            fetch.shardFetch.onFailure(fetch.nodeIndex, nodeId, t);
+        }
+    }
+
+    /**
+     * The fetch of a single shard from all its nodes that is completed by the batched requests to these nodes
+     */
+    private class ShardFetch {
+        private final NodesRequest request;
+        private final String[] nodesIds;
+        private final ActionListener<NodesResponse> listener;
+        private final AtomicReferenceArray<Object> responses;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        ShardFetch(NodesRequest request, String[] nodesIds, ActionListener<NodesResponse> listener) {
+            this.request = request;
+            this.nodesIds = nodesIds;
+            this.listener = listener;
+            this.responses = new AtomicReferenceArray<>(nodesIds.length);
+        }
+
+        void onResponse(int idx, Object nodeResponse) {
+            responses.set(idx, nodeResponse);
+            if (counter.incrementAndGet() == responses.length()) {
+                finish();
+            }
+        }
+
+        void onFailure(int idx, String nodeId, Throwable t) {
+            if (accumulateExceptions()) {
+                responses.set(idx, new FailedNodeException(nodeId, "Failed node [" + nodeId + "]", t));
+            }
+            if (counter.incrementAndGet() == responses.length()) {
+                finish();
+            }
+        }
+
+        void finish() {
+            final NodesResponse finalResponse;
+            try {
+                finalResponse = newResponse(request, responses);
+            } catch (Throwable t) {
+                logger.debug("failed to combine responses from nodes {}", t, (Object) nodesIds);
+                listener.onFailure(t);
+                return;
+            }
+            listener.onResponse(finalResponse);
+        }
+    }
+
+    private class PendingNodeFetch {
+        private final ShardFetch shardFetch;
+        private final int nodeIndex;
+
+        PendingNodeFetch(ShardFetch shardFetch, int nodeIndex) {
+            this.shardFetch = shardFetch;
+            this.nodeIndex = nodeIndex;
+        }
+    }
+
+    /**
+     * Lists the shards of a batch concurrently on the node executor since every listing reads the shard's files from disk. This
+     * thread lists the last shard itself and the response is sent by whichever thread completes the last listing.
+     */
+    class NodeBatchTransportHandler implements TransportRequestHandler<NodeBatchRequest> {
+
+        @Override
+        public void messageReceived(NodeBatchRequest request, TransportChannel channel) throws Exception {
+            final List<NodeRequest> requests = request.requests;
+            final AtomicReferenceArray<Object> responses = new AtomicReferenceArray<>(requests.size());
+            final AtomicInteger pending = new AtomicInteger(requests.size());
+            if (requests.isEmpty()) {
+                sendResponse(channel, responses);
+                return;
+            }
+            for (int i = 0; i < requests.size(); i++) {
+                final int idx = i;
+                final AbstractRunnable listing = new AbstractRunnable() {
+                    @Override
+                    protected void doRun() throws Exception {
+                        onListed(nodeOperation(requests.get(idx)));
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        onListed(t);
+                    }
+
+                    private void onListed(Object response) {
+                        responses.set(idx, response);
+                        if (pending.decrementAndGet() == 0) {
+                            sendResponse(channel, responses);
+                        }
+                    }
+                };
+                if (idx == requests.size() - 1) {
+                    listing.run();
+                } else {
+                    threadPool.executor(nodeExecutor).execute(listing);
+                }
+            }
+        }
+
+        private void sendResponse(TransportChannel channel, AtomicReferenceArray<Object> responses) {
+            final List<Object> results = new ArrayList<>(responses.length());
+            for (int i = 0; i < responses.length(); i++) {
+                results.add(responses.get(i));
+            }
+            try {
+                channel.sendResponse(new NodeBatchResponse(results));
+            } catch (Throwable t) {
+                logger.warn("failed to send response for [{}] batched shard fetches", t, results.size());
+            }
+        }
+    }
+
+    class NodeBatchRequest extends TransportRequest {
+
+        private List<NodeRequest> requests;
+
+        NodeBatchRequest() {
+        }
+
+        NodeBatchRequest(List<NodeRequest> requests) {
+            this.requests = requests;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            final int size = in.readVInt();
+            requests = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                NodeRequest request = nodeRequest.get();
+                request.readFrom(in);
+                requests.add(request);
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeVInt(requests.size());
+            for (NodeRequest request : requests) {
+                request.writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * Holds either the response or the failure of every request of a {@link NodeBatchRequest}, in the same order
+     */
+    class NodeBatchResponse extends TransportResponse {
+
+        private List<Object> responses;
+
+        NodeBatchResponse() {
+        }
+
+        NodeBatchResponse(List<Object> responses) {
+            this.responses = responses;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            final int size = in.readVInt();
+            responses = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                if (in.readBoolean()) {
+                    NodeResponse response = newNodeResponse();
+                    response.readFrom(in);
+                    responses.add(response);
+                } else {
+                    responses.add(in.readThrowable());
+                }
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeVInt(responses.size());
+            for (Object response : responses) {
+                if (response instanceof Throwable) {
+                    out.writeBoolean(false);
+                    out.writeThrowable((Throwable) response);
+                } else {
+                    out.writeBoolean(true);
+                    ((TransportResponse) response).writeTo(out);
+                }
+            }
+        }
+    }
+}
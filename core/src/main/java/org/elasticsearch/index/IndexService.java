@@ -56,6 +56,7 @@ import org.elasticsearch.index.shard.IndexEventListener;
 import org.elasticsearch.index.shard.IndexSearcherWrapper;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexingOperationListener;
+import org.elasticsearch.index.shard.SegmentReplicaIndexShard;
 import org.elasticsearch.index.shard.ShadowIndexShard;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardNotFoundException;
@@ -340,6 +341,11 @@ public final class IndexService extends AbstractIndexComponent implements IndexC
                 indexShard = new ShadowIndexShard(shardId, this.indexSettings, path, store, indexCache, mapperService, similarityService,
                     indexFieldData, engineFactory, eventListener, searcherWrapper, threadPool, bigArrays, searchSlowLog, engineWarmer);
                 // no indexing listeners - shadow  engines don't index
+            } else if (useSegmentReplicaEngine(primary, indexSettings)) {
+                indexShard = new SegmentReplicaIndexShard(shardId, this.indexSettings, path, store, indexCache, mapperService,
+                    similarityService, indexFieldData, engineFactory, eventListener, searcherWrapper, threadPool, bigArrays, searchSlowLog,
+                    engineWarmer);
+                // no indexing listeners - segment replicas only write to the translog
             } else {
                 indexShard = new IndexShard(shardId, this.indexSettings, path, store, indexCache, mapperService, similarityService,
                     indexFieldData, engineFactory, eventListener, searcherWrapper, threadPool, bigArrays, searchSlowLog, engineWarmer,
@@ -363,6 +369,10 @@ public final class IndexService extends AbstractIndexComponent implements IndexC
         return primary == false && IndexMetaData.isIndexUsingShadowReplicas(indexSettings);
     }
 
+    static boolean useSegmentReplicaEngine(boolean primary, Settings indexSettings) {
+        return primary == false && IndexMetaData.isIndexUsingSegmentReplication(indexSettings);
+    }
+
     public synchronized void removeShard(int shardId, String reason) {
         final ShardId sId = new ShardId(index(), shardId);
         final IndexShard indexShard;
@@ -694,9 +704,7 @@ public final class IndexService extends AbstractIndexComponent implements IndexC
                     case STARTED:
                     case RELOCATED:
                         try {
-                            if (shard.isRefreshNeeded()) {
-                                shard.refresh("schedule");
-                            }
+                            shard.scheduledRefresh();
                         } catch (EngineClosedException | AlreadyClosedException ex) {
                             // fine - continue;
                         }
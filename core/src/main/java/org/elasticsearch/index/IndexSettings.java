@@ -66,6 +66,8 @@ public final class IndexSettings {
     public static final Setting<Translog.Durability> INDEX_TRANSLOG_DURABILITY_SETTING =
         new Setting<>("index.translog.durability", Translog.Durability.REQUEST.name(),
             (value) -> Translog.Durability.valueOf(value.toUpperCase(Locale.ROOT)), Property.Dynamic, Property.IndexScope);
+    public static final Setting<Boolean> INDEX_TRANSLOG_COMPRESS_SETTING =
+        Setting.boolSetting("index.translog.compress", false, Property.Dynamic, Property.IndexScope);
     public static final Setting<Boolean> INDEX_WARMER_ENABLED_SETTING =
         Setting.boolSetting("index.warmer.enabled", true, Property.Dynamic, Property.IndexScope);
     public static final Setting<Boolean> INDEX_TTL_DISABLE_PURGE_SETTING =
@@ -92,13 +94,53 @@ public final class IndexSettings {
      */
     public static final Setting<Integer> MAX_RESULT_WINDOW_SETTING =
         Setting.intSetting("index.max_result_window", 10000, 1, Property.Dynamic, Property.IndexScope);
+    /**
+     * The maximum number of refresh listeners allowed on a shard of this index.
+     */
+    public static final Setting<Integer> MAX_REFRESH_LISTENERS_PER_SHARD =
+        Setting.intSetting("index.max_refresh_listeners", 1000, 0, Property.Dynamic, Property.IndexScope);
     public static final TimeValue DEFAULT_REFRESH_INTERVAL = new TimeValue(1, TimeUnit.SECONDS);
     public static final Setting<TimeValue> INDEX_REFRESH_INTERVAL_SETTING =
         Setting.timeSetting("index.refresh_interval", DEFAULT_REFRESH_INTERVAL, new TimeValue(-1, TimeUnit.MILLISECONDS),
             Property.Dynamic, Property.IndexScope);
+    /**
+     * Index setting describing how long a shard may go without receiving a search before it is considered search idle. Search idle
+     * shards skip scheduled refreshes until the next search arrives, unless {@link #INDEX_REFRESH_INTERVAL_SETTING} is set explicitly.
+     */
+    public static final Setting<TimeValue> INDEX_SEARCH_IDLE_AFTER =
+        Setting.timeSetting("index.search.idle.after", TimeValue.timeValueSeconds(30), TimeValue.timeValueMinutes(0),
+            Property.Dynamic, Property.IndexScope);
     public static final Setting<ByteSizeValue> INDEX_TRANSLOG_FLUSH_THRESHOLD_SIZE_SETTING =
         Setting.byteSizeSetting("index.translog.flush_threshold_size", new ByteSizeValue(512, ByteSizeUnit.MB), Property.Dynamic,
             Property.IndexScope);
+    /**
+     * Index setting to control the total size of committed translog generations that are retained to recover replicas from the
+     * operations they missed, rather than by copying files.
+     */
+    public static final Setting<ByteSizeValue> INDEX_TRANSLOG_RETENTION_SIZE_SETTING =
+        Setting.byteSizeSetting("index.translog.retention.size", new ByteSizeValue(512, ByteSizeUnit.MB), Property.Dynamic,
+            Property.IndexScope);
+    /**
+     * Index setting to control the maximum age of committed translog generations that are retained to recover replicas from the
+     * operations they missed, rather than by copying files.
+     */
+    public static final Setting<TimeValue> INDEX_TRANSLOG_RETENTION_AGE_SETTING =
+        Setting.timeSetting("index.translog.retention.age", TimeValue.timeValueHours(12), TimeValue.timeValueMillis(0),
+            Property.Dynamic, Property.IndexScope);
+    /**
+     * Index setting to control the number of threads that replay the operations of a shard's translog when it
+     * recovers from its local store. Operations on the same document are always replayed by the same thread.
+     */
+    public static final Setting<Integer> INDEX_TRANSLOG_RECOVERY_CONCURRENCY_SETTING =
+        Setting.intSetting("index.translog.recovery.concurrency", 4, 1, Property.IndexScope);
+    /**
+     * Index setting that marks an index as frozen. Shards of frozen indices are read-only, keep no index reader open and open
+     * one on demand for each search, which runs on the {@link org.elasticsearch.threadpool.ThreadPool.Names#SEARCH_THROTTLED}
+     * thread pool. Writes are rejected by the {@link IndexMetaData#INDEX_FROZEN_BLOCK}. The setting can only be changed while the
+     * index is closed.
+     */
+    public static final Setting<Boolean> INDEX_FROZEN_SETTING =
+        Setting.boolSetting("index.frozen", false, Property.IndexScope);
 
 
     /**
@@ -117,6 +159,7 @@ public final class IndexSettings {
     private final Settings nodeSettings;
     private final int numberOfShards;
     private final boolean isShadowReplicaIndex;
+    private final boolean frozen;
     private final ParseFieldMatcher parseFieldMatcher;
     // volatile fields are updated via #updateIndexMetaData(IndexMetaData) under lock
     private volatile Settings settings;
@@ -128,15 +171,21 @@ public final class IndexSettings {
     private final boolean defaultAllowUnmappedFields;
     private final Predicate<String> indexNameMatcher;
     private volatile Translog.Durability durability;
+    private volatile boolean translogCompress;
     private final TimeValue syncInterval;
     private volatile TimeValue refreshInterval;
+    private volatile TimeValue searchIdleAfter;
     private volatile ByteSizeValue flushThresholdSize;
+    private volatile ByteSizeValue translogRetentionSize;
+    private volatile TimeValue translogRetentionAge;
+    private final int translogRecoveryConcurrency;
     private final MergeSchedulerConfig mergeSchedulerConfig;
     private final MergePolicyConfig mergePolicyConfig;
     private final IndexScopedSettings scopedSettings;
     private long gcDeletesInMillis = DEFAULT_GC_DELETES.millis();
     private volatile boolean warmerEnabled;
     private volatile int maxResultWindow;
+    private volatile int maxRefreshListeners;
     private volatile boolean TTLPurgeDisabled;
 
     /**
@@ -204,6 +253,7 @@ public final class IndexSettings {
         this.indexMetaData = indexMetaData;
         numberOfShards = settings.getAsInt(IndexMetaData.SETTING_NUMBER_OF_SHARDS, null);
         isShadowReplicaIndex = IndexMetaData.isIndexUsingShadowReplicas(settings);
+        frozen = INDEX_FROZEN_SETTING.get(settings);
 
         this.defaultField = DEFAULT_FIELD_SETTING.get(settings);
         this.queryStringLenient = QUERY_STRING_LENIENT_SETTING.get(settings);
@@ -213,13 +263,19 @@ public final class IndexSettings {
         this.defaultAllowUnmappedFields = scopedSettings.get(ALLOW_UNMAPPED);
         this.indexNameMatcher = indexNameMatcher;
         this.durability = scopedSettings.get(INDEX_TRANSLOG_DURABILITY_SETTING);
+        translogCompress = scopedSettings.get(INDEX_TRANSLOG_COMPRESS_SETTING);
         syncInterval = INDEX_TRANSLOG_SYNC_INTERVAL_SETTING.get(settings);
         refreshInterval = scopedSettings.get(INDEX_REFRESH_INTERVAL_SETTING);
+        searchIdleAfter = scopedSettings.get(INDEX_SEARCH_IDLE_AFTER);
         flushThresholdSize = scopedSettings.get(INDEX_TRANSLOG_FLUSH_THRESHOLD_SIZE_SETTING);
+        translogRetentionSize = scopedSettings.get(INDEX_TRANSLOG_RETENTION_SIZE_SETTING);
+        translogRetentionAge = scopedSettings.get(INDEX_TRANSLOG_RETENTION_AGE_SETTING);
+        translogRecoveryConcurrency = scopedSettings.get(INDEX_TRANSLOG_RECOVERY_CONCURRENCY_SETTING);
         mergeSchedulerConfig = new MergeSchedulerConfig(this);
         gcDeletesInMillis = scopedSettings.get(INDEX_GC_DELETES_SETTING).getMillis();
         warmerEnabled = scopedSettings.get(INDEX_WARMER_ENABLED_SETTING);
         maxResultWindow = scopedSettings.get(MAX_RESULT_WINDOW_SETTING);
+        maxRefreshListeners = scopedSettings.get(MAX_REFRESH_LISTENERS_PER_SHARD);
         TTLPurgeDisabled = scopedSettings.get(INDEX_TTL_DISABLE_PURGE_SETTING);
         this.mergePolicyConfig = new MergePolicyConfig(logger, this);
         assert indexNameMatcher.test(indexMetaData.getIndex().getName());
@@ -236,18 +292,31 @@ public final class IndexSettings {
         scopedSettings.addSettingsUpdateConsumer(MergeSchedulerConfig.MAX_MERGE_COUNT_SETTING, mergeSchedulerConfig::setMaxMergeCount);
         scopedSettings.addSettingsUpdateConsumer(MergeSchedulerConfig.AUTO_THROTTLE_SETTING, mergeSchedulerConfig::setAutoThrottle);
         scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_DURABILITY_SETTING, this::setTranslogDurability);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_COMPRESS_SETTING, this::setTranslogCompress);
         scopedSettings.addSettingsUpdateConsumer(INDEX_TTL_DISABLE_PURGE_SETTING, this::setTTLPurgeDisabled);
         scopedSettings.addSettingsUpdateConsumer(MAX_RESULT_WINDOW_SETTING, this::setMaxResultWindow);
+        scopedSettings.addSettingsUpdateConsumer(MAX_REFRESH_LISTENERS_PER_SHARD, this::setMaxRefreshListeners);
         scopedSettings.addSettingsUpdateConsumer(INDEX_WARMER_ENABLED_SETTING, this::setEnableWarmer);
         scopedSettings.addSettingsUpdateConsumer(INDEX_GC_DELETES_SETTING, this::setGCDeletes);
         scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_FLUSH_THRESHOLD_SIZE_SETTING, this::setTranslogFlushThresholdSize);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_RETENTION_SIZE_SETTING, this::setTranslogRetentionSize);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_RETENTION_AGE_SETTING, this::setTranslogRetentionAge);
         scopedSettings.addSettingsUpdateConsumer(INDEX_REFRESH_INTERVAL_SETTING, this::setRefreshInterval);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_SEARCH_IDLE_AFTER, this::setSearchIdleAfter);
     }
 
     private void setTranslogFlushThresholdSize(ByteSizeValue byteSizeValue) {
         this.flushThresholdSize = byteSizeValue;
     }
 
+    private void setTranslogRetentionSize(ByteSizeValue byteSizeValue) {
+        this.translogRetentionSize = byteSizeValue;
+    }
+
+    private void setTranslogRetentionAge(TimeValue age) {
+        this.translogRetentionAge = age;
+    }
+
     private void setGCDeletes(TimeValue timeValue) {
         this.gcDeletesInMillis = timeValue.getMillis();
     }
@@ -256,6 +325,10 @@ public final class IndexSettings {
         this.refreshInterval = timeValue;
     }
 
+    private void setSearchIdleAfter(TimeValue searchIdleAfter) {
+        this.searchIdleAfter = searchIdleAfter;
+    }
+
     /**
      * Returns the settings for this index. These settings contain the node and index level settings where
      * settings that are specified on both index and node level are overwritten by the index settings.
@@ -346,6 +419,12 @@ public final class IndexSettings {
      */
     public boolean isShadowReplicaIndex() { return isShadowReplicaIndex; }
 
+    /**
+     * Returns <code>true</code> iff this index is frozen and its shards open index readers on demand only.
+     * @see #INDEX_FROZEN_SETTING
+     */
+    public boolean isFrozen() { return frozen; }
+
     /**
      * Returns the node settings. The settings returned from {@link #getSettings()} are a merged version of the
      * index settings and the node settings where node settings are overwritten by index settings.
@@ -402,6 +481,17 @@ public final class IndexSettings {
         this.durability = durability;
     }
 
+    /**
+     * Returns <code>true</code> if the sources of index operations are compressed before they are written to the translog.
+     */
+    public boolean isTranslogCompressionEnabled() {
+        return translogCompress;
+    }
+
+    private void setTranslogCompress(boolean translogCompress) {
+        this.translogCompress = translogCompress;
+    }
+
     /**
      * Returns true if index warmers are enabled, otherwise <code>false</code>
      */
@@ -428,11 +518,41 @@ public final class IndexSettings {
         return refreshInterval;
     }
 
+    /**
+     * Returns <code>true</code> iff the refresh interval of this index is set explicitly. Shards of such indices are refreshed on
+     * schedule even if they are search idle.
+     */
+    public boolean isExplicitRefresh() {
+        return INDEX_REFRESH_INTERVAL_SETTING.exists(settings);
+    }
+
+    /**
+     * Returns the time a shard may go without receiving a search before it is considered search idle.
+     */
+    public TimeValue getSearchIdleAfter() {
+        return searchIdleAfter;
+    }
+
     /**
      * Returns the transaction log threshold size when to forcefully flush the index and clear the transaction log.
      */
     public ByteSizeValue getFlushThresholdSize() { return flushThresholdSize; }
 
+    /**
+     * Returns the total size of committed translog generations to retain for operation based recoveries
+     */
+    public ByteSizeValue getTranslogRetentionSize() { return translogRetentionSize; }
+
+    /**
+     * Returns the maximum age of committed translog generations to retain for operation based recoveries
+     */
+    public TimeValue getTranslogRetentionAge() { return translogRetentionAge; }
+
+    /**
+     * Returns the number of threads that replay translog operations when the shard recovers from its local store
+     */
+    public int getTranslogRecoveryConcurrency() { return translogRecoveryConcurrency; }
+
     /**
      * Returns the {@link MergeSchedulerConfig}
      */
@@ -449,6 +569,17 @@ public final class IndexSettings {
         this.maxResultWindow = maxResultWindow;
     }
 
+    /**
+     * Returns the maximum number of refresh listeners that may wait for a refresh on a shard of this index at the same time.
+     */
+    public int getMaxRefreshListeners() {
+        return maxRefreshListeners;
+    }
+
+    private void setMaxRefreshListeners(int maxRefreshListeners) {
+        this.maxRefreshListeners = maxRefreshListeners;
+    }
+
 
     /**
      * Returns the GC deletes cycle in milliseconds.
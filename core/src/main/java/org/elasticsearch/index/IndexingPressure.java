@@ -0,0 +1,169 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index;
+
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accounts for the bytes of the write operations that are in flight on this node and rejects new operations with an
+ * {@link EsRejectedExecutionException} once {@link #MAX_INDEXING_BYTES_SETTING} is exceeded. Thread pool queues only bound the
+ * number of queued requests, which says little about the memory these requests hold on to.
+ * <p>
+ * Bytes are tracked separately for the coordinating, primary and replica stage of a write. Coordinating and primary operations
+ * share the limit. Replica operations are only rejected at 1.5 times the limit since a rejected replica operation fails the
+ * replica rather than just the request.
+ */
+public class IndexingPressure extends AbstractComponent {
+
+    public static final Setting<ByteSizeValue> MAX_INDEXING_BYTES_SETTING =
+        Setting.byteSizeSetting("indexing_pressure.memory.limit", "10%", Property.Dynamic, Property.NodeScope);
+
+    private static final Releasable NOOP_RELEASABLE = () -> {};
+
+    private final AtomicLong currentCoordinatingAndPrimaryBytes = new AtomicLong();
+    private final AtomicLong currentCoordinatingBytes = new AtomicLong();
+    private final AtomicLong currentPrimaryBytes = new AtomicLong();
+    private final AtomicLong currentReplicaBytes = new AtomicLong();
+
+    private final AtomicLong totalCoordinatingBytes = new AtomicLong();
+    private final AtomicLong totalPrimaryBytes = new AtomicLong();
+    private final AtomicLong totalReplicaBytes = new AtomicLong();
+
+    private final AtomicLong coordinatingRejections = new AtomicLong();
+    private final AtomicLong primaryRejections = new AtomicLong();
+    private final AtomicLong replicaRejections = new AtomicLong();
+
+    private volatile long limit;
+
+    @Inject
+    public IndexingPressure(Settings settings, ClusterSettings clusterSettings) {
+        super(settings);
+        this.limit = MAX_INDEXING_BYTES_SETTING.get(settings).bytes();
+        clusterSettings.addSettingsUpdateConsumer(MAX_INDEXING_BYTES_SETTING, this::setLimit);
+    }
+
+    private void setLimit(ByteSizeValue limit) {
+        this.limit = limit.bytes();
+    }
+
+    /**
+     * Accounts for a write operation that is coordinated by this node.
+     *
+     * @param bytes the estimated size of the operation in bytes
+     * @return a releasable that must be closed once the operation completed
+     * @throws EsRejectedExecutionException if accepting the operation would exceed the limit
+     */
+    public Releasable markCoordinatingOperationStarted(long bytes) {
+        if (bytes == 0) {
+            return NOOP_RELEASABLE;
+        }
+        final long combinedBytes = currentCoordinatingAndPrimaryBytes.addAndGet(bytes);
+        if (combinedBytes > limit) {
+            currentCoordinatingAndPrimaryBytes.addAndGet(-bytes);
+            coordinatingRejections.incrementAndGet();
+            throw rejection("coordinating", bytes, combinedBytes - bytes, limit);
+        }
+        currentCoordinatingBytes.addAndGet(bytes);
+        totalCoordinatingBytes.addAndGet(bytes);
+        return releaseOnce(() -> {
+            currentCoordinatingAndPrimaryBytes.addAndGet(-bytes);
+            currentCoordinatingBytes.addAndGet(-bytes);
+        });
+    }
+
+    /**
+     * Accounts for a write operation on a primary shard on this node that wasn't already accounted for by
+     * {@link #markCoordinatingOperationStarted(long)} on this node.
+     *
+     * @param bytes the estimated size of the operation in bytes
+     * @return a releasable that must be closed once the operation completed
+     * @throws EsRejectedExecutionException if accepting the operation would exceed the limit
+     */
+    public Releasable markPrimaryOperationStarted(long bytes) {
+        if (bytes == 0) {
+            return NOOP_RELEASABLE;
+        }
+        final long combinedBytes = currentCoordinatingAndPrimaryBytes.addAndGet(bytes);
+        if (combinedBytes > limit) {
+            currentCoordinatingAndPrimaryBytes.addAndGet(-bytes);
+            primaryRejections.incrementAndGet();
+            throw rejection("primary", bytes, combinedBytes - bytes, limit);
+        }
+        currentPrimaryBytes.addAndGet(bytes);
+        totalPrimaryBytes.addAndGet(bytes);
+        return releaseOnce(() -> {
+            currentCoordinatingAndPrimaryBytes.addAndGet(-bytes);
+            currentPrimaryBytes.addAndGet(-bytes);
+        });
+    }
+
+    /**
+     * Accounts for a write operation on a replica shard on this node.
+     *
+     * @param bytes the estimated size of the operation in bytes
+     * @return a releasable that must be closed once the operation completed
+     * @throws EsRejectedExecutionException if accepting the operation would exceed 1.5 times the limit
+     */
+    public Releasable markReplicaOperationStarted(long bytes) {
+        if (bytes == 0) {
+            return NOOP_RELEASABLE;
+        }
+        final long replicaLimit = (long) (limit * 1.5);
+        final long replicaBytes = currentReplicaBytes.addAndGet(bytes);
+        if (replicaBytes > replicaLimit) {
+            currentReplicaBytes.addAndGet(-bytes);
+            replicaRejections.incrementAndGet();
+            throw rejection("replica", bytes, replicaBytes - bytes, replicaLimit);
+        }
+        totalReplicaBytes.addAndGet(bytes);
+        return releaseOnce(() -> currentReplicaBytes.addAndGet(-bytes));
+    }
+
+    private static EsRejectedExecutionException rejection(String stage, long operationBytes, long currentBytes, long limit) {
+        return new EsRejectedExecutionException("rejected execution of " + stage + " operation [operation_bytes=" + operationBytes
+            + ", current_bytes=" + currentBytes + ", limit_bytes=" + limit + "]");
+    }
+
+    private static Releasable releaseOnce(Runnable release) {
+        final AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                release.run();
+            }
+        };
+    }
+
+    public IndexingPressureStats stats() {
+        return new IndexingPressureStats(currentCoordinatingBytes.get(), currentPrimaryBytes.get(), currentReplicaBytes.get(),
+            totalCoordinatingBytes.get(), totalPrimaryBytes.get(), totalReplicaBytes.get(),
+            coordinatingRejections.get(), primaryRejections.get(), replicaRejections.get(), limit);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * The bytes of write operations in flight on a node as tracked by {@link IndexingPressure}.
+ */
+public class IndexingPressureStats implements Writeable<IndexingPressureStats>, ToXContent {
+
+    private final long currentCoordinatingBytes;
+    private final long currentPrimaryBytes;
+    private final long currentReplicaBytes;
+    private final long totalCoordinatingBytes;
+    private final long totalPrimaryBytes;
+    private final long totalReplicaBytes;
+    private final long coordinatingRejections;
+    private final long primaryRejections;
+    private final long replicaRejections;
+    private final long limitBytes;
+
+    public IndexingPressureStats(StreamInput in) throws IOException {
+        currentCoordinatingBytes = in.readVLong();
+        currentPrimaryBytes = in.readVLong();
+        currentReplicaBytes = in.readVLong();
+        totalCoordinatingBytes = in.readVLong();
+        totalPrimaryBytes = in.readVLong();
+        totalReplicaBytes = in.readVLong();
+        coordinatingRejections = in.readVLong();
+        primaryRejections = in.readVLong();
+        replicaRejections = in.readVLong();
+        limitBytes = in.readVLong();
+    }
+
+    public IndexingPressureStats(long currentCoordinatingBytes, long currentPrimaryBytes, long currentReplicaBytes,
+                                 long totalCoordinatingBytes, long totalPrimaryBytes, long totalReplicaBytes,
+                                 long coordinatingRejections, long primaryRejections, long replicaRejections, long limitBytes) {
+        this.currentCoordinatingBytes = currentCoordinatingBytes;
+        this.currentPrimaryBytes = currentPrimaryBytes;
+        this.currentReplicaBytes = currentReplicaBytes;
+        this.totalCoordinatingBytes = totalCoordinatingBytes;
+        this.totalPrimaryBytes = totalPrimaryBytes;
+        this.totalReplicaBytes = totalReplicaBytes;
+        this.coordinatingRejections = coordinatingRejections;
+        this.primaryRejections = primaryRejections;
+        this.replicaRejections = replicaRejections;
+        this.limitBytes = limitBytes;
+    }
+
+    /**
+     * @return The bytes of the write operations this node currently coordinates.
+     */
+    public long getCurrentCoordinatingBytes() {
+        return currentCoordinatingBytes;
+    }
+
+    /**
+     * @return The bytes of the write operations currently executed on primary shards of this node.
+     */
+    public long getCurrentPrimaryBytes() {
+        return currentPrimaryBytes;
+    }
+
+    /**
+     * @return The bytes of the write operations currently executed on replica shards of this node.
+     */
+    public long getCurrentReplicaBytes() {
+        return currentReplicaBytes;
+    }
+
+    public long getTotalCoordinatingBytes() {
+        return totalCoordinatingBytes;
+    }
+
+    public long getTotalPrimaryBytes() {
+        return totalPrimaryBytes;
+    }
+
+    public long getTotalReplicaBytes() {
+        return totalReplicaBytes;
+    }
+
+    public long getCoordinatingRejections() {
+        return coordinatingRejections;
+    }
+
+    public long getPrimaryRejections() {
+        return primaryRejections;
+    }
+
+    public long getReplicaRejections() {
+        return replicaRejections;
+    }
+
+    /**
+     * @return The number of coordinating and primary bytes that can be in flight before operations are rejected.
+     */
+    public long getLimitBytes() {
+        return limitBytes;
+    }
+
+    @Override
+    public IndexingPressureStats readFrom(StreamInput in) throws IOException {
+        return new IndexingPressureStats(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(currentCoordinatingBytes);
+        out.writeVLong(currentPrimaryBytes);
+        out.writeVLong(currentReplicaBytes);
+        out.writeVLong(totalCoordinatingBytes);
+        out.writeVLong(totalPrimaryBytes);
+        out.writeVLong(totalReplicaBytes);
+        out.writeVLong(coordinatingRejections);
+        out.writeVLong(primaryRejections);
+        out.writeVLong(replicaRejections);
+        out.writeVLong(limitBytes);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.INDEXING_PRESSURE);
+        builder.startObject(Fields.MEMORY);
+        builder.startObject(Fields.CURRENT);
+        builder.byteSizeField(Fields.COORDINATING_IN_BYTES, Fields.COORDINATING, currentCoordinatingBytes);
+        builder.byteSizeField(Fields.PRIMARY_IN_BYTES, Fields.PRIMARY, currentPrimaryBytes);
+        builder.byteSizeField(Fields.REPLICA_IN_BYTES, Fields.REPLICA, currentReplicaBytes);
+        builder.byteSizeField(Fields.ALL_IN_BYTES, Fields.ALL, currentCoordinatingBytes + currentPrimaryBytes + currentReplicaBytes);
+        builder.endObject();
+        builder.startObject(Fields.TOTAL);
+        builder.byteSizeField(Fields.COORDINATING_IN_BYTES, Fields.COORDINATING, totalCoordinatingBytes);
+        builder.byteSizeField(Fields.PRIMARY_IN_BYTES, Fields.PRIMARY, totalPrimaryBytes);
+        builder.byteSizeField(Fields.REPLICA_IN_BYTES, Fields.REPLICA, totalReplicaBytes);
+        builder.byteSizeField(Fields.ALL_IN_BYTES, Fields.ALL, totalCoordinatingBytes + totalPrimaryBytes + totalReplicaBytes);
+        builder.field(Fields.COORDINATING_REJECTIONS, coordinatingRejections);
+        builder.field(Fields.PRIMARY_REJECTIONS, primaryRejections);
+        builder.field(Fields.REPLICA_REJECTIONS, replicaRejections);
+        builder.endObject();
+        builder.byteSizeField(Fields.LIMIT_IN_BYTES, Fields.LIMIT, limitBytes);
+        builder.endObject();
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString INDEXING_PRESSURE = new XContentBuilderString("indexing_pressure");
+        static final XContentBuilderString MEMORY = new XContentBuilderString("memory");
+        static final XContentBuilderString CURRENT = new XContentBuilderString("current");
+        static final XContentBuilderString TOTAL = new XContentBuilderString("total");
+        static final XContentBuilderString COORDINATING = new XContentBuilderString("coordinating");
+        static final XContentBuilderString COORDINATING_IN_BYTES = new XContentBuilderString("coordinating_in_bytes");
+        static final XContentBuilderString PRIMARY = new XContentBuilderString("primary");
+        static final XContentBuilderString PRIMARY_IN_BYTES = new XContentBuilderString("primary_in_bytes");
+        static final XContentBuilderString REPLICA = new XContentBuilderString("replica");
+        static final XContentBuilderString REPLICA_IN_BYTES = new XContentBuilderString("replica_in_bytes");
+        static final XContentBuilderString ALL = new XContentBuilderString("all");
+        static final XContentBuilderString ALL_IN_BYTES = new XContentBuilderString("all_in_bytes");
+        static final XContentBuilderString COORDINATING_REJECTIONS = new XContentBuilderString("coordinating_rejections");
+        static final XContentBuilderString PRIMARY_REJECTIONS = new XContentBuilderString("primary_rejections");
+        static final XContentBuilderString REPLICA_REJECTIONS = new XContentBuilderString("replica_rejections");
+        static final XContentBuilderString LIMIT = new XContentBuilderString("limit");
+        static final XContentBuilderString LIMIT_IN_BYTES = new XContentBuilderString("limit_in_bytes");
+    }
+}
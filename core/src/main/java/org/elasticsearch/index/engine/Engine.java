@@ -43,6 +43,7 @@ import org.apache.lucene.store.IOContext;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.Accountables;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.common.Base64;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
@@ -93,6 +94,11 @@ import java.util.function.Function;
 public abstract class Engine implements Closeable {
 
     public static final String SYNC_COMMIT_ID = "sync_id";
+    /**
+     * The sync id of the most recent synced flush whose commit is contained in a commit. Unlike {@link #SYNC_COMMIT_ID} it is
+     * carried over to later commits and is used to replay only the missing operations when recovering a replica.
+     */
+    public static final String RECOVERY_ANCHOR_ID = "recovery_anchor_id";
 
     protected final ShardId shardId;
     protected final ESLogger logger;
@@ -343,7 +349,7 @@ public abstract class Engine implements Closeable {
      *
      * @see Searcher#close()
      */
-    public final Searcher acquireSearcher(String source) throws EngineException {
+    public Searcher acquireSearcher(String source) throws EngineException {
         boolean success = false;
          /* Acquire order here is store -> manager since we need
           * to make sure that the store is not closed before
@@ -414,7 +420,7 @@ public abstract class Engine implements Closeable {
     /**
      * Global stats on segments.
      */
-    public final SegmentsStats segmentsStats(boolean includeSegmentFileSizes) {
+    public SegmentsStats segmentsStats(boolean includeSegmentFileSizes) {
         ensureOpen();
         try (final Searcher searcher = acquireSearcher("segments_stats")) {
             SegmentsStats stats = new SegmentsStats();
@@ -585,7 +591,7 @@ public abstract class Engine implements Closeable {
      */
     public abstract List<Segment> segments(boolean verbose);
 
-    public final boolean refreshNeeded() {
+    public boolean refreshNeeded() {
         if (store.tryIncRef()) {
             /*
               we need to inc the store here since searcherManager.isSearcherCurrent()
@@ -832,10 +838,19 @@ public abstract class Engine implements Closeable {
     public static class Index extends Operation {
 
         private final ParsedDocument doc;
+        private final long autoGeneratedIdTimestamp;
+        private final boolean isRetry;
 
-        public Index(Term uid, ParsedDocument doc, long version, VersionType versionType, Origin origin, long startTime) {
+        public Index(Term uid, ParsedDocument doc, long version, VersionType versionType, Origin origin, long startTime,
+                     long autoGeneratedIdTimestamp, boolean isRetry) {
             super(uid, version, versionType, origin, startTime);
             this.doc = doc;
+            this.autoGeneratedIdTimestamp = autoGeneratedIdTimestamp;
+            this.isRetry = isRetry;
+        }
+
+        public Index(Term uid, ParsedDocument doc, long version, VersionType versionType, Origin origin, long startTime) {
+            this(uid, doc, version, versionType, origin, startTime, IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP, false);
         }
 
         public Index(Term uid, ParsedDocument doc) {
@@ -887,6 +902,22 @@ public abstract class Engine implements Closeable {
         public BytesReference source() {
             return this.doc.source();
         }
+
+        /**
+         * Returns the timestamp the id of this document was generated at on the coordinating node or
+         * {@link IndexRequest#UNSET_AUTO_GENERATED_TIMESTAMP} if the id was provided by the user.
+         */
+        public long getAutoGeneratedIdTimestamp() {
+            return this.autoGeneratedIdTimestamp;
+        }
+
+        /**
+         * Returns <code>true</code> if this operation might have been applied before, for instance because the request was
+         * retried after a connection or primary failure.
+         */
+        public boolean isRetry() {
+            return isRetry;
+        }
     }
 
     public static class Delete extends Operation {
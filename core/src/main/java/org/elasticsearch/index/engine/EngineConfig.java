@@ -25,6 +25,7 @@ import org.apache.lucene.index.SnapshotDeletionPolicy;
 import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.similarities.Similarity;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
@@ -33,6 +34,7 @@ import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.codec.CodecService;
+import org.elasticsearch.index.shard.RefreshListeners;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.TranslogRecoveryPerformer;
 import org.elasticsearch.index.store.Store;
@@ -94,6 +96,8 @@ public final class EngineConfig {
 
     private TranslogConfig translogConfig;
     private boolean create = false;
+    @Nullable
+    private RefreshListeners refreshListeners;
 
     /**
      * Creates a new {@link org.elasticsearch.index.engine.EngineConfig}
@@ -305,4 +309,19 @@ public final class EngineConfig {
      */
     public TimeValue getFlushMergesAfter() { return flushMergesAfter; }
 
+    /**
+     * Sets the {@link RefreshListeners} the engine notifies about refreshes. The default is <code>null</code>.
+     */
+    public void setRefreshListeners(@Nullable RefreshListeners refreshListeners) {
+        this.refreshListeners = refreshListeners;
+    }
+
+    /**
+     * Returns the {@link RefreshListeners} the engine notifies about refreshes or <code>null</code> if there are none.
+     */
+    @Nullable
+    public RefreshListeners getRefreshListeners() {
+        return refreshListeners;
+    }
+
 }
@@ -26,4 +26,6 @@ public interface EngineFactory {
     public Engine newReadWriteEngine(EngineConfig config, boolean skipTranslogRecovery);
 
     public Engine newReadOnlyEngine(EngineConfig config);
+
+    public Engine newSegmentReplicaEngine(EngineConfig config);
 }
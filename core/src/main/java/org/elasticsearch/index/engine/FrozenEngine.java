@@ -0,0 +1,344 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
+import org.elasticsearch.common.util.concurrent.ReleasableLock;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogConfig;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * FrozenEngine is a read-only engine for shards of frozen indices that keeps
+ * no {@code IndexWriter} and no {@code IndexReader} open. A reader is opened
+ * when the first searcher is acquired, shared by all searchers that are acquired
+ * while it is open and closed once the last of them is released. This means:
+ *
+ * - Index and Delete are not allowed
+ * - Flush and refresh are no-ops, the last commit is never changed
+ * - Segments hold no heap unless they are searched
+ *
+ * On creation the engine recovers the shard with a short lived
+ * {@link InternalEngine} which replays the translog and commits. Afterwards
+ * only the empty translog is kept open so that the shard can be recovered
+ * from by its replicas. Shards whose store is read-only, like shards that are
+ * mounted from a snapshot, skip the recovery and start a new empty translog
+ * instead.
+ */
+public class FrozenEngine extends Engine {
+
+    private final Translog translog;
+
+    private final SearcherFactory searcherFactory;
+
+    private final SegmentInfos lastCommittedSegmentInfos;
+
+    private final boolean readOnlyStore;
+
+    private final Object readerMutex = new Object();
+
+    // the reader shared by all acquired searchers, null if there is no searcher
+    private DirectoryReader reader;
+
+    public FrozenEngine(EngineConfig engineConfig, boolean skipInitialTranslogRecovery) throws EngineException {
+        this(engineConfig, skipInitialTranslogRecovery, false);
+    }
+
+    public FrozenEngine(EngineConfig engineConfig, boolean skipInitialTranslogRecovery, boolean readOnlyStore) throws EngineException {
+        super(engineConfig);
+        this.readOnlyStore = readOnlyStore;
+        if (readOnlyStore == false) {
+            // replay and commit pending operations and point the commit at a fresh translog generation
+            try (InternalEngine engine = new InternalEngine(engineConfig, skipInitialTranslogRecovery)) {
+                engine.flush(true, true);
+            }
+        }
+        this.searcherFactory = new EngineSearcherFactory(engineConfig);
+        store.incRef();
+        Translog translog = null;
+        boolean success = false;
+        try {
+            lastCommittedSegmentInfos = store.readLastCommittedSegmentsInfo();
+            final TranslogConfig translogConfig = engineConfig.getTranslogConfig();
+            if (readOnlyStore) {
+                // the commit can't point to a translog of this shard, so the shard gets a new one
+                translogConfig.setTranslogGeneration(null);
+            } else {
+                final Map<String, String> commitUserData = lastCommittedSegmentInfos.getUserData();
+                translogConfig.setTranslogGeneration(new Translog.TranslogGeneration(commitUserData.get(Translog.TRANSLOG_UUID_KEY),
+                    Long.parseLong(commitUserData.get(Translog.TRANSLOG_GENERATION_KEY))));
+            }
+            translog = new Translog(translogConfig);
+            assert translog.totalOperations() == 0 : "frozen shard has [" + translog.totalOperations() + "] uncommitted operations";
+            this.translog = translog;
+            if (engineConfig.getRefreshListeners() != null) {
+                engineConfig.getRefreshListeners().setTranslog(translog);
+            }
+            success = true;
+        } catch (IOException e) {
+            throw new EngineCreationFailureException(shardId, "failed to open frozen engine", e);
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(translog);
+                store.decRef();
+            }
+        }
+        logger.trace("created new FrozenEngine");
+    }
+
+    @Override
+    public Searcher acquireSearcher(String source) throws EngineException {
+        ensureOpen();
+        boolean success = false;
+        store.incRef();
+        try {
+            final DirectoryReader reader = acquireReader();
+            try {
+                final IndexSearcher searcher = searcherFactory.newSearcher(reader, null);
+                final Searcher retVal = new FrozenSearcher(source, searcher, reader);
+                success = true;
+                return retVal;
+            } finally {
+                if (success == false) {
+                    releaseReader(reader);
+                }
+            }
+        } catch (EngineClosedException ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            ensureOpen(); // throw EngineCloseException here if we are already closed
+            logger.error("failed to acquire searcher, source {}", ex, source);
+            throw new EngineException(shardId, "failed to acquire searcher, source " + source, ex);
+        } finally {
+            if (success == false) {
+                store.decRef();
+            }
+        }
+    }
+
+    private DirectoryReader acquireReader() throws IOException {
+        synchronized (readerMutex) {
+            if (reader != null && reader.tryIncRef()) {
+                return reader;
+            }
+            logger.trace("opening reader of frozen shard");
+            reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(store.directory()), shardId);
+            return reader;
+        }
+    }
+
+    private void releaseReader(DirectoryReader reader) throws IOException {
+        synchronized (readerMutex) {
+            reader.decRef();
+            if (reader.getRefCount() == 0 && this.reader == reader) {
+                logger.trace("closed reader of frozen shard");
+                this.reader = null;
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if a reader is open because searchers are currently acquired
+     */
+    public boolean isReaderOpen() {
+        synchronized (readerMutex) {
+            return reader != null;
+        }
+    }
+
+    @Override
+    public SegmentsStats segmentsStats(boolean includeSegmentFileSizes) {
+        if (isReaderOpen() == false) {
+            // computing the stats would open the reader only to report the heap it uses while open
+            ensureOpen();
+            return new SegmentsStats();
+        }
+        return super.segmentsStats(includeSegmentFileSizes);
+    }
+
+    @Override
+    public boolean index(Index index) throws EngineException {
+        throw new UnsupportedOperationException(shardId + " index operation not allowed on frozen engine");
+    }
+
+    @Override
+    public void delete(Delete delete) throws EngineException {
+        throw new UnsupportedOperationException(shardId + " delete operation not allowed on frozen engine");
+    }
+
+    @Override
+    public SyncedFlushResult syncFlush(String syncId, CommitId expectedCommitId) {
+        throw new UnsupportedOperationException(shardId + " sync commit operation not allowed on frozen engine");
+    }
+
+    @Override
+    public CommitId flush() throws EngineException {
+        return flush(false, false);
+    }
+
+    @Override
+    public CommitId flush(boolean force, boolean waitIfOngoing) throws EngineException {
+        logger.trace("skipping FLUSH on frozen engine");
+        ensureOpen();
+        return new CommitId(lastCommittedSegmentInfos.getId());
+    }
+
+    @Override
+    public void forceMerge(boolean flush, int maxNumSegments, boolean onlyExpungeDeletes,
+                           boolean upgrade, boolean upgradeOnlyAncientSegments) throws EngineException {
+        // no-op
+        logger.trace("skipping FORCE-MERGE on frozen engine");
+    }
+
+    @Override
+    public GetResult get(Get get, Function<String, Searcher> searcherFactory) throws EngineException {
+        // nothing is written, so the searcher is always up to date
+        return getFromSearcher(get, searcherFactory);
+    }
+
+    @Override
+    public Translog getTranslog() {
+        ensureOpen();
+        return translog;
+    }
+
+    @Override
+    public List<Segment> segments(boolean verbose) {
+        try (ReleasableLock lock = readLock.acquire()) {
+            Segment[] segmentsArr = getSegmentInfo(lastCommittedSegmentInfos, verbose);
+            for (int i = 0; i < segmentsArr.length; i++) {
+                // all segments are committed, the frozen engine never writes
+                segmentsArr[i].committed = true;
+            }
+            return Arrays.asList(segmentsArr);
+        }
+    }
+
+    @Override
+    public void refresh(String source) throws EngineException {
+        // the last commit never changes, every new reader sees all documents
+        ensureOpen();
+    }
+
+    @Override
+    public boolean refreshNeeded() {
+        return false;
+    }
+
+    @Override
+    public IndexCommit snapshotIndex(boolean flushFirst) throws EngineException {
+        if (readOnlyStore) {
+            // no index writer ever committed through the deletion policy
+            throw new SnapshotFailedEngineException(shardId, new UnsupportedOperationException("read-only stores can't be snapshotted"));
+        }
+        try (ReleasableLock lock = readLock.acquire()) {
+            ensureOpen();
+            logger.trace("pulling snapshot");
+            return engineConfig.getDeletionPolicy().snapshot();
+        } catch (IOException e) {
+            throw new SnapshotFailedEngineException(shardId, e);
+        }
+    }
+
+    @Override
+    protected SearcherManager getSearcherManager() {
+        throw new UnsupportedOperationException("frozen engines open readers on demand");
+    }
+
+    @Override
+    protected void closeNoLock(String reason) {
+        if (isClosed.compareAndSet(false, true)) {
+            try {
+                logger.debug("frozen engine close, searchers still open: {}", isReaderOpen());
+                IOUtils.close(translog);
+            } catch (Throwable t) {
+                logger.warn("frozen engine failed to close translog", t);
+            } finally {
+                store.decRef();
+            }
+        }
+    }
+
+    @Override
+    protected SegmentInfos getLastCommittedSegmentInfos() {
+        return lastCommittedSegmentInfos;
+    }
+
+    @Override
+    public long getIndexBufferRAMBytesUsed() {
+        // No IndexWriter nor version map
+        return 0;
+    }
+
+    @Override
+    public void writeIndexingBuffer() {
+        // No indexing buffer
+    }
+
+    @Override
+    public void activateThrottling() {
+        // No indexing to throttle
+    }
+
+    @Override
+    public void deactivateThrottling() {
+        // No indexing to throttle
+    }
+
+    private final class FrozenSearcher extends Searcher {
+
+        private final DirectoryReader reader;
+
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        FrozenSearcher(String source, IndexSearcher searcher, DirectoryReader reader) {
+            super(source, searcher);
+            this.reader = reader;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true) == false) {
+                logger.warn("Searcher was released twice", new IllegalStateException("Double release"));
+                return;
+            }
+            try {
+                releaseReader(reader);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot close", e);
+            } finally {
+                store.decRef();
+            }
+        }
+    }
+}
@@ -41,6 +41,7 @@ import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.InfoStream;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.cluster.routing.Murmur3HashFunction;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lease.Releasable;
@@ -73,6 +74,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
@@ -81,6 +83,13 @@ import java.util.function.Function;
  *
  */
 public class InternalEngine extends Engine {
+
+    /**
+     * Commit user data key that holds the highest auto generated id timestamp of an operation that might have been indexed more than
+     * once, see {@link #maxUnsafeAutoIdTimestamp}.
+     */
+    public static final String MAX_UNSAFE_AUTO_ID_TIMESTAMP_COMMIT_ID = "max_unsafe_auto_id_timestamp";
+
     /**
      * When we last pruned expired tombstones from versionMap.deletes:
      */
@@ -114,9 +123,14 @@ public class InternalEngine extends Engine {
     // incoming indexing ops to a single thread:
     private final AtomicInteger throttleRequestCount = new AtomicInteger();
 
+    // The highest auto generated id timestamp we have seen on a retried (or recovered) operation. Operations with an auto generated id
+    // that are not retries and whose timestamp is above this value can't exist in the index yet and can be added without looking up
+    // their uid first:
+    private final AtomicLong maxUnsafeAutoIdTimestamp = new AtomicLong(IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP);
+
     public InternalEngine(EngineConfig engineConfig, boolean skipInitialTranslogRecovery) throws EngineException {
         super(engineConfig);
-        this.versionMap = new LiveVersionMap();
+        this.versionMap = new LiveVersionMap(versionMapSegments(engineConfig.getThreadPool()));
         store.incRef();
         IndexWriter writer = null;
         Translog translog = null;
@@ -137,6 +151,7 @@ public class InternalEngine extends Engine {
                 final boolean create = engineConfig.isCreate();
                 writer = createWriter(create);
                 indexWriter = writer;
+                loadMaxUnsafeAutoIdTimestampFromCommit(writer);
                 translog = openTranslog(engineConfig, writer, create || skipInitialTranslogRecovery || engineConfig.forceNewTranslog());
                 translogGeneration = translog.getGeneration();
                 assert translogGeneration != null;
@@ -155,6 +170,10 @@ public class InternalEngine extends Engine {
             manager = createSearcherManager();
             this.searcherManager = manager;
             this.versionMap.setManager(searcherManager);
+            if (engineConfig.getRefreshListeners() != null) {
+                searcherManager.addListener(engineConfig.getRefreshListeners());
+                engineConfig.getRefreshListeners().setTranslog(translog);
+            }
             try {
                 if (skipInitialTranslogRecovery) {
                     // make sure we point at the latest translog from now on..
@@ -179,6 +198,21 @@ public class InternalEngine extends Engine {
         logger.trace("created new InternalEngine");
     }
 
+    /**
+     * Only the threads of the index and bulk pools write to the version map concurrently, so it needs no more segments than
+     * the larger of these pools has threads.
+     */
+    private static int versionMapSegments(ThreadPool threadPool) {
+        int segments = 1;
+        for (String name : new String[] {ThreadPool.Names.INDEX, ThreadPool.Names.BULK}) {
+            final ThreadPool.Info info = threadPool.info(name);
+            if (info != null) {
+                segments = Math.max(segments, info.getMax());
+            }
+        }
+        return segments;
+    }
+
     private Translog openTranslog(EngineConfig engineConfig, IndexWriter writer, boolean createNew) throws IOException {
         final Translog.TranslogGeneration generation = loadTranslogIdFromCommit(writer);
         final TranslogConfig translogConfig = engineConfig.getTranslogConfig();
@@ -223,6 +257,7 @@ public class InternalEngine extends Engine {
         int opsRecovered = 0;
         final TranslogRecoveryPerformer handler = engineConfig.getTranslogRecoveryPerformer();
         try {
+            // committed generations that are retained for operation based recoveries are already part of the commit and skipped
             Translog.Snapshot snapshot = translog.newSnapshot();
             opsRecovered = handler.recoveryFromSnapshot(this, snapshot);
         } catch (Throwable e) {
@@ -263,6 +298,13 @@ public class InternalEngine extends Engine {
         return null;
     }
 
+    private void loadMaxUnsafeAutoIdTimestampFromCommit(IndexWriter writer) {
+        final String maxUnsafeAutoIdTimestamp = writer.getCommitData().get(MAX_UNSAFE_AUTO_ID_TIMESTAMP_COMMIT_ID);
+        if (maxUnsafeAutoIdTimestamp != null) {
+            updateMaxUnsafeAutoIdTimestamp(Long.parseLong(maxUnsafeAutoIdTimestamp));
+        }
+    }
+
     private SearcherManager createSearcherManager() throws EngineException {
         boolean success = false;
         SearcherManager searcherManager = null;
@@ -341,16 +383,25 @@ public class InternalEngine extends Engine {
             lastWriteNanos = index.startTime();
             final long currentVersion;
             final boolean deleted;
-            VersionValue versionValue = versionMap.getUnderLock(index.uid().bytes());
-            if (versionValue == null) {
-                currentVersion = loadCurrentVersionFromIndex(index.uid());
-                deleted = currentVersion == Versions.NOT_FOUND;
+            final VersionValue versionValue;
+            if (canOptimizeAddDocument(index) && mayHaveBeenIndexedBefore(index) == false) {
+                // the id was generated for this operation and it was never sent before, so the document can't exist yet and we can
+                // skip the version map and terms dictionary lookups and add it straight away:
+                versionValue = null;
+                currentVersion = Versions.NOT_FOUND;
+                deleted = true;
             } else {
-                deleted = versionValue.delete();
-                if (engineConfig.isEnableGcDeletes() && versionValue.delete() && (engineConfig.getThreadPool().estimatedTimeInMillis() - versionValue.time()) > getGcDeletesInMillis()) {
-                    currentVersion = Versions.NOT_FOUND; // deleted, and GC
+                versionValue = versionMap.getUnderLock(index.uid().bytes());
+                if (versionValue == null) {
+                    currentVersion = loadCurrentVersionFromIndex(index.uid());
+                    deleted = currentVersion == Versions.NOT_FOUND;
                 } else {
-                    currentVersion = versionValue.version();
+                    deleted = versionValue.delete();
+                    if (engineConfig.isEnableGcDeletes() && versionValue.delete() && (engineConfig.getThreadPool().estimatedTimeInMillis() - versionValue.time()) > getGcDeletesInMillis()) {
+                        currentVersion = Versions.NOT_FOUND; // deleted, and GC
+                    } else {
+                        currentVersion = versionValue.version();
+                    }
                 }
             }
 
@@ -382,6 +433,42 @@ public class InternalEngine extends Engine {
         }
     }
 
+    /**
+     * Returns <code>true</code> if the id of the given operation was auto generated, in which case it can only collide with an
+     * earlier attempt of the same operation.
+     */
+    private boolean canOptimizeAddDocument(Index index) {
+        if (index.getAutoGeneratedIdTimestamp() != IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP) {
+            assert index.getAutoGeneratedIdTimestamp() >= 0 : "autoGeneratedIdTimestamp must be positive but was: "
+                + index.getAutoGeneratedIdTimestamp();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns <code>true</code> if the given operation with an auto generated id might already be in the index. Retries and recovery
+     * operations always might be, and they raise {@link #maxUnsafeAutoIdTimestamp} so that a delayed first attempt of the same
+     * operation, which carries the same timestamp, is not treated as append-only either. Must be called under the uid's dirty lock.
+     */
+    private boolean mayHaveBeenIndexedBefore(Index index) {
+        assert canOptimizeAddDocument(index);
+        if (index.isRetry() || index.origin() == Operation.Origin.RECOVERY) {
+            updateMaxUnsafeAutoIdTimestamp(index.getAutoGeneratedIdTimestamp());
+            return true;
+        }
+        return maxUnsafeAutoIdTimestamp.get() >= index.getAutoGeneratedIdTimestamp();
+    }
+
+    private void updateMaxUnsafeAutoIdTimestamp(long newTimestamp) {
+        maxUnsafeAutoIdTimestamp.accumulateAndGet(newTimestamp, Math::max);
+    }
+
+    /** Returns the highest auto generated id timestamp of an operation that might have been indexed more than once. */
+    long getMaxUnsafeAutoIdTimestamp() {
+        return maxUnsafeAutoIdTimestamp.get();
+    }
+
     private static boolean update(Index index, VersionValue versionValue, IndexWriter indexWriter) throws IOException {
         boolean created;
         if (versionValue != null) {
@@ -1075,12 +1162,18 @@ public class InternalEngine extends Engine {
         try {
             Translog.TranslogGeneration translogGeneration = translog.getGeneration();
             logger.trace("committing writer with translog id [{}]  and sync id [{}] ", translogGeneration.translogFileGeneration, syncId);
-            Map<String, String> commitData = new HashMap<>(2);
+            Map<String, String> commitData = new HashMap<>(5);
             commitData.put(Translog.TRANSLOG_GENERATION_KEY, Long.toString(translogGeneration.translogFileGeneration));
             commitData.put(Translog.TRANSLOG_UUID_KEY, translogGeneration.translogUUID);
+            commitData.put(MAX_UNSAFE_AUTO_ID_TIMESTAMP_COMMIT_ID, Long.toString(maxUnsafeAutoIdTimestamp.get()));
             if (syncId != null) {
                 commitData.put(Engine.SYNC_COMMIT_ID, syncId);
             }
+            // every commit contains the last synced commit, later synced flushes move the anchor forward
+            final String recoveryAnchorId = syncId != null ? syncId : writer.getCommitData().get(Engine.RECOVERY_ANCHOR_ID);
+            if (recoveryAnchorId != null) {
+                commitData.put(Engine.RECOVERY_ANCHOR_ID, recoveryAnchorId);
+            }
             indexWriter.setCommitData(commitData);
             writer.commit();
         } catch (Throwable ex) {
@@ -29,4 +29,9 @@ public class InternalEngineFactory implements EngineFactory {
     public Engine newReadOnlyEngine(EngineConfig config) {
         return new ShadowEngine(config);
     }
+
+    @Override
+    public Engine newSegmentReplicaEngine(EngineConfig config) {
+        return new SegmentReplicaEngine(config);
+    }
 }
@@ -37,26 +37,28 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
     private static class Maps {
 
         // All writes (adds and deletes) go into here:
-        final Map<BytesRef,VersionValue> current;
+        final PagedVersionMap current;
 
         // Used while refresh is running, and to hold adds/deletes until refresh finishes.  We read from both current and old on lookup:
-        final Map<BytesRef,VersionValue> old;
-      
-        public Maps(Map<BytesRef,VersionValue> current, Map<BytesRef,VersionValue> old) {
+        final PagedVersionMap old;
+
+        public Maps(PagedVersionMap current, PagedVersionMap old) {
            this.current = current;
            this.old = old;
         }
 
-        public Maps() {
-            this(ConcurrentCollections.<BytesRef,VersionValue>newConcurrentMapWithAggressiveConcurrency(),
-                 ConcurrentCollections.<BytesRef,VersionValue>newConcurrentMapWithAggressiveConcurrency());
+        public Maps(int numSegments) {
+            this(new PagedVersionMap(numSegments), new PagedVersionMap(numSegments));
         }
     }
 
+    /** Number of independently locked segments of the current and old maps; indexing threads only contend if they hit the same one. */
+    private final int numSegments;
+
     // All deletes also go here, and delete "tombstones" are retained after refresh:
     private final Map<BytesRef,VersionValue> tombstones = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
 
-    private volatile Maps maps = new Maps();
+    private volatile Maps maps;
 
     private ReferenceManager mgr;
 
@@ -65,7 +67,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
      *  NUM_BYTES_OBJECT_HEADER + 2*NUM_BYTES_INT + NUM_BYTES_OBJECT_REF + NUM_BYTES_ARRAY_HEADER [ + bytes.length] */
     private static final int BASE_BYTES_PER_BYTESREF = RamUsageEstimator.NUM_BYTES_OBJECT_HEADER +
         2*Integer.BYTES +
-        RamUsageEstimator.NUM_BYTES_OBJECT_REF + 
+        RamUsageEstimator.NUM_BYTES_OBJECT_REF +
         RamUsageEstimator.NUM_BYTES_ARRAY_HEADER;
 
     /** Bytes used by having CHM point to a key/value:
@@ -79,13 +81,18 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
         Integer.BYTES +
         5*RamUsageEstimator.NUM_BYTES_OBJECT_REF;
 
-    /** Tracks bytes used by current map, i.e. what is freed on refresh. For deletes, which are also added to tombstones, we only account
-     *  for the CHM entry here, and account for BytesRef/VersionValue against the tombstones, since refresh would not clear this RAM. */
-    final AtomicLong ramBytesUsedCurrent = new AtomicLong();
-
-    /** Tracks bytes used by tombstones (deletes) */
+    /** Tracks bytes used by tombstones (deletes). The current and old maps account for their own RAM exactly. */
     final AtomicLong ramBytesUsedTombstones = new AtomicLong();
 
+    /**
+     * Creates a version map whose current and old maps are split into the given number of independently locked segments. Maps
+     * are replaced on every refresh, so this should be about the number of threads that write to the map concurrently.
+     */
+    LiveVersionMap(int numSegments) {
+        this.numSegments = numSegments;
+        this.maps = new Maps(numSegments);
+    }
+
     /** Sync'd because we replace old mgr. */
     synchronized void setManager(ReferenceManager newMgr) {
         if (mgr != null) {
@@ -95,7 +102,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
         // In case InternalEngine closes & opens a new IndexWriter/SearcherManager, all deletes are made visible, so we clear old and
         // current here.  This is safe because caller holds writeLock here (so no concurrent adds/deletes can be happeninge):
-        maps = new Maps();
+        maps = new Maps(numSegments);
 
         // So we are notified when reopen starts and finishes
         mgr.addListener(this);
@@ -107,11 +114,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
         // map.  While reopen is running, any lookup will first
         // try this new map, then fallback to old, then to the
         // current searcher:
-        maps = new Maps(ConcurrentCollections.<BytesRef,VersionValue>newConcurrentMapWithAggressiveConcurrency(), maps.current);
-
-        // This is not 100% correct, since concurrent indexing ops can change these counters in between our execution of the previous
-        // line and this one, but that should be minor, and the error won't accumulate over time:
-        ramBytesUsedCurrent.set(0);
+        maps = new Maps(new PagedVersionMap(numSegments), maps.current);
     }
 
     @Override
@@ -122,7 +125,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
         // case.  This is because we assign new maps (in beforeRefresh) slightly before Lucene actually flushes any segments for the
         // reopen, and so any concurrent indexing requests can still sneak in a few additions to that current map that are in fact reflected
         // in the previous reader.   We don't touch tombstones here: they expire on their own index.gc_deletes timeframe:
-        maps = new Maps(maps.current, ConcurrentCollections.<BytesRef,VersionValue>newConcurrentMapWithAggressiveConcurrency());
+        maps = new Maps(maps.current, new PagedVersionMap(numSegments));
     }
 
     /** Returns the live version (add or delete) for this uid. */
@@ -148,38 +151,14 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
         long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
 
-        final VersionValue prev = maps.current.put(uid, version);
-        if (prev != null) {
-            // Deduct RAM for the version we just replaced:
-            long prevBytes = BASE_BYTES_PER_CHM_ENTRY;
-            if (prev.delete() == false) {
-                prevBytes += prev.ramBytesUsed() + uidRAMBytesUsed;
-            }
-            ramBytesUsedCurrent.addAndGet(-prevBytes);
-        }
-
-        // Add RAM for the new version:
-        long newBytes = BASE_BYTES_PER_CHM_ENTRY;
-        if (version.delete() == false) {
-            newBytes += version.ramBytesUsed() + uidRAMBytesUsed;
-        }
-        ramBytesUsedCurrent.addAndGet(newBytes);
+        // The current map copies the uid and version into its pages and accounts for them itself:
+        maps.current.put(uid, version);
 
         final VersionValue prevTombstone;
         if (version.delete()) {
             // Also enroll the delete into tombstones, and account for its RAM too:
             prevTombstone = tombstones.put(uid, version);
-
-            // We initially account for BytesRef/VersionValue RAM for a delete against the tombstones, because this RAM will not be freed up
-            // on refresh. Later, in removeTombstoneUnderLock, if we clear the tombstone entry but the delete remains in current, we shift
-            // the accounting to current:
             ramBytesUsedTombstones.addAndGet(BASE_BYTES_PER_CHM_ENTRY + version.ramBytesUsed() + uidRAMBytesUsed);
-
-            if (prevTombstone == null && prev != null && prev.delete()) {
-                // If prev was a delete that had already been removed from tombstones, then current was already accounting for the
-                // BytesRef/VersionValue RAM, so we now deduct that as well:
-                ramBytesUsedCurrent.addAndGet(-(prev.ramBytesUsed() + uidRAMBytesUsed));
-            }
         } else {
             // UID came back to life so we remove the tombstone:
             prevTombstone = tombstones.remove(uid);
@@ -203,13 +182,6 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
             long v = ramBytesUsedTombstones.addAndGet(-(BASE_BYTES_PER_CHM_ENTRY + prev.ramBytesUsed() + uidRAMBytesUsed));
             assert v >= 0: "bytes=" + v;
         }
-        final VersionValue curVersion = maps.current.get(uid);
-        if (curVersion != null && curVersion.delete()) {
-            // We now shift accounting of the BytesRef from tombstones to current, because a refresh would clear this RAM.  This should be
-            // uncommon, because with the default refresh=1s and gc_deletes=60s, deletes should be cleared from current long before we drop
-            // them from tombstones:
-            ramBytesUsedCurrent.addAndGet(curVersion.ramBytesUsed() + uidRAMBytesUsed);
-        }
     }
 
     /** Caller has a lock, so that this uid will not be concurrently added/deleted by another thread. */
@@ -224,9 +196,8 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
     /** Called when this index is closed. */
     synchronized void clear() {
-        maps = new Maps();
+        maps = new Maps(numSegments);
         tombstones.clear();
-        ramBytesUsedCurrent.set(0);
 
         // NOTE: we can't zero this here, because a refresh thread could be calling InternalEngine.pruneDeletedTombstones at the same time,
         // and this will lead to an assert trip.  Presumably it's fine if our ramBytesUsedTombstones is non-zero after clear since the index
@@ -241,13 +212,14 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
     @Override
     public long ramBytesUsed() {
-        return ramBytesUsedCurrent.get() + ramBytesUsedTombstones.get();
+        final Maps currentMaps = maps;
+        return currentMaps.current.ramBytesUsed() + currentMaps.old.ramBytesUsed() + ramBytesUsedTombstones.get();
     }
 
-    /** Returns how much RAM would be freed up by refreshing. This is {@link ramBytesUsed} except does not include tombstones because they
-     *  don't clear on refresh. */
+    /** Returns how much RAM would be freed up by refreshing. This is {@link #ramBytesUsed} except does not include tombstones because they
+     *  don't clear on refresh, nor the old map which is already being cleared by a running refresh. */
     long ramBytesUsedForRefresh() {
-        return ramBytesUsedCurrent.get();
+        return maps.current.ramBytesUsed();
     }
 
     @Override
@@ -0,0 +1,194 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import com.carrotsearch.hppc.BitMixer;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.index.translog.Translog;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Maps _uid values to their version information without allocating objects per entry: uid bytes are appended to the byte pages of a
+ * {@link BytesRefHash} and the version, delete time and translog location of each entry are stored in parallel primitive arrays that
+ * are indexed by the entry's id in that hash.
+ * <p>
+ * The map is split into independently locked segments so that concurrent indexing threads rarely contend. Entries can be replaced
+ * but never removed, {@link LiveVersionMap} drops the whole map once a refresh made its entries visible to searches.
+ * <p>
+ * All arrays come from {@link BigArrays#NON_RECYCLING_INSTANCE}: lookups might still read from a map after it has been dropped, so
+ * its pages must never be handed out to somebody else.
+ */
+final class PagedVersionMap implements Accountable {
+
+    /** Delete time stored for entries that are not deletes. */
+    private static final long NOT_DELETED = -1L;
+
+    /** Translog generation stored for entries that don't have a translog location. */
+    private static final long NO_TRANSLOG_LOCATION = -1L;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    /**
+     * Creates a new map
+     * @param numSegments the number of independently locked segments, is rounded up to the next power of two
+     */
+    PagedVersionMap(int numSegments) {
+        if (numSegments < 1) {
+            throw new IllegalArgumentException("numSegments must be >= 1 but was [" + numSegments + "]");
+        }
+        final int size = numSegments == 1 ? 1 : Integer.highestOneBit(numSegments - 1) << 1;
+        segments = new Segment[size];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+        // we pick the segment with the upper bits of the mixed hash since BytesRefHash uses the lower ones to pick the slot
+        segmentShift = 32 - Integer.numberOfTrailingZeros(size);
+    }
+
+    private Segment segment(int hash) {
+        if (segments.length == 1) {
+            return segments[0];
+        }
+        return segments[BitMixer.mix32(hash) >>> segmentShift];
+    }
+
+    /** Returns the version information for the given uid or <code>null</code> if the uid is not in this map. */
+    VersionValue get(BytesRef uid) {
+        final int hash = uid.hashCode();
+        return segment(hash).get(uid, hash);
+    }
+
+    /** Adds or replaces the version information for the given uid and returns the previous value, if any. */
+    VersionValue put(BytesRef uid, VersionValue value) {
+        final int hash = uid.hashCode();
+        return segment(hash).put(uid, hash, value);
+    }
+
+    /** Returns the number of uids in this map. */
+    long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /** Returns the number of bytes used by all arrays of this map. */
+    @Override
+    public long ramBytesUsed() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.ramBytesUsed;
+        }
+        return bytes;
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        return Collections.emptyList();
+    }
+
+    private static final class Segment {
+
+        private final BigArrays bigArrays = BigArrays.NON_RECYCLING_INSTANCE;
+
+        // all arrays are created lazily so that maps that see no writes (e.g. on idle shards, which are refreshed every second) are free
+        private BytesRefHash uids;
+        private LongArray versions;
+        private LongArray deleteTimes;
+        private LongArray translogGenerations;
+        private LongArray translogPositions;
+        private IntArray translogSizes;
+
+        // written under the segment lock, but read without it to sum up the size and RAM usage of the map
+        private volatile long size;
+        private volatile long ramBytesUsed;
+
+        synchronized VersionValue get(BytesRef uid, int hash) {
+            if (uids == null) {
+                return null;
+            }
+            final long id = uids.find(uid, hash);
+            return id < 0 ? null : value(id);
+        }
+
+        synchronized VersionValue put(BytesRef uid, int hash, VersionValue value) {
+            assert value.delete() == false || value.time() != NOT_DELETED : "delete time collides with the not deleted marker";
+            if (uids == null) {
+                uids = new BytesRefHash(16, bigArrays);
+                versions = bigArrays.newLongArray(16, false);
+                deleteTimes = bigArrays.newLongArray(16, false);
+                translogGenerations = bigArrays.newLongArray(16, false);
+                translogPositions = bigArrays.newLongArray(16, false);
+                translogSizes = bigArrays.newIntArray(16, false);
+            }
+            long id = uids.add(uid, hash);
+            final VersionValue previous;
+            if (id < 0) {
+                id = -1 - id;
+                previous = value(id);
+            } else {
+                previous = null;
+                versions = bigArrays.grow(versions, id + 1);
+                deleteTimes = bigArrays.grow(deleteTimes, id + 1);
+                translogGenerations = bigArrays.grow(translogGenerations, id + 1);
+                translogPositions = bigArrays.grow(translogPositions, id + 1);
+                translogSizes = bigArrays.grow(translogSizes, id + 1);
+            }
+            versions.set(id, value.version());
+            deleteTimes.set(id, value.delete() ? value.time() : NOT_DELETED);
+            final Translog.Location location = value.translogLocation();
+            if (location == null) {
+                translogGenerations.set(id, NO_TRANSLOG_LOCATION);
+            } else {
+                translogGenerations.set(id, location.generation);
+                translogPositions.set(id, location.translogLocation);
+                translogSizes.set(id, location.size);
+            }
+            size = uids.size();
+            ramBytesUsed = uids.ramBytesUsed() + versions.ramBytesUsed() + deleteTimes.ramBytesUsed()
+                + translogGenerations.ramBytesUsed() + translogPositions.ramBytesUsed() + translogSizes.ramBytesUsed();
+            return previous;
+        }
+
+        private VersionValue value(long id) {
+            final long translogGeneration = translogGenerations.get(id);
+            final Translog.Location location;
+            if (translogGeneration == NO_TRANSLOG_LOCATION) {
+                location = null;
+            } else {
+                location = new Translog.Location(translogGeneration, translogPositions.get(id), translogSizes.get(id));
+            }
+            final long deleteTime = deleteTimes.get(id);
+            if (deleteTime == NOT_DELETED) {
+                return new VersionValue(versions.get(id), location);
+            }
+            return new DeleteVersionValue(versions.get(id), deleteTime, location);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.util.concurrent.ReleasableLock;
+import org.elasticsearch.index.shard.RefreshListeners;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogConfig;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SegmentReplicaEngine is the engine of a replica of an index that uses segment replication. Like the
+ * {@link ShadowEngine} it never writes to the Lucene index itself but only opens readers on the segments
+ * that are copied over from the primary. Index and delete operations are only appended to the engine's
+ * own translog to make them durable on the replica until a commit of the primary that contains them
+ * has been copied.
+ *
+ * Every commit that is copied from the primary is rewritten to reference the translog of this engine such
+ * that the shard can recover from its local store, including all operations that aren't yet part of
+ * the copied commit, once it gets promoted to a primary.
+ *
+ * Refresh listeners wait for the operations they are registered for to be part of a copied commit. Only
+ * copying segments from the primary makes them visible, refreshing this engine doesn't.
+ */
+public class SegmentReplicaEngine extends ShadowEngine {
+
+    private final Translog translog;
+    @Nullable
+    private final RefreshListeners refreshListeners;
+
+    private boolean segmentCopyPrepared = false;
+
+    public SegmentReplicaEngine(EngineConfig engineConfig) {
+        super(engineConfig);
+        Translog translog = null;
+        boolean success = false;
+        try {
+            final TranslogConfig translogConfig = engineConfig.getTranslogConfig();
+            // operations from before this engine was created are part of the commit or will be replayed by the primary
+            translogConfig.setTranslogGeneration(null);
+            translog = new Translog(translogConfig);
+            this.translog = translog;
+            this.refreshListeners = engineConfig.getRefreshListeners();
+            if (refreshListeners != null) {
+                refreshListeners.setTranslog(translog);
+            }
+            associateCommitWithTranslog();
+            success = true;
+        } catch (IOException ex) {
+            throw new EngineCreationFailureException(shardId, "failed to create translog", ex);
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(translog, this);
+            }
+        }
+        logger.trace("created new SegmentReplicaEngine");
+    }
+
+    /**
+     * Rewrites the user data of the last commit in the store to reference the translog of this engine
+     * and rereads the last commit.
+     */
+    private void associateCommitWithTranslog() throws IOException {
+        store.incRef();
+        try {
+            final Map<String, String> commitData = new HashMap<>(store.readLastCommittedSegmentsInfo().getUserData());
+            final Translog.TranslogGeneration translogGeneration = translog.getGeneration();
+            commitData.put(Translog.TRANSLOG_GENERATION_KEY, Long.toString(translogGeneration.translogFileGeneration));
+            commitData.put(Translog.TRANSLOG_UUID_KEY, translogGeneration.translogUUID);
+            final IndexWriterConfig iwc = new IndexWriterConfig(Lucene.STANDARD_ANALYZER)
+                .setCommitOnClose(false)
+                .setMergePolicy(NoMergePolicy.INSTANCE)
+                .setOpenMode(IndexWriterConfig.OpenMode.APPEND);
+            try (IndexWriter writer = new IndexWriter(store.directory(), iwc)) {
+                writer.setCommitData(commitData);
+                writer.commit();
+            }
+        } finally {
+            store.decRef();
+        }
+        // reread the last committed segment infos
+        super.flush();
+    }
+
+    @Override
+    public boolean index(Index index) throws EngineException {
+        try (ReleasableLock lock = readLock.acquire()) {
+            ensureOpen();
+            Translog.Location translogLocation = translog.add(new Translog.Index(index));
+            index.setTranslogLocation(translogLocation);
+            // the document is indexed by the primary, we can't tell if it was created
+            return false;
+        } catch (IOException e) {
+            maybeFailEngine("index", e);
+            throw new IndexFailedEngineException(shardId, index.type(), index.id(), e);
+        }
+    }
+
+    @Override
+    public void delete(Delete delete) throws EngineException {
+        try (ReleasableLock lock = readLock.acquire()) {
+            ensureOpen();
+            Translog.Location translogLocation = translog.add(new Translog.Delete(delete));
+            delete.setTranslogLocation(translogLocation);
+        } catch (IOException e) {
+            maybeFailEngine("delete", e);
+            throw new DeleteFailedEngineException(shardId, delete, e);
+        }
+    }
+
+    /**
+     * Rolls the translog generation before new segments are copied from the primary. All operations
+     * of the rolled generations are trimmed by {@link #finishSegmentCopy()} once the copied commit
+     * is in place. Operations that are added while the segments are copied might not be part of the
+     * copied commit and are kept.
+     */
+    public synchronized void prepareSegmentCopy() throws IOException {
+        ensureOpen();
+        if (segmentCopyPrepared == false) {
+            translog.prepareCommit();
+            segmentCopyPrepared = true;
+        }
+        if (refreshListeners != null) {
+            // the primary indexed all operations that were added until now before it hands out the commit to copy
+            refreshListeners.beforeRefresh();
+        }
+    }
+
+    /**
+     * Makes the segments that were copied from the primary visible and trims the translog generations
+     * that were rolled by {@link #prepareSegmentCopy()}.
+     */
+    public synchronized void finishSegmentCopy() throws IOException {
+        ensureOpen();
+        associateCommitWithTranslog();
+        if (segmentCopyPrepared) {
+            translog.commit();
+            segmentCopyPrepared = false;
+        }
+        if (refreshListeners != null) {
+            refreshListeners.afterRefresh(true);
+        }
+    }
+
+    /**
+     * Called instead of {@link #finishSegmentCopy()} if the last commit of the primary was already copied. That commit
+     * contains all operations that were added before {@link #prepareSegmentCopy()}, so their refresh listeners are notified.
+     */
+    public synchronized void skipSegmentCopy() throws IOException {
+        ensureOpen();
+        if (refreshListeners != null) {
+            refreshListeners.afterRefresh(false);
+        }
+    }
+
+    @Override
+    public Translog getTranslog() {
+        ensureOpen();
+        return translog;
+    }
+
+    @Override
+    protected void closeNoLock(String reason) {
+        try {
+            super.closeNoLock(reason);
+        } finally {
+            IOUtils.closeWhileHandlingException(translog);
+        }
+    }
+}
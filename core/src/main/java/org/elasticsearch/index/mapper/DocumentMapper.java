@@ -183,7 +183,9 @@ public class DocumentMapper implements ToXContent {
         this.hasNestedObjects = hasNestedObjects;
 
         try {
-            mappingSource = new CompressedXContent(this, XContentType.JSON, ToXContent.EMPTY_PARAMS);
+            // indices that are created from the same template share the source of their mappings
+            mappingSource = mapperService.mappingSourceInterner().intern(
+                new CompressedXContent(this, XContentType.JSON, ToXContent.EMPTY_PARAMS));
         } catch (Exception e) {
             throw new ElasticsearchGenerationException("failed to serialize source for type [" + type + "]", e);
         }
@@ -25,6 +25,7 @@ import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.DelegatingAnalyzerWrapper;
 import org.elasticsearch.ElasticsearchGenerationException;
 import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.common.compress.CompressedXContentInterner;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
@@ -120,10 +121,20 @@ public class MapperService extends AbstractIndexComponent implements Closeable {
 
     final MapperRegistry mapperRegistry;
 
+    private final CompressedXContentInterner mappingSourceInterner;
+
     public MapperService(IndexSettings indexSettings, AnalysisService analysisService,
                          SimilarityService similarityService, MapperRegistry mapperRegistry,
                          Supplier<QueryShardContext> queryShardContextSupplier) {
+        this(indexSettings, analysisService, similarityService, mapperRegistry, queryShardContextSupplier,
+            CompressedXContentInterner.MAPPING_SOURCES);
+    }
+
+    public MapperService(IndexSettings indexSettings, AnalysisService analysisService,
+                         SimilarityService similarityService, MapperRegistry mapperRegistry,
+                         Supplier<QueryShardContext> queryShardContextSupplier, CompressedXContentInterner mappingSourceInterner) {
         super(indexSettings);
+        this.mappingSourceInterner = mappingSourceInterner;
         this.analysisService = analysisService;
         this.fieldTypes = new FieldTypeLookup();
         this.documentParser = new DocumentMapperParser(indexSettings, this, analysisService, similarityService, mapperRegistry, queryShardContextSupplier);
@@ -195,6 +206,13 @@ public class MapperService extends AbstractIndexComponent implements Closeable {
         return this.analysisService;
     }
 
+    /**
+     * Returns the interner that makes mappings with the same source share a single copy of it
+     */
+    public CompressedXContentInterner mappingSourceInterner() {
+        return mappingSourceInterner;
+    }
+
     public DocumentMapperParser documentMapperParser() {
         return this.documentParser;
     }
@@ -33,6 +33,7 @@ import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.admin.indices.flush.FlushRequest;
 import org.elasticsearch.action.admin.indices.forcemerge.ForceMergeRequest;
 import org.elasticsearch.action.admin.indices.upgrade.post.UpgradeRequest;
+import org.elasticsearch.action.support.PlainActionFuture;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.ShardRoutingState;
@@ -65,6 +66,7 @@ import org.elasticsearch.index.engine.EngineClosedException;
 import org.elasticsearch.index.engine.EngineConfig;
 import org.elasticsearch.index.engine.EngineException;
 import org.elasticsearch.index.engine.EngineFactory;
+import org.elasticsearch.index.engine.FrozenEngine;
 import org.elasticsearch.index.engine.InternalEngineFactory;
 import org.elasticsearch.index.engine.RefreshFailedEngineException;
 import org.elasticsearch.index.engine.Segment;
@@ -89,6 +91,7 @@ import org.elasticsearch.index.search.stats.SearchStats;
 import org.elasticsearch.index.search.stats.ShardSearchStats;
 import org.elasticsearch.index.similarity.SimilarityService;
 import org.elasticsearch.index.snapshots.IndexShardRepository;
+import org.elasticsearch.index.snapshots.blobstore.SnapshotIndexStore;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.Store.MetadataSnapshot;
 import org.elasticsearch.index.store.StoreFileMetaData;
@@ -112,6 +115,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -120,11 +124,17 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 public class IndexShard extends AbstractIndexShardComponent {
 
     private final ThreadPool threadPool;
     private final MapperService mapperService;
+    private final RefreshListeners refreshListeners;
+    // the last time this shard was searched, see #isSearchIdle()
+    private volatile long lastSearcherAccess = System.nanoTime();
+    // the refresh a search triggered because the shard was search idle, concurrent searches wait for it. null if there is none
+    private final AtomicReference<PlainActionFuture<Void>> pendingSearchIdleRefresh = new AtomicReference<>();
     private final IndexCache indexCache;
     private final Store store;
     private final InternalIndexingStats internalIndexingStats;
@@ -169,6 +179,14 @@ public class IndexShard extends AbstractIndexShardComponent {
 
     private final ShardEventListener shardEventListener = new ShardEventListener();
 
+    private static final int MAX_RECOVERY_ANCHORS = 8;
+    /**
+     * The translog generations of the most recent synced flushes that this shard performed as a primary, by sync id. Replicas
+     * whose last commit contains one of these synced flushes are recovered by replaying the operations since. They are only
+     * kept in memory such that they don't survive a change of the primary.
+     */
+    private final Map<String, Translog.TranslogGeneration> recoveryAnchors = new LinkedHashMap<>();
+
     private final ShardPath path;
 
     private final SuspendableRefContainer suspendableRefContainer;
@@ -237,7 +255,10 @@ public class IndexShard extends AbstractIndexShardComponent {
             cachingPolicy = new UsageTrackingQueryCachingPolicy();
         }
 
+        this.refreshListeners = new RefreshListeners(indexSettings::getMaxRefreshListeners, () -> refresh("too_many_listeners"),
+            threadPool.executor(ThreadPool.Names.LISTENER), logger);
         this.engineConfig = newEngineConfig(translogConfig, cachingPolicy);
+        this.engineConfig.setRefreshListeners(refreshListeners);
         this.suspendableRefContainer = new SuspendableRefContainer();
         this.searcherWrapper = indexSearcherWrapper;
         this.primaryTerm = indexSettings.getIndexMetaData().primaryTerm(shardId.id());
@@ -448,33 +469,42 @@ public class IndexShard extends AbstractIndexShardComponent {
         return previousState;
     }
 
-    public Engine.Index prepareIndexOnPrimary(SourceToParse source, long version, VersionType versionType) {
+    public Engine.Index prepareIndexOnPrimary(SourceToParse source, long version, VersionType versionType, long autoGeneratedIdTimestamp,
+                                              boolean isRetry) {
         try {
             verifyPrimary();
-            return prepareIndex(docMapper(source.type()), source, version, versionType, Engine.Operation.Origin.PRIMARY);
+            return prepareIndex(docMapper(source.type()), source, version, versionType, Engine.Operation.Origin.PRIMARY,
+                autoGeneratedIdTimestamp, isRetry);
         } catch (Throwable t) {
             verifyNotClosed(t);
             throw t;
         }
     }
 
-    public Engine.Index prepareIndexOnReplica(SourceToParse source, long version, VersionType versionType) {
+    public Engine.Index prepareIndexOnReplica(SourceToParse source, long version, VersionType versionType, long autoGeneratedIdTimestamp,
+                                              boolean isRetry) {
         try {
             verifyReplicationTarget();
-            return prepareIndex(docMapper(source.type()), source, version, versionType, Engine.Operation.Origin.REPLICA);
+            // while we are recovering, the operation might also be part of the files or translog operations copied from the
+            // primary, so we must not treat it as append-only
+            final boolean mayHaveDuplicates = isRetry || state == IndexShardState.RECOVERING;
+            return prepareIndex(docMapper(source.type()), source, version, versionType, Engine.Operation.Origin.REPLICA,
+                autoGeneratedIdTimestamp, mayHaveDuplicates);
         } catch (Throwable t) {
             verifyNotClosed(t);
             throw t;
         }
     }
 
-    static Engine.Index prepareIndex(DocumentMapperForType docMapper, SourceToParse source, long version, VersionType versionType, Engine.Operation.Origin origin) {
+    static Engine.Index prepareIndex(DocumentMapperForType docMapper, SourceToParse source, long version, VersionType versionType,
+                                     Engine.Operation.Origin origin, long autoGeneratedIdTimestamp, boolean isRetry) {
         long startTime = System.nanoTime();
         ParsedDocument doc = docMapper.getDocumentMapper().parse(source);
         if (docMapper.getMapping() != null) {
             doc.addDynamicMappingsUpdate(docMapper.getMapping());
         }
-        return new Engine.Index(docMapper.getDocumentMapper().uidMapper().term(doc.uid().stringValue()), doc, version, versionType, origin, startTime);
+        return new Engine.Index(docMapper.getDocumentMapper().uidMapper().term(doc.uid().stringValue()), doc, version, versionType, origin,
+            startTime, autoGeneratedIdTimestamp, isRetry);
     }
 
     /**
@@ -667,7 +697,27 @@ public class IndexShard extends AbstractIndexShardComponent {
     public Engine.SyncedFlushResult syncFlush(String syncId, Engine.CommitId expectedCommitId) {
         verifyStartedOrRecovering();
         logger.trace("trying to sync flush. sync id [{}]. expected commit id [{}]]", syncId, expectedCommitId);
-        return getEngine().syncFlush(syncId, expectedCommitId);
+        final Engine engine = getEngine();
+        final Engine.SyncedFlushResult result = engine.syncFlush(syncId, expectedCommitId);
+        if (result == Engine.SyncedFlushResult.SUCCESS && shardRouting.primary()) {
+            addRecoveryAnchor(syncId, engine.commitStats().getUserData());
+        }
+        return result;
+    }
+
+    private void addRecoveryAnchor(String syncId, Map<String, String> commitUserData) {
+        // the commit might already have been replaced by a concurrent flush in which case we can't tell where to replay from
+        final String translogGeneration = commitUserData.get(Translog.TRANSLOG_GENERATION_KEY);
+        if (syncId.equals(commitUserData.get(Engine.SYNC_COMMIT_ID)) == false || translogGeneration == null) {
+            return;
+        }
+        synchronized (recoveryAnchors) {
+            recoveryAnchors.put(syncId, new Translog.TranslogGeneration(commitUserData.get(Translog.TRANSLOG_UUID_KEY),
+                Long.parseLong(translogGeneration)));
+            if (recoveryAnchors.size() > MAX_RECOVERY_ANCHORS) {
+                recoveryAnchors.remove(recoveryAnchors.keySet().iterator().next());
+            }
+        }
     }
 
     public Engine.CommitId flush(FlushRequest request) throws ElasticsearchException {
@@ -792,7 +842,12 @@ public class IndexShard extends AbstractIndexShardComponent {
                         engine.flushAndClose();
                     }
                 } finally { // playing safe here and close the engine even if the above succeeds - close can be called multiple times
-                    IOUtils.close(engine);
+                    try {
+                        IOUtils.close(engine);
+                    } finally {
+                        // the shard will never be refreshed again, release everybody who waits for a refresh
+                        refreshListeners.close();
+                    }
                 }
             }
         }
@@ -1105,6 +1160,29 @@ public class IndexShard extends AbstractIndexShardComponent {
         return engine.getTranslog().newView();
     }
 
+    /**
+     * Returns a view of the translog that holds all operations since the synced flush with the given sync id, or <code>null</code>
+     * if this shard didn't perform that synced flush as a primary or doesn't retain the operations since anymore.
+     */
+    @Nullable
+    public Translog.View acquireRetainedTranslogView(@Nullable String recoveryAnchorId) {
+        if (recoveryAnchorId == null) {
+            return null;
+        }
+        final Translog.TranslogGeneration anchor;
+        synchronized (recoveryAnchors) {
+            anchor = recoveryAnchors.get(recoveryAnchorId);
+        }
+        if (anchor == null) {
+            return null;
+        }
+        final Translog translog = getEngine().getTranslog();
+        if (translog.getTranslogUUID().equals(anchor.translogUUID) == false) {
+            return null;
+        }
+        return translog.newView(anchor.translogFileGeneration);
+    }
+
     public List<Segment> segments(boolean verbose) {
         return getEngine().segments(verbose);
     }
@@ -1323,6 +1401,13 @@ public class IndexShard extends AbstractIndexShardComponent {
     }
 
     protected Engine newEngine(boolean skipTranslogRecovery, EngineConfig config) {
+        if (SnapshotIndexStore.isSnapshotStore(indexSettings.getSettings())) {
+            // shards that are mounted from a snapshot can't write to their store
+            return new FrozenEngine(config, skipTranslogRecovery, true);
+        }
+        if (indexSettings.isFrozen()) {
+            return new FrozenEngine(config, skipTranslogRecovery);
+        }
         return engineFactory.newReadWriteEngine(config, skipTranslogRecovery);
     }
 
@@ -1365,7 +1450,8 @@ public class IndexShard extends AbstractIndexShardComponent {
     }
 
     private final EngineConfig newEngineConfig(TranslogConfig translogConfig, QueryCachingPolicy cachingPolicy) {
-        final TranslogRecoveryPerformer translogRecoveryPerformer = new TranslogRecoveryPerformer(shardId, mapperService, logger) {
+        final TranslogRecoveryPerformer translogRecoveryPerformer = new TranslogRecoveryPerformer(shardId, mapperService, logger,
+            threadPool.generic(), indexSettings.getTranslogRecoveryConcurrency()) {
             @Override
             protected void operationProcessed() {
                 assert recoveryState != null;
@@ -1515,4 +1601,75 @@ public class IndexShard extends AbstractIndexShardComponent {
         return getEngine().refreshNeeded();
     }
 
+    /**
+     * Executes a scheduled refresh if one is needed. The refresh is skipped if the shard is search idle, the refresh interval of
+     * the index is not set explicitly and no write waits for a refresh, the next search will refresh the shard instead.
+     *
+     * @return <code>true</code> iff a refresh was executed
+     */
+    public boolean scheduledRefresh() {
+        if (isRefreshNeeded()) {
+            if (indexSettings.isExplicitRefresh() == false && isSearchIdle() && refreshListeners.refreshNeeded() == false) {
+                // nobody searches this shard, so there is no point in making changes visible on the clock. We let the changes
+                // accumulate in the indexing buffer instead and leave it to the next search to refresh
+                logger.trace("skipping scheduled refresh, shard is search idle");
+                return false;
+            }
+            refresh("schedule");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Add a listener for refreshes.
+     *
+     * @param location the location to listen for
+     * @param listener for the refresh. Called with true if registering the listener ran it out of slots and forced a refresh. Called with
+     *        false otherwise.
+     */
+    public void addRefreshListener(Translog.Location location, Consumer<Boolean> listener) {
+        refreshListeners.addOrNotify(location, listener);
+    }
+
+    /**
+     * Returns <code>true</code> if this shard has not been searched for longer than {@link IndexSettings#INDEX_SEARCH_IDLE_AFTER}.
+     */
+    public final boolean isSearchIdle() {
+        return (System.nanoTime() - lastSearcherAccess) >= indexSettings.getSearchIdleAfter().nanos();
+    }
+
+    /**
+     * Marks this shard as being searched. If the shard was search idle its scheduled refreshes might have been skipped, so it is
+     * refreshed before the search acquires its searcher such that the search sees all changes up to now. Searches that arrive
+     * while such a refresh is running wait for it to complete.
+     */
+    public void awaitShardSearchActive() {
+        if (isSearchIdle() && indexSettings.isExplicitRefresh() == false && readAllowedStates.contains(state)) {
+            final PlainActionFuture<Void> searchIdleRefresh = new PlainActionFuture<>();
+            if (pendingSearchIdleRefresh.compareAndSet(null, searchIdleRefresh)) {
+                // the pending refresh is published before the shard becomes active, so searches that see an active shard
+                // below also see the refresh they have to wait for
+                lastSearcherAccess = System.nanoTime();
+                try {
+                    if (isRefreshNeeded()) {
+                        refresh("search_idle");
+                    }
+                    searchIdleRefresh.onResponse(null);
+                } catch (Throwable t) {
+                    searchIdleRefresh.onFailure(t);
+                    throw t;
+                } finally {
+                    pendingSearchIdleRefresh.compareAndSet(searchIdleRefresh, null);
+                }
+                return;
+            }
+        }
+        lastSearcherAccess = System.nanoTime();
+        final PlainActionFuture<Void> pendingRefresh = pendingSearchIdleRefresh.get();
+        if (pendingRefresh != null) {
+            pendingRefresh.actionGet();
+        }
+    }
+
 }
@@ -0,0 +1,196 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.shard;
+
+import org.apache.lucene.search.ReferenceManager;
+import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.index.translog.Translog;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Allows for the registration of listeners that are called when a change becomes visible for search. This functionality is exposed from
+ * {@link IndexShard} but kept here so it can be tested without standing up the entire thing.
+ * <p>
+ * The number of pending listeners is capped by {@link org.elasticsearch.index.IndexSettings#MAX_REFRESH_LISTENERS_PER_SHARD}. Once the
+ * cap is reached new listeners force a refresh instead of waiting for the next scheduled one.
+ */
+public final class RefreshListeners implements ReferenceManager.RefreshListener {
+
+    private final IntSupplier getMaxRefreshListeners;
+    private final Runnable forceRefresh;
+    private final Executor listenerExecutor;
+    private final ESLogger logger;
+
+    /**
+     * List of refresh listeners. Defaults to null and built on demand because most refresh cycles won't need it. Entries are never removed
+     * from it, rather, it is nulled and rebuilt when needed again. The (hopefully) rare entries that didn't make the current refresh
+     * cycle are just added back to the new list. Both the reference and the contents are always modified while synchronized on this.
+     */
+    private volatile List<Tuple<Translog.Location, Consumer<Boolean>>> refreshListeners = null;
+    /**
+     * The translog location that was last made visible by a refresh.
+     */
+    private volatile Translog.Location lastRefreshedLocation;
+    /**
+     * The translog location of the last write before the currently running refresh started, only accessed by the refreshing thread.
+     */
+    private Translog.Location currentRefreshLocation;
+    private volatile Translog translog;
+    private volatile boolean closed = false;
+
+    public RefreshListeners(IntSupplier getMaxRefreshListeners, Runnable forceRefresh, Executor listenerExecutor, ESLogger logger) {
+        this.getMaxRefreshListeners = getMaxRefreshListeners;
+        this.forceRefresh = forceRefresh;
+        this.listenerExecutor = listenerExecutor;
+        this.logger = logger;
+    }
+
+    /**
+     * Add a listener for refreshes, calling it immediately if the location is already visible. If this runs out of listener slots then it
+     * forces a refresh and calls the listener immediately as well.
+     *
+     * @param location the location to listen for
+     * @param listener for the refresh. Called with true if registering the listener ran it out of slots and forced a refresh. Called with
+     *        false otherwise.
+     * @return did we call the listener (true) or register the listener to call later (false)?
+     */
+    public boolean addOrNotify(Translog.Location location, Consumer<Boolean> listener) {
+        requireNonNull(listener, "listener cannot be null");
+        requireNonNull(location, "location cannot be null");
+
+        synchronized (this) {
+            Translog.Location lastRefresh = lastRefreshedLocation;
+            if (closed == false && (lastRefresh == null || location.compareTo(lastRefresh) > 0)) {
+                if (refreshListeners == null) {
+                    refreshListeners = new ArrayList<>();
+                }
+                if (refreshListeners.size() < getMaxRefreshListeners.getAsInt()) {
+                    // We have a free slot so register the listener
+                    refreshListeners.add(new Tuple<>(location, listener));
+                    return false;
+                }
+                // No free slot so fall through and force a refresh
+            } else {
+                // the location is already visible or the shard is closed and will never refresh again
+                listener.accept(false);
+                return true;
+            }
+        }
+        // No free slot so force a refresh and call the listener in this thread
+        forceRefresh.run();
+        listener.accept(true);
+        return true;
+    }
+
+    /**
+     * Returns true if there are pending listeners.
+     */
+    public boolean refreshNeeded() {
+        // No need to synchronize here because we're doing a single volatile read
+        return refreshListeners != null;
+    }
+
+    /**
+     * Setup the translog used to find the last refreshed location.
+     */
+    public void setTranslog(Translog translog) {
+        this.translog = translog;
+    }
+
+    /**
+     * Calls all pending listeners and rejects new ones. Called when the shard is closed since it will never be refreshed again.
+     */
+    public void close() {
+        final List<Tuple<Translog.Location, Consumer<Boolean>>> candidates;
+        synchronized (this) {
+            closed = true;
+            candidates = refreshListeners;
+            refreshListeners = null;
+        }
+        fireListeners(candidates);
+    }
+
+    @Override
+    public void beforeRefresh() throws IOException {
+        final Translog translog = this.translog;
+        currentRefreshLocation = translog == null ? null : translog.getLastWriteLocation();
+    }
+
+    @Override
+    public void afterRefresh(boolean didRefresh) throws IOException {
+        /*
+         * We intentionally ignore didRefresh here because our timing is a little off. It'd be a useful flag if we knew everything that made
+         * it into the refresh, but the way we snapshot the translog position before the refresh, things can sneak into the refresh that we
+         * don't know about.
+         */
+        if (currentRefreshLocation == null) {
+            // the translog wasn't set up yet so this refresh can't make any location visible that a listener waits for
+            return;
+        }
+        final List<Tuple<Translog.Location, Consumer<Boolean>>> toFire = new ArrayList<>();
+        synchronized (this) {
+            // Set the location that listeners added from now on compare against so they are called right away
+            lastRefreshedLocation = currentRefreshLocation;
+            final List<Tuple<Translog.Location, Consumer<Boolean>>> candidates = refreshListeners;
+            // No listeners to check so just bail early
+            if (candidates == null) {
+                return;
+            }
+            refreshListeners = null;
+            // Iterate the list of listeners, keeping the ones that didn't make this refresh
+            for (Tuple<Translog.Location, Consumer<Boolean>> tuple : candidates) {
+                if (tuple.v1().compareTo(currentRefreshLocation) > 0) {
+                    if (refreshListeners == null) {
+                        refreshListeners = new ArrayList<>();
+                    }
+                    refreshListeners.add(tuple);
+                } else {
+                    toFire.add(tuple);
+                }
+            }
+        }
+        fireListeners(toFire);
+    }
+
+    private void fireListeners(List<Tuple<Translog.Location, Consumer<Boolean>>> listeners) {
+        if (listeners == null || listeners.isEmpty()) {
+            return;
+        }
+        // Fire the listeners on the listener executor, they most likely send responses and we don't want to block the refresh thread
+        listenerExecutor.execute(() -> {
+            for (Tuple<Translog.Location, Consumer<Boolean>> tuple : listeners) {
+                try {
+                    tuple.v2().accept(false);
+                } catch (Throwable t) {
+                    logger.warn("Error firing refresh listener", t);
+                }
+            }
+        });
+    }
+}
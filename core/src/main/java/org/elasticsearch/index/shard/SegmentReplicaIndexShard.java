@@ -0,0 +1,125 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.shard;
+
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.cache.IndexCache;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.engine.EngineConfig;
+import org.elasticsearch.index.engine.EngineFactory;
+import org.elasticsearch.index.engine.SegmentReplicaEngine;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.merge.MergeStats;
+import org.elasticsearch.index.SearchSlowLog;
+import org.elasticsearch.index.similarity.SimilarityService;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+
+/**
+ * SegmentReplicaIndexShard extends {@link IndexShard} for replicas of indices that use segment replication.
+ * The replica only appends index and delete operations to its translog and periodically copies the segments
+ * of the primary, see {@link org.elasticsearch.indices.recovery.SegmentReplicationService}. Like for shadow
+ * replicas, promoting such a replica to a primary causes the shard to be reinitialized.
+ */
+public final class SegmentReplicaIndexShard extends IndexShard {
+
+    public SegmentReplicaIndexShard(ShardId shardId, IndexSettings indexSettings, ShardPath path, Store store, IndexCache indexCache,
+                                    MapperService mapperService, SimilarityService similarityService,
+                                    IndexFieldDataService indexFieldDataService, @Nullable EngineFactory engineFactory,
+                                    IndexEventListener indexEventListener, IndexSearcherWrapper wrapper, ThreadPool threadPool,
+                                    BigArrays bigArrays, SearchSlowLog searchSlowLog, Engine.Warmer engineWarmer) throws IOException {
+        super(shardId, indexSettings, path, store, indexCache, mapperService, similarityService, indexFieldDataService, engineFactory,
+            indexEventListener, wrapper, threadPool, bigArrays, searchSlowLog, engineWarmer);
+    }
+
+    /**
+     * In addition to the regular accounting done in
+     * {@link IndexShard#updateRoutingEntry(ShardRouting, boolean)},
+     * if this replica needs to be promoted to a primary, the shard is
+     * failed in order to allow a new primary to be re-allocated.
+     */
+    @Override
+    public void updateRoutingEntry(ShardRouting newRouting, boolean persistState) throws IOException {
+        if (newRouting.primary() == true) {// becoming a primary
+            throw new IllegalStateException("can't promote shard to primary");
+        }
+        super.updateRoutingEntry(newRouting, persistState);
+    }
+
+    @Override
+    public MergeStats mergeStats() {
+        return new MergeStats();
+    }
+
+    @Override
+    public boolean canIndex() {
+        // operations only go to the translog, there is no indexing buffer
+        return false;
+    }
+
+    @Override
+    protected Engine newEngine(boolean skipInitialTranslogRecovery, EngineConfig config) {
+        assert this.shardRouting.primary() == false;
+        assert skipInitialTranslogRecovery : "can not recover from gateway";
+        config.setCreate(false); // hardcoded - we always expect an index to be present
+        return engineFactory.newSegmentReplicaEngine(config);
+    }
+
+    @Override
+    public boolean shouldFlush() {
+        // the translog is trimmed whenever the segments of the primary are copied
+        return false;
+    }
+
+    @Override
+    public boolean allowsPrimaryPromotion() {
+        return false;
+    }
+
+    /**
+     * Prepares the engine for copying segments from the primary, see {@link SegmentReplicaEngine#prepareSegmentCopy()}.
+     */
+    public void prepareSegmentCopy() throws IOException {
+        segmentReplicaEngine().prepareSegmentCopy();
+    }
+
+    /**
+     * Opens the segments that were copied from the primary, see {@link SegmentReplicaEngine#finishSegmentCopy()}.
+     */
+    public void finishSegmentCopy() throws IOException {
+        segmentReplicaEngine().finishSegmentCopy();
+    }
+
+    /**
+     * Called instead of {@link #finishSegmentCopy()} if the primary has no new commit, see {@link SegmentReplicaEngine#skipSegmentCopy()}.
+     */
+    public void skipSegmentCopy() throws IOException {
+        segmentReplicaEngine().skipSegmentCopy();
+    }
+
+    private SegmentReplicaEngine segmentReplicaEngine() {
+        return (SegmentReplicaEngine) getEngine();
+    }
+}
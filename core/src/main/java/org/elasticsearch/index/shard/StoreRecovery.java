@@ -35,6 +35,7 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.engine.EngineException;
 import org.elasticsearch.index.snapshots.IndexShardRepository;
 import org.elasticsearch.index.snapshots.IndexShardRestoreFailedException;
+import org.elasticsearch.index.snapshots.blobstore.SnapshotIndexStore;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.indices.recovery.RecoveryState;
 
@@ -252,7 +253,16 @@ final class StoreRecovery {
             if (!shardId.getIndexName().equals(restoreSource.index())) {
                 snapshotShardId = new ShardId(restoreSource.index(), IndexMetaData.INDEX_UUID_NA_VALUE, shardId.id());
             }
-            indexShardRepository.restore(restoreSource.snapshotId(), restoreSource.version(), shardId, snapshotShardId, indexShard.recoveryState());
+            if (SnapshotIndexStore.isSnapshotStore(indexShard.indexSettings().getSettings())) {
+                // the store reads the files of the snapshot in place, there is nothing to copy
+                final RecoveryState.Index index = indexShard.recoveryState().getIndex();
+                final Store store = indexShard.store();
+                for (String name : store.directory().listAll()) {
+                    index.addFileDetail(name, store.directory().fileLength(name), true);
+                }
+            } else {
+                indexShardRepository.restore(restoreSource.snapshotId(), restoreSource.version(), shardId, snapshotShardId, indexShard.recoveryState());
+            }
             indexShard.skipTranslogRecovery();
             indexShard.finalizeRecovery();
             indexShard.postRecovery("restore done");
@@ -19,6 +19,8 @@
 package org.elasticsearch.index.shard;
 
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.logging.ESLogger;
@@ -33,8 +35,16 @@ import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.rest.RestStatus;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.elasticsearch.index.mapper.SourceToParse.source;
 
@@ -43,15 +53,39 @@ import static org.elasticsearch.index.mapper.SourceToParse.source;
  * indexing operation including source parsing and field creation from the source.
  */
 public class TranslogRecoveryPerformer {
+    /** the number of operations that may be queued per replay thread before reading the snapshot blocks */
+    private static final int REPLAY_QUEUE_SIZE = 128;
+    /** marks the end of the snapshot for the replay threads, compared by identity */
+    private static final Translog.Operation END_OF_SNAPSHOT = new Translog.Delete();
+
     private final MapperService mapperService;
     private final ESLogger logger;
     private final Map<String, Mapping> recoveredTypes = new HashMap<>();
     private final ShardId shardId;
+    private final Executor executor;
+    private final int concurrency;
 
     protected TranslogRecoveryPerformer(ShardId shardId, MapperService mapperService, ESLogger logger) {
+        this(shardId, mapperService, logger, null, 1);
+    }
+
+    /**
+     * @param executor    the executor to replay translog operations on if concurrency is greater than one
+     * @param concurrency the number of threads that replay operations recovered from a translog snapshot
+     */
+    protected TranslogRecoveryPerformer(ShardId shardId, MapperService mapperService, ESLogger logger, @Nullable Executor executor,
+                                        int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1 but was [" + concurrency + "]");
+        }
+        if (concurrency > 1 && executor == null) {
+            throw new IllegalArgumentException("an executor is required to replay operations with concurrency [" + concurrency + "]");
+        }
         this.shardId = shardId;
         this.mapperService = mapperService;
         this.logger = logger;
+        this.executor = executor;
+        this.concurrency = concurrency;
     }
 
     protected DocumentMapperForType docMapper(String type) {
@@ -78,23 +112,155 @@ public class TranslogRecoveryPerformer {
         return numOps;
     }
 
+    /**
+     * Applies all operations of the snapshot to the given engine and returns the number of operations applied.
+     * Operations are read from the snapshot sequentially. If this performer has a concurrency greater than one
+     * the operations are partitioned by their uid and the partitions are replayed in parallel, such that all
+     * operations on the same document are still applied in the order they were written to the translog.
+     */
     public int recoveryFromSnapshot(Engine engine, Translog.Snapshot snapshot) throws IOException {
-        Translog.Operation operation;
-        int opsRecovered = 0;
-        while ((operation = snapshot.next()) != null) {
-            try {
-                performRecoveryOperation(engine, operation, true);
-                opsRecovered++;
-            } catch (ElasticsearchException e) {
-                if (e.status() == RestStatus.BAD_REQUEST) {
-                    // mainly for MapperParsingException and Failure to detect xcontent
-                    logger.info("ignoring recovery of a corrupt translog entry", e);
-                } else {
-                    throw e;
+        if (concurrency == 1) {
+            Translog.Operation operation;
+            int opsRecovered = 0;
+            while ((operation = snapshot.next()) != null) {
+                if (recoverOperation(engine, operation)) {
+                    opsRecovered++;
+                }
+            }
+            return opsRecovered;
+        }
+        return concurrentRecoveryFromSnapshot(engine, snapshot);
+    }
+
+    private int concurrentRecoveryFromSnapshot(Engine engine, Translog.Snapshot snapshot) throws IOException {
+        final AtomicInteger opsRecovered = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch replayed = new CountDownLatch(concurrency);
+        final List<BlockingQueue<Translog.Operation>> queues = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            final BlockingQueue<Translog.Operation> queue = new ArrayBlockingQueue<>(REPLAY_QUEUE_SIZE);
+            queues.add(queue);
+            executor.execute(() -> {
+                try {
+                    Translog.Operation operation;
+                    while ((operation = takeUninterruptibly(queue)) != END_OF_SNAPSHOT) {
+                        // keep draining the queue after a failure so that reading the snapshot never blocks
+                        if (failure.get() == null) {
+                            try {
+                                if (recoverOperation(engine, operation)) {
+                                    opsRecovered.incrementAndGet();
+                                }
+                            } catch (Throwable t) {
+                                failure.compareAndSet(null, t);
+                            }
+                        }
+                    }
+                } finally {
+                    replayed.countDown();
+                }
+            });
+        }
+        boolean interrupted = false;
+        try {
+            Translog.Operation operation;
+            while (failure.get() == null && (operation = snapshot.next()) != null) {
+                interrupted |= putUninterruptibly(queues.get(partition(operation)), operation);
+            }
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        } finally {
+            for (BlockingQueue<Translog.Operation> queue : queues) {
+                interrupted |= putUninterruptibly(queue, END_OF_SNAPSHOT);
+            }
+            while (true) {
+                try {
+                    replayed.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        final Throwable t = failure.get();
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t != null) {
+            throw ExceptionsHelper.convertToRuntime(t);
+        }
+        return opsRecovered.get();
+    }
+
+    /**
+     * Returns the replay partition of the given operation. All operations on the same document share a partition.
+     */
+    private int partition(Translog.Operation operation) {
+        final String uid;
+        switch (operation.opType()) {
+            case INDEX:
+                Translog.Index index = (Translog.Index) operation;
+                uid = Uid.createUid(index.type(), index.id());
+                break;
+            case DELETE:
+                uid = ((Translog.Delete) operation).uid().text();
+                break;
+            default:
+                return 0;
+        }
+        return Math.floorMod(uid.hashCode(), concurrency);
+    }
+
+    private static Translog.Operation takeUninterruptibly(BlockingQueue<Translog.Operation> queue) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return queue.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
                 }
             }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Puts the operation into the queue and returns <code>true</code> if the current thread was interrupted while waiting
+     */
+    private static boolean putUninterruptibly(BlockingQueue<Translog.Operation> queue, Translog.Operation operation) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(operation);
+                return interrupted;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+    }
+
+    /**
+     * Applies a single operation recovered from a translog snapshot and returns <code>false</code> if the
+     * operation was skipped because it is corrupt.
+     */
+    private boolean recoverOperation(Engine engine, Translog.Operation operation) {
+        try {
+            performRecoveryOperation(engine, operation, true);
+            return true;
+        } catch (ElasticsearchException e) {
+            if (e.status() == RestStatus.BAD_REQUEST) {
+                // mainly for MapperParsingException and Failure to detect xcontent
+                logger.info("ignoring recovery of a corrupt translog entry", e);
+                return false;
+            } else {
+                throw e;
+            }
         }
-        return opsRecovered;
     }
 
     public static class BatchOperationException extends ElasticsearchException {
@@ -124,7 +290,7 @@ public class TranslogRecoveryPerformer {
         }
     }
 
-    private void maybeAddMappingUpdate(String type, Mapping update, String docId, boolean allowMappingUpdates) {
+    private synchronized void maybeAddMappingUpdate(String type, Mapping update, String docId, boolean allowMappingUpdates) {
         if (update == null) {
             return;
         }
@@ -153,7 +319,8 @@ public class TranslogRecoveryPerformer {
                     Translog.Index index = (Translog.Index) operation;
                     Engine.Index engineIndex = IndexShard.prepareIndex(docMapper(index.type()), source(index.source()).type(index.type()).id(index.id())
                                     .routing(index.routing()).parent(index.parent()).timestamp(index.timestamp()).ttl(index.ttl()),
-                            index.version(), index.versionType().versionTypeForReplicationAndRecovery(), Engine.Operation.Origin.RECOVERY);
+                            index.version(), index.versionType().versionTypeForReplicationAndRecovery(), Engine.Operation.Origin.RECOVERY,
+                            index.getAutoGeneratedIdTimestamp(), true);
                     maybeAddMappingUpdate(engineIndex.type(), engineIndex.parsedDoc().dynamicMappingsUpdate(), engineIndex.id(), allowMappingUpdates);
                     if (logger.isTraceEnabled()) {
                         logger.trace("[translog] recover [index] op of [{}][{}]", index.type(), index.id());
@@ -196,7 +363,8 @@ public class TranslogRecoveryPerformer {
 
     /**
      * Called once for every processed operation by this recovery performer.
-     * This can be used to get progress information on the translog execution.
+     * This can be used to get progress information on the translog execution. Might be called concurrently
+     * if operations are replayed by several threads.
      */
     protected void operationProcessed() {
         // noop
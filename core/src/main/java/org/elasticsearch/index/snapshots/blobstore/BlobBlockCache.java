@@ -0,0 +1,235 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.snapshots.blobstore;
+
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.hash.MessageDigests;
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.metrics.CounterMetric;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An on-disk cache of fixed size blocks of files that are read from a blob store. A missing block is loaded together
+ * with up to {@code readAheadBlocks} following blocks of the same file, so sequential reads only go to the blob store
+ * once every few blocks. Once the cache grows beyond its maximum size, the least recently used blocks are evicted.
+ */
+public class BlobBlockCache {
+
+    /**
+     * Opens a stream over the content of a file, starting at the given position
+     */
+    @FunctionalInterface
+    public interface BlockLoader {
+        InputStream open(long position) throws IOException;
+    }
+
+    private final Path path;
+
+    private final int blockSize;
+
+    private final int readAheadBlocks;
+
+    private final long maxSizeInBytes;
+
+    // access ordered, the first entry is the least recently used block, keyed by the full block key while the files are
+    // named after its hash since keys can exceed file name limits
+    private final LinkedHashMap<String, CachedBlock> blocks = new LinkedHashMap<>(16, 0.75f, true);
+
+    // every cached copy of a block gets its own file, so deleting an evicted copy never removes a copy cached later
+    private final AtomicLong generation = new AtomicLong();
+
+    private long sizeInBytes;
+
+    private final CounterMetric hits = new CounterMetric();
+
+    private final CounterMetric misses = new CounterMetric();
+
+    /**
+     * Creates a new cache, blocks that are left over in the given directory from a previous cache are discarded
+     *
+     * @param path            directory the blocks are stored in
+     * @param blockSize       size of a block in bytes
+     * @param readAheadBlocks number of blocks that are loaded after a missing block
+     * @param maxSizeInBytes  maximum size of all cached blocks, must hold at least one block
+     */
+    public BlobBlockCache(Path path, int blockSize, int readAheadBlocks, long maxSizeInBytes) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("block size must be positive, got [" + blockSize + "]");
+        }
+        if (readAheadBlocks < 0) {
+            throw new IllegalArgumentException("read ahead blocks must not be negative, got [" + readAheadBlocks + "]");
+        }
+        if (maxSizeInBytes < blockSize) {
+            throw new IllegalArgumentException("max size must hold at least one block of [" + blockSize + "] bytes, got ["
+                + maxSizeInBytes + "]");
+        }
+        this.path = path;
+        this.blockSize = blockSize;
+        this.readAheadBlocks = readAheadBlocks;
+        this.maxSizeInBytes = maxSizeInBytes;
+        IOUtils.rm(path);
+        Files.createDirectories(path);
+    }
+
+    /**
+     * Returns the block with the given index of a file
+     *
+     * @param fileKey    key that identifies the content of the file across all files that use this cache
+     * @param fileLength length of the file
+     * @param blockIndex index of the block, the block starts at {@code blockIndex * blockSize}
+     * @param loader     loads the content of the file on a cache miss
+     */
+    public byte[] readBlock(String fileKey, long fileLength, long blockIndex, BlockLoader loader) throws IOException {
+        final String key = blockKey(fileKey, blockIndex);
+        final CachedBlock cached;
+        synchronized (this) {
+            cached = blocks.get(key);
+        }
+        if (cached != null) {
+            try {
+                final byte[] block = Files.readAllBytes(cached.file);
+                hits.inc();
+                return block;
+            } catch (NoSuchFileException e) {
+                // the block was evicted concurrently or its file is gone, stop tracking it and load it again
+                synchronized (this) {
+                    if (blocks.remove(key, cached)) {
+                        sizeInBytes -= cached.length;
+                    }
+                }
+            }
+        }
+        misses.inc();
+        final long numberOfBlocks = (fileLength + blockSize - 1) / blockSize;
+        final long lastBlock = Math.min(numberOfBlocks - 1, blockIndex + readAheadBlocks);
+        byte[] requested = null;
+        try (InputStream stream = loader.open(blockIndex * blockSize)) {
+            for (long i = blockIndex; i <= lastBlock; i++) {
+                final byte[] block = new byte[(int) Math.min(blockSize, fileLength - i * blockSize)];
+                if (Streams.readFully(stream, block) != block.length) {
+                    throw new EOFException("unexpected end of file [" + fileKey + "] while reading block [" + i + "]");
+                }
+                if (i == blockIndex) {
+                    requested = block;
+                }
+                put(blockKey(fileKey, i), block);
+            }
+        }
+        assert requested != null : "block [" + blockIndex + "] is outside of file [" + fileKey + "]";
+        return requested;
+    }
+
+    private void put(String key, byte[] block) throws IOException {
+        synchronized (this) {
+            if (blocks.containsKey(key)) {
+                return;
+            }
+        }
+        final String fileName = MessageDigests.toHexString(MessageDigests.sha1().digest(key.getBytes(StandardCharsets.UTF_8)));
+        final Path file = path.resolve(fileName + "." + generation.incrementAndGet());
+        final Path tempFile = Files.createTempFile(path, fileName, ".tmp");
+        try {
+            Files.write(tempFile, block);
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        final List<Path> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (blocks.putIfAbsent(key, new CachedBlock(file, block.length)) != null) {
+                // the block was cached concurrently, keep the other copy
+                evicted.add(file);
+            } else {
+                sizeInBytes += block.length;
+                final Iterator<Map.Entry<String, CachedBlock>> iterator = blocks.entrySet().iterator();
+                while (sizeInBytes > maxSizeInBytes && iterator.hasNext()) {
+                    final Map.Entry<String, CachedBlock> entry = iterator.next();
+                    if (entry.getKey().equals(key)) {
+                        continue;
+                    }
+                    sizeInBytes -= entry.getValue().length;
+                    evicted.add(entry.getValue().file);
+                    iterator.remove();
+                }
+            }
+        }
+        for (Path evictedFile : evicted) {
+            Files.deleteIfExists(evictedFile);
+        }
+    }
+
+    private static String blockKey(String fileKey, long blockIndex) {
+        return fileKey + "/" + blockIndex;
+    }
+
+    /**
+     * Returns the size of a block in bytes
+     */
+    public int blockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns the total size of all cached blocks in bytes
+     */
+    public synchronized long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * Returns the number of blocks that were read from the cache
+     */
+    public long hits() {
+        return hits.count();
+    }
+
+    /**
+     * Returns the number of reads that had to load blocks from the blob store
+     */
+    public long misses() {
+        return misses.count();
+    }
+
+    private static final class CachedBlock {
+
+        private final Path file;
+
+        private final int length;
+
+        CachedBlock(Path file, int length) {
+            this.file = file;
+            this.length = length;
+        }
+    }
+}
@@ -36,6 +36,7 @@ import org.elasticsearch.cluster.metadata.SnapshotId;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.ParseFieldMatcher;
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.blobstore.BlobContainer;
 import org.elasticsearch.common.blobstore.BlobMetaData;
 import org.elasticsearch.common.blobstore.BlobPath;
@@ -43,11 +44,14 @@ import org.elasticsearch.common.blobstore.BlobStore;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.hash.MessageDigests;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.util.iterable.Iterables;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.shard.ShardId;
@@ -60,6 +64,7 @@ import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot.F
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.recovery.RecoverySettings;
 import org.elasticsearch.indices.recovery.RecoveryState;
 import org.elasticsearch.repositories.RepositoryName;
 import org.elasticsearch.repositories.RepositoryVerificationException;
@@ -67,16 +72,24 @@ import org.elasticsearch.repositories.blobstore.BlobStoreFormat;
 import org.elasticsearch.repositories.blobstore.BlobStoreRepository;
 import org.elasticsearch.repositories.blobstore.ChecksumBlobStoreFormat;
 import org.elasticsearch.repositories.blobstore.LegacyBlobStoreFormat;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.unmodifiableMap;
@@ -100,6 +113,16 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
     private final ClusterService clusterService;
 
+    private final ThreadPool threadPool;
+
+    private final RecoverySettings recoverySettings;
+
+    private int maxConcurrentFileUploads = 1;
+
+    private int maxConcurrentFileDownloads = 1;
+
+    private boolean deduplicateBlobs;
+
     private RateLimiter snapshotRateLimiter;
 
     private RateLimiter restoreRateLimiter;
@@ -132,19 +155,36 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
     protected static final String DATA_BLOB_PREFIX = "__";
 
+    protected static final String SHARED_BLOBS_PATH = "blobs";
+
+    protected static final String SHARED_BLOB_PREFIX = "sha256-";
+
+    // number of leading hex digits of the digest that select the container of a shared blob
+    protected static final int SHARED_BLOB_CONTAINER_DIGITS = 2;
+
+    protected static final String SHARED_BLOB_REFERENCE_MARKER = ".ref.";
+
+    protected static final String PENDING_BLOB_PREFIX = "pending-";
+
     private ChecksumBlobStoreFormat<BlobStoreIndexShardSnapshot> indexShardSnapshotFormat;
 
     private LegacyBlobStoreFormat<BlobStoreIndexShardSnapshot> indexShardSnapshotLegacyFormat;
 
     private ChecksumBlobStoreFormat<BlobStoreIndexShardSnapshots> indexShardSnapshotsFormat;
 
+    // shards of this node move uploaded parts of the same shared blob into place one at a time
+    private final Object sharedBlobMoveMutex = new Object();
+
     @Inject
-    public BlobStoreIndexShardRepository(Settings settings, RepositoryName repositoryName, IndicesService indicesService, ClusterService clusterService) {
+    public BlobStoreIndexShardRepository(Settings settings, RepositoryName repositoryName, IndicesService indicesService, ClusterService clusterService,
+                                         ThreadPool threadPool, RecoverySettings recoverySettings) {
         super(settings);
         this.parseFieldMatcher = new ParseFieldMatcher(settings);
         this.repositoryName = repositoryName.name();
         this.indicesService = indicesService;
         this.clusterService = clusterService;
+        this.threadPool = threadPool;
+        this.recoverySettings = recoverySettings;
     }
 
     /**
@@ -153,13 +193,20 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
      * @param blobStore blob store
      * @param basePath  base path to blob store
      * @param chunkSize chunk size
+     * @param maxConcurrentFileUploads maximum number of files of a shard that are uploaded concurrently
+     * @param maxConcurrentFileDownloads maximum number of files of a shard that are restored concurrently
+     * @param deduplicateBlobs true if new files should be stored once per content in the repository wide blob container
      */
     public void initialize(BlobStore blobStore, BlobPath basePath, ByteSizeValue chunkSize,
+                           int maxConcurrentFileUploads, int maxConcurrentFileDownloads, boolean deduplicateBlobs,
                            RateLimiter snapshotRateLimiter, RateLimiter restoreRateLimiter,
                            final RateLimiterListener rateLimiterListener, boolean compress) {
         this.blobStore = blobStore;
         this.basePath = basePath;
         this.chunkSize = chunkSize;
+        this.maxConcurrentFileUploads = maxConcurrentFileUploads;
+        this.maxConcurrentFileDownloads = maxConcurrentFileDownloads;
+        this.deduplicateBlobs = deduplicateBlobs;
         this.snapshotRateLimiter = snapshotRateLimiter;
         this.restoreRateLimiter = restoreRateLimiter;
         this.rateLimiterListener = rateLimiterListener;
@@ -225,6 +272,23 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
         return status;
     }
 
+    /**
+     * Opens a read-only directory over the files of a shard snapshot. File contents are read on demand through the
+     * given cache instead of being restored, which allows to search snapshotted data without restoring it first.
+     *
+     * @param snapshotId      snapshot id
+     * @param version         version of elasticsearch that created the snapshot
+     * @param snapshotShardId shard in the snapshot
+     * @param cache           cache the file contents are read through
+     */
+    public SnapshotDirectory openDirectory(SnapshotId snapshotId, Version version, ShardId snapshotShardId, BlobBlockCache cache) {
+        final Context context = new Context(snapshotId, version, snapshotShardId);
+        final BlobStoreIndexShardSnapshot snapshot = context.loadSnapshot();
+        // index names can't contain a '/', so the repository name is the only part of the key that can
+        return new SnapshotDirectory(snapshot.indexFiles(), context::containerFor, cache,
+                snapshotShardId.getIndexName() + "/" + snapshotShardId.getId() + "/" + repositoryName);
+    }
+
     @Override
     public void verify(String seed) {
         BlobContainer testBlobContainer = blobStore.blobContainer(basePath.add(testBlobPrefix(seed)));
@@ -289,6 +353,8 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
         protected final BlobContainer blobContainer;
 
+        protected final String sharedBlobReferenceSuffix;
+
         protected final Version version;
 
         public Context(SnapshotId snapshotId, Version version, ShardId shardId) {
@@ -300,6 +366,31 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
             this.version = version;
             this.shardId = shardId;
             blobContainer = blobStore.blobContainer(basePath.add("indices").add(snapshotShardId.getIndexName()).add(Integer.toString(snapshotShardId.getId())));
+            sharedBlobReferenceSuffix = SHARED_BLOB_REFERENCE_MARKER + snapshotShardId.getIndexName() + "." + snapshotShardId.getId();
+        }
+
+        /**
+         * Returns the container that holds the content of the given file
+         */
+        protected BlobContainer containerFor(FileInfo fileInfo) {
+            return isSharedBlob(fileInfo.name()) ? sharedBlobContainer(fileInfo.name()) : blobContainer;
+        }
+
+        /**
+         * Returns the container of the given shared blob. Shared blobs are spread over containers by the leading digits of
+         * their digest, so looking up a blob only lists a small fraction of the shared blobs of the repository.
+         */
+        protected BlobContainer sharedBlobContainer(String sharedBlobName) {
+            final int digestStart = SHARED_BLOB_PREFIX.length();
+            final String digestPrefix = sharedBlobName.substring(digestStart, digestStart + SHARED_BLOB_CONTAINER_DIGITS);
+            return blobStore.blobContainer(basePath.add(SHARED_BLOBS_PATH).add(digestPrefix));
+        }
+
+        /**
+         * Lists the parts of the given shared blob together with the references of all shards to it
+         */
+        protected Map<String, BlobMetaData> listSharedBlobs(String sharedBlobName) throws IOException {
+            return sharedBlobContainer(sharedBlobName).listBlobsByPrefix(sharedBlobName);
         }
 
         /**
@@ -325,13 +416,58 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
             // Build a list of snapshots that should be preserved
             List<SnapshotFiles> newSnapshotsList = new ArrayList<>();
+            Set<String> releasedSharedBlobs = new HashSet<>();
             for (SnapshotFiles point : snapshots) {
                 if (!point.snapshot().equals(snapshotId.getSnapshot())) {
                     newSnapshotsList.add(point);
+                } else {
+                    for (FileInfo fileInfo : point.indexFiles()) {
+                        if (isSharedBlob(fileInfo.name())) {
+                            releasedSharedBlobs.add(fileInfo.name());
+                        }
+                    }
+                }
+            }
+            // shared blobs that are still used by the remaining snapshots of this shard keep their reference
+            for (SnapshotFiles point : newSnapshotsList) {
+                for (FileInfo fileInfo : point.indexFiles()) {
+                    releasedSharedBlobs.remove(fileInfo.name());
                 }
             }
             // finalize the snapshot and rewrite the snapshot index with the next sequential snapshot index
             finalize(newSnapshotsList, fileListGeneration + 1, blobs);
+            releaseSharedBlobs(releasedSharedBlobs);
+        }
+
+        /**
+         * Removes the references of this shard to the given shared blobs and deletes the blobs that are no longer
+         * referenced by any shard in the repository. No snapshot can start while a snapshot is being deleted, see
+         * {@link org.elasticsearch.cluster.SnapshotDeletionsInProgress}, so no shard can start referencing a blob while it is
+         * being deleted.
+         *
+         * @param sharedBlobNames names of the shared blobs that are no longer used by this shard
+         */
+        private void releaseSharedBlobs(Set<String> sharedBlobNames) {
+            for (String sharedBlobName : sharedBlobNames) {
+                try {
+                    final BlobContainer sharedBlobContainer = sharedBlobContainer(sharedBlobName);
+                    sharedBlobContainer.deleteBlob(sharedBlobName + sharedBlobReferenceSuffix);
+                    final Map<String, BlobMetaData> blobs = listSharedBlobs(sharedBlobName);
+                    boolean referenced = false;
+                    for (String blobName : blobs.keySet()) {
+                        if (blobName.contains(SHARED_BLOB_REFERENCE_MARKER)) {
+                            referenced = true;
+                            break;
+                        }
+                    }
+                    if (referenced == false) {
+                        logger.trace("[{}] [{}] deleting unreferenced shared blob [{}]", shardId, snapshotId, sharedBlobName);
+                        sharedBlobContainer.deleteBlobs(blobs.keySet());
+                    }
+                } catch (IOException e) {
+                    logger.debug("[{}] [{}] error releasing shared blob [{}] during cleanup", e, snapshotId, shardId, sharedBlobName);
+                }
+            }
         }
 
         /**
@@ -560,11 +696,11 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                                 // to ensure we don't double the space in the repo since old snapshots
                                 // don't have this hash we try to read that hash from the blob store
                                 // in a bwc compatible way.
-                                maybeRecalculateMetadataHash(blobContainer, fileInfo, metadata);
+                                maybeRecalculateMetadataHash(containerFor(fileInfo), fileInfo, metadata);
                             } catch (Throwable e) {
                                 logger.warn("{} Can't calculate hash from blob for file [{}] [{}]", e, shardId, fileInfo.physicalName(), fileInfo.metadata());
                             }
-                            if (fileInfo.isSame(md) && snapshotFileExistsInBlobs(fileInfo, blobs)) {
+                            if (fileInfo.isSame(md) && snapshotFileExistsInBlobs(fileInfo, blobsOf(fileInfo, blobs))) {
                                 // a commit point file with the same name, size and checksum was already copied to repository
                                 // we will reuse it for this snapshot
                                 existingFileInfo = fileInfo;
@@ -572,11 +708,22 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                             }
                         }
                     }
+                    String sharedBlobName = null;
+                    if (existingFileInfo == null && deduplicateBlobs) {
+                        sharedBlobName = sharedBlobName(md);
+                        if (containsName(indexCommitPointFiles, sharedBlobName)) {
+                            // file names must be unique within a shard snapshot, so the same content is stored again
+                            sharedBlobName = null;
+                        } else if (referenceSharedBlob(sharedBlobName, md)) {
+                            existingFileInfo = new FileInfo(sharedBlobName, md, chunkSize);
+                        }
+                    }
                     if (existingFileInfo == null) {
                         indexNumberOfFiles++;
                         indexTotalFilesSize += md.length();
                         // create a new FileInfo
-                        BlobStoreIndexShardSnapshot.FileInfo snapshotFileInfo = new BlobStoreIndexShardSnapshot.FileInfo(fileNameFromGeneration(++generation), md, chunkSize);
+                        String blobName = sharedBlobName == null ? fileNameFromGeneration(++generation) : sharedBlobName;
+                        BlobStoreIndexShardSnapshot.FileInfo snapshotFileInfo = new BlobStoreIndexShardSnapshot.FileInfo(blobName, md, chunkSize);
                         indexCommitPointFiles.add(snapshotFileInfo);
                         filesToSnapshot.add(snapshotFileInfo);
                     } else {
@@ -593,13 +740,7 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
                 snapshotStatus.updateStage(IndexShardSnapshotStatus.Stage.STARTED);
 
-                for (FileInfo snapshotFileInfo : filesToSnapshot) {
-                    try {
-                        snapshotFile(snapshotFileInfo);
-                    } catch (IOException e) {
-                        throw new IndexShardSnapshotFailedException(shardId, "Failed to perform snapshot (index files)", e);
-                    }
-                }
+                snapshotFiles(filesToSnapshot);
 
                 snapshotStatus.indexVersion(snapshotIndexCommit.getGeneration());
                 // now create and write the commit point
@@ -632,6 +773,22 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
             }
         }
 
+        /**
+         * Snapshots the given files, uploading up to {@code max_concurrent_file_uploads} of them at the same time. The
+         * calling thread uploads files too, additional uploads run on the snapshot thread pool whose size therefore
+         * limits the number of concurrent uploads on the node.
+         *
+         * @param filesToSnapshot files to be snapshotted
+         */
+        private void snapshotFiles(final List<FileInfo> filesToSnapshot) {
+            final Throwable t = processFiles(filesToSnapshot, maxConcurrentFileUploads, ThreadPool.Names.SNAPSHOT, this::snapshotFile);
+            if (t instanceof IOException) {
+                throw new IndexShardSnapshotFailedException(shardId, "Failed to perform snapshot (index files)", t);
+            } else if (t != null) {
+                throw ExceptionsHelper.convertToRuntime(t);
+            }
+        }
+
         /**
          * Snapshot individual file
          * <p>
@@ -642,6 +799,11 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
          */
         private void snapshotFile(final BlobStoreIndexShardSnapshot.FileInfo fileInfo) throws IOException {
             final String file = fileInfo.physicalName();
+            final BlobContainer container = containerFor(fileInfo);
+            // shards with the same content may upload a shared blob concurrently and finished snapshots may already use it,
+            // so its parts are uploaded under a unique name and only moved into place once the whole file is verified
+            final String uploadPrefix = isSharedBlob(fileInfo.name()) ? PENDING_BLOB_PREFIX + Strings.randomBase64UUID() + "-" : "";
+            int movedParts = 0;
             try (IndexInput indexInput = store.openVerifyingInput(file, IOContext.READONCE, fileInfo.metadata())) {
                 for (int i = 0; i < fileInfo.numberOfParts(); i++) {
                     final long partBytes = fileInfo.partBytes(i);
@@ -649,17 +811,124 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                     final InputStreamIndexInput inputStreamIndexInput = new InputStreamIndexInput(indexInput, partBytes);
                     InputStream inputStream = snapshotRateLimiter == null ? inputStreamIndexInput : new RateLimitingInputStream(inputStreamIndexInput, snapshotRateLimiter, snapshotThrottleListener);
                     inputStream = new AbortableInputStream(inputStream, fileInfo.physicalName());
-                    blobContainer.writeBlob(fileInfo.partName(i), inputStream, partBytes);
+                    container.writeBlob(uploadPrefix + fileInfo.partName(i), inputStream, partBytes);
                 }
                 Store.verify(indexInput);
+                if (uploadPrefix.isEmpty() == false) {
+                    for (; movedParts < fileInfo.numberOfParts(); movedParts++) {
+                        movePendingPart(container, uploadPrefix + fileInfo.partName(movedParts), fileInfo.partName(movedParts));
+                    }
+                }
                 snapshotStatus.addProcessedFile(fileInfo.length());
             } catch (Throwable t) {
+                if (uploadPrefix.isEmpty() == false) {
+                    deletePendingParts(container, uploadPrefix, fileInfo, movedParts);
+                }
                 failStoreIfCorrupted(t);
                 snapshotStatus.addProcessedFile(0);
                 throw t;
             }
         }
 
+        /**
+         * Moves an uploaded part of a shared blob into place. A part that is already in place was moved there by another
+         * shard with the same content and is never overwritten.
+         */
+        private void movePendingPart(BlobContainer container, String pendingName, String partName) throws IOException {
+            synchronized (sharedBlobMoveMutex) {
+                if (container.blobExists(partName) == false) {
+                    try {
+                        container.move(pendingName, partName);
+                        return;
+                    } catch (IOException e) {
+                        if (container.blobExists(partName) == false) {
+                            throw e;
+                        }
+                        // a shard on another node moved the same content into place concurrently
+                    }
+                }
+            }
+            container.deleteBlob(pendingName);
+        }
+
+        /**
+         * Deletes the parts of a failed or aborted upload of a shared blob that were not moved into place yet
+         */
+        private void deletePendingParts(BlobContainer container, String uploadPrefix, FileInfo fileInfo, int movedParts) {
+            final List<String> pendingNames = new ArrayList<>();
+            for (int i = movedParts; i < fileInfo.numberOfParts(); i++) {
+                pendingNames.add(uploadPrefix + fileInfo.partName(i));
+            }
+            try {
+                container.deleteBlobs(pendingNames);
+            } catch (IOException e) {
+                logger.debug("[{}] [{}] failed to delete pending parts of [{}]", e, shardId, snapshotId, fileInfo.name());
+            }
+        }
+
+        /**
+         * Returns the blobs the content of the given file is looked up in
+         */
+        private Map<String, BlobMetaData> blobsOf(FileInfo fileInfo, Map<String, BlobMetaData> blobs) {
+            if (isSharedBlob(fileInfo.name()) == false) {
+                return blobs;
+            }
+            try {
+                return listSharedBlobs(fileInfo.name());
+            } catch (IOException e) {
+                throw new IndexShardSnapshotFailedException(shardId, "failed to list shared blobs", e);
+            }
+        }
+
+        /**
+         * References the given shared blob from this shard and checks whether it already holds the content of the file.
+         * The reference is added before the lookup, so the blob is kept even if this snapshot still has to upload it.
+         * Comparing lengths is enough here since parts are only moved into place once complete and the name of the
+         * blob is derived from its content.
+         *
+         * @param sharedBlobName name of the shared blob
+         * @param md             file stored in the shared blob
+         * @return true if the shared blob exists and doesn't have to be uploaded again
+         */
+        private boolean referenceSharedBlob(String sharedBlobName, StoreFileMetaData md) {
+            try {
+                final BlobContainer sharedBlobContainer = sharedBlobContainer(sharedBlobName);
+                sharedBlobContainer.writeBlob(sharedBlobName + sharedBlobReferenceSuffix, BytesArray.EMPTY.streamInput(), 0);
+                return snapshotFileExistsInBlobs(new FileInfo(sharedBlobName, md, chunkSize), listSharedBlobs(sharedBlobName));
+            } catch (IOException e) {
+                throw new IndexShardSnapshotFailedException(shardId, "failed to reference shared blob [" + sharedBlobName + "]", e);
+            }
+        }
+
+        /**
+         * Computes the name of the shared blob holding the content of the given file from its SHA-256 digest and length
+         */
+        private String sharedBlobName(StoreFileMetaData md) {
+            final MessageDigest digest = MessageDigests.sha256();
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            try (IndexInput indexInput = store.directory().openInput(md.name(), IOContext.READONCE)) {
+                long remaining = indexInput.length();
+                while (remaining > 0) {
+                    final int length = (int) Math.min(buffer.length, remaining);
+                    indexInput.readBytes(buffer, 0, length);
+                    digest.update(buffer, 0, length);
+                    remaining -= length;
+                }
+            } catch (IOException e) {
+                throw new IndexShardSnapshotFailedException(shardId, "failed to compute digest of [" + md.name() + "]", e);
+            }
+            return SHARED_BLOB_PREFIX + MessageDigests.toHexString(digest.digest()) + "-" + md.length();
+        }
+
+        private boolean containsName(List<FileInfo> fileInfos, String name) {
+            for (FileInfo fileInfo : fileInfos) {
+                if (fileInfo.name().equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         private void failStoreIfCorrupted(Throwable t) {
             if (t instanceof CorruptIndexException || t instanceof IndexFormatTooOldException || t instanceof IndexFormatTooNewException) {
                 try {
@@ -727,6 +996,13 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
         }
     }
 
+    /**
+     * Returns true if the blob with the given name lives in the repository wide container of deduplicated blobs
+     */
+    static boolean isSharedBlob(String blobName) {
+        return blobName.startsWith(SHARED_BLOB_PREFIX);
+    }
+
     /**
      * This is a BWC layer to ensure we update the snapshots metadata with the corresponding hashes before we compare them.
      * The new logic for StoreFileMetaData reads the entire <tt>.si</tt> and <tt>segments.n</tt> files to strengthen the
@@ -818,7 +1094,7 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                         // to ensure we don't double the space in the repo since old snapshots
                         // don't have this hash we try to read that hash from the blob store
                         // in a bwc compatible way.
-                        maybeRecalculateMetadataHash(blobContainer, fileInfo, recoveryTargetMetadata);
+                        maybeRecalculateMetadataHash(containerFor(fileInfo), fileInfo, recoveryTargetMetadata);
                     } catch (Throwable e) {
                         // if the index is broken we might not be able to read it
                         logger.warn("{} Can't calculate hash from blog for file [{}] [{}]", e, shardId, fileInfo.physicalName(), fileInfo.metadata());
@@ -857,13 +1133,21 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                     logger.trace("[{}] [{}] recovering_files [{}] with total_size [{}], reusing_files [{}] with reused_size [{}]", shardId, snapshotId,
                             index.totalRecoverFiles(), new ByteSizeValue(index.totalRecoverBytes()), index.reusedFileCount(), new ByteSizeValue(index.reusedFileCount()));
                 }
-                try {
-                    for (final FileInfo fileToRecover : filesToRecover) {
-                        logger.trace("[{}] [{}] restoring file [{}]", shardId, snapshotId, fileToRecover.name());
-                        restoreFile(fileToRecover);
-                    }
-                } catch (IOException ex) {
-                    throw new IndexShardRestoreFailedException(shardId, "Failed to recover index", ex);
+                final long startNanos = System.nanoTime();
+                final Throwable failure = processFiles(filesToRecover, maxConcurrentFileDownloads, ThreadPool.Names.GENERIC, fileToRecover -> {
+                    logger.trace("[{}] [{}] restoring file [{}]", shardId, snapshotId, fileToRecover.name());
+                    restoreFile(fileToRecover);
+                });
+                if (failure instanceof IOException) {
+                    throw new IndexShardRestoreFailedException(shardId, "Failed to recover index", failure);
+                } else if (failure != null) {
+                    throw ExceptionsHelper.convertToRuntime(failure);
+                }
+                if (logger.isDebugEnabled() && filesToRecover.isEmpty() == false) {
+                    final long tookNanos = Math.max(System.nanoTime() - startNanos, 1);
+                    logger.debug("[{}] [{}] restored [{}] files with total_size [{}] in [{}] ([{}]/s)", shardId, snapshotId,
+                        filesToRecover.size(), new ByteSizeValue(index.recoveredBytes()), TimeValue.timeValueNanos(tookNanos),
+                        new ByteSizeValue(index.recoveredBytes() * TimeUnit.SECONDS.toNanos(1) / tookNanos));
                 }
                 final StoreFileMetaData restoredSegmentsFile = sourceMetaData.getSegmentsFile();
                 if (recoveryTargetMetadata == null) {
@@ -910,12 +1194,15 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
         private void restoreFile(final FileInfo fileInfo) throws IOException {
             boolean success = false;
 
-            try (InputStream partSliceStream = new PartSliceStream(blobContainer, fileInfo)) {
-                final InputStream stream;
-                if (restoreRateLimiter == null) {
-                    stream = partSliceStream;
-                } else {
-                    stream = new RateLimitingInputStream(partSliceStream, restoreRateLimiter, restoreThrottleListener);
+            try (InputStream partSliceStream = new PartSliceStream(containerFor(fileInfo), fileInfo)) {
+                InputStream stream = partSliceStream;
+                if (restoreRateLimiter != null) {
+                    stream = new RateLimitingInputStream(stream, restoreRateLimiter, restoreThrottleListener);
+                }
+                // restoring is a recovery, so it also counts against the node wide recovery throttle
+                final RateLimiter recoveryRateLimiter = recoverySettings.rateLimiter();
+                if (recoveryRateLimiter != null) {
+                    stream = new RateLimitingInputStream(stream, recoveryRateLimiter, recoveryState.getIndex()::addTargetThrottling);
                 }
                 try (final IndexOutput indexOutput = store.createVerifyingOutput(fileInfo.physicalName(), fileInfo.metadata(), IOContext.DEFAULT)) {
                     final byte[] buffer = new byte[BUFFER_SIZE];
@@ -945,6 +1232,62 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
     }
 
+    /**
+     * Processes a single file of a shard snapshot
+     */
+    private interface FileProcessor {
+        void process(FileInfo fileInfo) throws IOException;
+    }
+
+    /**
+     * Processes the given files on up to {@code concurrency} threads at the same time and returns the first failure, if
+     * any. The calling thread processes files too and additional threads are forked on the given executor, so a
+     * saturated executor delays processing but never blocks it. No further files are picked up after a failure.
+     */
+    private Throwable processFiles(final List<FileInfo> files, int concurrency, String executor, final FileProcessor processor) {
+        final AtomicInteger nextFile = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Runnable worker = () -> {
+            int file;
+            while (failure.get() == null && (file = nextFile.getAndIncrement()) < files.size()) {
+                try {
+                    processor.process(files.get(file));
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }
+        };
+        final int forked = Math.min(concurrency, files.size()) - 1;
+        final CountDownLatch processed = new CountDownLatch(Math.max(forked, 0));
+        for (int i = 0; i < forked; i++) {
+            try {
+                threadPool.executor(executor).execute(() -> {
+                    try {
+                        worker.run();
+                    } finally {
+                        processed.countDown();
+                    }
+                });
+            } catch (EsRejectedExecutionException e) {
+                processed.countDown();
+            }
+        }
+        worker.run();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                processed.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return failure.get();
+    }
+
     public interface RateLimiterListener {
         void onRestorePause(long nanos);
 
@@ -0,0 +1,272 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.snapshots.blobstore;
+
+import org.apache.lucene.store.BaseDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.NoLockFactory;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.blobstore.BlobContainer;
+import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot.FileInfo;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A read-only {@link org.apache.lucene.store.Directory} over the files of a shard snapshot. File contents are read on
+ * demand from the blob store and kept in a {@link BlobBlockCache}, so a snapshotted shard can be searched without
+ * restoring it first.
+ */
+public class SnapshotDirectory extends BaseDirectory {
+
+    private final Map<String, FileInfo> files;
+
+    private final Function<FileInfo, BlobContainer> containers;
+
+    private final BlobBlockCache cache;
+
+    private final String cacheKeyPrefix;
+
+    /**
+     * Creates a new snapshot directory
+     *
+     * @param files          files of the shard snapshot
+     * @param containers     resolves the blob container that holds the content of a file
+     * @param cache          cache the blocks of the files are read through
+     * @param cacheKeyPrefix prefix that identifies the snapshotted shard in the cache
+     */
+    public SnapshotDirectory(List<FileInfo> files, Function<FileInfo, BlobContainer> containers, BlobBlockCache cache,
+                             String cacheKeyPrefix) {
+        super(NoLockFactory.INSTANCE);
+        this.files = new HashMap<>();
+        for (FileInfo fileInfo : files) {
+            this.files.put(fileInfo.physicalName(), fileInfo);
+        }
+        this.containers = containers;
+        this.cache = cache;
+        this.cacheKeyPrefix = cacheKeyPrefix;
+    }
+
+    private FileInfo fileInfo(String name) throws IOException {
+        final FileInfo fileInfo = files.get(name);
+        if (fileInfo == null) {
+            throw new NoSuchFileException("file [" + name + "] is not part of the snapshot");
+        }
+        return fileInfo;
+    }
+
+    @Override
+    public String[] listAll() throws IOException {
+        ensureOpen();
+        return files.keySet().stream().sorted().toArray(String[]::new);
+    }
+
+    @Override
+    public long fileLength(String name) throws IOException {
+        ensureOpen();
+        return fileInfo(name).length();
+    }
+
+    @Override
+    public IndexInput openInput(String name, IOContext context) throws IOException {
+        ensureOpen();
+        final FileInfo fileInfo = fileInfo(name);
+        // blob names and checksums never contain a '/', so the key can't be mistaken for the key of another file
+        final String fileKey = cacheKeyPrefix + "/" + fileInfo.name() + "/" + fileInfo.checksum();
+        return new BlobIndexInput("SnapshotDirectory(" + name + ")", fileInfo, fileKey, 0, fileInfo.length());
+    }
+
+    @Override
+    public void deleteFile(String name) throws IOException {
+        throw new UnsupportedOperationException("snapshot directories are read-only");
+    }
+
+    @Override
+    public IndexOutput createOutput(String name, IOContext context) throws IOException {
+        throw new UnsupportedOperationException("snapshot directories are read-only");
+    }
+
+    @Override
+    public IndexOutput createTempOutput(String prefix, String suffix, IOContext context) throws IOException {
+        throw new UnsupportedOperationException("snapshot directories are read-only");
+    }
+
+    @Override
+    public void sync(Collection<String> names) throws IOException {
+        throw new UnsupportedOperationException("snapshot directories are read-only");
+    }
+
+    @Override
+    public void renameFile(String source, String dest) throws IOException {
+        throw new UnsupportedOperationException("snapshot directories are read-only");
+    }
+
+    @Override
+    public void close() throws IOException {
+        isOpen = false;
+    }
+
+    /**
+     * Opens a stream over the parts of a file, starting at the given position within the file
+     */
+    private InputStream openStream(final FileInfo fileInfo, final long position) throws IOException {
+        final BlobContainer container = containers.apply(fileInfo);
+        // all parts but the last one have the same size
+        final long partBytes = fileInfo.partBytes(0);
+        final long firstPart = position / partBytes;
+        final long skip = position - firstPart * partBytes;
+        return new SlicedInputStream(fileInfo.numberOfParts() - firstPart) {
+            @Override
+            protected InputStream openSlice(long slice) throws IOException {
+                final InputStream stream = container.readBlob(fileInfo.partName(firstPart + slice));
+                if (slice == 0) {
+                    boolean success = false;
+                    try {
+                        skipFully(stream, skip);
+                        success = true;
+                    } finally {
+                        if (success == false) {
+                            IOUtils.closeWhileHandlingException(stream);
+                        }
+                    }
+                }
+                return stream;
+            }
+        };
+    }
+
+    private static void skipFully(InputStream stream, long bytes) throws IOException {
+        while (bytes > 0) {
+            final long skipped = stream.skip(bytes);
+            if (skipped > 0) {
+                bytes -= skipped;
+            } else if (stream.read() >= 0) {
+                bytes--;
+            } else {
+                throw new EOFException("unexpected end of blob, [" + bytes + "] bytes left to skip");
+            }
+        }
+    }
+
+    private final class BlobIndexInput extends IndexInput {
+
+        private final FileInfo fileInfo;
+
+        private final String fileKey;
+
+        // offset and length of this input within the file, slices share the file but not the range
+        private final long offset;
+
+        private final long length;
+
+        private long position;
+
+        private byte[] block;
+
+        private long blockIndex = -1;
+
+        BlobIndexInput(String resourceDescription, FileInfo fileInfo, String fileKey, long offset, long length) {
+            super(resourceDescription);
+            this.fileInfo = fileInfo;
+            this.fileKey = fileKey;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * Makes the block holding the given position of the file the current block and returns the position within it
+         */
+        private int loadBlock(long filePosition) throws IOException {
+            final long index = filePosition / cache.blockSize();
+            if (index != blockIndex) {
+                block = cache.readBlock(fileKey, fileInfo.length(), index, pos -> openStream(fileInfo, pos));
+                blockIndex = index;
+            }
+            return (int) (filePosition - index * cache.blockSize());
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            if (position >= length) {
+                throw new EOFException("read past EOF: " + this);
+            }
+            final int blockPosition = loadBlock(offset + position);
+            position++;
+            return block[blockPosition];
+        }
+
+        @Override
+        public void readBytes(byte[] b, int off, int len) throws IOException {
+            if (position + len > length) {
+                throw new EOFException("read past EOF: " + this);
+            }
+            while (len > 0) {
+                final int blockPosition = loadBlock(offset + position);
+                final int bytes = Math.min(len, block.length - blockPosition);
+                System.arraycopy(block, blockPosition, b, off, bytes);
+                position += bytes;
+                off += bytes;
+                len -= bytes;
+            }
+        }
+
+        @Override
+        public long getFilePointer() {
+            return position;
+        }
+
+        @Override
+        public void seek(long pos) throws IOException {
+            if (pos < 0) {
+                throw new IllegalArgumentException("seeking to negative position [" + pos + "]: " + this);
+            } else if (pos > length) {
+                throw new EOFException("seek past EOF: " + this);
+            }
+            position = pos;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public IndexInput slice(String sliceDescription, long offset, long length) throws IOException {
+            if (offset < 0 || length < 0 || offset + length > this.length) {
+                throw new IllegalArgumentException("slice() " + sliceDescription + " out of bounds: offset=" + offset
+                    + ",length=" + length + ",fileLength=" + this.length + ": " + this);
+            }
+            return new BlobIndexInput(sliceDescription, fileInfo, fileKey, this.offset + offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.snapshots.blobstore;
+
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.SnapshotId;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexModule;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.shard.ShardPath;
+import org.elasticsearch.index.snapshots.IndexShardRepository;
+import org.elasticsearch.index.store.DirectoryService;
+import org.elasticsearch.index.store.IndexStore;
+import org.elasticsearch.index.store.IndexStoreConfig;
+import org.elasticsearch.repositories.RepositoriesService;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * The store of indices that are mounted from a snapshot. The shards of a mounted index don't have files of their own,
+ * they read the files of the snapshotted shard in place through a {@link SnapshotDirectory} and the {@link BlobBlockCache}
+ * of the node. An index is mounted by restoring it with the {@link #TYPE} store type, which also makes it frozen.
+ */
+public class SnapshotIndexStore extends IndexStore {
+
+    public static final String TYPE = "snapshot";
+
+    public static final Setting<String> INDEX_STORE_SNAPSHOT_REPOSITORY_SETTING =
+        Setting.simpleString("index.store.snapshot.repository", Property.IndexScope);
+    public static final Setting<String> INDEX_STORE_SNAPSHOT_SNAPSHOT_SETTING =
+        Setting.simpleString("index.store.snapshot.snapshot", Property.IndexScope);
+    public static final Setting<String> INDEX_STORE_SNAPSHOT_INDEX_SETTING =
+        Setting.simpleString("index.store.snapshot.index", Property.IndexScope);
+
+    private final RepositoriesService repositoriesService;
+
+    private final Supplier<BlobBlockCache> cache;
+
+    public SnapshotIndexStore(IndexSettings indexSettings, IndexStoreConfig indexStoreConfig, RepositoriesService repositoriesService,
+                              Supplier<BlobBlockCache> cache) {
+        super(indexSettings, indexStoreConfig);
+        this.repositoriesService = repositoriesService;
+        this.cache = cache;
+    }
+
+    /**
+     * Returns <code>true</code> if the index with the given settings is mounted from a snapshot
+     */
+    public static boolean isSnapshotStore(Settings indexSettings) {
+        return TYPE.equals(IndexModule.INDEX_STORE_TYPE_SETTING.get(indexSettings));
+    }
+
+    @Override
+    public DirectoryService newDirectoryService(ShardPath path) {
+        return new DirectoryService(path.getShardId(), indexSettings) {
+            @Override
+            public long throttleTimeInNanos() {
+                // nothing is written
+                return 0;
+            }
+
+            @Override
+            public Directory newDirectory() throws IOException {
+                return openDirectory(shardId);
+            }
+        };
+    }
+
+    private Directory openDirectory(ShardId shardId) {
+        final Settings settings = indexSettings.getSettings();
+        final String repositoryName = INDEX_STORE_SNAPSHOT_REPOSITORY_SETTING.get(settings);
+        final IndexShardRepository indexShardRepository = repositoriesService.indexShardRepository(repositoryName);
+        if (indexShardRepository instanceof BlobStoreIndexShardRepository == false) {
+            throw new IllegalArgumentException("repository [" + repositoryName + "] doesn't support mounting snapshots");
+        }
+        final SnapshotId snapshotId = new SnapshotId(repositoryName, INDEX_STORE_SNAPSHOT_SNAPSHOT_SETTING.get(settings));
+        final Version version = repositoriesService.repository(repositoryName).readSnapshot(snapshotId).version();
+        final ShardId snapshotShardId = new ShardId(INDEX_STORE_SNAPSHOT_INDEX_SETTING.get(settings),
+            IndexMetaData.INDEX_UUID_NA_VALUE, shardId.id());
+        logger.debug("{} opening snapshot [{}] of shard {}", shardId, snapshotId, snapshotShardId);
+        return ((BlobStoreIndexShardRepository) indexShardRepository).openDirectory(snapshotId, version, snapshotShardId, cache.get());
+    }
+}
@@ -26,20 +26,25 @@ import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.FutureUtils;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
@@ -129,6 +134,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     private final AtomicBoolean closed = new AtomicBoolean();
     private final TranslogConfig config;
     private final String translogUUID;
+    // the number of operations covered by each fsync, across all translog generations
+    private final MeanMetric syncedOperations = new MeanMetric();
 
 
     /**
@@ -181,6 +188,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                 try {
                     current = createWriter(checkpoint.generation + 1);
                     this.lastCommittedTranslogFileGeneration = translogGeneration.translogFileGeneration;
+                    trimUnreferencedReaders();
                     success = true;
                 } finally {
                     // we have to close all the recovered ones otherwise we leak file handles here
@@ -219,6 +227,21 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         try (ReleasableLock lock = writeLock.acquire()) {
             logger.debug("open uncommitted translog checkpoint {}", checkpoint);
             final String checkpointTranslogFile = getFilename(checkpoint.generation);
+            // committed generations that were retained for operation based recoveries are picked up again so that
+            // the retention policy can clean them up once they expire
+            for (long i = translogGeneration.translogFileGeneration - 1; i > 0; i--) {
+                final Path retainedTranslogFile = location.resolve(getFilename(i));
+                final Path retainedCheckpointFile = location.resolve(getCommitCheckpointFileName(i));
+                if (Files.exists(retainedTranslogFile) == false || Files.exists(retainedCheckpointFile) == false) {
+                    break;
+                }
+                try {
+                    foundTranslogs.add(0, openReader(retainedTranslogFile, Checkpoint.read(retainedCheckpointFile)));
+                } catch (Exception e) {
+                    logger.debug("failed to open retained translog generation [{}]", e, i);
+                    break;
+                }
+            }
             for (long i = translogGeneration.translogFileGeneration; i < checkpoint.generation; i++) {
                 Path committedTranslogFile = location.resolve(getFilename(i));
                 if (Files.exists(committedTranslogFile) == false) {
@@ -374,7 +397,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     TranslogWriter createWriter(long fileGeneration) throws IOException {
         TranslogWriter newFile;
         try {
-            newFile = TranslogWriter.create(shardId, translogUUID, fileGeneration, location.resolve(getFilename(fileGeneration)), getChannelFactory(), config.getBufferSize());
+            newFile = TranslogWriter.create(shardId, translogUUID, fileGeneration, location.resolve(getFilename(fileGeneration)), getChannelFactory(), config.getBufferSize(),
+                syncedOperations);
         } catch (IOException e) {
             throw new TranslogException(shardId, "failed to create new translog file", e);
         }
@@ -419,7 +443,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             final BufferedChecksumStreamOutput checksumStreamOutput = new BufferedChecksumStreamOutput(out);
             final long start = out.position();
             out.skip(Integer.BYTES);
-            writeOperationNoSize(checksumStreamOutput, operation);
+            writeOperationNoSize(checksumStreamOutput, operation, config.getIndexSettings().isTranslogCompressionEnabled());
             final long end = out.position();
             final int operationSize = (int) (end - Integer.BYTES - start);
             out.seek(start);
@@ -452,10 +476,14 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
 
     /**
      * Snapshots the current transaction log allowing to safely iterate over the snapshot.
-     * Snapshots are fixed in time and will not be updated with future operations.
+     * Snapshots are fixed in time and will not be updated with future operations. Committed
+     * generations that are only retained for operation based recoveries are not part of the
+     * snapshot, they can only be read through {@link #newView(long)}.
      */
     public Snapshot newSnapshot() {
-        return createSnapshot(Long.MIN_VALUE);
+        try (ReleasableLock ignored = readLock.acquire()) {
+            return createSnapshot(minReferencedGeneration());
+        }
     }
 
     private Snapshot createSnapshot(long minGeneration) {
@@ -481,6 +509,31 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         }
     }
 
+    /**
+     * Returns a view into the translog that starts at the given generation, or <code>null</code> if the given generation
+     * isn't retained by this translog anymore. Committed generations are retained according to
+     * {@link IndexSettings#getTranslogRetentionSize()} and {@link IndexSettings#getTranslogRetentionAge()}.
+     */
+    public Translog.View newView(long minGeneration) {
+        try (ReleasableLock lock = readLock.acquire()) {
+            ensureOpen();
+            final long minRetainedGeneration = readers.isEmpty() ? current.getGeneration() : readers.get(0).getGeneration();
+            if (minGeneration < minRetainedGeneration || minGeneration > current.getGeneration()) {
+                return null;
+            }
+            View view = new View(minGeneration);
+            outstandingViews.add(view);
+            return view;
+        }
+    }
+
+    /**
+     * Returns the UUID of this translog that is recorded in each commit to associate it with the translog.
+     */
+    public String getTranslogUUID() {
+        return translogUUID;
+    }
+
     /**
      * Sync's the translog.
      */
@@ -511,6 +564,21 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     }
 
 
+    /**
+     * Returns a {@linkplain Location} that sorts after the {@linkplain Location} returned by the last write but before any locations which
+     * can be returned by the next write.
+     */
+    public Location getLastWriteLocation() {
+        try (ReleasableLock lock = readLock.acquire()) {
+            /*
+             * We use position = current - 1 and size = Integer.MAX_VALUE here instead of position current and size = 0 because
+             * Location#compareTo only looks at the generation and the position, and a position before the next write's position
+             * describes "everything written so far" without relying on the size.
+             */
+            return new Location(current.generation, current.sizeInBytes() - 1, Integer.MAX_VALUE);
+        }
+    }
+
     /**
      * Ensures that the given location has be synced / written to the underlying storage.
      *
@@ -549,7 +617,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     public TranslogStats stats() {
         // acquire lock to make the two numbers roughly consistent (no file change half way)
         try (ReleasableLock lock = readLock.acquire()) {
-            return new TranslogStats(totalOperations(), sizeInBytes());
+            return new TranslogStats(totalOperations(), sizeInBytes(), syncedOperations.count(), syncedOperations.sum());
         }
     }
 
@@ -628,7 +696,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         public final long translogLocation;
         public final int size;
 
-        Location(long generation, long translogLocation, int size) {
+        public Location(long generation, long translogLocation, int size) {
             this.generation = generation;
             this.translogLocation = translogLocation;
             this.size = size;
@@ -764,7 +832,12 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     }
 
     public static class Index implements Operation {
-        public static final int SERIALIZATION_FORMAT = 6;
+        public static final int FORMAT_AUTO_GENERATED_IDS = 7; // since 5.0.0
+        public static final int FORMAT_COMPRESSED_SOURCE = FORMAT_AUTO_GENERATED_IDS + 1;
+        public static final int SERIALIZATION_FORMAT = FORMAT_COMPRESSED_SOURCE;
+
+        /** sources smaller than this are never compressed, the compression header would eat most of the savings */
+        static final int MIN_COMPRESSIBLE_SOURCE_BYTES = 512;
 
         private String id;
         private String type;
@@ -775,6 +848,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         private String parent;
         private long timestamp;
         private long ttl;
+        private long autoGeneratedIdTimestamp = IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP;
 
         public Index() {
         }
@@ -789,6 +863,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             this.timestamp = index.timestamp();
             this.ttl = index.ttl();
             this.versionType = index.versionType();
+            this.autoGeneratedIdTimestamp = index.getAutoGeneratedIdTimestamp();
         }
 
         public Index(String type, String id, byte[] source) {
@@ -843,6 +918,10 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             return versionType;
         }
 
+        public long getAutoGeneratedIdTimestamp() {
+            return autoGeneratedIdTimestamp;
+        }
+
         @Override
         public Source getSource() {
             return new Source(source, routing, parent, timestamp, ttl);
@@ -853,7 +932,11 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             int version = in.readVInt(); // version
             id = in.readString();
             type = in.readString();
-            source = in.readBytesReference();
+            if (version >= FORMAT_COMPRESSED_SOURCE && in.readBoolean()) {
+                source = CompressorFactory.uncompress(in.readBytesReference());
+            } else {
+                source = in.readBytesReference();
+            }
             try {
                 if (version >= 1) {
                     if (in.readBoolean()) {
@@ -877,6 +960,9 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                 if (version >= 6) {
                     this.versionType = VersionType.fromValue(in.readByte());
                 }
+                if (version >= FORMAT_AUTO_GENERATED_IDS) {
+                    this.autoGeneratedIdTimestamp = in.readLong();
+                }
             } catch (Exception e) {
                 throw new ElasticsearchException("failed to read [" + type + "][" + id + "]", e);
             }
@@ -886,10 +972,25 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
 
         @Override
         public void writeTo(StreamOutput out) throws IOException {
+            writeTo(out, false);
+        }
+
+        /**
+         * Serializes this operation and compresses its source if <code>compressSource</code> is set and compression makes the source
+         * smaller. Compressed sources are decompressed by {@link #readFrom(StreamInput)}, readers never see them.
+         */
+        void writeTo(StreamOutput out, boolean compressSource) throws IOException {
             out.writeVInt(SERIALIZATION_FORMAT);
             out.writeString(id);
             out.writeString(type);
-            out.writeBytesReference(source);
+            final BytesReference compressedSource = compressSource ? compress(source) : null;
+            if (compressedSource == null) {
+                out.writeBoolean(false);
+                out.writeBytesReference(source);
+            } else {
+                out.writeBoolean(true);
+                out.writeBytesReference(compressedSource);
+            }
             if (routing == null) {
                 out.writeBoolean(false);
             } else {
@@ -906,6 +1007,20 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             out.writeLong(timestamp);
             out.writeLong(ttl);
             out.writeByte(versionType.getValue());
+            out.writeLong(autoGeneratedIdTimestamp);
+        }
+
+        /** Returns the compressed source or <code>null</code> if the source is too small or doesn't compress. */
+        private static BytesReference compress(BytesReference source) throws IOException {
+            if (source.length() < MIN_COMPRESSIBLE_SOURCE_BYTES) {
+                return null;
+            }
+            final BytesStreamOutput bytesStreamOutput = new BytesStreamOutput();
+            try (StreamOutput compressedStreamOutput = CompressorFactory.defaultCompressor().streamOutput(bytesStreamOutput)) {
+                source.writeTo(compressedStreamOutput);
+            }
+            final BytesReference compressed = bytesStreamOutput.bytes();
+            return compressed.length() < source.length() ? compressed : null;
         }
 
         @Override
@@ -922,6 +1037,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             if (version != index.version ||
                     timestamp != index.timestamp ||
                     ttl != index.ttl ||
+                    autoGeneratedIdTimestamp != index.autoGeneratedIdTimestamp ||
                     id.equals(index.id) == false ||
                     type.equals(index.type) == false ||
                     versionType != index.versionType ||
@@ -946,6 +1062,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             result = 31 * result + (parent != null ? parent.hashCode() : 0);
             result = 31 * result + Long.hashCode(timestamp);
             result = 31 * result + Long.hashCode(ttl);
+            result = 31 * result + Long.hashCode(autoGeneratedIdTimestamp);
             return result;
         }
 
@@ -1161,12 +1278,20 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     }
 
     public static void writeOperationNoSize(BufferedChecksumStreamOutput out, Translog.Operation op) throws IOException {
+        writeOperationNoSize(out, op, false);
+    }
+
+    static void writeOperationNoSize(BufferedChecksumStreamOutput out, Translog.Operation op, boolean compressSource) throws IOException {
         // This BufferedChecksumStreamOutput remains unclosed on purpose,
         // because closing it closes the underlying stream, which we don't
         // want to do here.
         out.resetDigest();
         out.writeByte(op.opType().id());
-        op.writeTo(out);
+        if (compressSource && op instanceof Index) {
+            ((Index) op).writeTo(out, true);
+        } else {
+            op.writeTo(out);
+        }
         long checksum = out.getChecksum();
         out.writeInt((int) checksum);
     }
@@ -1237,9 +1362,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                 // we're shutdown potentially on some tragic event - don't delete anything
                 return;
             }
-            long minReferencedGen = outstandingViews.stream().mapToLong(View::minTranslogGeneration).min().orElse(Long.MAX_VALUE);
-            minReferencedGen = Math.min(lastCommittedTranslogFileGeneration, minReferencedGen);
-            final long finalMinReferencedGen = minReferencedGen;
+            final long finalMinReferencedGen = Math.min(minRetainedGeneration(), minReferencedGeneration());
             List<TranslogReader> unreferenced = readers.stream().filter(r -> r.getGeneration() < finalMinReferencedGen).collect(Collectors.toList());
             for (final TranslogReader unreferencedReader : unreferenced) {
                 Path translogPath = unreferencedReader.path();
@@ -1252,6 +1375,47 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         }
     }
 
+    /**
+     * Returns the smallest generation that is referenced by the last commit or by an open view.
+     */
+    private long minReferencedGeneration() {
+        final long minViewGen = outstandingViews.stream().mapToLong(View::minTranslogGeneration).min().orElse(Long.MAX_VALUE);
+        return Math.min(lastCommittedTranslogFileGeneration, minViewGen);
+    }
+
+    /**
+     * Returns the smallest committed generation that is retained for operation based recoveries. Committed generations are
+     * retained from the newest to the oldest as long as their total size and their age are within the configured limits.
+     */
+    private long minRetainedGeneration() {
+        assert writeLock.isHeldByCurrentThread();
+        final long maxSizeInBytes = config.getIndexSettings().getTranslogRetentionSize().bytes();
+        final long maxAgeInMillis = config.getIndexSettings().getTranslogRetentionAge().millis();
+        final long now = System.currentTimeMillis();
+        long minRetainedGen = lastCommittedTranslogFileGeneration;
+        long retainedSizeInBytes = 0;
+        for (int i = readers.size() - 1; i >= 0; i--) {
+            final TranslogReader reader = readers.get(i);
+            if (reader.getGeneration() >= lastCommittedTranslogFileGeneration) {
+                continue;
+            }
+            retainedSizeInBytes += reader.sizeInBytes();
+            if (retainedSizeInBytes > maxSizeInBytes) {
+                break;
+            }
+            try {
+                if (now - Files.getLastModifiedTime(reader.path()).toMillis() > maxAgeInMillis) {
+                    break;
+                }
+            } catch (IOException e) {
+                logger.debug("failed to read the last modified time of translog file {}", e, reader.path());
+                break;
+            }
+            minRetainedGen = reader.getGeneration();
+        }
+        return minRetainedGen;
+    }
+
     void closeFilesIfNoPendingViews() throws IOException {
         try (ReleasableLock ignored = writeLock.acquire()) {
             if (closed.get() && outstandingViews.isEmpty()) {
@@ -34,20 +34,34 @@ public class TranslogStats extends ToXContentToBytes implements Streamable {
 
     private long translogSizeInBytes;
     private int numberOfOperations;
+    private long syncCount;
+    private long syncedOperations;
 
     public TranslogStats() {
     }
 
     public TranslogStats(int numberOfOperations, long translogSizeInBytes) {
+        this(numberOfOperations, translogSizeInBytes, 0, 0);
+    }
+
+    public TranslogStats(int numberOfOperations, long translogSizeInBytes, long syncCount, long syncedOperations) {
         if (numberOfOperations < 0) {
             throw new IllegalArgumentException("numberOfOperations must be >= 0");
         }
         if (translogSizeInBytes < 0) {
             throw new IllegalArgumentException("translogSizeInBytes must be >= 0");
         }
+        if (syncCount < 0) {
+            throw new IllegalArgumentException("syncCount must be >= 0");
+        }
+        if (syncedOperations < 0) {
+            throw new IllegalArgumentException("syncedOperations must be >= 0");
+        }
         assert translogSizeInBytes >= 0 : "translogSizeInBytes must be >= 0, got [" + translogSizeInBytes + "]";
         this.numberOfOperations = numberOfOperations;
         this.translogSizeInBytes = translogSizeInBytes;
+        this.syncCount = syncCount;
+        this.syncedOperations = syncedOperations;
     }
 
     public void add(TranslogStats translogStats) {
@@ -57,6 +71,8 @@ public class TranslogStats extends ToXContentToBytes implements Streamable {
 
         this.numberOfOperations += translogStats.numberOfOperations;
         this.translogSizeInBytes += translogStats.translogSizeInBytes;
+        this.syncCount += translogStats.syncCount;
+        this.syncedOperations += translogStats.syncedOperations;
     }
 
     public long getTranslogSizeInBytes() {
@@ -67,11 +83,34 @@ public class TranslogStats extends ToXContentToBytes implements Streamable {
         return numberOfOperations;
     }
 
+    /**
+     * Returns the number of fsyncs of the translog. A single fsync can cover the operations of many concurrent requests.
+     */
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * Returns the total number of operations that were made durable by all fsyncs of the translog.
+     */
+    public long getSyncedOperations() {
+        return syncedOperations;
+    }
+
+    /**
+     * Returns the average number of operations that were made durable by a single fsync of the translog.
+     */
+    public double getAverageSyncBatchSize() {
+        return syncCount == 0 ? 0.0 : syncedOperations / (double) syncCount;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.TRANSLOG);
         builder.field(Fields.OPERATIONS, numberOfOperations);
         builder.byteSizeField(Fields.SIZE_IN_BYTES, Fields.SIZE, translogSizeInBytes);
+        builder.field(Fields.SYNC_COUNT, syncCount);
+        builder.field(Fields.SYNCED_OPERATIONS, syncedOperations);
         builder.endObject();
         return builder;
     }
@@ -81,17 +120,23 @@ public class TranslogStats extends ToXContentToBytes implements Streamable {
         static final XContentBuilderString OPERATIONS = new XContentBuilderString("operations");
         static final XContentBuilderString SIZE = new XContentBuilderString("size");
         static final XContentBuilderString SIZE_IN_BYTES = new XContentBuilderString("size_in_bytes");
+        static final XContentBuilderString SYNC_COUNT = new XContentBuilderString("sync_count");
+        static final XContentBuilderString SYNCED_OPERATIONS = new XContentBuilderString("synced_operations");
     }
 
     @Override
     public void readFrom(StreamInput in) throws IOException {
         numberOfOperations = in.readVInt();
         translogSizeInBytes = in.readVLong();
+        syncCount = in.readVLong();
+        syncedOperations = in.readVLong();
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVInt(numberOfOperations);
         out.writeVLong(translogSizeInBytes);
+        out.writeVLong(syncCount);
+        out.writeVLong(syncedOperations);
     }
 }
@@ -51,6 +51,8 @@ import org.elasticsearch.common.settings.IndexScopedSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.env.NodeEnvironment;
@@ -79,12 +81,15 @@ import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.shard.IndexingOperationListener;
 import org.elasticsearch.index.shard.IndexingStats;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.snapshots.blobstore.BlobBlockCache;
+import org.elasticsearch.index.snapshots.blobstore.SnapshotIndexStore;
 import org.elasticsearch.index.store.IndexStoreConfig;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.indices.fielddata.cache.IndicesFieldDataCache;
 import org.elasticsearch.indices.mapper.MapperRegistry;
 import org.elasticsearch.indices.query.IndicesQueriesRegistry;
 import org.elasticsearch.plugins.PluginsService;
+import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.query.QueryPhase;
@@ -94,6 +99,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -123,6 +129,14 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
     public static final String INDICES_SHARDS_CLOSED_TIMEOUT = "indices.shards_closed_timeout";
     public static final Setting<TimeValue> INDICES_CACHE_CLEAN_INTERVAL_SETTING =
         Setting.positiveTimeSetting("indices.cache.cleanup_interval", TimeValue.timeValueMinutes(1), Property.NodeScope);
+    public static final Setting<ByteSizeValue> INDICES_SNAPSHOT_CACHE_SIZE_SETTING =
+        Setting.byteSizeSetting("indices.snapshot_cache.size", new ByteSizeValue(1, ByteSizeUnit.GB), Property.NodeScope);
+    public static final Setting<ByteSizeValue> INDICES_SNAPSHOT_CACHE_BLOCK_SIZE_SETTING =
+        Setting.byteSizeSetting("indices.snapshot_cache.block_size", new ByteSizeValue(64, ByteSizeUnit.KB),
+            new ByteSizeValue(1, ByteSizeUnit.KB), new ByteSizeValue(16, ByteSizeUnit.MB), Property.NodeScope);
+    public static final Setting<Integer> INDICES_SNAPSHOT_CACHE_READ_AHEAD_BLOCKS_SETTING =
+        Setting.intSetting("indices.snapshot_cache.read_ahead_blocks", 4, 0, Property.NodeScope);
+    private static final String SNAPSHOT_CACHE_FOLDER = "snapshot_cache";
     private final PluginsService pluginsService;
     private final NodeEnvironment nodeEnv;
     private final TimeValue shardsClosedTimeout;
@@ -144,6 +158,9 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
     private final TimeValue cleanInterval;
     private final IndicesRequestCache indicesRequestCache;
     private final IndicesQueryCache indicesQueryCache;
+    private final RepositoriesService repositoriesService;
+    // created on first use, most nodes never mount an index from a snapshot
+    private BlobBlockCache snapshotBlockCache;
 
     @Override
     protected void doStart() {
@@ -155,7 +172,8 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
     public IndicesService(Settings settings, PluginsService pluginsService, NodeEnvironment nodeEnv,
                           ClusterSettings clusterSettings, AnalysisRegistry analysisRegistry,
                           IndicesQueriesRegistry indicesQueriesRegistry, IndexNameExpressionResolver indexNameExpressionResolver,
-                          ClusterService clusterService, MapperRegistry mapperRegistry, ThreadPool threadPool, IndexScopedSettings indexScopedSettings, CircuitBreakerService circuitBreakerService) {
+                          ClusterService clusterService, MapperRegistry mapperRegistry, ThreadPool threadPool, IndexScopedSettings indexScopedSettings, CircuitBreakerService circuitBreakerService,
+                          RepositoriesService repositoriesService) {
         super(settings);
         this.threadPool = threadPool;
         this.pluginsService = pluginsService;
@@ -169,6 +187,7 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
         this.indicesRequestCache = new IndicesRequestCache(settings);
         this.indicesQueryCache = new IndicesQueryCache(settings);
         this.mapperRegistry = mapperRegistry;
+        this.repositoriesService = repositoriesService;
         clusterSettings.addSettingsUpdateConsumer(IndexStoreConfig.INDICES_STORE_THROTTLE_TYPE_SETTING, indexStoreConfig::setRateLimitingType);
         clusterSettings.addSettingsUpdateConsumer(IndexStoreConfig.INDICES_STORE_THROTTLE_MAX_BYTES_PER_SEC_SETTING, indexStoreConfig::setRateLimitingThrottle);
         indexingMemoryController = new IndexingMemoryController(settings, threadPool, this);
@@ -377,6 +396,8 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
             idxSettings.isShadowReplicaIndex() ? "s" : "", reason);
 
         final IndexModule indexModule = new IndexModule(idxSettings, indexStoreConfig, analysisRegistry);
+        indexModule.addIndexStore(SnapshotIndexStore.TYPE, (indexSettings, storeConfig) ->
+            new SnapshotIndexStore(indexSettings, storeConfig, repositoriesService, this::snapshotBlockCache));
         pluginsService.onIndexModule(indexModule);
         for (IndexEventListener listener : builtInListeners) {
             indexModule.addIndexEventListener(listener);
@@ -470,6 +491,23 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
         return indicesQueryCache;
     }
 
+    /**
+     * Returns the cache that shards of indices mounted from a snapshot read their files through. The cache lives in the
+     * first data path of the node and starts out empty whenever the node starts.
+     */
+    public synchronized BlobBlockCache snapshotBlockCache() {
+        if (snapshotBlockCache == null) {
+            final Path path = nodeEnv.nodeDataPaths()[0].resolve(SNAPSHOT_CACHE_FOLDER);
+            try {
+                snapshotBlockCache = new BlobBlockCache(path, (int) INDICES_SNAPSHOT_CACHE_BLOCK_SIZE_SETTING.get(settings).bytes(),
+                    INDICES_SNAPSHOT_CACHE_READ_AHEAD_BLOCKS_SETTING.get(settings), INDICES_SNAPSHOT_CACHE_SIZE_SETTING.get(settings).bytes());
+            } catch (IOException e) {
+                throw new ElasticsearchException("failed to create snapshot block cache in [{}]", e, path);
+            }
+        }
+        return snapshotBlockCache;
+    }
+
     static class OldShardsStats implements IndexEventListener {
 
         final SearchStats searchStats = new SearchStats();
@@ -42,9 +42,13 @@ import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.compress.CompressedXContent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.Callback;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.IndexSettings;
@@ -64,11 +68,13 @@ import org.elasticsearch.indices.recovery.RecoveryFailedException;
 import org.elasticsearch.indices.recovery.RecoverySource;
 import org.elasticsearch.indices.recovery.RecoveryState;
 import org.elasticsearch.indices.recovery.RecoveryTargetService;
+import org.elasticsearch.indices.recovery.SegmentReplicationService;
 import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.snapshots.RestoreService;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -76,12 +82,22 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  *
  */
 public class IndicesClusterStateService extends AbstractLifecycleComponent<IndicesClusterStateService> implements ClusterStateListener {
 
+    /**
+     * The maximum number of threads used to apply independent per-index changes (index meta data and mappings) of a
+     * cluster state. The cluster state update thread is one of them; a value of <tt>1</tt> applies everything on it.
+     */
+    public static final Setting<Integer> INDICES_CLUSTER_APPLY_CONCURRENCY_SETTING =
+        Setting.intSetting("indices.cluster.apply_concurrency", 4, 1, Property.NodeScope);
+
     private final IndicesService indicesService;
     private final ClusterService clusterService;
     private final ThreadPool threadPool;
@@ -105,6 +121,7 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
 
     private final boolean sendRefreshMapping;
     private final List<IndexEventListener> buildInIndexListener;
+    private final int applyConcurrency;
 
     @Inject
     public IndicesClusterStateService(Settings settings, IndicesService indicesService, ClusterService clusterService,
@@ -114,9 +131,11 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
                                       NodeMappingRefreshAction nodeMappingRefreshAction,
                                       RepositoriesService repositoriesService, RestoreService restoreService,
                                       SearchService searchService, SyncedFlushService syncedFlushService,
-                                      RecoverySource recoverySource, NodeServicesProvider nodeServicesProvider) {
+                                      RecoverySource recoverySource, SegmentReplicationService segmentReplicationService,
+                                      NodeServicesProvider nodeServicesProvider) {
         super(settings);
-        this.buildInIndexListener = Arrays.asList(recoverySource, recoveryTargetService, searchService, syncedFlushService);
+        this.buildInIndexListener = Arrays.asList(recoverySource, recoveryTargetService, searchService, syncedFlushService,
+            segmentReplicationService);
         this.indicesService = indicesService;
         this.clusterService = clusterService;
         this.threadPool = threadPool;
@@ -128,6 +147,7 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
         this.repositoriesService = repositoriesService;
         this.sendRefreshMapping = this.settings.getAsBoolean("indices.cluster.send_refresh_mapping", true);
         this.nodeServicesProvider = nodeServicesProvider;
+        this.applyConcurrency = INDICES_CLUSTER_APPLY_CONCURRENCY_SETTING.get(settings);
     }
 
     @Override
@@ -174,20 +194,89 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
                 return;
             }
 
-            cleanFailedShards(event);
+            final long startNanos = System.nanoTime();
+            applyPhase("clean failed shards", event, this::cleanFailedShards);
 
             // cleaning up indices that are completely deleted so we won't need to worry about them
             // when checking for shards
-            applyDeletedIndices(event);
-            applyDeletedShards(event);
+            applyPhase("deleted indices", event, this::applyDeletedIndices);
+            applyPhase("deleted shards", event, this::applyDeletedShards);
             // call after deleted shards so indices with no shards will be cleaned
-            applyCleanedIndices(event);
+            applyPhase("cleaned indices", event, this::applyCleanedIndices);
             // make sure that newly created shards use the latest meta data
-            applyIndexMetaData(event);
-            applyNewIndices(event);
+            applyPhase("index meta data", event, this::applyIndexMetaData);
+            applyPhase("new indices", event, this::applyNewIndices);
             // apply mappings also updates new indices. TODO: make new indices good to begin with
-            applyMappings(event);
-            applyNewOrUpdatedShards(event);
+            applyPhase("mappings", event, this::applyMappings);
+            applyPhase("new or updated shards", event, this::applyNewOrUpdatedShards);
+            if (logger.isDebugEnabled()) {
+                logger.debug("applied cluster state version [{}] in [{}]", event.state().version(),
+                    TimeValue.timeValueNanos(System.nanoTime() - startNanos));
+            }
+        }
+    }
+
+    /**
+     * Runs a single phase of the cluster state application and reports how long it took.
+     */
+    private void applyPhase(String phase, ClusterChangedEvent event, Consumer<ClusterChangedEvent> applier) {
+        final long startNanos = System.nanoTime();
+        applier.accept(event);
+        if (logger.isTraceEnabled()) {
+            logger.trace("cluster state version [{}]: applied [{}] in [{}]", event.state().version(), phase,
+                TimeValue.timeValueNanos(System.nanoTime() - startNanos));
+        }
+    }
+
+    /**
+     * Runs the given per-index tasks on up to {@link #INDICES_CLUSTER_APPLY_CONCURRENCY_SETTING} threads and returns once
+     * all of them completed, so that the next phase always sees the outcome of the previous one. The tasks must be
+     * independent of each other. The calling thread takes part in the work, so tasks that can't be forked because the
+     * generic pool rejects them are still executed.
+     */
+    private void runPerIndex(String phase, List<Runnable> tasks) {
+        final AtomicInteger nextTask = new AtomicInteger();
+        final Runnable worker = () -> {
+            int task;
+            while ((task = nextTask.getAndIncrement()) < tasks.size()) {
+                try {
+                    tasks.get(task).run();
+                } catch (Throwable t) {
+                    logger.warn("failed to apply [{}] for an index", t, phase);
+                }
+            }
+        };
+        final int forked = Math.min(applyConcurrency, tasks.size()) - 1;
+        if (forked <= 0) {
+            worker.run();
+            return;
+        }
+        final CountDownLatch done = new CountDownLatch(forked);
+        for (int i = 0; i < forked; i++) {
+            try {
+                threadPool.generic().execute(() -> {
+                    try {
+                        worker.run();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            } catch (EsRejectedExecutionException e) {
+                done.countDown();
+            }
+        }
+        worker.run();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -330,6 +419,7 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
         if (!event.metaDataChanged()) {
             return;
         }
+        final List<Runnable> updates = new ArrayList<>();
         for (IndexMetaData indexMetaData : event.state().metaData()) {
             if (!indicesService.hasIndex(indexMetaData.getIndex())) {
                 // we only create / update here
@@ -345,48 +435,56 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent<Indic
                 // already deleted on us, ignore it
                 continue;
             }
-            indexService.updateMetaData(indexMetaData);
+            updates.add(() -> indexService.updateMetaData(indexMetaData));
         }
+        runPerIndex("index meta data", updates);
     }
 
 
     private void applyMappings(ClusterChangedEvent event) {
-        // go over and update mappings
+        // go over and update mappings, indices are independent of each other so they are updated concurrently
+        final List<Runnable> updates = new ArrayList<>();
         for (IndexMetaData indexMetaData : event.state().metaData()) {
             Index index = indexMetaData.getIndex();
             if (!indicesService.hasIndex(index)) {
                 // we only create / update here
                 continue;
             }
-            boolean requireRefresh = false;
             IndexService indexService = indicesService.indexService(index);
             if (indexService == null) {
                 // got deleted on us, ignore (closing the node)
                 return;
             }
-            try {
-                MapperService mapperService = indexService.mapperService();
-                // go over and add the relevant mappings (or update them)
-                for (ObjectCursor<MappingMetaData> cursor : indexMetaData.getMappings().values()) {
-                    MappingMetaData mappingMd = cursor.value;
-                    String mappingType = mappingMd.type();
-                    CompressedXContent mappingSource = mappingMd.source();
-                    requireRefresh |= processMapping(index.getName(), mapperService, mappingType, mappingSource);
-                }
-                if (requireRefresh && sendRefreshMapping) {
-                    nodeMappingRefreshAction.nodeMappingRefresh(event.state(),
-                        new NodeMappingRefreshAction.NodeMappingRefreshRequest(index.getName(), indexMetaData.getIndexUUID(),
-                            event.state().nodes().localNodeId())
-                    );
-                }
-            } catch (Throwable t) {
-                // if we failed the mappings anywhere, we need to fail the shards for this index, note, we safeguard
-                // by creating the processing the mappings on the master, or on the node the mapping was introduced on,
-                // so this failure typically means wrong node level configuration or something similar
-                for (IndexShard indexShard : indexService) {
-                    ShardRouting shardRouting = indexShard.routingEntry();
-                    failAndRemoveShard(shardRouting, indexService, true, "failed to update mappings", t);
-                }
+            updates.add(() -> applyMappings(event, indexMetaData, indexService));
+        }
+        runPerIndex("mappings", updates);
+    }
+
+    private void applyMappings(ClusterChangedEvent event, IndexMetaData indexMetaData, IndexService indexService) {
+        final Index index = indexMetaData.getIndex();
+        boolean requireRefresh = false;
+        try {
+            MapperService mapperService = indexService.mapperService();
+            // go over and add the relevant mappings (or update them)
+            for (ObjectCursor<MappingMetaData> cursor : indexMetaData.getMappings().values()) {
+                MappingMetaData mappingMd = cursor.value;
+                String mappingType = mappingMd.type();
+                CompressedXContent mappingSource = mappingMd.source();
+                requireRefresh |= processMapping(index.getName(), mapperService, mappingType, mappingSource);
+            }
+            if (requireRefresh && sendRefreshMapping) {
+                nodeMappingRefreshAction.nodeMappingRefresh(event.state(),
+                    new NodeMappingRefreshAction.NodeMappingRefreshRequest(index.getName(), indexMetaData.getIndexUUID(),
+                        event.state().nodes().localNodeId())
+                );
+            }
+        } catch (Throwable t) {
+            // if we failed the mappings anywhere, we need to fail the shards for this index, note, we safeguard
+            // by creating the processing the mappings on the master, or on the node the mapping was introduced on,
+            // so this failure typically means wrong node level configuration or something similar
+            for (IndexShard indexShard : indexService) {
+                ShardRouting shardRouting = indexShard.routingEntry();
+                failAndRemoveShard(shardRouting, indexService, true, "failed to update mappings", t);
             }
         }
     }
@@ -31,6 +31,7 @@ import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.shard.IndexEventListener;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.snapshots.blobstore.SnapshotIndexStore;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportChannel;
@@ -123,10 +124,12 @@ public class RecoverySource extends AbstractComponent implements IndexEventListe
         final RemoteRecoveryTargetHandler recoveryTarget =
                 new RemoteRecoveryTargetHandler(request.recoveryId(), request.shardId(), transportService, request.targetNode(),
                         recoverySettings, throttleTime -> shard.recoveryStats().addThrottleTime(throttleTime));
-        if (shard.indexSettings().isOnSharedFilesystem()) {
+        if (shard.indexSettings().isOnSharedFilesystem() || SnapshotIndexStore.isSnapshotStore(shard.indexSettings().getSettings())) {
+            // the target reads the same files as this shard, either from the shared filesystem or from the snapshot
             handler = new SharedFSRecoverySourceHandler(shard, recoveryTarget, request, logger);
         } else {
-            handler = new RecoverySourceHandler(shard, recoveryTarget, request, recoverySettings.getChunkSize().bytesAsInt(), logger);
+            handler = new RecoverySourceHandler(shard, recoveryTarget, request, recoverySettings.getChunkSize().bytesAsInt(),
+                    recoverySettings.getMaxConcurrentFileChunks(), logger);
         }
         ongoingRecoveries.add(shard, handler);
         try {
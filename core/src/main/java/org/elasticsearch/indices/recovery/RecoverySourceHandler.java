@@ -30,14 +30,17 @@ import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.StopWatch;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.CancellableThreads;
+import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.RecoveryEngineException;
 import org.elasticsearch.index.shard.IllegalIndexShardStateException;
 import org.elasticsearch.index.shard.IndexShard;
@@ -52,7 +55,10 @@ import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.StreamSupport;
 
@@ -78,6 +84,11 @@ public class RecoverySourceHandler {
     private final StartRecoveryRequest request;
     private final int chunkSizeInBytes;
     private final RecoveryTargetHandler recoveryTarget;
+    // the number of file chunks that may be in flight at the same time and the permits to send them
+    private final int maxConcurrentFileChunks;
+    private final Semaphore fileChunkPermits;
+    // the first file chunk that failed while it was in flight and the file it belongs to
+    private final AtomicReference<Tuple<StoreFileMetaData, Throwable>> fileChunkFailure = new AtomicReference<>();
 
     protected final RecoveryResponse response;
 
@@ -101,6 +112,14 @@ public class RecoverySourceHandler {
                                  final StartRecoveryRequest request,
                                  final int fileChunkSizeInBytes,
                                  final ESLogger logger) {
+        this(shard, recoveryTarget, request, fileChunkSizeInBytes, 1, logger);
+    }
+
+    public RecoverySourceHandler(final IndexShard shard, RecoveryTargetHandler recoveryTarget,
+                                 final StartRecoveryRequest request,
+                                 final int fileChunkSizeInBytes,
+                                 final int maxConcurrentFileChunks,
+                                 final ESLogger logger) {
         this.shard = shard;
         this.recoveryTarget = recoveryTarget;
         this.request = request;
@@ -108,6 +127,8 @@ public class RecoverySourceHandler {
         this.indexName = this.request.shardId().getIndex().getName();
         this.shardId = this.request.shardId().id();
         this.chunkSizeInBytes = fileChunkSizeInBytes;
+        this.maxConcurrentFileChunks = maxConcurrentFileChunks;
+        this.fileChunkPermits = new Semaphore(maxConcurrentFileChunks);
         this.response = new RecoveryResponse();
     }
 
@@ -115,6 +136,13 @@ public class RecoverySourceHandler {
      * performs the recovery from the local engine to the target
      */
     public RecoveryResponse recoverToTarget() throws IOException {
+        final String recoveryAnchorId = request.metadataSnapshot().getCommitUserData().get(Engine.RECOVERY_ANCHOR_ID);
+        try (Translog.View retainedTranslogView = shard.acquireRetainedTranslogView(recoveryAnchorId)) {
+            if (retainedTranslogView != null) {
+                recoverFromRetainedTranslog(retainedTranslogView, recoveryAnchorId);
+                return response;
+            }
+        }
         try (Translog.View translogView = shard.acquireTranslogView()) {
             logger.trace("captured translog id [{}] for recovery", translogView.minTranslogGeneration());
             final IndexCommit phase1Snapshot;
@@ -149,6 +177,28 @@ public class RecoverySourceHandler {
         return response;
     }
 
+    /**
+     * Recovers the target by replaying the operations that the primary retained in its translog since the synced flush
+     * that the last commit of the target contains. Phase1 is skipped and no files are copied, the target starts its engine
+     * on its existing commit. Operations that the target already has are replayed as well, this is safe since they are
+     * replayed in the order they were applied on the primary.
+     */
+    private void recoverFromRetainedTranslog(final Translog.View translogView, final String recoveryAnchorId) throws IOException {
+        logger.trace("[{}][{}] skipping [phase1] to {} - recovering [{}] operations retained since sync id [{}]", indexName, shardId,
+                request.targetNode(), translogView.totalOperations(), recoveryAnchorId);
+        try {
+            prepareTargetForTranslog(translogView.totalOperations());
+        } catch (Throwable e) {
+            throw new RecoveryEngineException(shard.shardId(), 1, "preparing target for translog failed", e);
+        }
+        try {
+            phase2(translogView.snapshot());
+        } catch (Throwable e) {
+            throw new RecoveryEngineException(shard.shardId(), 2, "phase2 failed", e);
+        }
+        finalizeRecovery();
+    }
+
     /**
      * Perform phase1 of the recovery operations. Once this {@link IndexCommit}
      * snapshot has been performed no commit operations (files being fsync'd)
@@ -495,16 +545,32 @@ public class RecoverySourceHandler {
 
         @Override
         public final void write(byte[] b, int offset, int length) throws IOException {
-            sendNextChunk(position, new BytesArray(b, offset, length), md.length() == position + length);
+            // the buffer is reused for the next chunk while this one might still be in flight
+            sendNextChunk(position, new BytesArray(Arrays.copyOfRange(b, offset, offset + length)), md.length() == position + length);
             position += length;
             assert md.length() >= position : "length: " + md.length() + " but positions was: " + position;
         }
 
         private void sendNextChunk(long position, BytesArray content, boolean lastChunk) throws IOException {
-            // Actually send the file chunk to the target node, waiting for it to complete
-            cancellableThreads.executeIO(() ->
-                    recoveryTarget.writeFileChunk(md, position, content, lastChunk, translogView.totalOperations())
-            );
+            // Actually send the file chunk to the target node once there is room for another chunk in flight,
+            // without waiting for it to complete
+            cancellableThreads.execute(fileChunkPermits::acquire);
+            if (fileChunkFailure.get() != null) {
+                fileChunkPermits.release();
+                throw new IllegalStateException("failed to send a file chunk to " + request.targetNode());
+            }
+            recoveryTarget.writeFileChunk(md, position, content, lastChunk, translogView.totalOperations(), new ActionListener<Void>() {
+                @Override
+                public void onResponse(Void aVoid) {
+                    fileChunkPermits.release();
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    fileChunkFailure.compareAndSet(null, new Tuple<>(md, t));
+                    fileChunkPermits.release();
+                }
+            });
             if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
                 throw new IndexShardClosedException(request.shardId());
             }
@@ -522,30 +588,49 @@ public class RecoverySourceHandler {
                     // exceptions during close correctly and doesn't hide the original exception.
                     Streams.copy(new InputStreamIndexInput(indexInput, md.length()), outputStreamFactory.apply(md));
                 } catch (Throwable t) {
-                    final IOException corruptIndexException;
-                    if ((corruptIndexException = ExceptionsHelper.unwrapCorruption(t)) != null) {
-                        if (store.checkIntegrityNoException(md) == false) { // we are corrupted on the primary -- fail!
-                            logger.warn("{} Corrupted file detected {} checksum mismatch", shardId, md);
-                            failEngine(corruptIndexException);
-                            throw corruptIndexException;
-                        } else { // corruption has happened on the way to replica
-                            RemoteTransportException exception = new RemoteTransportException("File corruption occurred on recovery but " +
-                                    "checksums are ok", null);
-                            exception.addSuppressed(t);
-                            logger.warn("{} Remote file corruption on node {}, recovering {}. local checksum OK",
-                                    corruptIndexException, shardId, request.targetNode(), md);
-                            throw exception;
+                    final Tuple<StoreFileMetaData, Throwable> chunkFailure = fileChunkFailure.get();
+                    if (chunkFailure != null) {
+                        // a chunk that was in flight failed, it might belong to a file that was sent before
+                        if (chunkFailure.v2() != t) {
+                            chunkFailure.v2().addSuppressed(t);
                         }
-                    } else {
-                        throw t;
+                        handleSendFileFailure(store, chunkFailure.v1(), chunkFailure.v2());
                     }
+                    handleSendFileFailure(store, md, t);
                 }
             }
+            // wait for the chunks that are still in flight
+            cancellableThreads.execute(() -> fileChunkPermits.acquire(maxConcurrentFileChunks));
+            fileChunkPermits.release(maxConcurrentFileChunks);
+            final Tuple<StoreFileMetaData, Throwable> chunkFailure = fileChunkFailure.get();
+            if (chunkFailure != null) {
+                handleSendFileFailure(store, chunkFailure.v1(), chunkFailure.v2());
+            }
         } finally {
             store.decRef();
         }
     }
 
+    private void handleSendFileFailure(Store store, StoreFileMetaData md, Throwable t) throws Throwable {
+        final IOException corruptIndexException;
+        if ((corruptIndexException = ExceptionsHelper.unwrapCorruption(t)) != null) {
+            if (store.checkIntegrityNoException(md) == false) { // we are corrupted on the primary -- fail!
+                logger.warn("{} Corrupted file detected {} checksum mismatch", shardId, md);
+                failEngine(corruptIndexException);
+                throw corruptIndexException;
+            } else { // corruption has happened on the way to replica
+                RemoteTransportException exception = new RemoteTransportException("File corruption occurred on recovery but " +
+                        "checksums are ok", null);
+                exception.addSuppressed(t);
+                logger.warn("{} Remote file corruption on node {}, recovering {}. local checksum OK",
+                        corruptIndexException, shardId, request.targetNode(), md);
+                throw exception;
+            }
+        } else {
+            throw t;
+        }
+    }
+
     protected void failEngine(IOException cause) {
         shard.failShard("recovery", cause);
     }
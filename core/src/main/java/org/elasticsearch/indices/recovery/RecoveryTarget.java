@@ -27,6 +27,7 @@ import org.apache.lucene.store.IndexOutput;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
@@ -48,6 +49,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -76,6 +78,8 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
     private final AtomicBoolean finished = new AtomicBoolean();
 
     private final ConcurrentMap<String, IndexOutput> openIndexOutputs = ConcurrentCollections.newConcurrentMap();
+    // chunks that arrived ahead of the chunks preceding them in their file, by file name
+    private final ConcurrentMap<String, PendingFileChunks> pendingFileChunks = ConcurrentCollections.newConcurrentMap();
     private final CancellableThreads cancellableThreads = new CancellableThreads();
 
     // last time this status was accessed
@@ -258,6 +262,7 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
     }
 
     protected void cleanOpenFiles() {
+        pendingFileChunks.clear();
         // clean open index outputs
         Iterator<Entry<String, IndexOutput>> iterator = openIndexOutputs.entrySet().iterator();
         while (iterator.hasNext()) {
@@ -368,9 +373,31 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
     @Override
     public void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content,
                                boolean lastChunk, int totalTranslogOps) throws IOException {
-        final Store store = store();
         final String name = fileMetaData.name();
         state().getTranslog().totalOperations(totalTranslogOps);
+        final PendingFileChunks fileChunks = pendingFileChunks.computeIfAbsent(name, n -> new PendingFileChunks());
+        synchronized (fileChunks) {
+            // the source may have several chunks in flight, they are written in the order of their position in the file
+            if (fileChunks.isNext(position)) {
+                fileChunks.add(new FileChunk(position, content, lastChunk));
+            } else {
+                // the content might not outlive the request, chunks that have to wait are copied
+                fileChunks.add(new FileChunk(position, new BytesArray(content.toBytes()), lastChunk));
+            }
+            FileChunk chunk;
+            while ((chunk = fileChunks.pollNext()) != null) {
+                innerWriteFileChunk(fileMetaData, chunk.position, chunk.content, chunk.lastChunk);
+                if (chunk.lastChunk || chunk.position + chunk.content.length() >= fileMetaData.length()) {
+                    pendingFileChunks.remove(name);
+                }
+            }
+        }
+    }
+
+    private void innerWriteFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content,
+                                     boolean lastChunk) throws IOException {
+        final Store store = store();
+        final String name = fileMetaData.name();
         final RecoveryState.Index indexState = state().getIndex();
         IndexOutput indexOutput;
         if (position == 0) {
@@ -397,4 +424,43 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
             assert remove == null || remove == indexOutput; // remove maybe null if we got finished
         }
     }
+
+    private static final class FileChunk {
+        final long position;
+        final BytesReference content;
+        final boolean lastChunk;
+
+        FileChunk(long position, BytesReference content, boolean lastChunk) {
+            this.position = position;
+            this.content = content;
+            this.lastChunk = lastChunk;
+        }
+    }
+
+    /**
+     * The chunks of a file that can't be written yet since a chunk before them is still missing
+     */
+    private static final class PendingFileChunks {
+        private final PriorityQueue<FileChunk> chunks = new PriorityQueue<>((a, b) -> Long.compare(a.position, b.position));
+        private long nextPosition = 0;
+
+        void add(FileChunk chunk) {
+            chunks.add(chunk);
+        }
+
+        boolean isNext(long position) {
+            return position == nextPosition;
+        }
+
+        /** returns the next chunk to write or <code>null</code> if it didn't arrive yet */
+        FileChunk pollNext() {
+            final FileChunk chunk = chunks.peek();
+            if (chunk == null || chunk.position != nextPosition) {
+                return null;
+            }
+            chunks.poll();
+            nextPosition += chunk.content.length();
+            return chunk;
+        }
+    }
 }
@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.indices.recovery;
 
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
@@ -71,4 +72,19 @@ public interface RecoveryTargetHandler {
     void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content,
                         boolean lastChunk, int totalTranslogOps) throws IOException;
 
+    /**
+     * writes a partial file chunk to the target store and notifies the listener once it's written. Several chunks may be
+     * in flight at the same time, also for the same file, so the target must not rely on receiving them in order.
+     */
+    default void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content,
+                                boolean lastChunk, int totalTranslogOps, ActionListener<Void> listener) {
+        try {
+            writeFileChunk(fileMetaData, position, content, lastChunk, totalTranslogOps);
+        } catch (Throwable t) {
+            listener.onFailure(t);
+            return;
+        }
+        listener.onResponse(null);
+    }
+
 }
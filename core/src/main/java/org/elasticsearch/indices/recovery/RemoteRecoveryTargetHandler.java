@@ -20,14 +20,18 @@ package org.elasticsearch.indices.recovery;
 
 import org.apache.lucene.store.RateLimiter;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.EmptyTransportResponseHandler;
+import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportRequestOptions;
+import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
@@ -120,35 +124,68 @@ public class RemoteRecoveryTargetHandler implements RecoveryTargetHandler {
     @Override
     public void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content, boolean
             lastChunk, int totalTranslogOps) throws IOException {
-        // Pause using the rate limiter, if desired, to throttle the recovery
+        final long throttleTimeInNanos = pauseForRateLimit(content.length());
+        transportService.submitRequest(targetNode, RecoveryTargetService.Actions.FILE_CHUNK,
+                newFileChunkRequest(fileMetaData, position, content, lastChunk, totalTranslogOps, throttleTimeInNanos),
+                fileChunkRequestOptions, EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+    }
+
+    @Override
+    public void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content, boolean lastChunk,
+                               int totalTranslogOps, ActionListener<Void> listener) {
         final long throttleTimeInNanos;
+        try {
+            throttleTimeInNanos = pauseForRateLimit(content.length());
+        } catch (Throwable t) {
+            listener.onFailure(t);
+            return;
+        }
+        transportService.sendRequest(targetNode, RecoveryTargetService.Actions.FILE_CHUNK,
+                newFileChunkRequest(fileMetaData, position, content, lastChunk, totalTranslogOps, throttleTimeInNanos),
+                fileChunkRequestOptions, new EmptyTransportResponseHandler(ThreadPool.Names.SAME) {
+                    @Override
+                    public void handleResponse(TransportResponse.Empty response) {
+                        listener.onResponse(null);
+                    }
+
+                    @Override
+                    public void handleException(TransportException exp) {
+                        listener.onFailure(exp);
+                    }
+                });
+    }
+
+    /**
+     * Pauses using the rate limiter, if desired, to throttle the recovery and returns the time paused
+     */
+    private long pauseForRateLimit(int bytes) {
         // always fetch the ratelimiter - it might be updated in real-time on the recovery settings
         final RateLimiter rl = recoverySettings.rateLimiter();
         if (rl != null) {
-            long bytes = bytesSinceLastPause.addAndGet(content.length());
-            if (bytes > rl.getMinPauseCheckBytes()) {
+            long bytesSinceLastPause = this.bytesSinceLastPause.addAndGet(bytes);
+            if (bytesSinceLastPause > rl.getMinPauseCheckBytes()) {
                 // Time to pause
-                bytesSinceLastPause.addAndGet(-bytes);
+                this.bytesSinceLastPause.addAndGet(-bytesSinceLastPause);
                 try {
-                    throttleTimeInNanos = rl.pause(bytes);
+                    final long throttleTimeInNanos = rl.pause(bytesSinceLastPause);
                     onSourceThrottle.accept(throttleTimeInNanos);
+                    return throttleTimeInNanos;
                 } catch (IOException e) {
                     throw new ElasticsearchException("failed to pause recovery", e);
                 }
-            } else {
-                throttleTimeInNanos = 0;
             }
-        } else {
-            throttleTimeInNanos = 0;
         }
+        return 0;
+    }
 
-        transportService.submitRequest(targetNode, RecoveryTargetService.Actions.FILE_CHUNK,
-                new RecoveryFileChunkRequest(recoveryId, shardId, fileMetaData, position, content, lastChunk,
-                        totalTranslogOps,
-                                /* we send totalOperations with every request since we collect stats on the target and that way we can
-                                 * see how many translog ops we accumulate while copying files across the network. A future optimization
-                                 * would be in to restart file copy again (new deltas) if we have too many translog ops are piling up.
-                                 */
-                        throttleTimeInNanos), fileChunkRequestOptions, EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+    private RecoveryFileChunkRequest newFileChunkRequest(StoreFileMetaData fileMetaData, long position, BytesReference content,
+                                                         boolean lastChunk, int totalTranslogOps, long throttleTimeInNanos) {
+        return new RecoveryFileChunkRequest(recoveryId, shardId, fileMetaData, position, content, lastChunk,
+                totalTranslogOps,
+                /* we send totalOperations with every request since we collect stats on the target and that way we can
+                 * see how many translog ops we accumulate while copying files across the network. A future optimization
+                 * would be in to restart file copy again (new deltas) if we have too many translog ops are piling up.
+                 */
+                throttleTimeInNanos);
     }
 }
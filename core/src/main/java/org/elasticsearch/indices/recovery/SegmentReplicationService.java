@@ -0,0 +1,644 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RateLimiter;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.shard.IndexEventListener;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.IndexShardState;
+import org.elasticsearch.index.shard.SegmentReplicaIndexShard;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.store.StoreFileMetaData;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.EmptyTransportResponseHandler;
+import org.elasticsearch.transport.FutureTransportResponseHandler;
+import org.elasticsearch.transport.TransportChannel;
+import org.elasticsearch.transport.TransportRequest;
+import org.elasticsearch.transport.TransportRequestHandler;
+import org.elasticsearch.transport.TransportRequestOptions;
+import org.elasticsearch.transport.TransportResponse;
+import org.elasticsearch.transport.TransportService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies the segments of primaries of indices that use segment replication to their replicas. Each replica
+ * periodically asks its primary for the files of the primary's last commit that it doesn't have yet, copies
+ * them in chunks just like the file based phase of a peer recovery and opens the copied commit.
+ * <p>
+ * The primary flushes before it hands out its last commit, so replicas lag behind their primary by the
+ * {@link #INDEX_SEGMENT_REPLICATION_INTERVAL_SETTING} and the time it takes to copy the new segments.
+ */
+public class SegmentReplicationService extends AbstractComponent implements IndexEventListener {
+
+    public static final Setting<TimeValue> INDEX_SEGMENT_REPLICATION_INTERVAL_SETTING =
+        Setting.positiveTimeSetting("index.segment_replication.interval", TimeValue.timeValueSeconds(5), Property.Dynamic,
+            Property.IndexScope);
+
+    public static class Actions {
+        public static final String START = "internal:index/shard/segment_replication/start";
+        public static final String FILE_CHUNK = "internal:index/shard/segment_replication/file_chunk";
+        public static final String FINISH = "internal:index/shard/segment_replication/finish";
+    }
+
+    private static final String TEMP_FILE_PREFIX = "segment_replication.";
+
+    private final IndicesService indicesService;
+    private final ClusterService clusterService;
+    private final TransportService transportService;
+    private final ThreadPool threadPool;
+    private final RecoverySettings recoverySettings;
+
+    private final AtomicLong idGenerator = new AtomicLong();
+    /** the commits that replicas currently copy from primaries on this node */
+    private final ConcurrentMap<Long, CopySession> sessions = ConcurrentCollections.newConcurrentMap();
+    /** the replicas on this node that periodically copy the segments of their primary */
+    private final ConcurrentMap<ShardId, ReplicaSync> replicas = ConcurrentCollections.newConcurrentMap();
+
+    @Inject
+    public SegmentReplicationService(Settings settings, IndicesService indicesService, ClusterService clusterService,
+                                     TransportService transportService, ThreadPool threadPool, RecoverySettings recoverySettings) {
+        super(settings);
+        this.indicesService = indicesService;
+        this.clusterService = clusterService;
+        this.transportService = transportService;
+        this.threadPool = threadPool;
+        this.recoverySettings = recoverySettings;
+        transportService.registerRequestHandler(Actions.START, StartRequest::new, ThreadPool.Names.GENERIC, new StartTransportHandler());
+        transportService.registerRequestHandler(Actions.FILE_CHUNK, FileChunkRequest::new, ThreadPool.Names.GENERIC,
+            new FileChunkTransportHandler());
+        transportService.registerRequestHandler(Actions.FINISH, FinishRequest::new, ThreadPool.Names.SAME, new FinishTransportHandler());
+    }
+
+    @Override
+    public void afterIndexShardStarted(IndexShard indexShard) {
+        if (indexShard instanceof SegmentReplicaIndexShard) {
+            final ReplicaSync replicaSync = new ReplicaSync((SegmentReplicaIndexShard) indexShard);
+            if (replicas.putIfAbsent(indexShard.shardId(), replicaSync) == null) {
+                replicaSync.schedule();
+            }
+        }
+    }
+
+    @Override
+    public void beforeIndexShardClosed(ShardId shardId, @Nullable IndexShard indexShard, Settings indexSettings) {
+        replicas.remove(shardId);
+        if (indexShard != null) {
+            for (Map.Entry<Long, CopySession> entry : sessions.entrySet()) {
+                if (entry.getValue().indexShard == indexShard) {
+                    closeSession(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private void closeSession(long sessionId, CopySession session) {
+        if (sessions.remove(sessionId, session)) {
+            try {
+                session.close();
+            } catch (Throwable t) {
+                logger.debug("{} failed to release commit of segment replication session [{}]", t, session.indexShard.shardId(), sessionId);
+            }
+        }
+    }
+
+    /**
+     * Closes the session once the replica didn't read from it for longer than it waits for a response of the primary. This
+     * releases the commit if the replica failed without finishing the session or never received the response to its start
+     * request and therefore doesn't know the session exists.
+     */
+    private void scheduleSessionExpiry(long sessionId, CopySession session) {
+        final TimeValue timeout = recoverySettings.internalActionLongTimeout();
+        threadPool.schedule(timeout, ThreadPool.Names.GENERIC, () -> {
+            if (sessions.get(sessionId) != session) {
+                // the replica finished the session or the shard was closed
+                return;
+            }
+            if (System.nanoTime() - session.lastAccessNanos < timeout.nanos()) {
+                scheduleSessionExpiry(sessionId, session);
+            } else {
+                logger.debug("{} closing segment replication session [{}] that was idle for more than [{}]", session.indexShard.shardId(),
+                    sessionId, timeout);
+                closeSession(sessionId, session);
+            }
+        });
+    }
+
+    /**
+     * Copies the segments of the last commit of the primary that the given replica doesn't have yet.
+     */
+    void copySegments(SegmentReplicaIndexShard indexShard, ReplicaSync replicaSync) throws IOException {
+        final ShardId shardId = indexShard.shardId();
+        final ClusterState state = clusterService.state();
+        final ShardRouting primary = state.routingTable().shardRoutingTable(shardId).primaryShard();
+        final DiscoveryNode primaryNode = primary == null || primary.active() == false ? null : state.nodes().get(primary.currentNodeId());
+        if (primaryNode == null) {
+            logger.trace("{} no active primary to copy segments from", shardId);
+            return;
+        }
+        final Store store = indexShard.store();
+        store.incRef();
+        try {
+            // operations that are added from now on are kept in the translog even if they are part of the copied commit
+            indexShard.prepareSegmentCopy();
+            final StartResponse start = transportService.submitRequest(primaryNode, Actions.START,
+                new StartRequest(shardId, store.getMetadataOrEmpty(), replicaSync.lastCopiedCommit),
+                TransportRequestOptions.builder().withTimeout(recoverySettings.internalActionLongTimeout()).build(),
+                new FutureTransportResponseHandler<StartResponse>() {
+                    @Override
+                    public StartResponse newInstance() {
+                        return new StartResponse();
+                    }
+                }).txGet();
+            if (start.upToDate()) {
+                logger.trace("{} segments are up to date with the primary", shardId);
+                indexShard.skipSegmentCopy();
+                return;
+            }
+            final Map<String, String> tempFiles = new HashMap<>();
+            try {
+                long copiedBytes = 0;
+                for (StoreFileMetaData md : start.filesToCopy()) {
+                    final String tempFileName = TEMP_FILE_PREFIX + start.sessionId() + "." + md.name();
+                    tempFiles.put(tempFileName, md.name());
+                    copyFile(primaryNode, start.sessionId(), store, md, tempFileName);
+                    copiedBytes += md.length();
+                }
+                store.directory().sync(tempFiles.keySet());
+                store.renameTempFilesSafe(tempFiles);
+                store.cleanupAndVerify("segment replication", start.metadata());
+                indexShard.finishSegmentCopy();
+                replicaSync.lastCopiedCommit = start.commitId();
+                logger.trace("{} copied [{}] files with [{}] bytes from the primary", shardId, start.filesToCopy().size(), copiedBytes);
+            } finally {
+                // renameTempFilesSafe removes the files it renamed from the map
+                for (String tempFileName : tempFiles.keySet()) {
+                    try {
+                        store.deleteQuiet(tempFileName);
+                    } catch (Throwable t) {
+                        logger.debug("{} failed to delete temporary file [{}]", t, shardId, tempFileName);
+                    }
+                }
+                transportService.sendRequest(primaryNode, Actions.FINISH, new FinishRequest(start.sessionId()),
+                    EmptyTransportResponseHandler.INSTANCE_SAME);
+            }
+        } finally {
+            store.decRef();
+        }
+    }
+
+    private void copyFile(DiscoveryNode primaryNode, long sessionId, Store store, StoreFileMetaData md, String tempFileName)
+        throws IOException {
+        final int chunkSize = recoverySettings.getChunkSize().bytesAsInt();
+        try (IndexOutput output = store.createVerifyingOutput(tempFileName, md, IOContext.DEFAULT)) {
+            long position = 0;
+            while (position < md.length()) {
+                final int length = (int) Math.min(chunkSize, md.length() - position);
+                final FileChunkResponse chunk = transportService.submitRequest(primaryNode, Actions.FILE_CHUNK,
+                    new FileChunkRequest(sessionId, md.name(), position, length),
+                    TransportRequestOptions.builder().withTimeout(recoverySettings.internalActionTimeout()).build(),
+                    new FutureTransportResponseHandler<FileChunkResponse>() {
+                        @Override
+                        public FileChunkResponse newInstance() {
+                            return new FileChunkResponse();
+                        }
+                    }).txGet();
+                BytesReference content = chunk.content();
+                if (content.hasArray() == false) {
+                    content = content.toBytesArray();
+                }
+                output.writeBytes(content.array(), content.arrayOffset(), content.length());
+                position += content.length();
+            }
+            Store.verify(output);
+        }
+    }
+
+    private StartResponse startCopy(StartRequest request) throws IOException {
+        final IndexShard indexShard = indicesService.indexServiceSafe(request.shardId().getIndex()).getShard(request.shardId().id());
+        if (indexShard.routingEntry().primary() == false) {
+            throw new IllegalStateException("[" + request.shardId() + "] expected a primary shard");
+        }
+        // flushes if there are changes that aren't committed yet
+        final IndexCommit commit = indexShard.snapshotIndex(true);
+        boolean success = false;
+        try {
+            final Engine.CommitId commitId = new Engine.CommitId(Lucene.readSegmentInfos(commit).getId());
+            if (commitId.equals(request.lastCopiedCommit())) {
+                return new StartResponse();
+            }
+            final Store store = indexShard.store();
+            final Store.MetadataSnapshot metadata;
+            store.incRef();
+            try {
+                metadata = store.getMetadata(commit);
+            } finally {
+                store.decRef();
+            }
+            final Store.RecoveryDiff diff = metadata.recoveryDiff(request.metadata());
+            final List<StoreFileMetaData> filesToCopy = new ArrayList<>(diff.missing.size() + diff.different.size());
+            filesToCopy.addAll(diff.missing);
+            filesToCopy.addAll(diff.different);
+            final long sessionId = idGenerator.incrementAndGet();
+            final CopySession session = new CopySession(indexShard, commit);
+            sessions.put(sessionId, session);
+            scheduleSessionExpiry(sessionId, session);
+            success = true;
+            logger.trace("{} replica copies [{}] files of commit {}", request.shardId(), filesToCopy.size(), commitId);
+            return new StartResponse(sessionId, commitId, metadata, filesToCopy);
+        } finally {
+            if (success == false) {
+                indexShard.releaseSnapshot(commit);
+            }
+        }
+    }
+
+    private FileChunkResponse readFileChunk(FileChunkRequest request) throws IOException {
+        final CopySession session = sessions.get(request.sessionId());
+        if (session == null) {
+            throw new IllegalStateException("segment replication session [" + request.sessionId() + "] doesn't exist");
+        }
+        session.lastAccessNanos = System.nanoTime();
+        final byte[] content = new byte[request.length()];
+        final Store store = session.indexShard.store();
+        store.incRef();
+        try (IndexInput input = store.directory().openInput(request.name(), IOContext.READONCE)) {
+            input.seek(request.position());
+            input.readBytes(content, 0, content.length);
+        } finally {
+            store.decRef();
+        }
+        // always fetch the ratelimiter - it might be updated in real-time on the recovery settings
+        final RateLimiter rateLimiter = recoverySettings.rateLimiter();
+        if (rateLimiter != null) {
+            rateLimiter.pause(content.length);
+        }
+        return new FileChunkResponse(new BytesArray(content));
+    }
+
+    /**
+     * Periodically copies the segments of the primary to a replica. The next copy is only scheduled once
+     * the previous one is done so there is at most one copy in flight per replica.
+     */
+    final class ReplicaSync implements Runnable {
+
+        private final SegmentReplicaIndexShard indexShard;
+        /** the id of the last commit that was copied from the primary, only accessed by the thread copying segments */
+        private Engine.CommitId lastCopiedCommit;
+
+        ReplicaSync(SegmentReplicaIndexShard indexShard) {
+            this.indexShard = indexShard;
+        }
+
+        void schedule() {
+            final TimeValue interval = indexShard.indexSettings().getValue(INDEX_SEGMENT_REPLICATION_INTERVAL_SETTING);
+            threadPool.schedule(interval, ThreadPool.Names.GENERIC, this);
+        }
+
+        @Override
+        public void run() {
+            if (replicas.get(indexShard.shardId()) != this) {
+                // the shard was closed
+                return;
+            }
+            try {
+                if (indexShard.state() == IndexShardState.STARTED) {
+                    copySegments(indexShard, this);
+                }
+            } catch (Throwable t) {
+                if (indexShard.state() != IndexShardState.CLOSED) {
+                    logger.warn("{} failed to copy segments from the primary", t, indexShard.shardId());
+                }
+            } finally {
+                if (replicas.get(indexShard.shardId()) == this) {
+                    schedule();
+                }
+            }
+        }
+    }
+
+    /**
+     * A commit of a primary that a replica is copying. The commit is held until the replica is done.
+     */
+    private static final class CopySession {
+        private final IndexShard indexShard;
+        private final IndexCommit commit;
+        /** the time the replica last read a chunk of the commit, used to close sessions that the replica abandoned */
+        private volatile long lastAccessNanos = System.nanoTime();
+
+        CopySession(IndexShard indexShard, IndexCommit commit) {
+            this.indexShard = indexShard;
+            this.commit = commit;
+        }
+
+        void close() {
+            try {
+                indexShard.releaseSnapshot(commit);
+            } catch (IOException e) {
+                throw new ElasticsearchException("failed to release commit", e);
+            }
+        }
+    }
+
+    public static final class StartRequest extends TransportRequest {
+        private ShardId shardId;
+        private Store.MetadataSnapshot metadata;
+        private Engine.CommitId lastCopiedCommit;
+
+        public StartRequest() {
+        }
+
+        StartRequest(ShardId shardId, Store.MetadataSnapshot metadata, @Nullable Engine.CommitId lastCopiedCommit) {
+            this.shardId = shardId;
+            this.metadata = metadata;
+            this.lastCopiedCommit = lastCopiedCommit;
+        }
+
+        public ShardId shardId() {
+            return shardId;
+        }
+
+        /**
+         * The files the replica has.
+         */
+        public Store.MetadataSnapshot metadata() {
+            return metadata;
+        }
+
+        /**
+         * The id of the commit the replica copied last or <code>null</code> if it didn't copy any commit yet.
+         */
+        @Nullable
+        public Engine.CommitId lastCopiedCommit() {
+            return lastCopiedCommit;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            shardId = ShardId.readShardId(in);
+            metadata = new Store.MetadataSnapshot(in);
+            lastCopiedCommit = in.readOptionalWriteable(Engine.CommitId::new);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            shardId.writeTo(out);
+            metadata.writeTo(out);
+            out.writeOptionalWriteable(lastCopiedCommit);
+        }
+    }
+
+    static final class StartResponse extends TransportResponse {
+        private long sessionId = -1;
+        private Engine.CommitId commitId;
+        private Store.MetadataSnapshot metadata;
+        private List<StoreFileMetaData> filesToCopy = Collections.emptyList();
+
+        /**
+         * Creates a response for a replica that already copied the last commit.
+         */
+        StartResponse() {
+        }
+
+        StartResponse(long sessionId, Engine.CommitId commitId, Store.MetadataSnapshot metadata, List<StoreFileMetaData> filesToCopy) {
+            this.sessionId = sessionId;
+            this.commitId = commitId;
+            this.metadata = metadata;
+            this.filesToCopy = filesToCopy;
+        }
+
+        boolean upToDate() {
+            return commitId == null;
+        }
+
+        long sessionId() {
+            return sessionId;
+        }
+
+        Engine.CommitId commitId() {
+            return commitId;
+        }
+
+        Store.MetadataSnapshot metadata() {
+            return metadata;
+        }
+
+        List<StoreFileMetaData> filesToCopy() {
+            return filesToCopy;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            if (in.readBoolean()) {
+                sessionId = in.readLong();
+                commitId = new Engine.CommitId(in);
+                metadata = new Store.MetadataSnapshot(in);
+                final int size = in.readVInt();
+                filesToCopy = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    filesToCopy.add(new StoreFileMetaData(in));
+                }
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeBoolean(upToDate() == false);
+            if (upToDate() == false) {
+                out.writeLong(sessionId);
+                commitId.writeTo(out);
+                metadata.writeTo(out);
+                out.writeVInt(filesToCopy.size());
+                for (StoreFileMetaData md : filesToCopy) {
+                    md.writeTo(out);
+                }
+            }
+        }
+    }
+
+    public static final class FileChunkRequest extends TransportRequest {
+        private long sessionId;
+        private String name;
+        private long position;
+        private int length;
+
+        public FileChunkRequest() {
+        }
+
+        FileChunkRequest(long sessionId, String name, long position, int length) {
+            this.sessionId = sessionId;
+            this.name = name;
+            this.position = position;
+            this.length = length;
+        }
+
+        public long sessionId() {
+            return sessionId;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public long position() {
+            return position;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            sessionId = in.readLong();
+            name = in.readString();
+            position = in.readVLong();
+            length = in.readVInt();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeLong(sessionId);
+            out.writeString(name);
+            out.writeVLong(position);
+            out.writeVInt(length);
+        }
+    }
+
+    static final class FileChunkResponse extends TransportResponse {
+        private BytesReference content;
+
+        FileChunkResponse() {
+        }
+
+        FileChunkResponse(BytesReference content) {
+            this.content = content;
+        }
+
+        BytesReference content() {
+            return content;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            content = in.readBytesReference();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeBytesReference(content);
+        }
+    }
+
+    public static final class FinishRequest extends TransportRequest {
+        private long sessionId;
+
+        public FinishRequest() {
+        }
+
+        FinishRequest(long sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        public long sessionId() {
+            return sessionId;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            sessionId = in.readLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeLong(sessionId);
+        }
+    }
+
+    private final class StartTransportHandler implements TransportRequestHandler<StartRequest> {
+
+        @Override
+        public void messageReceived(StartRequest request, TransportChannel channel) throws Exception {
+            channel.sendResponse(startCopy(request));
+        }
+    }
+
+    private final class FileChunkTransportHandler implements TransportRequestHandler<FileChunkRequest> {
+
+        @Override
+        public void messageReceived(FileChunkRequest request, TransportChannel channel) throws Exception {
+            channel.sendResponse(readFileChunk(request));
+        }
+    }
+
+    private final class FinishTransportHandler implements TransportRequestHandler<FinishRequest> {
+
+        @Override
+        public void messageReceived(FinishRequest request, TransportChannel channel) throws Exception {
+            final CopySession session = sessions.get(request.sessionId());
+            if (session != null) {
+                closeSession(request.sessionId(), session);
+            }
+            channel.sendResponse(TransportResponse.Empty.INSTANCE);
+        }
+    }
+}
@@ -28,6 +28,8 @@ import java.io.IOException;
 /**
  * A recovery handler that skips phase 1 as well as sending the snapshot. During phase 3 the shard is marked
  * as relocated an closed to ensure that the engine is closed and the target can acquire the IW write lock.
+ * Shards that are mounted from a snapshot are recovered the same way, the target reads the files of the
+ * snapshot from the repository.
  */
 public class SharedFSRecoverySourceHandler extends RecoverySourceHandler {
 
@@ -46,7 +48,8 @@ public class SharedFSRecoverySourceHandler extends RecoverySourceHandler {
         boolean engineClosed = false;
         try {
             logger.trace("{} recovery [phase1] to {}: skipping phase 1 for shared filesystem", request.shardId(), request.targetNode());
-            if (isPrimaryRelocation()) {
+            // shards that are mounted from a snapshot don't hold an index writer, so their engine stays open
+            if (isPrimaryRelocation() && shard.indexSettings().isOnSharedFilesystem()) {
                 logger.debug("[phase1] closing engine on primary for shared filesystem recovery");
                 try {
                     // if we relocate we need to close the engine in order to open a new
@@ -48,6 +48,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static java.util.Collections.emptyMap;
@@ -176,6 +177,7 @@ public class RepositoriesService extends AbstractComponent implements ClusterSta
             @Override
             public ClusterState execute(ClusterState currentState) {
                 ensureRepositoryNotInUse(currentState, request.name);
+                ensureRepositoryNotMounted(currentState, request.name);
                 MetaData metaData = currentState.metaData();
                 MetaData.Builder mdBuilder = MetaData.builder(currentState.metaData());
                 RepositoriesMetaData repositories = metaData.custom(RepositoriesMetaData.TYPE);
@@ -422,6 +424,14 @@ public class RepositoriesService extends AbstractComponent implements ClusterSta
         }
     }
 
+    private void ensureRepositoryNotMounted(ClusterState clusterState, String repository) {
+        Set<String> mountedIndices = RestoreService.mountedIndices(clusterState, repository);
+        if (mountedIndices.isEmpty() == false) {
+            throw new IllegalStateException("trying to unregister repository [" + repository + "] that is used by mounted indices "
+                + mountedIndices);
+        }
+    }
+
     private class VerifyingRegisterRepositoryListener implements ActionListener<ClusterStateUpdateResponse> {
 
         private final String name;
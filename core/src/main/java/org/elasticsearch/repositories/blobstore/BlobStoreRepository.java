@@ -152,6 +152,12 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
 
     private final RateLimiter restoreRateLimiter;
 
+    private final int maxConcurrentFileUploads;
+
+    private final int maxConcurrentFileDownloads;
+
+    private final boolean deduplicateBlobs;
+
     private final CounterMetric snapshotRateLimitingTimeInNanos = new CounterMetric();
 
     private final CounterMetric restoreRateLimitingTimeInNanos = new CounterMetric();
@@ -183,6 +189,17 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
         this.indexShardRepository = (BlobStoreIndexShardRepository) indexShardRepository;
         snapshotRateLimiter = getRateLimiter(repositorySettings, "max_snapshot_bytes_per_sec", new ByteSizeValue(40, ByteSizeUnit.MB));
         restoreRateLimiter = getRateLimiter(repositorySettings, "max_restore_bytes_per_sec", new ByteSizeValue(40, ByteSizeUnit.MB));
+        maxConcurrentFileUploads = repositorySettings.settings().getAsInt("max_concurrent_file_uploads",
+                settings.getAsInt("max_concurrent_file_uploads", 1));
+        if (maxConcurrentFileUploads < 1) {
+            throw new IllegalArgumentException("[max_concurrent_file_uploads] must be at least 1, got [" + maxConcurrentFileUploads + "]");
+        }
+        maxConcurrentFileDownloads = repositorySettings.settings().getAsInt("max_concurrent_file_downloads",
+                settings.getAsInt("max_concurrent_file_downloads", 1));
+        if (maxConcurrentFileDownloads < 1) {
+            throw new IllegalArgumentException("[max_concurrent_file_downloads] must be at least 1, got [" + maxConcurrentFileDownloads + "]");
+        }
+        deduplicateBlobs = repositorySettings.settings().getAsBoolean("deduplicate_blobs", false);
         readOnly = repositorySettings.settings().getAsBoolean("readonly", false);
     }
 
@@ -192,7 +209,8 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
     @Override
     protected void doStart() {
         this.snapshotsBlobContainer = blobStore().blobContainer(basePath());
-        indexShardRepository.initialize(blobStore(), basePath(), chunkSize(), snapshotRateLimiter, restoreRateLimiter, this, isCompress());
+        indexShardRepository.initialize(blobStore(), basePath(), chunkSize(), maxConcurrentFileUploads, maxConcurrentFileDownloads, deduplicateBlobs,
+                snapshotRateLimiter, restoreRateLimiter, this, isCompress());
 
         ParseFieldMatcher parseFieldMatcher = new ParseFieldMatcher(settings);
         globalMetaDataFormat = new ChecksumBlobStoreFormat<>(METADATA_CODEC, METADATA_NAME_FORMAT, MetaData.PROTO, parseFieldMatcher, isCompress());
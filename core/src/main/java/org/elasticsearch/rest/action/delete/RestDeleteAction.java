@@ -51,7 +51,11 @@ public class RestDeleteAction extends BaseRestHandler {
         deleteRequest.routing(request.param("routing"));
         deleteRequest.parent(request.param("parent")); // order is important, set it after routing, so it will set the routing
         deleteRequest.timeout(request.paramAsTime("timeout", DeleteRequest.DEFAULT_TIMEOUT));
-        deleteRequest.refresh(request.paramAsBoolean("refresh", deleteRequest.refresh()));
+        if ("wait_for".equals(request.param("refresh"))) {
+            deleteRequest.waitForRefresh(true);
+        } else {
+            deleteRequest.refresh(request.paramAsBoolean("refresh", deleteRequest.refresh()));
+        }
         deleteRequest.version(RestActions.parseVersion(request));
         deleteRequest.versionType(VersionType.fromString(request.param("version_type"), deleteRequest.versionType()));
 
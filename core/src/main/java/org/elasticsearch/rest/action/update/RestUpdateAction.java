@@ -58,7 +58,11 @@ public class RestUpdateAction extends BaseRestHandler {
         updateRequest.routing(request.param("routing"));
         updateRequest.parent(request.param("parent"));
         updateRequest.timeout(request.paramAsTime("timeout", updateRequest.timeout()));
-        updateRequest.refresh(request.paramAsBoolean("refresh", updateRequest.refresh()));
+        if ("wait_for".equals(request.param("refresh"))) {
+            updateRequest.waitForRefresh(true);
+        } else {
+            updateRequest.refresh(request.paramAsBoolean("refresh", updateRequest.refresh()));
+        }
         String consistencyLevel = request.param("consistency");
         if (consistencyLevel != null) {
             updateRequest.consistencyLevel(WriteConsistencyLevel.fromString(consistencyLevel));
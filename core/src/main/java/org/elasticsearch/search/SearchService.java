@@ -55,6 +55,7 @@ import org.elasticsearch.index.search.stats.ShardSearchStats;
 import org.elasticsearch.index.search.stats.StatsGroupsParseElement;
 import org.elasticsearch.index.shard.IndexEventListener;
 import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.script.ExecutableScript;
 import org.elasticsearch.script.ScriptContext;
@@ -243,6 +244,19 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         FutureUtils.cancel(keepAliveReaper);
     }
 
+    /**
+     * Returns the name of the thread pool that search requests against the given shard are executed on. Searches
+     * of frozen indices are executed on the {@link ThreadPool.Names#SEARCH_THROTTLED} thread pool so that opening
+     * their readers on demand does not hold up searches of other indices.
+     */
+    public String executorName(ShardId shardId) {
+        final IndexService indexService = indicesService.indexService(shardId.getIndex());
+        if (indexService != null && indexService.getIndexSettings().isFrozen()) {
+            return ThreadPool.Names.SEARCH_THROTTLED;
+        }
+        return ThreadPool.Names.SEARCH;
+    }
+
     public DfsSearchResult executeDfsPhase(ShardSearchRequest request) throws IOException {
         final SearchContext context = createAndPutContext(request);
         try {
@@ -544,6 +558,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         IndexShard indexShard = indexService.getShard(request.shardId().getId());
         SearchShardTarget shardTarget = new SearchShardTarget(clusterService.localNode().id(), indexShard.shardId());
 
+        if (searcher == null) {
+            indexShard.awaitShardSearchActive();
+        }
         Engine.Searcher engineSearcher = searcher == null ? indexShard.acquireSearcher("search") : searcher;
 
         DefaultSearchContext context = new DefaultSearchContext(idGenerator.incrementAndGet(), request, shardTarget, engineSearcher,
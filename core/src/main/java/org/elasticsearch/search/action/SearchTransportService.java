@@ -31,6 +31,7 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.dfs.DfsSearchResult;
 import org.elasticsearch.search.fetch.FetchSearchResult;
@@ -74,28 +75,32 @@ public class SearchTransportService extends AbstractComponent {
 
     private final TransportService transportService;
     private final SearchService searchService;
+    private final ThreadPool threadPool;
 
     @Inject
-    public SearchTransportService(Settings settings, TransportService transportService, SearchService searchService) {
+    public SearchTransportService(Settings settings, TransportService transportService, SearchService searchService,
+                                  ThreadPool threadPool) {
         super(settings);
         this.transportService = transportService;
         this.searchService = searchService;
+        this.threadPool = threadPool;
         transportService.registerRequestHandler(FREE_CONTEXT_SCROLL_ACTION_NAME, ScrollFreeContextRequest::new, ThreadPool.Names.SAME,
                 new FreeContextTransportHandler<>());
         transportService.registerRequestHandler(FREE_CONTEXT_ACTION_NAME, SearchFreeContextRequest::new, ThreadPool.Names.SAME,
                 new FreeContextTransportHandler<>());
         transportService.registerRequestHandler(CLEAR_SCROLL_CONTEXTS_ACTION_NAME, ClearScrollContextsRequest::new, ThreadPool.Names.SAME,
                 new ClearScrollContextsTransportHandler());
-        transportService.registerRequestHandler(DFS_ACTION_NAME, ShardSearchTransportRequest::new, ThreadPool.Names.SEARCH,
-                new SearchDfsTransportHandler());
-        transportService.registerRequestHandler(QUERY_ACTION_NAME, ShardSearchTransportRequest::new, ThreadPool.Names.SEARCH,
-                new SearchQueryTransportHandler());
+        // shard level requests fork to the executor of the shard, see SearchService#executorName
+        transportService.registerRequestHandler(DFS_ACTION_NAME, ShardSearchTransportRequest::new, ThreadPool.Names.SAME,
+                new ShardSearchForkingTransportHandler(new SearchDfsTransportHandler()));
+        transportService.registerRequestHandler(QUERY_ACTION_NAME, ShardSearchTransportRequest::new, ThreadPool.Names.SAME,
+                new ShardSearchForkingTransportHandler(new SearchQueryTransportHandler()));
         transportService.registerRequestHandler(QUERY_ID_ACTION_NAME, QuerySearchRequest::new, ThreadPool.Names.SEARCH,
                 new SearchQueryByIdTransportHandler());
         transportService.registerRequestHandler(QUERY_SCROLL_ACTION_NAME, InternalScrollSearchRequest::new, ThreadPool.Names.SEARCH,
                 new SearchQueryScrollTransportHandler());
-        transportService.registerRequestHandler(QUERY_FETCH_ACTION_NAME, ShardSearchTransportRequest::new, ThreadPool.Names.SEARCH,
-                new SearchQueryFetchTransportHandler());
+        transportService.registerRequestHandler(QUERY_FETCH_ACTION_NAME, ShardSearchTransportRequest::new, ThreadPool.Names.SAME,
+                new ShardSearchForkingTransportHandler(new SearchQueryFetchTransportHandler()));
         transportService.registerRequestHandler(QUERY_QUERY_FETCH_ACTION_NAME, QuerySearchRequest::new, ThreadPool.Names.SEARCH,
                 new SearchQueryQueryFetchTransportHandler());
         transportService.registerRequestHandler(QUERY_FETCH_SCROLL_ACTION_NAME, InternalScrollSearchRequest::new, ThreadPool.Names.SEARCH,
@@ -355,6 +360,37 @@ public class SearchTransportService extends AbstractComponent {
         }
     }
 
+    /**
+     * Executes a shard level search request on the thread pool that {@link SearchService#executorName} picks for the shard
+     */
+    class ShardSearchForkingTransportHandler implements TransportRequestHandler<ShardSearchTransportRequest> {
+
+        private final TransportRequestHandler<ShardSearchTransportRequest> handler;
+
+        ShardSearchForkingTransportHandler(TransportRequestHandler<ShardSearchTransportRequest> handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void messageReceived(ShardSearchTransportRequest request, TransportChannel channel) throws Exception {
+            threadPool.executor(searchService.executorName(request.shardId())).execute(new AbstractRunnable() {
+                @Override
+                protected void doRun() throws Exception {
+                    handler.messageReceived(request, channel);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    try {
+                        channel.sendResponse(t);
+                    } catch (Throwable e) {
+                        logger.warn("failed to send response for [{}]", e, request.shardId());
+                    }
+                }
+            });
+        }
+    }
+
     class SearchDfsTransportHandler implements TransportRequestHandler<ShardSearchTransportRequest> {
         @Override
         public void messageReceived(ShardSearchTransportRequest request, TransportChannel channel) throws Exception {
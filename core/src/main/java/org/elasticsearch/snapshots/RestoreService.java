@@ -63,9 +63,11 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.snapshots.IndexShardRepository;
+import org.elasticsearch.index.snapshots.blobstore.SnapshotIndexStore;
 import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.repositories.Repository;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -240,6 +242,14 @@ public class RestoreService extends AbstractComponent implements ClusterStateLis
                             String renamedIndexName = indexEntry.getKey();
                             IndexMetaData snapshotIndexMetaData = metaData.index(index);
                             snapshotIndexMetaData = updateIndexSettings(snapshotIndexMetaData, request.indexSettings, request.ignoreIndexSettings);
+                            final boolean mount = SnapshotIndexStore.isSnapshotStore(snapshotIndexMetaData.getSettings());
+                            if (mount) {
+                                if (SnapshotsService.isSnapshotBeingDeleted(currentState, snapshotId)) {
+                                    throw new ConcurrentSnapshotExecutionException(snapshotId,
+                                        "cannot mount index [" + index + "] while the snapshot is being deleted");
+                                }
+                                snapshotIndexMetaData = mountedIndexMetaData(snapshotIndexMetaData, index);
+                            }
                             try {
                                 snapshotIndexMetaData = metaDataIndexUpgradeService.upgradeIndexMetaData(snapshotIndexMetaData);
                             } catch (Exception ex) {
@@ -273,6 +283,10 @@ public class RestoreService extends AbstractComponent implements ClusterStateLis
                                 mdBuilder.put(updatedIndexMetaData, true);
                                 renamedIndex = updatedIndexMetaData.getIndex();
                             } else {
+                                if (mount) {
+                                    throw new SnapshotRestoreException(snapshotId,
+                                        "cannot mount index [" + index + "] as existing index [" + renamedIndexName + "]");
+                                }
                                 validateExistingIndex(currentIndexMetaData, snapshotIndexMetaData, renamedIndexName, partial);
                                 // Index exists and it's closed - open it in metadata and start recovery
                                 IndexMetaData.Builder indexMdBuilder = IndexMetaData.builder(snapshotIndexMetaData).state(IndexMetaData.State.OPEN);
@@ -426,6 +440,20 @@ public class RestoreService extends AbstractComponent implements ClusterStateLis
                     return builder.settings(Settings.builder().put(settingsMap)).build();
                 }
 
+                /**
+                 * Points the store of an index that is mounted instead of restored at the snapshot. Mounted indices are
+                 * frozen and have no replicas since their shards can't write any files.
+                 */
+                private IndexMetaData mountedIndexMetaData(IndexMetaData indexMetaData, String index) {
+                    return IndexMetaData.builder(indexMetaData).settings(Settings.builder().put(indexMetaData.getSettings())
+                        .put(SnapshotIndexStore.INDEX_STORE_SNAPSHOT_REPOSITORY_SETTING.getKey(), snapshotId.getRepository())
+                        .put(SnapshotIndexStore.INDEX_STORE_SNAPSHOT_SNAPSHOT_SETTING.getKey(), snapshotId.getSnapshot())
+                        .put(SnapshotIndexStore.INDEX_STORE_SNAPSHOT_INDEX_SETTING.getKey(), index)
+                        .put(IndexSettings.INDEX_FROZEN_SETTING.getKey(), true)
+                        .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+                        .put(IndexMetaData.SETTING_AUTO_EXPAND_REPLICAS, false)).build();
+                }
+
                 private void restoreGlobalStateIfRequested(MetaData.Builder mdBuilder) {
                     if (request.includeGlobalState()) {
                         if (metaData.persistentSettings() != null) {
@@ -854,6 +882,45 @@ public class RestoreService extends AbstractComponent implements ClusterStateLis
         return false;
     }
 
+    /**
+     * Returns the names of the indices that are mounted from the given snapshot
+     *
+     * @param clusterState cluster state
+     * @param snapshotId   snapshot id
+     * @return names of the indices whose store reads the files of the snapshot
+     */
+    public static Set<String> mountedIndices(ClusterState clusterState, SnapshotId snapshotId) {
+        Set<String> indices = new HashSet<>();
+        for (IndexMetaData indexMetaData : clusterState.metaData()) {
+            Settings indexSettings = indexMetaData.getSettings();
+            if (SnapshotIndexStore.isSnapshotStore(indexSettings)
+                && snapshotId.getRepository().equals(SnapshotIndexStore.INDEX_STORE_SNAPSHOT_REPOSITORY_SETTING.get(indexSettings))
+                && snapshotId.getSnapshot().equals(SnapshotIndexStore.INDEX_STORE_SNAPSHOT_SNAPSHOT_SETTING.get(indexSettings))) {
+                indices.add(indexMetaData.getIndex().getName());
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Returns the names of the indices that are mounted from any snapshot of the given repository
+     *
+     * @param clusterState cluster state
+     * @param repository   repository id
+     * @return names of the indices whose store reads the files of a snapshot in the repository
+     */
+    public static Set<String> mountedIndices(ClusterState clusterState, String repository) {
+        Set<String> indices = new HashSet<>();
+        for (IndexMetaData indexMetaData : clusterState.metaData()) {
+            Settings indexSettings = indexMetaData.getSettings();
+            if (SnapshotIndexStore.isSnapshotStore(indexSettings)
+                && repository.equals(SnapshotIndexStore.INDEX_STORE_SNAPSHOT_REPOSITORY_SETTING.get(indexSettings))) {
+                indices.add(indexMetaData.getIndex().getName());
+            }
+        }
+        return indices;
+    }
+
     /**
      * Restore snapshot request
      */
@@ -29,6 +29,7 @@ import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.ClusterStateListener;
 import org.elasticsearch.cluster.ClusterStateUpdateTask;
+import org.elasticsearch.cluster.SnapshotDeletionsInProgress;
 import org.elasticsearch.cluster.SnapshotsInProgress;
 import org.elasticsearch.cluster.SnapshotsInProgress.ShardSnapshotStatus;
 import org.elasticsearch.cluster.SnapshotsInProgress.State;
@@ -44,6 +45,7 @@ import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
 import org.elasticsearch.cluster.routing.RoutingTable;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.collect.Tuple;
@@ -202,6 +204,11 @@ public class SnapshotsService extends AbstractLifecycleComponent<SnapshotsServic
             public ClusterState execute(ClusterState currentState) {
                 validate(request, currentState);
 
+                SnapshotDeletionsInProgress deletions = currentState.custom(SnapshotDeletionsInProgress.TYPE);
+                if (deletions != null && deletions.entries().isEmpty() == false) {
+                    // the deletion might remove files of the repository that the new snapshot would reuse
+                    throw new ConcurrentSnapshotExecutionException(snapshotId, "cannot snapshot while a snapshot deletion is in-progress");
+                }
                 SnapshotsInProgress snapshots = currentState.custom(SnapshotsInProgress.TYPE);
                 if (snapshots == null || snapshots.entries().isEmpty()) {
                     // Store newSnapshot here to be processed in clusterStateProcessed
@@ -520,6 +527,9 @@ public class SnapshotsService extends AbstractLifecycleComponent<SnapshotsServic
     public void clusterChanged(ClusterChangedEvent event) {
         try {
             if (event.localNodeMaster()) {
+                if (event.previousState().nodes().localNodeMaster() == false) {
+                    finishSnapshotDeletionsFromPreviousMaster(event.state());
+                }
                 if (event.nodesRemoved()) {
                     processSnapshotsOnRemovedNodes(event);
                 }
@@ -977,11 +987,11 @@ public class SnapshotsService extends AbstractLifecycleComponent<SnapshotsServic
     }
 
     /**
-     * Checks if a repository is currently in use by one of the snapshots
+     * Checks if a repository is currently in use by one of the snapshots or snapshot deletions
      *
      * @param clusterState cluster state
      * @param repository   repository id
-     * @return true if repository is currently in use by one of the running snapshots
+     * @return true if repository is currently in use by one of the running snapshots or snapshot deletions
      */
     public static boolean isRepositoryInUse(ClusterState clusterState, String repository) {
         SnapshotsInProgress snapshots = clusterState.custom(SnapshotsInProgress.TYPE);
@@ -992,9 +1002,29 @@ public class SnapshotsService extends AbstractLifecycleComponent<SnapshotsServic
                 }
             }
         }
+        SnapshotDeletionsInProgress deletions = clusterState.custom(SnapshotDeletionsInProgress.TYPE);
+        if (deletions != null) {
+            for (SnapshotId snapshotId : deletions.entries()) {
+                if (repository.equals(snapshotId.getRepository())) {
+                    return true;
+                }
+            }
+        }
         return false;
     }
 
+    /**
+     * Checks if the given snapshot is currently being deleted from its repository
+     *
+     * @param clusterState cluster state
+     * @param snapshotId   snapshot id
+     * @return true if the snapshot is currently being deleted
+     */
+    public static boolean isSnapshotBeingDeleted(ClusterState clusterState, SnapshotId snapshotId) {
+        SnapshotDeletionsInProgress deletions = clusterState.custom(SnapshotDeletionsInProgress.TYPE);
+        return deletions != null && deletions.entries().contains(snapshotId);
+    }
+
     /**
      * Deletes snapshot from repository
      *
@@ -1002,20 +1032,107 @@ public class SnapshotsService extends AbstractLifecycleComponent<SnapshotsServic
      * @param listener   listener
      */
     private void deleteSnapshotFromRepository(final SnapshotId snapshotId, final DeleteSnapshotListener listener) {
+        clusterService.submitStateUpdateTask("start deleting snapshot", new ClusterStateUpdateTask() {
+            @Override
+            public ClusterState execute(ClusterState currentState) throws Exception {
+                SnapshotsInProgress snapshots = currentState.custom(SnapshotsInProgress.TYPE);
+                if (snapshots != null && snapshots.entries().isEmpty() == false) {
+                    throw new ConcurrentSnapshotExecutionException(snapshotId, "another snapshot is currently running cannot delete");
+                }
+                Set<String> mountedIndices = RestoreService.mountedIndices(currentState, snapshotId);
+                if (mountedIndices.isEmpty() == false) {
+                    throw new SnapshotException(snapshotId, "cannot delete snapshot that is mounted by indices " + mountedIndices);
+                }
+                SnapshotDeletionsInProgress deletions = currentState.custom(SnapshotDeletionsInProgress.TYPE);
+                deletions = deletions == null ? new SnapshotDeletionsInProgress(snapshotId) : deletions.withAddedEntry(snapshotId);
+                return ClusterState.builder(currentState).putCustom(SnapshotDeletionsInProgress.TYPE, deletions).build();
+            }
+
+            @Override
+            public void onFailure(String source, Throwable t) {
+                listener.onFailure(t);
+            }
+
+            @Override
+            public void clusterStateProcessed(String source, ClusterState oldState, ClusterState newState) {
+                runSnapshotDeletion(snapshotId, listener);
+            }
+        });
+    }
+
+    /**
+     * Deletes the snapshot from the repository and removes it from the snapshot deletions in progress once done
+     */
+    private void runSnapshotDeletion(final SnapshotId snapshotId, final DeleteSnapshotListener listener) {
         threadPool.executor(ThreadPool.Names.SNAPSHOT).execute(new Runnable() {
             @Override
             public void run() {
+                Throwable failure = null;
                 try {
                     Repository repository = repositoriesService.repository(snapshotId.getRepository());
                     repository.deleteSnapshot(snapshotId);
-                    listener.onResponse();
                 } catch (Throwable t) {
-                    listener.onFailure(t);
+                    failure = t;
+                }
+                removeSnapshotDeletionFromClusterState(snapshotId, failure, listener);
+            }
+        });
+    }
+
+    private void removeSnapshotDeletionFromClusterState(final SnapshotId snapshotId, @Nullable final Throwable failure,
+                                                        final DeleteSnapshotListener listener) {
+        clusterService.submitStateUpdateTask("remove snapshot deletion metadata", new ClusterStateUpdateTask() {
+            @Override
+            public ClusterState execute(ClusterState currentState) throws Exception {
+                SnapshotDeletionsInProgress deletions = currentState.custom(SnapshotDeletionsInProgress.TYPE);
+                if (deletions == null || deletions.entries().contains(snapshotId) == false) {
+                    return currentState;
+                }
+                return ClusterState.builder(currentState)
+                    .putCustom(SnapshotDeletionsInProgress.TYPE, deletions.withRemovedEntry(snapshotId)).build();
+            }
+
+            @Override
+            public void onFailure(String source, Throwable t) {
+                logger.warn("[{}] failed to remove snapshot deletion metadata", t, snapshotId);
+                listener.onFailure(failure != null ? failure : t);
+            }
+
+            @Override
+            public void clusterStateProcessed(String source, ClusterState oldState, ClusterState newState) {
+                if (failure != null) {
+                    listener.onFailure(failure);
+                } else {
+                    listener.onResponse();
                 }
             }
         });
     }
 
+    /**
+     * Deletes the snapshots again that a previous master didn't finish deleting, so new snapshots aren't blocked by them forever
+     */
+    private void finishSnapshotDeletionsFromPreviousMaster(ClusterState state) {
+        SnapshotDeletionsInProgress deletions = state.custom(SnapshotDeletionsInProgress.TYPE);
+        if (deletions == null) {
+            return;
+        }
+        for (final SnapshotId snapshotId : deletions.entries()) {
+            logger.debug("[{}] finishing deletion of snapshot started by the previous master", snapshotId);
+            runSnapshotDeletion(snapshotId, new DeleteSnapshotListener() {
+                @Override
+                public void onResponse() {
+                    logger.debug("[{}] finished deletion of snapshot started by the previous master", snapshotId);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    logger.warn("[{}] failed to finish deletion of snapshot started by the previous master", t, snapshotId);
+                }
+            });
+        }
+    }
+
     /**
      * Calculates the list of shards that should be included into the current snapshot
      *
@@ -0,0 +1,81 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.admin.cluster.state;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.service.SerializedClusterStateCache;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+/**
+ * Unit tests for the {@link ClusterStateResponse}.
+ */
+public class ClusterStateResponseTests extends ESTestCase {
+    public void testSerialization() throws Exception {
+        final ClusterName clusterName = new ClusterName("test");
+        final ClusterState state = ClusterState.builder(clusterName).version(randomIntBetween(1, 100)).build();
+        final SerializedClusterStateCache cache = new SerializedClusterStateCache();
+        int iterations = randomIntBetween(5, 20);
+        for (int i = 0; i < iterations; i++) {
+            ClusterStateResponse response = randomBoolean()
+                ? new ClusterStateResponse(clusterName, state)
+                : new ClusterStateResponse(clusterName, state, cache, state, "all");
+
+            Version testVersion = VersionUtils.randomVersion(random());
+            BytesStreamOutput output = new BytesStreamOutput();
+            output.setVersion(testVersion);
+            response.writeTo(output);
+
+            StreamInput streamInput = StreamInput.wrap(output.bytes());
+            streamInput.setVersion(testVersion);
+            ClusterStateResponse deserializedResponse = new ClusterStateResponse();
+            deserializedResponse.readFrom(streamInput);
+
+            assertThat(deserializedResponse.getClusterName(), equalTo(clusterName));
+            assertThat(deserializedResponse.getState().stateUUID(), equalTo(state.stateUUID()));
+            assertThat(deserializedResponse.getState().version(), equalTo(state.version()));
+        }
+    }
+
+    public void testOlderVersionsReadUncompressedState() throws Exception {
+        final ClusterName clusterName = new ClusterName("test");
+        final ClusterState state = ClusterState.builder(clusterName).version(randomIntBetween(1, 100)).build();
+        final Version oldVersion = VersionUtils.randomVersionBetween(random(), null,
+            VersionUtils.getPreviousVersion(Version.V_5_0_0_alpha1));
+
+        BytesStreamOutput output = new BytesStreamOutput();
+        output.setVersion(oldVersion);
+        new ClusterStateResponse(clusterName, state, new SerializedClusterStateCache(), state, "all").writeTo(output);
+
+        // this is how older nodes read the response
+        StreamInput streamInput = StreamInput.wrap(output.bytes());
+        streamInput.setVersion(oldVersion);
+        assertThat(ClusterName.readClusterName(streamInput), equalTo(clusterName));
+        ClusterState read = ClusterState.Builder.readFrom(streamInput, null);
+        assertThat(read.stateUUID(), equalTo(state.stateUUID()));
+        assertThat(read.version(), equalTo(state.version()));
+    }
+}
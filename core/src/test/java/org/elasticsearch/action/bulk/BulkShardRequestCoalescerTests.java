@@ -0,0 +1,214 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class BulkShardRequestCoalescerTests extends ESTestCase {
+
+    private static ThreadPool threadPool;
+
+    private final ShardId shardId = new ShardId("test", "_na_", 0);
+    private final List<Tuple<BulkShardRequest, ActionListener<BulkShardResponse>>> sent = new CopyOnWriteArrayList<>();
+    // the value of the "user" header of the thread context each request was sent in
+    private final List<String> sentUsers = new CopyOnWriteArrayList<>();
+
+    @BeforeClass
+    public static void createThreadPool() {
+        threadPool = new ThreadPool("BulkShardRequestCoalescerTests");
+    }
+
+    @AfterClass
+    public static void terminateThreadPool() {
+        ThreadPool.terminate(threadPool, 30, TimeUnit.SECONDS);
+        threadPool = null;
+    }
+
+    public void testDisabledByDefault() {
+        BulkShardRequestCoalescer coalescer = coalescer(Settings.EMPTY);
+        coalescer.execute(request(shardId, "1"), new PlainActionFuture<>());
+        coalescer.execute(request(shardId, "2"), new PlainActionFuture<>());
+        assertThat(sent.size(), equalTo(2));
+        assertThat(coalescer.pendingBatches(), equalTo(0));
+    }
+
+    public void testCoalescesUntilMaxSize() throws ExecutionException, InterruptedException {
+        // every request holds a single item of 52 bytes
+        BulkShardRequestCoalescer coalescer = coalescer(Settings.builder()
+            .put(BulkShardRequestCoalescer.COALESCE_WINDOW_SETTING.getKey(), "1h")
+            .put(BulkShardRequestCoalescer.COALESCE_MAX_SIZE_SETTING.getKey(), "150b").build());
+        PlainActionFuture<BulkShardResponse> first = new PlainActionFuture<>();
+        PlainActionFuture<BulkShardResponse> second = new PlainActionFuture<>();
+        PlainActionFuture<BulkShardResponse> third = new PlainActionFuture<>();
+        PlainActionFuture<BulkShardResponse> otherShard = new PlainActionFuture<>();
+        coalescer.execute(request(shardId, "1"), first);
+        coalescer.execute(request(shardId, "2"), second);
+        coalescer.execute(request(new ShardId("test", "_na_", 1), "3"), otherShard);
+        assertThat(sent.size(), equalTo(0));
+        assertThat(coalescer.pendingBatches(), equalTo(2));
+
+        coalescer.execute(request(shardId, "4"), third);
+        assertThat(sent.size(), equalTo(1));
+        assertThat(coalescer.pendingBatches(), equalTo(1));
+        BulkShardRequest coalesced = sent.get(0).v1();
+        assertThat(coalesced.shardId(), equalTo(shardId));
+        assertThat(coalesced.items().length, equalTo(3));
+        assertTrue(coalesced.isIndexingPressureAccounted());
+
+        respond(sent.get(0));
+        assertItemResponse(first.get(), "1");
+        assertItemResponse(second.get(), "2");
+        assertItemResponse(third.get(), "4");
+        assertFalse(otherShard.isDone());
+    }
+
+    public void testSendsAfterWindow() throws Exception {
+        BulkShardRequestCoalescer coalescer = coalescer(Settings.builder()
+            .put(BulkShardRequestCoalescer.COALESCE_WINDOW_SETTING.getKey(), "10ms").build());
+        PlainActionFuture<BulkShardResponse> first = new PlainActionFuture<>();
+        PlainActionFuture<BulkShardResponse> second = new PlainActionFuture<>();
+        coalescer.execute(request(shardId, "1"), first);
+        coalescer.execute(request(shardId, "2"), second);
+        assertBusy(() -> assertThat(sent.size(), equalTo(1)));
+        assertThat(coalescer.pendingBatches(), equalTo(0));
+        assertThat(sent.get(0).v1().items().length, equalTo(2));
+
+        sent.get(0).v2().onFailure(new IllegalStateException("simulated"));
+        expectThrows(ExecutionException.class, first::get);
+        expectThrows(ExecutionException.class, second::get);
+    }
+
+    public void testOnlyCoalescesRequestsWithSameRefreshPolicy() {
+        BulkShardRequestCoalescer coalescer = coalescer(Settings.builder()
+            .put(BulkShardRequestCoalescer.COALESCE_WINDOW_SETTING.getKey(), "1h").build());
+        coalescer.execute(request(shardId, "1"), new PlainActionFuture<>());
+        coalescer.execute(new BulkShardRequest(null, shardId, true, false, new BulkItemRequest[] {item(0, "2")}),
+            new PlainActionFuture<>());
+        assertThat(coalescer.pendingBatches(), equalTo(2));
+    }
+
+    public void testOnlyCoalescesRequestsWithSameThreadContext() {
+        BulkShardRequestCoalescer coalescer = coalescer(Settings.builder()
+            .put(BulkShardRequestCoalescer.COALESCE_WINDOW_SETTING.getKey(), "1h").build());
+        ThreadContext threadContext = threadPool.getThreadContext();
+        try (ThreadContext.StoredContext ignore = threadContext.stashContext()) {
+            threadContext.putHeader("user", "alice");
+            coalescer.execute(request(shardId, "1"), new PlainActionFuture<>());
+        }
+        try (ThreadContext.StoredContext ignore = threadContext.stashContext()) {
+            threadContext.putHeader("user", "bob");
+            coalescer.execute(request(shardId, "2"), new PlainActionFuture<>());
+        }
+        try (ThreadContext.StoredContext ignore = threadContext.stashContext()) {
+            threadContext.putHeader("user", "alice");
+            threadContext.putTransient("authentication", new Object());
+            coalescer.execute(request(shardId, "3"), new PlainActionFuture<>());
+        }
+        assertThat(coalescer.pendingBatches(), equalTo(3));
+    }
+
+    public void testRestoresThreadContext() throws Exception {
+        BulkShardRequestCoalescer coalescer = coalescer(Settings.builder()
+            .put(BulkShardRequestCoalescer.COALESCE_WINDOW_SETTING.getKey(), "10ms").build());
+        ThreadContext threadContext = threadPool.getThreadContext();
+        List<String> listenerUsers = new CopyOnWriteArrayList<>();
+        ActionListener<BulkShardResponse> listener = new ActionListener<BulkShardResponse>() {
+            @Override
+            public void onResponse(BulkShardResponse response) {
+                listenerUsers.add(threadContext.getHeader("user"));
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                throw new AssertionError(e);
+            }
+        };
+        try (ThreadContext.StoredContext ignore = threadContext.stashContext()) {
+            threadContext.putHeader("user", "alice");
+            coalescer.execute(request(shardId, "1"), listener);
+            coalescer.execute(request(shardId, "2"), listener);
+        }
+        // the batch is sent from the scheduler thread, but in the context of its requests
+        assertBusy(() -> assertThat(sent.size(), equalTo(1)));
+        assertThat(sentUsers, equalTo(Collections.singletonList("alice")));
+
+        try (ThreadContext.StoredContext ignore = threadContext.stashContext()) {
+            threadContext.putHeader("user", "bob");
+            respond(sent.get(0));
+            assertThat(threadContext.getHeader("user"), equalTo("bob"));
+        }
+        assertThat(listenerUsers, equalTo(Arrays.asList("alice", "alice")));
+    }
+
+    private BulkShardRequestCoalescer coalescer(Settings settings) {
+        return new BulkShardRequestCoalescer(settings, new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS),
+            threadPool, (request, listener) -> {
+                sentUsers.add(String.valueOf(threadPool.getThreadContext().getHeader("user")));
+                sent.add(new Tuple<>(request, listener));
+            });
+    }
+
+    private static BulkShardRequest request(ShardId shardId, String id) {
+        // use an item id that differs from the position in the coalesced request
+        return new BulkShardRequest(null, shardId, false, false, new BulkItemRequest[] {item(5, id)});
+    }
+
+    private static BulkItemRequest item(int itemId, String id) {
+        return new BulkItemRequest(itemId, new IndexRequest("test", "type", id).source("{}"));
+    }
+
+    private static void respond(Tuple<BulkShardRequest, ActionListener<BulkShardResponse>> sentRequest) {
+        BulkItemRequest[] items = sentRequest.v1().items();
+        BulkItemResponse[] responses = new BulkItemResponse[items.length];
+        for (int i = 0; i < items.length; i++) {
+            IndexRequest indexRequest = (IndexRequest) items[i].request();
+            responses[i] = new BulkItemResponse(items[i].id(), "index",
+                new IndexResponse(sentRequest.v1().shardId(), indexRequest.type(), indexRequest.id(), 1, true));
+        }
+        sentRequest.v2().onResponse(new BulkShardResponse(sentRequest.v1().shardId(), responses));
+    }
+
+    private static void assertItemResponse(BulkShardResponse response, String id) {
+        assertThat(response.getResponses().length, equalTo(1));
+        assertThat(response.getResponses()[0].getItemId(), equalTo(5));
+        assertThat(response.getResponses()[0].getId(), equalTo(id));
+    }
+}
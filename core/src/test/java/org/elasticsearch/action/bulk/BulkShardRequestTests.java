@@ -19,6 +19,10 @@
 
 package org.elasticsearch.action.bulk;
 
+import org.elasticsearch.action.WriteConsistencyLevel;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.test.ESTestCase;
 
@@ -28,9 +32,38 @@ public class BulkShardRequestTests extends ESTestCase {
     public void testToString() {
         String index = randomSimpleString(getRandom(), 10);
         int count = between(1, 100);
-        BulkShardRequest r = new BulkShardRequest(null, new ShardId(index, "ignored", 0), false, new BulkItemRequest[count]);
+        BulkShardRequest r = new BulkShardRequest(null, new ShardId(index, "ignored", 0), false, false, new BulkItemRequest[count]);
         assertEquals("BulkShardRequest to [" + index + "] containing [" + count + "] requests", r.toString());
-        r = new BulkShardRequest(null, new ShardId(index, "ignored", 0), true, new BulkItemRequest[count]);
+        r = new BulkShardRequest(null, new ShardId(index, "ignored", 0), true, false, new BulkItemRequest[count]);
         assertEquals("BulkShardRequest to [" + index + "] containing [" + count + "] requests and a refresh", r.toString());
+        r = new BulkShardRequest(null, new ShardId(index, "ignored", 0), false, true, new BulkItemRequest[count]);
+        assertEquals("BulkShardRequest to [" + index + "] containing [" + count + "] requests and waits for a refresh", r.toString());
+    }
+
+    public void testCopyForReplicas() {
+        String index = randomSimpleString(getRandom(), 10);
+        BulkItemRequest[] items = new BulkItemRequest[between(1, 10)];
+        for (int i = 0; i < items.length; i++) {
+            String id = "id" + i;
+            items[i] = new BulkItemRequest(i, randomBoolean() ? new IndexRequest(index, "type", id) : new DeleteRequest(index, "type", id));
+        }
+        BulkShardRequest request = new BulkShardRequest(null, new ShardId(index, "ignored", 0), randomBoolean(), false, items);
+        request.timeout(TimeValue.timeValueSeconds(between(1, 100)));
+        request.consistencyLevel(randomFrom(WriteConsistencyLevel.values()));
+        request.setParentTask("node", randomIntBetween(1, 100));
+
+        BulkShardRequest copy = request.copyForReplicas();
+        assertEquals(request.shardId(), copy.shardId());
+        assertEquals(request.refresh(), copy.refresh());
+        assertEquals(request.timeout(), copy.timeout());
+        assertEquals(request.consistencyLevel(), copy.consistencyLevel());
+        assertEquals(request.getParentTask(), copy.getParentTask());
+        assertEquals(items.length, copy.items().length);
+        for (int i = 0; i < items.length; i++) {
+            assertNotSame(items[i], copy.items()[i]);
+            assertSame(items[i].request(), copy.items()[i].request());
+            items[i].setIgnoreOnReplica();
+            assertFalse("ignoring an item of the primary request must not affect the copy", copy.items()[i].isIgnoreOnReplica());
+        }
     }
 }
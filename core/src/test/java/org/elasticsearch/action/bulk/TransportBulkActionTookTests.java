@@ -33,8 +33,10 @@ import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.metadata.MetaDataCreateIndexService;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.index.IndexingPressure;
 import org.elasticsearch.tasks.Task;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.transport.CapturingTransport;
@@ -80,6 +82,8 @@ public class TransportBulkActionTookTests extends ESTestCase {
         transportService.acceptIncomingRequests();
         IndexNameExpressionResolver resolver = new Resolver(Settings.EMPTY);
         ActionFilters actionFilters = new ActionFilters(new HashSet<>());
+        IndexingPressure indexingPressure =
+            new IndexingPressure(Settings.EMPTY, new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
 
         TransportCreateIndexAction createIndexAction = new TransportCreateIndexAction(
                 Settings.EMPTY,
@@ -102,6 +106,7 @@ public class TransportBulkActionTookTests extends ESTestCase {
                     actionFilters,
                     resolver,
                     null,
+                    indexingPressure,
                     expected::get) {
                 @Override
                 public void executeBulk(BulkRequest bulkRequest, ActionListener<BulkResponse> listener) {
@@ -130,6 +135,7 @@ public class TransportBulkActionTookTests extends ESTestCase {
                     actionFilters,
                     resolver,
                     null,
+                    indexingPressure,
                     System::nanoTime) {
                 @Override
                 public void executeBulk(BulkRequest bulkRequest, ActionListener<BulkResponse> listener) {
@@ -216,6 +222,7 @@ public class TransportBulkActionTookTests extends ESTestCase {
                 ActionFilters actionFilters,
                 IndexNameExpressionResolver indexNameExpressionResolver,
                 AutoCreateIndex autoCreateIndex,
+                IndexingPressure indexingPressure,
                 LongSupplier relativeTimeProvider) {
             super(
                     settings,
@@ -227,6 +234,7 @@ public class TransportBulkActionTookTests extends ESTestCase {
                     actionFilters,
                     indexNameExpressionResolver,
                     autoCreateIndex,
+                    indexingPressure,
                     relativeTimeProvider);
         }
 
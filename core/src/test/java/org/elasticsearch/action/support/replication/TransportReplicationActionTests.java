@@ -492,6 +492,83 @@ public class TransportReplicationActionTests extends ESTestCase {
         assertPhase(task, "finished");
     }
 
+    public void testReplicationInParallelWithPrimary() throws ExecutionException, InterruptedException {
+        final String index = "test";
+        final ShardId shardId = new ShardId(index, "_na_", 0);
+        setState(clusterService, state(index, true, ShardRoutingState.STARTED, ShardRoutingState.STARTED));
+        ReplicationTask task = maybeTask();
+
+        final Action parallelAction = new Action(Settings.EMPTY, "testAction", transportService, clusterService, threadPool) {
+            @Override
+            protected Request replicaRequestForParallelReplication(Request request) {
+                return request;
+            }
+
+            @Override
+            protected Tuple<Response, Request> shardOperationOnPrimary(MetaData metaData, Request shardRequest) throws Exception {
+                assertThat("replica request was not sent before the primary operation", transport.capturedRequests(), arrayWithSize(1));
+                return super.shardOperationOnPrimary(metaData, shardRequest);
+            }
+        };
+
+        Request request = new Request(shardId);
+        PlainActionFuture<Response> listener = new PlainActionFuture<>();
+        parallelAction.new PrimaryPhase(task, request, createTransportChannel(listener)).run();
+        assertThat("request was not processed on primary", request.processedOnPrimary.get(), equalTo(true));
+        assertThat("listener is done, but the replica is outstanding", listener.isDone(), equalTo(false));
+        assertIndexShardCounter(2);
+
+        CapturingTransport.CapturedRequest[] capturedRequests = transport.getCapturedRequestsAndClear();
+        assertThat(capturedRequests, arrayWithSize(1));
+        assertThat(capturedRequests[0].action, equalTo("testAction[r]"));
+        transport.handleResponse(capturedRequests[0].requestId, TransportResponse.Empty.INSTANCE);
+        assertThat(listener.isDone(), equalTo(true));
+        ReplicationResponse.ShardInfo shardInfo = listener.get().getShardInfo();
+        assertThat(shardInfo.getTotal(), equalTo(2));
+        assertThat(shardInfo.getSuccessful(), equalTo(2));
+        assertIndexShardCounter(1);
+        assertPhase(task, "finished");
+    }
+
+    public void testPrimaryFailureWhileReplicatingInParallel() throws InterruptedException {
+        final String index = "test";
+        final ShardId shardId = new ShardId(index, "_na_", 0);
+        setState(clusterService, state(index, true, ShardRoutingState.STARTED, ShardRoutingState.STARTED));
+        ReplicationTask task = maybeTask();
+
+        final Action parallelAction = new Action(Settings.EMPTY, "testAction", transportService, clusterService, threadPool) {
+            @Override
+            protected Request replicaRequestForParallelReplication(Request request) {
+                return request;
+            }
+
+            @Override
+            protected Tuple<Response, Request> shardOperationOnPrimary(MetaData metaData, Request shardRequest) throws Exception {
+                throw new ElasticsearchException("simulated");
+            }
+        };
+
+        Request request = new Request(shardId);
+        PlainActionFuture<Response> listener = new PlainActionFuture<>();
+        parallelAction.new PrimaryPhase(task, request, createTransportChannel(listener)).run();
+        // the failure is returned right away without waiting for the replica
+        assertThat(listener.isDone(), equalTo(true));
+        try {
+            listener.get();
+            fail("primary failure should fail the request");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause().getMessage(), containsString("simulated"));
+        }
+        assertIndexShardCounter(1);
+        assertPhase(task, "failed");
+
+        // a late replica response is ignored
+        CapturingTransport.CapturedRequest[] capturedRequests = transport.getCapturedRequestsAndClear();
+        assertThat(capturedRequests, arrayWithSize(1));
+        transport.handleResponse(capturedRequests[0].requestId, TransportResponse.Empty.INSTANCE);
+        assertPhase(task, "failed");
+    }
+
     public void testWriteConsistency() throws ExecutionException, InterruptedException {
         action = new ActionWithConsistency(Settings.EMPTY, "testActionWithConsistency", transportService, clusterService, threadPool);
         final String index = "test";
@@ -0,0 +1,174 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.action.index;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.ClusterStateUpdateTask;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.Mapping;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class MappingUpdatedActionTests extends ESSingleNodeTestCase {
+
+    public void testConcurrentUpdatesAreAllApplied() throws Exception {
+        final IndexService indexService = createIndex("test", client().admin().indices().prepareCreate("test")
+            .addMapping("type", "existing", "type=keyword"));
+        final DocumentMapper mapper = indexService.mapperService().documentMapper("type");
+        final MappingUpdatedAction action = getInstanceFromNode(MappingUpdatedAction.class);
+
+        final int numUpdates = randomIntBetween(2, 20);
+        final List<Mapping> updates = new ArrayList<>();
+        for (int i = 0; i < numUpdates; i++) {
+            Mapping update = mapper.parse("test", "type", Integer.toString(i),
+                jsonBuilder().startObject().field("field_" + i, "value").endObject().bytes()).dynamicMappingsUpdate();
+            assertThat(update, notNullValue());
+            updates.add(update);
+        }
+
+        final CyclicBarrier barrier = new CyclicBarrier(numUpdates);
+        final List<Throwable> failures = new CopyOnWriteArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (Mapping update : updates) {
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    action.updateMappingOnMaster(indexService.index(), "type", update);
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(failures, empty());
+
+        final DocumentMapper updatedMapper = indexService.mapperService().documentMapper("type");
+        assertThat(updatedMapper.mappers().getMapper("existing"), notNullValue());
+        for (int i = 0; i < numUpdates; i++) {
+            assertThat(updatedMapper.mappers().getMapper("field_" + i), notNullValue());
+        }
+    }
+
+    public void testMergedUpdateFailureRetriesEachUpdate() throws Exception {
+        // objects are mapped as nested fields, at most two of them are allowed
+        final IndexService indexService = createIndex("test", client().admin().indices().prepareCreate("test")
+            .setSettings(Settings.builder().put(MapperService.INDEX_MAPPING_NESTED_FIELDS_LIMIT_SETTING.getKey(), 2))
+            .addMapping("type", jsonBuilder().startObject().startObject("type").startArray("dynamic_templates")
+                .startObject().startObject("nested")
+                    .field("match_mapping_type", "object")
+                    .startObject("mapping").field("type", "nested").endObject()
+                .endObject().endObject()
+            .endArray().endObject().endObject()));
+        final DocumentMapper mapper = indexService.mapperService().documentMapper("type");
+        final MappingUpdatedAction action = getInstanceFromNode(MappingUpdatedAction.class);
+        final ClusterService clusterService = getInstanceFromNode(ClusterService.class);
+
+        final Mapping first = mapper.parse("test", "type", "0", jsonBuilder().startObject()
+            .startObject("n0").field("f", 1).endObject()
+            .endObject().bytes()).dynamicMappingsUpdate();
+        final Mapping owner = mapper.parse("test", "type", "1", jsonBuilder().startObject()
+            .startObject("n1").field("f", 1).endObject()
+            .endObject().bytes()).dynamicMappingsUpdate();
+        final Mapping tooLarge = mapper.parse("test", "type", "2", jsonBuilder().startObject()
+            .startObject("n2a").field("f", 1).endObject()
+            .startObject("n2b").field("f", 1).endObject()
+            .endObject().bytes()).dynamicMappingsUpdate();
+
+        logger.info("--> block the master so that updates queue up behind the first one");
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch unblock = new CountDownLatch(1);
+        clusterService.submitStateUpdateTask("block", new ClusterStateUpdateTask() {
+            @Override
+            public ClusterState execute(ClusterState currentState) throws Exception {
+                blocked.countDown();
+                unblock.await();
+                return currentState;
+            }
+
+            @Override
+            public void onFailure(String source, Throwable t) {
+                logger.warn("failed to block the master", t);
+            }
+        });
+        blocked.await();
+
+        final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        final AtomicReference<Throwable> ownerFailure = new AtomicReference<>();
+        final AtomicReference<Throwable> tooLargeFailure = new AtomicReference<>();
+        final Thread firstThread = updateInThread(action, indexService, first, firstFailure);
+        assertBusy(() -> assertThat(clusterService.numberOfPendingTasks(), greaterThanOrEqualTo(1)));
+        final Thread ownerThread = updateInThread(action, indexService, owner, ownerFailure);
+        assertBusy(() -> assertThat(action.queuedUpdateSize(indexService.index(), "type"), equalTo(1)));
+        final Thread tooLargeThread = updateInThread(action, indexService, tooLarge, tooLargeFailure);
+        assertBusy(() -> assertThat(action.queuedUpdateSize(indexService.index(), "type"), equalTo(2)));
+
+        logger.info("--> the merged update exceeds the limit and fails, the update of its owner fits and is retried");
+        unblock.countDown();
+        firstThread.join();
+        ownerThread.join();
+        tooLargeThread.join();
+        assertThat(firstFailure.get(), nullValue());
+        assertThat(ownerFailure.get(), nullValue());
+        assertThat(tooLargeFailure.get(), notNullValue());
+        assertThat(ExceptionsHelper.stackTrace(tooLargeFailure.get()), containsString("Limit of nested fields"));
+
+        final DocumentMapper updatedMapper = indexService.mapperService().documentMapper("type");
+        assertThat(updatedMapper.objectMappers().get("n0"), notNullValue());
+        assertThat(updatedMapper.objectMappers().get("n1"), notNullValue());
+        assertThat(updatedMapper.objectMappers().get("n2a"), nullValue());
+        assertThat(updatedMapper.objectMappers().get("n2b"), nullValue());
+    }
+
+    private Thread updateInThread(MappingUpdatedAction action, IndexService indexService, Mapping update,
+                                  AtomicReference<Throwable> failure) {
+        Thread thread = new Thread(() -> {
+            try {
+                action.updateMappingOnMaster(indexService.index(), "type", update);
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+}
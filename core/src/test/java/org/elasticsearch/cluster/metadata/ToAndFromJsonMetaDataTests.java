@@ -20,6 +20,8 @@
 package org.elasticsearch.cluster.metadata;
 
 import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.test.ESTestCase;
@@ -307,6 +309,34 @@ public class ToAndFromJsonMetaDataTests extends ESTestCase {
         assertThat(parsedMetaData.templates().get("foo").aliases().get("alias-bar3").searchRouting(), equalTo("routing-bar"));
     }
 
+    public void testMappingSourcesAreInterned() throws IOException {
+        MetaData metaData = MetaData.builder()
+                .put(IndexMetaData.builder("test1")
+                        .settings(settings(Version.CURRENT))
+                        .numberOfShards(1)
+                        .numberOfReplicas(0)
+                        .putMapping("mapping1", MAPPING_SOURCE1))
+                .put(IndexMetaData.builder("test2")
+                        .settings(settings(Version.CURRENT))
+                        .numberOfShards(1)
+                        .numberOfReplicas(0)
+                        .putMapping("mapping1", MAPPING_SOURCE1))
+                .build();
+
+        // mappings loaded from disk
+        String metaDataSource = MetaData.Builder.toXContent(metaData);
+        MetaData parsedMetaData = MetaData.Builder.fromXContent(XContentFactory.xContent(XContentType.JSON).createParser(metaDataSource));
+        assertSame(parsedMetaData.index("test1").mapping("mapping1").source(), parsedMetaData.index("test2").mapping("mapping1").source());
+
+        // mappings received from the master
+        BytesStreamOutput out = new BytesStreamOutput();
+        metaData.writeTo(out);
+        MetaData readMetaData = MetaData.Builder.readFrom(StreamInput.wrap(out.bytes()));
+        assertSame(readMetaData.index("test1").mapping("mapping1").source(), readMetaData.index("test2").mapping("mapping1").source());
+        assertSame(readMetaData.index("test1").mapping("mapping1").source(),
+            parsedMetaData.index("test1").mapping("mapping1").source());
+    }
+
     private static final String MAPPING_SOURCE1 = "{\"mapping1\":{\"text1\":{\"type\":\"string\"}}}";
     private static final String MAPPING_SOURCE2 = "{\"mapping2\":{\"text2\":{\"type\":\"string\"}}}";
     private static final String ALIAS_FILTER1 = "{\"field1\":\"value1\"}";
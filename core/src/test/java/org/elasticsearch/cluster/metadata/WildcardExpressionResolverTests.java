@@ -121,6 +121,31 @@ public class WildcardExpressionResolverTests extends ESTestCase {
         assertThat(newHashSet(resolver.resolve(context, Arrays.asList("_all"))), equalTo(newHashSet("testXXX", "testXYY", "testYYY")));
     }
 
+    public void testExpansionsFollowMetaDataChanges() {
+        MetaData.Builder mdBuilder = MetaData.builder()
+            .put(indexBuilder("testXXX"))
+            .put(indexBuilder("testXYY"))
+            .put(indexBuilder("kuku"))
+            .version(1);
+        ClusterState state = ClusterState.builder(new ClusterName("_name")).metaData(mdBuilder).build();
+        ClusterState newState = ClusterState.builder(state)
+            .metaData(MetaData.builder(state.metaData()).put(indexBuilder("testZZX")).version(2)).build();
+        IndexNameExpressionResolver.WildcardExpressionResolver resolver = new IndexNameExpressionResolver.WildcardExpressionResolver();
+
+        IndexNameExpressionResolver.Context context = new IndexNameExpressionResolver.Context(state, IndicesOptions.lenientExpandOpen());
+        IndexNameExpressionResolver.Context newContext = new IndexNameExpressionResolver.Context(newState, IndicesOptions.lenientExpandOpen());
+        for (int i = 0; i < 2; i++) {
+            assertThat(newHashSet(resolver.resolve(context, Arrays.asList("test*X"))), equalTo(newHashSet("testXXX")));
+            assertThat(newHashSet(resolver.resolve(context, Arrays.asList("*X*", "-*Y"))), equalTo(newHashSet("testXXX")));
+        }
+        for (int i = 0; i < 2; i++) {
+            assertThat(newHashSet(resolver.resolve(newContext, Arrays.asList("test*X"))), equalTo(newHashSet("testXXX", "testZZX")));
+            assertThat(newHashSet(resolver.resolve(newContext, Arrays.asList("*X*", "-*Y"))), equalTo(newHashSet("testXXX")));
+            // late requests against the older meta data still see the older indices
+            assertThat(newHashSet(resolver.resolve(context, Arrays.asList("test*X"))), equalTo(newHashSet("testXXX")));
+        }
+    }
+
     private IndexMetaData.Builder indexBuilder(String index) {
         return IndexMetaData.builder(index).settings(settings(Version.CURRENT).put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1).put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0));
     }
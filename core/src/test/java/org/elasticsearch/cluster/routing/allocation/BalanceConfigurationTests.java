@@ -35,7 +35,11 @@ import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.ShardRoutingState;
 import org.elasticsearch.cluster.routing.allocation.allocator.BalancedShardsAllocator;
 import org.elasticsearch.cluster.routing.allocation.allocator.ShardsAllocator;
+import org.elasticsearch.cluster.routing.allocation.decider.AllocationDecider;
+import org.elasticsearch.cluster.routing.allocation.decider.AllocationDeciders;
 import org.elasticsearch.cluster.routing.allocation.decider.ClusterRebalanceAllocationDecider;
+import org.elasticsearch.cluster.routing.allocation.decider.Decision;
+import org.elasticsearch.cluster.routing.allocation.decider.SameShardAllocationDecider;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.ClusterSettings;
@@ -44,6 +48,8 @@ import org.elasticsearch.test.ESAllocationTestCase;
 import org.elasticsearch.test.gateway.NoopGatewayAllocator;
 import org.hamcrest.Matchers;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.elasticsearch.cluster.routing.ShardRoutingState.INITIALIZING;
 import static org.elasticsearch.cluster.routing.ShardRoutingState.STARTED;
 import static org.elasticsearch.common.settings.Settings.settingsBuilder;
@@ -444,4 +450,54 @@ public class BalanceConfigurationTests extends ESAllocationTestCase {
 
     }
 
+    public void testBalancedIndicesSkipDeciders() {
+        final AtomicInteger indexDecisions = new AtomicInteger();
+        Settings settings = settingsBuilder()
+            .put(ClusterRebalanceAllocationDecider.CLUSTER_ROUTING_ALLOCATION_ALLOW_REBALANCE_SETTING.getKey(),
+                ClusterRebalanceAllocationDecider.ClusterRebalanceType.ALWAYS.toString()).build();
+        AllocationDeciders deciders = new AllocationDeciders(settings, new AllocationDecider[] {
+            new SameShardAllocationDecider(settings),
+            new AllocationDecider(settings) {
+                @Override
+                public Decision canAllocate(IndexMetaData indexMetaData, RoutingNode node, RoutingAllocation allocation) {
+                    indexDecisions.incrementAndGet();
+                    return Decision.YES;
+                }
+            }
+        });
+        AllocationService strategy = new AllocationService(settings, deciders, NoopGatewayAllocator.INSTANCE,
+            new BalancedShardsAllocator(settings), EmptyClusterInfoService.INSTANCE);
+
+        // every index has exactly one shard per node once the cluster is balanced
+        final int numNodes = 4;
+        MetaData.Builder metaDataBuilder = MetaData.builder();
+        for (int i = 0; i < 4; i++) {
+            metaDataBuilder.put(IndexMetaData.builder("test" + i).settings(settings(Version.CURRENT)).numberOfShards(numNodes).numberOfReplicas(0));
+        }
+        MetaData metaData = metaDataBuilder.build();
+        RoutingTable.Builder routingTableBuilder = RoutingTable.builder();
+        for (ObjectCursor<IndexMetaData> cursor : metaData.indices().values()) {
+            routingTableBuilder.addAsNew(cursor.value);
+        }
+        DiscoveryNodes.Builder nodes = DiscoveryNodes.builder();
+        for (int i = 0; i < numNodes; i++) {
+            nodes.put(newNode("node" + i));
+        }
+        ClusterState clusterState = ClusterState.builder(org.elasticsearch.cluster.ClusterName.DEFAULT).nodes(nodes)
+            .metaData(metaData).routingTable(routingTableBuilder.build()).build();
+        RoutingTable routingTable = strategy.reroute(clusterState, "reroute").routingTable();
+        clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+        routingTable = strategy.applyStartedShards(clusterState, clusterState.getRoutingNodes().shardsWithState(INITIALIZING)).routingTable();
+        clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+        for (RoutingNode routingNode : clusterState.getRoutingNodes()) {
+            assertThat(routingNode.size(), Matchers.equalTo(4));
+            assertThat(routingNode.shardsWithState(STARTED).size(), Matchers.equalTo(4));
+        }
+
+        indexDecisions.set(0);
+        RoutingAllocation.Result result = strategy.reroute(clusterState, "reroute");
+        assertFalse(result.changed());
+        assertThat("balanced indices must not be checked against the deciders", indexDecisions.get(), Matchers.equalTo(0));
+    }
+
 }
@@ -0,0 +1,67 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.service;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class SerializedClusterStateCacheTests extends ESTestCase {
+
+    public void testSerializesOncePerVariantAndVersion() throws Exception {
+        final SerializedClusterStateCache cache = new SerializedClusterStateCache();
+        final ClusterState state = ClusterState.builder(new ClusterName("test")).version(randomIntBetween(1, 100)).build();
+
+        BytesReference bytes = cache.serialize(state, "all", Version.CURRENT, state);
+        assertThat(cache.serialize(state, "all", Version.CURRENT, state), sameInstance(bytes));
+        assertThat(cache.serialize(state, "other", Version.CURRENT, state), not(sameInstance(bytes)));
+        Version otherVersion = randomValueOtherThan(Version.CURRENT, () -> VersionUtils.randomVersion(random()));
+        assertThat(cache.serialize(state, "all", otherVersion, state), not(sameInstance(bytes)));
+
+        try (StreamInput in = SerializedClusterStateCache.decompress(bytes, Version.CURRENT)) {
+            ClusterState read = ClusterState.Builder.readFrom(in, null);
+            assertThat(read.stateUUID(), equalTo(state.stateUUID()));
+            assertThat(read.version(), equalTo(state.version()));
+        }
+    }
+
+    public void testNewerStateEvictsOlderState() throws Exception {
+        final SerializedClusterStateCache cache = new SerializedClusterStateCache();
+        final ClusterState state = ClusterState.builder(new ClusterName("test")).version(randomIntBetween(1, 100)).build();
+        final ClusterState newerState = ClusterState.builder(state).incrementVersion().build();
+
+        BytesReference bytes = cache.serialize(state, "all", Version.CURRENT, state);
+        BytesReference newerBytes = cache.serialize(newerState, "all", Version.CURRENT, newerState);
+        assertThat(newerBytes, not(sameInstance(bytes)));
+        assertThat(cache.serialize(newerState, "all", Version.CURRENT, newerState), sameInstance(newerBytes));
+
+        // a late request for the older state is served but doesn't evict the newer state
+        assertThat(cache.serialize(state, "all", Version.CURRENT, state), not(sameInstance(bytes)));
+        assertThat(cache.serialize(newerState, "all", Version.CURRENT, newerState), sameInstance(newerBytes));
+    }
+}
@@ -28,6 +28,7 @@ import org.junit.Assert;
 
 import java.io.IOException;
 import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.not;
@@ -113,6 +114,46 @@ public abstract class AbstractCompressedXContentTestCase extends ESTestCase {
         assertEquals(new CompressedXContent(b1), new CompressedXContent(b2));
     }
 
+    public void testIntern() throws IOException {
+        final CompressedXContentInterner interner = new CompressedXContentInterner();
+        final String json = "{\"" + randomAsciiOfLength(10) + "\":{\"properties\":{}}}";
+        CompressedXContent first = interner.intern(new CompressedXContent(json));
+        CompressedXContent second = new CompressedXContent(json);
+        assertNotSame(first, second);
+        assertSame(first, interner.intern(second));
+        CompressedXContent other = new CompressedXContent("{\"" + randomAsciiOfLength(11) + "\":{}}");
+        assertSame(other, interner.intern(other));
+        // interners don't share canonical instances
+        assertSame(second, new CompressedXContentInterner().intern(second));
+    }
+
+    public void testConcurrentIntern() throws Exception {
+        final CompressedXContentInterner interner = new CompressedXContentInterner();
+        final String json = "{\"" + randomAsciiOfLength(10) + "\":{\"properties\":{}}}";
+        final CompressedXContent[] interned = new CompressedXContent[randomIntBetween(2, 8)];
+        final Thread[] threads = new Thread[interned.length];
+        final CyclicBarrier barrier = new CyclicBarrier(threads.length);
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    final CompressedXContent xcontent = new CompressedXContent(json);
+                    barrier.await();
+                    interned[index] = interner.intern(xcontent);
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (CompressedXContent xcontent : interned) {
+            assertSame(interned[0], xcontent);
+        }
+    }
+
     public void testHashCode() throws IOException {
         assertFalse(new CompressedXContent("{\"a\":\"b\"}").hashCode() == new CompressedXContent("{\"a\":\"c\"}").hashCode());
     }
@@ -0,0 +1,71 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.gateway;
+
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.gateway.TransportNodesListGatewayStartedShards.NodeGatewayStartedShards;
+import org.elasticsearch.gateway.TransportNodesListGatewayStartedShards.NodesGatewayStartedShards;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class TransportNodesShardFetchActionTests extends ESSingleNodeTestCase {
+
+    public void testBatchedFetch() throws Exception {
+        final int numShards = randomIntBetween(1, 5);
+        createIndex("test", Settings.builder()
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, numShards)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0).build());
+        final ClusterState state = client().admin().cluster().prepareState().get().getState();
+        final IndexMetaData indexMetaData = state.metaData().index("test");
+        final String[] nodesIds = new String[] {state.nodes().localNodeId(), "_unknown"};
+
+        final TransportNodesListGatewayStartedShards action = getInstanceFromNode(TransportNodesListGatewayStartedShards.class);
+        final AsyncShardFetch.List<NodesGatewayStartedShards, NodeGatewayStartedShards> batched = action.batched();
+        final List<PlainActionFuture<NodesGatewayStartedShards>> futures = new ArrayList<>();
+        for (int i = 0; i < numShards; i++) {
+            PlainActionFuture<NodesGatewayStartedShards> future = new PlainActionFuture<>();
+            batched.list(new ShardId(indexMetaData.getIndex(), i), indexMetaData, nodesIds, future);
+            futures.add(future);
+        }
+        for (PlainActionFuture<NodesGatewayStartedShards> future : futures) {
+            assertFalse("fetches must be queued until they are flushed", future.isDone());
+        }
+
+        action.flushBatchedFetches();
+        for (int i = 0; i < numShards; i++) {
+            NodesGatewayStartedShards response = futures.get(i).get();
+            assertThat(response.getNodes().length, equalTo(1));
+            assertThat(response.failures().length, equalTo(1));
+            assertThat(response.failures()[0].nodeId(), equalTo("_unknown"));
+            NodeGatewayStartedShards shardState = response.getNodes()[0];
+            assertTrue(shardState.primary());
+            assertThat(shardState.allocationId(),
+                equalTo(state.routingTable().index("test").shard(i).primaryShard().allocationId().getId()));
+        }
+    }
+}
@@ -40,6 +40,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -309,6 +310,71 @@ public class IndexServiceTests extends ESSingleNodeTestCase {
         });
     }
 
+    public void testSearchIdleShardSkipsScheduledRefresh() throws Exception {
+        Settings settings = Settings.builder()
+            .put(IndexSettings.INDEX_SEARCH_IDLE_AFTER.getKey(), TimeValue.timeValueMillis(0))
+            .build();
+        IndexService indexService = createIndex("test", settings);
+        ensureGreen("test");
+        IndexShard shard = indexService.getShard(0);
+        assertTrue(shard.isSearchIdle());
+        client().prepareIndex("test", "test", "1").setSource("{\"foo\": \"bar\"}").get();
+        assertTrue(shard.isRefreshNeeded());
+        assertFalse(shard.scheduledRefresh());
+        assertTrue(shard.isRefreshNeeded());
+
+        // the first search refreshes the shard so it sees the document
+        assertEquals(1, client().prepareSearch("test").get().getHits().totalHits());
+        assertFalse(shard.isRefreshNeeded());
+
+        // an explicit refresh interval refreshes on schedule even if nobody searches
+        IndexMetaData metaData = IndexMetaData.builder(indexService.getMetaData()).settings(Settings.builder()
+            .put(indexService.getMetaData().getSettings()).put(IndexSettings.INDEX_REFRESH_INTERVAL_SETTING.getKey(), -1)).build();
+        indexService.updateMetaData(metaData);
+        client().prepareIndex("test", "test", "2").setSource("{\"foo\": \"bar\"}").get();
+        assertTrue(shard.scheduledRefresh());
+        assertFalse(shard.isRefreshNeeded());
+    }
+
+    public void testConcurrentSearchesWaitForSearchIdleRefresh() throws Exception {
+        Settings settings = Settings.builder()
+            .put(IndexSettings.INDEX_SEARCH_IDLE_AFTER.getKey(), TimeValue.timeValueMillis(500))
+            .build();
+        IndexService indexService = createIndex("test", settings);
+        ensureGreen("test");
+        IndexShard shard = indexService.getShard(0);
+        final int numDocs = randomIntBetween(1, 20);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("test", "test", Integer.toString(i)).setSource("{\"foo\": \"bar\"}").get();
+        }
+        assertBusy(() -> assertTrue(shard.isSearchIdle()));
+        assertFalse(shard.scheduledRefresh());
+        assertTrue(shard.isRefreshNeeded());
+
+        // only one search refreshes, the others must not acquire a searcher before that refresh is done
+        final Thread[] threads = new Thread[randomIntBetween(2, 8)];
+        final CyclicBarrier barrier = new CyclicBarrier(threads.length);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    barrier.await();
+                    shard.awaitShardSearchActive();
+                    try (Engine.Searcher searcher = shard.acquireSearcher("test")) {
+                        assertEquals(numDocs, searcher.reader().numDocs());
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(failure.get(), nullValue());
+    }
+
     public void testAsyncFsyncActuallyWorks() throws Exception {
         Settings settings = Settings.builder()
             .put(IndexSettings.INDEX_TRANSLOG_SYNC_INTERVAL_SETTING.getKey(), "100ms") // very often :)
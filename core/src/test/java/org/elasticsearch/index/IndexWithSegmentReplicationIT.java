@@ -0,0 +1,117 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.SegmentReplicaIndexShard;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.recovery.SegmentReplicationService;
+import org.elasticsearch.test.ESIntegTestCase;
+import org.elasticsearch.test.InternalTestCluster;
+
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.hamcrest.Matchers.instanceOf;
+
+/**
+ * Tests for indices whose replicas copy segments from their primary
+ */
+@ESIntegTestCase.ClusterScope(scope = ESIntegTestCase.Scope.TEST, numDataNodes = 0)
+public class IndexWithSegmentReplicationIT extends ESIntegTestCase {
+
+    public void testReplicasCopySegmentsFromPrimary() throws Exception {
+        internalCluster().startNodesAsync(2).get();
+        final String IDX = "test";
+        assertAcked(prepareCreate(IDX).setSettings(Settings.builder()
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 1)
+            .put(IndexMetaData.SETTING_SEGMENT_REPLICATION, true)
+            .put(SegmentReplicationService.INDEX_SEGMENT_REPLICATION_INTERVAL_SETTING.getKey(), "100ms")));
+        ensureGreen(IDX);
+
+        final int numDocs = randomIntBetween(10, 100);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex(IDX, "doc", Integer.toString(i)).setSource("foo", "bar").get();
+        }
+
+        assertBusy(() -> {
+            SearchResponse resp = client().prepareSearch(IDX).setPreference("_replica").setQuery(matchAllQuery()).get();
+            assertHitCount(resp, numDocs);
+        });
+
+        for (IndicesService indicesService : internalCluster().getInstances(IndicesService.class)) {
+            IndexService indexService = indicesService.indexService(resolveIndex(IDX));
+            for (IndexShard indexShard : indexService) {
+                if (indexShard.routingEntry().primary() == false) {
+                    assertThat(indexShard, instanceOf(SegmentReplicaIndexShard.class));
+                }
+            }
+        }
+    }
+
+    public void testWaitForRefreshWaitsForSegmentCopy() throws Exception {
+        internalCluster().startNodesAsync(2).get();
+        final String IDX = "test";
+        assertAcked(prepareCreate(IDX).setSettings(Settings.builder()
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 1)
+            .put(IndexMetaData.SETTING_SEGMENT_REPLICATION, true)
+            .put(IndexSettings.INDEX_REFRESH_INTERVAL_SETTING.getKey(), "100ms")
+            .put(SegmentReplicationService.INDEX_SEGMENT_REPLICATION_INTERVAL_SETTING.getKey(), "100ms")));
+        ensureGreen(IDX);
+
+        final int numDocs = randomIntBetween(1, 10);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex(IDX, "doc", Integer.toString(i)).setSource("foo", "bar").setWaitForRefresh(true).get();
+            // the response is only sent once the segments that contain the document were copied to the replica
+            SearchResponse resp = client().prepareSearch(IDX).setPreference("_replica").setQuery(matchAllQuery()).get();
+            assertHitCount(resp, i + 1);
+        }
+    }
+
+    public void testReplicaToPrimaryPromotion() throws Exception {
+        final String node1 = internalCluster().startNode();
+        final String IDX = "test";
+        assertAcked(prepareCreate(IDX).setSettings(Settings.builder()
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 1)
+            .put(IndexMetaData.SETTING_SEGMENT_REPLICATION, true)
+            // the replica must recover the documents from its translog
+            .put(SegmentReplicationService.INDEX_SEGMENT_REPLICATION_INTERVAL_SETTING.getKey(), "1h")));
+        client().prepareIndex(IDX, "doc", "1").setSource("foo", "bar").get();
+
+        internalCluster().startNode();
+        ensureGreen(IDX);
+        client().prepareIndex(IDX, "doc", "2").setSource("foo", "bar").get();
+        client().prepareIndex(IDX, "doc", "3").setSource("foo", "bar").get();
+
+        logger.info("--> stopping node1 [{}]", node1);
+        internalCluster().stopRandomNode(InternalTestCluster.nameFilter(node1));
+        ensureYellow(IDX);
+        refresh(IDX);
+
+        SearchResponse resp = client().prepareSearch(IDX).setQuery(matchAllQuery()).get();
+        assertHitCount(resp, 3);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index;
+
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.test.ESTestCase;
+
+public class IndexingPressureTests extends ESTestCase {
+
+    private final Settings settings = Settings.builder().put(IndexingPressure.MAX_INDEXING_BYTES_SETTING.getKey(), "10kb").build();
+
+    public void testAccountsAndReleasesBytes() {
+        IndexingPressure indexingPressure = new IndexingPressure(settings, newClusterSettings());
+        Releasable coordinating = indexingPressure.markCoordinatingOperationStarted(10);
+        Releasable primary = indexingPressure.markPrimaryOperationStarted(20);
+        Releasable replica = indexingPressure.markReplicaOperationStarted(30);
+        IndexingPressureStats stats = indexingPressure.stats();
+        assertEquals(10, stats.getCurrentCoordinatingBytes());
+        assertEquals(20, stats.getCurrentPrimaryBytes());
+        assertEquals(30, stats.getCurrentReplicaBytes());
+        assertEquals(10 * 1024, stats.getLimitBytes());
+
+        coordinating.close();
+        // releasing twice must not release the bytes twice
+        coordinating.close();
+        primary.close();
+        replica.close();
+        stats = indexingPressure.stats();
+        assertEquals(0, stats.getCurrentCoordinatingBytes());
+        assertEquals(0, stats.getCurrentPrimaryBytes());
+        assertEquals(0, stats.getCurrentReplicaBytes());
+        assertEquals(10, stats.getTotalCoordinatingBytes());
+        assertEquals(20, stats.getTotalPrimaryBytes());
+        assertEquals(30, stats.getTotalReplicaBytes());
+    }
+
+    public void testCoordinatingAndPrimaryShareTheLimit() {
+        IndexingPressure indexingPressure = new IndexingPressure(settings, newClusterSettings());
+        try (Releasable coordinating = indexingPressure.markCoordinatingOperationStarted(6 * 1024)) {
+            EsRejectedExecutionException e = expectThrows(EsRejectedExecutionException.class,
+                () -> indexingPressure.markPrimaryOperationStarted(5 * 1024));
+            assertEquals(RestStatus.TOO_MANY_REQUESTS, e.status());
+            expectThrows(EsRejectedExecutionException.class, () -> indexingPressure.markCoordinatingOperationStarted(5 * 1024));
+            // replicas have their own budget
+            indexingPressure.markReplicaOperationStarted(5 * 1024).close();
+        }
+        indexingPressure.markPrimaryOperationStarted(5 * 1024).close();
+        IndexingPressureStats stats = indexingPressure.stats();
+        assertEquals(1, stats.getCoordinatingRejections());
+        assertEquals(1, stats.getPrimaryRejections());
+        assertEquals(0, stats.getReplicaRejections());
+        assertEquals(0, stats.getCurrentCoordinatingBytes());
+        assertEquals(0, stats.getCurrentPrimaryBytes());
+    }
+
+    public void testReplicasAreRejectedAtOneAndAHalfTimesTheLimit() {
+        IndexingPressure indexingPressure = new IndexingPressure(settings, newClusterSettings());
+        try (Releasable replica = indexingPressure.markReplicaOperationStarted(14 * 1024)) {
+            expectThrows(EsRejectedExecutionException.class, () -> indexingPressure.markReplicaOperationStarted(2 * 1024));
+            indexingPressure.markReplicaOperationStarted(1024).close();
+        }
+        assertEquals(1, indexingPressure.stats().getReplicaRejections());
+        assertEquals(0, indexingPressure.stats().getCurrentReplicaBytes());
+    }
+
+    public void testUpdateLimit() {
+        ClusterSettings clusterSettings = newClusterSettings();
+        IndexingPressure indexingPressure = new IndexingPressure(settings, clusterSettings);
+        expectThrows(EsRejectedExecutionException.class, () -> indexingPressure.markCoordinatingOperationStarted(20 * 1024));
+        clusterSettings.applySettings(Settings.builder().put(IndexingPressure.MAX_INDEXING_BYTES_SETTING.getKey(), "1mb").build());
+        assertEquals(1024 * 1024, indexingPressure.stats().getLimitBytes());
+        indexingPressure.markCoordinatingOperationStarted(20 * 1024).close();
+    }
+
+    public void testZeroBytesAreNotAccounted() {
+        IndexingPressure indexingPressure = new IndexingPressure(settings, newClusterSettings());
+        try (Releasable coordinating = indexingPressure.markCoordinatingOperationStarted(10 * 1024)) {
+            indexingPressure.markPrimaryOperationStarted(0).close();
+        }
+        assertEquals(0, indexingPressure.stats().getTotalPrimaryBytes());
+    }
+
+    public void testStatsSerialization() throws Exception {
+        IndexingPressureStats stats = new IndexingPressureStats(randomIntBetween(0, Integer.MAX_VALUE),
+            randomIntBetween(0, Integer.MAX_VALUE), randomIntBetween(0, Integer.MAX_VALUE), randomIntBetween(0, Integer.MAX_VALUE),
+            randomIntBetween(0, Integer.MAX_VALUE), randomIntBetween(0, Integer.MAX_VALUE), randomIntBetween(0, Integer.MAX_VALUE),
+            randomIntBetween(0, Integer.MAX_VALUE), randomIntBetween(0, Integer.MAX_VALUE), randomIntBetween(0, Integer.MAX_VALUE));
+        BytesStreamOutput out = new BytesStreamOutput();
+        stats.writeTo(out);
+        IndexingPressureStats read = new IndexingPressureStats(StreamInput.wrap(out.bytes()));
+        assertEquals(stats.getCurrentCoordinatingBytes(), read.getCurrentCoordinatingBytes());
+        assertEquals(stats.getCurrentPrimaryBytes(), read.getCurrentPrimaryBytes());
+        assertEquals(stats.getCurrentReplicaBytes(), read.getCurrentReplicaBytes());
+        assertEquals(stats.getTotalCoordinatingBytes(), read.getTotalCoordinatingBytes());
+        assertEquals(stats.getTotalPrimaryBytes(), read.getTotalPrimaryBytes());
+        assertEquals(stats.getTotalReplicaBytes(), read.getTotalReplicaBytes());
+        assertEquals(stats.getCoordinatingRejections(), read.getCoordinatingRejections());
+        assertEquals(stats.getPrimaryRejections(), read.getPrimaryRejections());
+        assertEquals(stats.getReplicaRejections(), read.getReplicaRejections());
+        assertEquals(stats.getLimitBytes(), read.getLimitBytes());
+    }
+
+    private static ClusterSettings newClusterSettings() {
+        return new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS);
+    }
+}
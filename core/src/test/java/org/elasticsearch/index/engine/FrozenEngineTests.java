@@ -0,0 +1,120 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.index.Term;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.shard.EngineAccess;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.threadpool.ThreadPoolStats;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertBlocked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+
+public class FrozenEngineTests extends ESSingleNodeTestCase {
+
+    public void testSearchFrozenIndex() throws Exception {
+        assertAcked(client().admin().indices().prepareCreate("test")
+            .setSettings(Settings.builder().put("index.number_of_shards", 1).put("index.number_of_replicas", 0)).get());
+        ensureGreen("test");
+        final int numDocs = randomIntBetween(1, 50);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("test", "type", Integer.toString(i)).setSource("field", "value" + i).get();
+            if (rarely()) {
+                client().admin().indices().prepareFlush("test").get();
+            }
+        }
+
+        logger.info("--> freeze the index");
+        assertAcked(client().admin().indices().prepareClose("test"));
+        assertAcked(client().admin().indices().prepareUpdateSettings("test")
+            .setSettings(Settings.builder().put(IndexSettings.INDEX_FROZEN_SETTING.getKey(), true)));
+        assertAcked(client().admin().indices().prepareOpen("test"));
+        ensureGreen("test");
+
+        final IndexService indexService = getInstanceFromNode(IndicesService.class).indexServiceSafe(resolveIndex("test"));
+        assertTrue(indexService.getIndexSettings().isFrozen());
+        final IndexShard shard = indexService.getShardOrNull(0);
+        final Engine engine = EngineAccess.engine(shard);
+        assertThat(engine, instanceOf(FrozenEngine.class));
+        final FrozenEngine frozenEngine = (FrozenEngine) engine;
+        assertFalse(frozenEngine.isReaderOpen());
+        assertThat(getInstanceFromNode(SearchService.class).executorName(shard.shardId()), equalTo(ThreadPool.Names.SEARCH_THROTTLED));
+
+        logger.info("--> search opens the reader on the search_throttled pool and closes it once done");
+        final long throttledSearches = completedTasks(ThreadPool.Names.SEARCH_THROTTLED);
+        assertHitCount(client().prepareSearch("test").get(), numDocs);
+        // the completed count is updated after the task ran, which can be after the response was sent
+        assertBusy(() -> assertThat(completedTasks(ThreadPool.Names.SEARCH_THROTTLED), greaterThan(throttledSearches)));
+        assertFalse(frozenEngine.isReaderOpen());
+        assertThat(engine.segmentsStats(false).getCount(), equalTo(0L));
+
+        try (Engine.Searcher first = engine.acquireSearcher("test")) {
+            assertTrue(frozenEngine.isReaderOpen());
+            try (Engine.Searcher second = engine.acquireSearcher("test")) {
+                assertSame(first.reader(), second.reader());
+                assertThat(second.reader().numDocs(), equalTo(numDocs));
+            }
+            assertTrue(frozenEngine.isReaderOpen());
+        }
+        assertFalse(frozenEngine.isReaderOpen());
+        assertThat(engine.getTranslog().totalOperations(), equalTo(0));
+
+        logger.info("--> writes are rejected");
+        assertBlocked(client().prepareIndex("test", "type", "new").setSource("field", "value"), IndexMetaData.INDEX_FROZEN_BLOCK);
+        assertBlocked(client().prepareDelete("test", "type", "0"), IndexMetaData.INDEX_FROZEN_BLOCK);
+        try {
+            engine.delete(new Engine.Delete("type", "0", new Term("_uid", "type#0")));
+            fail("frozen engines must reject deletes");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertHitCount(client().prepareSearch("test").get(), numDocs);
+
+        logger.info("--> unfreezing the index lifts the write block");
+        assertAcked(client().admin().indices().prepareClose("test"));
+        assertAcked(client().admin().indices().prepareUpdateSettings("test")
+            .setSettings(Settings.builder().put(IndexSettings.INDEX_FROZEN_SETTING.getKey(), false)));
+        assertAcked(client().admin().indices().prepareOpen("test"));
+        ensureGreen("test");
+        client().prepareIndex("test", "type", "new").setSource("field", "value").setRefresh(true).get();
+        assertHitCount(client().prepareSearch("test").get(), numDocs + 1);
+    }
+
+    private long completedTasks(String threadPool) {
+        for (ThreadPoolStats.Stats stats : getInstanceFromNode(ThreadPool.class).stats()) {
+            if (stats.getName().equals(threadPool)) {
+                return stats.getCompleted();
+            }
+        }
+        throw new AssertionError("no thread pool [" + threadPool + "]");
+    }
+}
@@ -52,6 +52,7 @@ import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.TestUtil;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.Version;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.support.TransportActions;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.Base64;
@@ -114,12 +115,14 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -1897,6 +1900,70 @@ public class InternalEngineTests extends ESTestCase {
         }
     }
 
+    public void testRetainedTranslogIsNotReplayed() throws IOException {
+        final long firstGeneration = engine.getTranslog().currentFileGeneration();
+        final int numFlushes = randomIntBetween(1, 5);
+        int numDocs = 0;
+        for (int flush = 0; flush < numFlushes; flush++) {
+            for (int i = randomIntBetween(1, 10); i > 0; i--) {
+                String id = Integer.toString(numDocs++);
+                ParsedDocument doc = testParsedDocument(id, id, "test", null, -1, -1, testDocument(), new BytesArray("{}"), null);
+                engine.index(new Engine.Index(newUid(id), doc));
+            }
+            engine.flush();
+        }
+
+        engine.close();
+        engine = createEngine(store, primaryTranslogDir);
+        try (Translog.View view = engine.getTranslog().newView(firstGeneration)) {
+            assertNotNull("committed generations should be retained", view);
+            assertEquals(numDocs, view.totalOperations());
+        }
+        TranslogHandler parser = (TranslogHandler) engine.config().getTranslogRecoveryPerformer();
+        assertEquals(0, parser.recoveredOps.get());
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            TopDocs topDocs = searcher.searcher().search(new MatchAllDocsQuery(), numDocs);
+            assertThat(topDocs.totalHits, equalTo(numDocs));
+        }
+    }
+
+    public void testConcurrentTranslogReplay() throws IOException {
+        final int numDocs = randomIntBetween(1, 20);
+        final int numOps = randomIntBetween(numDocs, 500);
+        final Map<String, Long> liveVersions = new HashMap<>();
+        for (int i = 0; i < numOps; i++) {
+            final String id = Integer.toString(randomInt(numDocs - 1));
+            if (liveVersions.containsKey(id) && rarely()) {
+                Engine.Delete delete = new Engine.Delete("test", id, newUid(id));
+                engine.delete(delete);
+                liveVersions.remove(id);
+            } else {
+                ParsedDocument doc = testParsedDocument(id, id, "test", null, -1, -1, testDocument(), new BytesArray("{}"), null);
+                Engine.Index index = new Engine.Index(newUid(id), doc);
+                engine.index(index);
+                liveVersions.put(id, index.version());
+            }
+        }
+
+        final TranslogHandler handler = new TranslogHandler(shardId.getIndexName(), logger, threadPool.generic(), randomIntBetween(2, 8));
+        try (Store replayStore = createStore();
+             Engine replayEngine = createEngine(replayStore, createTempDir())) {
+            assertEquals(numOps, handler.recoveryFromSnapshot(replayEngine, engine.getTranslog().newSnapshot()));
+            assertEquals(numOps, handler.recoveredOps.get());
+            replayEngine.refresh("test");
+            try (Engine.Searcher searcher = replayEngine.acquireSearcher("test")) {
+                TopDocs topDocs = searcher.searcher().search(new MatchAllDocsQuery(), numDocs);
+                assertThat(topDocs.totalHits, equalTo(liveVersions.size()));
+            }
+            for (Map.Entry<String, Long> entry : liveVersions.entrySet()) {
+                Engine.GetResult getResult = replayEngine.get(new Engine.Get(false, newUid(entry.getKey())));
+                assertTrue(getResult.exists());
+                assertThat(getResult.version(), equalTo(entry.getValue()));
+                getResult.release();
+            }
+        }
+    }
+
     public static class TranslogHandler extends TranslogRecoveryPerformer {
 
         private final DocumentMapper docMapper;
@@ -1905,7 +1972,11 @@ public class InternalEngineTests extends ESTestCase {
         public final AtomicInteger recoveredOps = new AtomicInteger(0);
 
         public TranslogHandler(String indexName, ESLogger logger) {
-            super(new ShardId("test", "_na_", 0), null, logger);
+            this(indexName, logger, null, 1);
+        }
+
+        public TranslogHandler(String indexName, ESLogger logger, Executor executor, int concurrency) {
+            super(new ShardId("test", "_na_", 0), null, logger, executor, concurrency);
             Settings settings = Settings.settingsBuilder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT).build();
             RootObjectMapper.Builder rootBuilder = new RootObjectMapper.Builder("test");
             Index index = new Index(indexName, "_na_");
@@ -2015,4 +2086,73 @@ public class InternalEngineTests extends ESTestCase {
         logger.info("exception caught: ", throwable.get());
         assertTrue("expected an Exception that signals shard is not available", TransportActions.isShardNotAvailableException(throwable.get()));
     }
+
+    public void testRetryWithAutogeneratedIdWorksAndNoDuplicateDocs() throws IOException {
+        final ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), new BytesArray("{}"), null);
+        final long autoGeneratedIdTimestamp = 0;
+        Engine.Index index = new Engine.Index(newUid("1"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, System.nanoTime(),
+            autoGeneratedIdTimestamp, false);
+        assertTrue(engine.index(index));
+        assertThat(index.version(), equalTo(1L));
+
+        index = new Engine.Index(newUid("1"), doc, index.version(), index.versionType().versionTypeForReplicationAndRecovery(), REPLICA,
+            System.nanoTime(), autoGeneratedIdTimestamp, false);
+        assertTrue(replicaEngine.index(index));
+        assertThat(index.version(), equalTo(1L));
+
+        index = new Engine.Index(newUid("1"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, System.nanoTime(),
+            autoGeneratedIdTimestamp, true);
+        assertFalse(engine.index(index));
+        assertThat(index.version(), equalTo(2L));
+        assertThat(engine.getMaxUnsafeAutoIdTimestamp(), equalTo(autoGeneratedIdTimestamp));
+        engine.refresh("test");
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            TopDocs topDocs = searcher.searcher().search(new MatchAllDocsQuery(), 10);
+            assertEquals(1, topDocs.totalHits);
+        }
+
+        index = new Engine.Index(newUid("1"), doc, index.version(), index.versionType().versionTypeForReplicationAndRecovery(), REPLICA,
+            System.nanoTime(), autoGeneratedIdTimestamp, true);
+        assertFalse(replicaEngine.index(index));
+        replicaEngine.refresh("test");
+        try (Engine.Searcher searcher = replicaEngine.acquireSearcher("test")) {
+            TopDocs topDocs = searcher.searcher().search(new MatchAllDocsQuery(), 10);
+            assertEquals(1, topDocs.totalHits);
+        }
+    }
+
+    public void testRetryWithAutogeneratedIdsAndWrongOrderWorksAndNoDuplicateDocs() throws IOException {
+        final ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), new BytesArray("{}"), null);
+        final long autoGeneratedIdTimestamp = 0;
+        // the retry arrives before the first attempt which got delayed on the network
+        Engine.Index retry = new Engine.Index(newUid("1"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, System.nanoTime(),
+            autoGeneratedIdTimestamp, true);
+        assertTrue(engine.index(retry));
+        assertThat(retry.version(), equalTo(1L));
+
+        Engine.Index firstAttempt = new Engine.Index(newUid("1"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY,
+            System.nanoTime(), autoGeneratedIdTimestamp, false);
+        assertFalse(engine.index(firstAttempt));
+        engine.refresh("test");
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            TopDocs topDocs = searcher.searcher().search(new MatchAllDocsQuery(), 10);
+            assertEquals(1, topDocs.totalHits);
+        }
+    }
+
+    public void testMaxUnsafeAutoIdTimestampIsPersistedOnCommit() throws IOException {
+        final ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), new BytesArray("{}"), null);
+        final long autoGeneratedIdTimestamp = randomIntBetween(0, Integer.MAX_VALUE);
+        assertThat(engine.getMaxUnsafeAutoIdTimestamp(), equalTo(IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP));
+        engine.index(new Engine.Index(newUid("1"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, System.nanoTime(),
+            autoGeneratedIdTimestamp, true));
+        engine.flush();
+        engine.close();
+
+        engine.config().setCreate(false);
+        engine = new InternalEngine(engine.config(), false);
+        assertThat(engine.getMaxUnsafeAutoIdTimestamp(), equalTo(autoGeneratedIdTimestamp));
+        assertThat(engine.getLastCommittedSegmentInfos().getUserData().get(InternalEngine.MAX_UNSAFE_AUTO_ID_TIMESTAMP_COMMIT_ID),
+            equalTo(Long.toString(autoGeneratedIdTimestamp)));
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class PagedVersionMapTests extends ESTestCase {
+
+    public void testEmpty() {
+        PagedVersionMap map = new PagedVersionMap(randomIntBetween(1, 16));
+        assertNull(map.get(new BytesRef("foo")));
+        assertEquals(0, map.size());
+        assertEquals(0, map.ramBytesUsed());
+    }
+
+    public void testInvalidNumSegments() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> new PagedVersionMap(0));
+        assertEquals("numSegments must be >= 1 but was [0]", e.getMessage());
+    }
+
+    public void testPutAndGet() {
+        PagedVersionMap map = new PagedVersionMap(randomIntBetween(1, 16));
+        Map<BytesRef, VersionValue> expected = new HashMap<>();
+        final int iters = scaledRandomIntBetween(10, 5000);
+        for (int i = 0; i < iters; i++) {
+            BytesRef uid = new BytesRef(Integer.toString(randomIntBetween(0, iters / 2)));
+            VersionValue value = randomVersionValue();
+            assertVersionValueEquals(expected.put(uid, value), map.put(uid, value));
+            assertEquals(expected.size(), map.size());
+        }
+        for (Map.Entry<BytesRef, VersionValue> entry : expected.entrySet()) {
+            assertVersionValueEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertNull(map.get(new BytesRef("missing")));
+        assertTrue(map.ramBytesUsed() > 0);
+    }
+
+    private VersionValue randomVersionValue() {
+        final Translog.Location location;
+        if (randomBoolean()) {
+            location = null;
+        } else {
+            location = new Translog.Location(randomIntBetween(1, 100), randomIntBetween(0, Integer.MAX_VALUE), randomIntBetween(1, 1024));
+        }
+        final long version = randomIntBetween(1, Integer.MAX_VALUE);
+        if (randomBoolean()) {
+            return new DeleteVersionValue(version, randomIntBetween(0, Integer.MAX_VALUE), location);
+        }
+        return new VersionValue(version, location);
+    }
+
+    private static void assertVersionValueEquals(VersionValue expected, VersionValue actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertNotNull(actual);
+        assertEquals(expected.getClass(), actual.getClass());
+        assertEquals(expected.version(), actual.version());
+        assertEquals(expected.delete(), actual.delete());
+        if (expected.delete()) {
+            assertEquals(expected.time(), actual.time());
+        }
+        assertEquals(expected.translogLocation(), actual.translogLocation());
+    }
+}
@@ -100,7 +100,7 @@ public class DynamicMappingDisabledTests extends ESSingleNodeTestCase {
     public void testDynamicDisabled() {
         TransportIndexAction action = new TransportIndexAction(settings, transportService, clusterService,
                 indicesService, THREAD_POOL, shardStateAction, null, null, actionFilters, indexNameExpressionResolver,
-                autoCreateIndex);
+                autoCreateIndex, null);
 
         IndexRequest request = new IndexRequest("index", "type", "1");
         request.source("foo", 3);
@@ -99,6 +99,17 @@ public class MapperServiceTests extends ESSingleNodeTestCase {
         assertEquals(new HashSet<>(Arrays.asList("type1", "type2")), mapperService.types());
     }
 
+    public void testIndicesOfANodeShareMappingSources() throws Exception {
+        CompressedXContent mapping = new CompressedXContent("{\"type\":{\"properties\":{\"field\":{\"type\":\"keyword\"}}}}");
+        MapperService mapperService1 = createIndex("index1").mapperService();
+        MapperService mapperService2 = createIndex("index2").mapperService();
+        assertSame(mapperService1.mappingSourceInterner(), mapperService2.mappingSourceInterner());
+
+        mapperService1.merge("type", mapping, MapperService.MergeReason.MAPPING_UPDATE, false);
+        mapperService2.merge("type", new CompressedXContent(mapping.string()), MapperService.MergeReason.MAPPING_UPDATE, false);
+        assertSame(mapperService1.documentMapper("type").mappingSource(), mapperService2.documentMapper("type").mappingSource());
+    }
+
     public void testIndexIntoDefaultMapping() throws Throwable {
         // 1. test implicit index creation
         try {
@@ -484,6 +484,34 @@ public class IndexShardTests extends ESSingleNodeTestCase {
         assertTrue(shard.getEngine().getTranslog().syncNeeded());
     }
 
+    public void testWaitForRefresh() throws IOException {
+        createIndex("test", settingsBuilder().put(IndexSettings.INDEX_REFRESH_INTERVAL_SETTING.getKey(), "100ms").build());
+        ensureGreen();
+        IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        IndexShard shard = indicesService.indexService(resolveIndex("test")).getShardOrNull(0);
+        client().prepareIndex("test", "bar", "1").setSource("{}").setWaitForRefresh(true).get();
+        assertSearchableDocs(shard, 1);
+        assertNoFailures(client().prepareBulk().setWaitForRefresh(true)
+            .add(client().prepareIndex("test", "bar", "2").setSource("{}"))
+            .add(client().prepareIndex("test", "bar", "3").setSource("{}")).get());
+        assertSearchableDocs(shard, 3);
+        client().prepareDelete("test", "bar", "1").setWaitForRefresh(true).get();
+        assertSearchableDocs(shard, 2);
+
+        // without free listener slots the request has to force a refresh, which it also has to do with refreshes disabled
+        client().admin().indices().prepareUpdateSettings("test").setSettings(settingsBuilder()
+            .put(IndexSettings.MAX_REFRESH_LISTENERS_PER_SHARD.getKey(), 0)
+            .put(IndexSettings.INDEX_REFRESH_INTERVAL_SETTING.getKey(), "-1")).get();
+        client().prepareIndex("test", "bar", "4").setSource("{}").setWaitForRefresh(true).get();
+        assertSearchableDocs(shard, 3);
+    }
+
+    private void assertSearchableDocs(IndexShard shard, int numDocs) {
+        try (Engine.Searcher searcher = shard.acquireSearcher("test")) {
+            assertEquals(numDocs, searcher.reader().numDocs());
+        }
+    }
+
     private void setDurability(IndexShard shard, Translog.Durability durability) {
         client().admin().indices().prepareUpdateSettings(shard.shardId.getIndexName()).setSettings(settingsBuilder().put(IndexSettings.INDEX_TRANSLOG_DURABILITY_SETTING.getKey(), durability.name()).build()).get();
         assertEquals(durability, shard.getTranslogDurability());
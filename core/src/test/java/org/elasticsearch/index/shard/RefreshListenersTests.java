@@ -0,0 +1,174 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.shard;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogConfig;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.IndexSettingsModule;
+import org.junit.After;
+import org.junit.Before;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Tests how {@link RefreshListeners} interacts with a translog and refreshes without standing up an {@link IndexShard}.
+ */
+public class RefreshListenersTests extends ESTestCase {
+
+    private Translog translog;
+    private RefreshListeners listeners;
+    private int maxListeners;
+    private final AtomicInteger forcedRefreshes = new AtomicInteger();
+
+    @Before
+    public void setupListeners() throws Exception {
+        ShardId shardId = new ShardId(new Index("index", "_na_"), 1);
+        Settings settings = Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT).build();
+        TranslogConfig config = new TranslogConfig(shardId, createTempDir(),
+            IndexSettingsModule.newIndexSettings(shardId.getIndex(), settings), BigArrays.NON_RECYCLING_INSTANCE);
+        translog = new Translog(config);
+        maxListeners = randomIntBetween(1, 100);
+        // listeners run on the calling thread so the tests can check them right after the refresh
+        listeners = new RefreshListeners(() -> maxListeners, () -> {
+            forcedRefreshes.incrementAndGet();
+            refresh();
+        }, Runnable::run, logger);
+        listeners.setTranslog(translog);
+    }
+
+    @After
+    public void tearDownTranslog() throws Exception {
+        translog.close();
+    }
+
+    public void testNotifiedOnRefresh() throws IOException {
+        DummyRefreshListener listener = new DummyRefreshListener();
+        assertFalse(listeners.addOrNotify(index("1"), listener));
+        assertTrue(listeners.refreshNeeded());
+        assertThat(listener.forcedRefresh, nullValue());
+
+        refresh();
+        assertThat(listener.forcedRefresh, equalTo(false));
+        assertFalse(listeners.refreshNeeded());
+        assertThat(forcedRefreshes.get(), equalTo(0));
+    }
+
+    public void testAlreadyVisibleLocationIsNotifiedImmediately() throws IOException {
+        Translog.Location location = index("1");
+        refresh();
+        DummyRefreshListener listener = new DummyRefreshListener();
+        assertTrue(listeners.addOrNotify(location, listener));
+        assertThat(listener.forcedRefresh, equalTo(false));
+        assertFalse(listeners.refreshNeeded());
+    }
+
+    public void testWriteDuringRefreshWaitsForNextRefresh() throws IOException {
+        listeners.beforeRefresh();
+        // this write may or may not be part of the running refresh, the listener must assume it isn't
+        DummyRefreshListener listener = new DummyRefreshListener();
+        assertFalse(listeners.addOrNotify(index("1"), listener));
+        listeners.afterRefresh(true);
+        assertThat(listener.forcedRefresh, nullValue());
+        assertTrue(listeners.refreshNeeded());
+
+        refresh();
+        assertThat(listener.forcedRefresh, equalTo(false));
+        assertFalse(listeners.refreshNeeded());
+    }
+
+    public void testTooManyListenersForceRefresh() throws IOException {
+        List<DummyRefreshListener> waiting = new ArrayList<>();
+        for (int i = 0; i < maxListeners; i++) {
+            DummyRefreshListener listener = new DummyRefreshListener();
+            waiting.add(listener);
+            assertFalse(listeners.addOrNotify(index(Integer.toString(i)), listener));
+        }
+        for (DummyRefreshListener listener : waiting) {
+            assertThat(listener.forcedRefresh, nullValue());
+        }
+
+        // no slot left, so the listener forces a refresh, which also releases all waiting listeners
+        DummyRefreshListener forcing = new DummyRefreshListener();
+        assertTrue(listeners.addOrNotify(index("forcing"), forcing));
+        assertThat(forcedRefreshes.get(), equalTo(1));
+        assertThat(forcing.forcedRefresh, equalTo(true));
+        for (DummyRefreshListener listener : waiting) {
+            assertThat(listener.forcedRefresh, equalTo(false));
+        }
+        assertFalse(listeners.refreshNeeded());
+    }
+
+    public void testClose() throws IOException {
+        DummyRefreshListener pending = new DummyRefreshListener();
+        assertFalse(listeners.addOrNotify(index("1"), pending));
+
+        // closing releases pending listeners since the shard is never refreshed again
+        listeners.close();
+        assertThat(pending.forcedRefresh, equalTo(false));
+        assertFalse(listeners.refreshNeeded());
+
+        // and listeners registered afterwards are called right away
+        DummyRefreshListener late = new DummyRefreshListener();
+        assertTrue(listeners.addOrNotify(index("2"), late));
+        assertThat(late.forcedRefresh, equalTo(false));
+        assertFalse(listeners.refreshNeeded());
+        assertThat(forcedRefreshes.get(), equalTo(0));
+    }
+
+    private Translog.Location index(String id) throws IOException {
+        return translog.add(new Translog.Index("test", id, new byte[] {1}));
+    }
+
+    private void refresh() {
+        try {
+            listeners.beforeRefresh();
+            listeners.afterRefresh(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class DummyRefreshListener implements Consumer<Boolean> {
+        /**
+         * When the listener is called this captures its only argument.
+         */
+        private volatile Boolean forcedRefresh;
+
+        @Override
+        public void accept(Boolean forcedRefresh) {
+            assertThat("listener called twice", this.forcedRefresh, nullValue());
+            this.forcedRefresh = forcedRefresh;
+        }
+    }
+}
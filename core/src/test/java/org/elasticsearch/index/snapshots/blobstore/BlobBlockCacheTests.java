@@ -0,0 +1,160 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.snapshots.blobstore;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class BlobBlockCacheTests extends ESTestCase {
+
+    public void testReadAheadAndEviction() throws IOException {
+        final int blockSize = randomIntBetween(16, 128);
+        final int readAheadBlocks = randomIntBetween(0, 3);
+        final int maxCachedBlocks = randomIntBetween(readAheadBlocks + 1, 8);
+        final BlobBlockCache cache = new BlobBlockCache(createTempDir(), blockSize, readAheadBlocks, maxCachedBlocks * blockSize);
+        final byte[] file = randomBytes(blockSize * randomIntBetween(10, 20) + randomIntBetween(1, blockSize - 1));
+        final int numberOfBlocks = (file.length + blockSize - 1) / blockSize;
+        final AtomicInteger loads = new AtomicInteger();
+        final BlobBlockCache.BlockLoader loader = position -> {
+            loads.incrementAndGet();
+            return new ByteArrayInputStream(file, (int) position, file.length - (int) position);
+        };
+
+        logger.info("--> read the file sequentially");
+        for (int i = 0; i < numberOfBlocks; i++) {
+            assertBlock(file, blockSize, i, cache.readBlock("file", file.length, i, loader));
+        }
+        assertThat(loads.get(), equalTo((numberOfBlocks + readAheadBlocks) / (readAheadBlocks + 1)));
+        assertThat(cache.sizeInBytes(), lessThanOrEqualTo((long) maxCachedBlocks * blockSize));
+
+        logger.info("--> the last block is still cached");
+        loads.set(0);
+        assertBlock(file, blockSize, numberOfBlocks - 1, cache.readBlock("file", file.length, numberOfBlocks - 1, loader));
+        assertThat(loads.get(), equalTo(0));
+
+        logger.info("--> the first block was evicted");
+        assertBlock(file, blockSize, 0, cache.readBlock("file", file.length, 0, loader));
+        assertThat(loads.get(), equalTo(1));
+    }
+
+    public void testConcurrentReadsAndEvictions() throws Exception {
+        final Path path = createTempDir();
+        final int blockSize = randomIntBetween(16, 128);
+        // a small cache so that blocks are evicted and cached again while other threads read them
+        final BlobBlockCache cache = new BlobBlockCache(path, blockSize, randomIntBetween(0, 2), randomIntBetween(1, 4) * blockSize);
+        final int numberOfFiles = randomIntBetween(1, 3);
+        final List<byte[]> files = new ArrayList<>();
+        for (int i = 0; i < numberOfFiles; i++) {
+            files.add(randomBytes(blockSize * randomIntBetween(2, 10) + randomIntBetween(0, blockSize - 1)));
+        }
+
+        final int numberOfThreads = randomIntBetween(2, 8);
+        final CyclicBarrier barrier = new CyclicBarrier(numberOfThreads);
+        final List<Throwable> failures = new CopyOnWriteArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numberOfThreads; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    for (int i = 0; i < 500; i++) {
+                        final int fileIndex = randomIntBetween(0, numberOfFiles - 1);
+                        final byte[] file = files.get(fileIndex);
+                        final int blockIndex = randomIntBetween(0, (file.length + blockSize - 1) / blockSize - 1);
+                        assertBlock(file, blockSize, blockIndex, cache.readBlock("file" + fileIndex, file.length, blockIndex,
+                            position -> new ByteArrayInputStream(file, (int) position, file.length - (int) position)));
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(failures, empty());
+
+        logger.info("--> every tracked block is backed by its file");
+        long sizeOnDisk = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+            for (Path file : stream) {
+                sizeOnDisk += Files.size(file);
+            }
+        }
+        assertThat(cache.sizeInBytes(), equalTo(sizeOnDisk));
+        assertThat(cache.sizeInBytes(), lessThanOrEqualTo(4L * blockSize));
+    }
+
+    public void testLongFileKeys() throws IOException {
+        final Path path = createTempDir();
+        final int blockSize = randomIntBetween(16, 128);
+        final BlobBlockCache cache = new BlobBlockCache(path, blockSize, 0, 4 * blockSize);
+        final byte[] file = randomBytes(blockSize * 2);
+        // longer than the file names most file systems allow
+        final String fileKey = randomAsciiOfLength(300) + "/" + randomAsciiOfLength(300);
+        final AtomicInteger loads = new AtomicInteger();
+        final BlobBlockCache.BlockLoader loader = position -> {
+            loads.incrementAndGet();
+            return new ByteArrayInputStream(file, (int) position, file.length - (int) position);
+        };
+        assertBlock(file, blockSize, 1, cache.readBlock(fileKey, file.length, 1, loader));
+        assertBlock(file, blockSize, 1, cache.readBlock(fileKey, file.length, 1, loader));
+        assertThat(loads.get(), equalTo(1));
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+            for (Path cached : stream) {
+                assertThat(cached.getFileName().toString().length(), lessThanOrEqualTo(64));
+            }
+        }
+    }
+
+    public void testMaxSizeMustHoldABlock() throws IOException {
+        final int blockSize = randomIntBetween(16, 128);
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> new BlobBlockCache(createTempDir(), blockSize, 0, randomIntBetween(-1, blockSize - 1)));
+        assertThat(e.getMessage(), containsString("max size must hold at least one block"));
+    }
+
+    private static void assertBlock(byte[] file, int blockSize, int blockIndex, byte[] block) {
+        final int from = blockIndex * blockSize;
+        assertArrayEquals(Arrays.copyOfRange(file, from, Math.min(file.length, from + blockSize)), block);
+    }
+
+    private static byte[] randomBytes(int length) {
+        final byte[] bytes = new byte[length];
+        random().nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -43,6 +43,7 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.test.ESTestCase;
@@ -84,6 +85,8 @@ import java.util.concurrent.atomic.AtomicReference;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 /**
  *
@@ -103,7 +106,8 @@ public class TranslogTests extends ESTestCase {
         if (translog.isOpen()) {
             if (translog.currentFileGeneration() > 1) {
                 translog.commit();
-                assertFileDeleted(translog, translog.currentFileGeneration() - 1);
+                // the committed generation is retained for operation based recoveries, but its operations are never replayed
+                assertThat(translog.newSnapshot(), SnapshotMatchers.size(0));
             }
             translog.close();
         }
@@ -137,8 +141,13 @@ public class TranslogTests extends ESTestCase {
     }
 
     private TranslogConfig getTranslogConfig(Path path) {
+        return getTranslogConfig(path, Settings.EMPTY);
+    }
+
+    private TranslogConfig getTranslogConfig(Path path, Settings settings) {
         Settings build = Settings.settingsBuilder()
                 .put(IndexMetaData.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+                .put(settings)
                 .build();
         ByteSizeValue bufferSize = randomBoolean() ? TranslogConfig.DEFAULT_BUFFER_SIZE : new ByteSizeValue(10 + randomInt(128 * 1024), ByteSizeUnit.BYTES);
         return new TranslogConfig(shardId, path, IndexSettingsModule.newIndexSettings(shardId.getIndex(), build), BigArrays.NON_RECYCLING_INSTANCE, bufferSize);
@@ -298,6 +307,8 @@ public class TranslogTests extends ESTestCase {
         total.add(stats);
         assertThat(stats.estimatedNumberOfOperations(), equalTo(1L));
         assertThat(stats.getTranslogSizeInBytes(), greaterThan(lastSize));
+        assertThat(stats.getSyncCount(), equalTo(1L));
+        assertThat(stats.getSyncedOperations(), equalTo(1L));
         lastSize = stats.getTranslogSizeInBytes();
 
         translog.add(new Translog.Delete(newUid("2")));
@@ -313,6 +324,10 @@ public class TranslogTests extends ESTestCase {
         total.add(stats);
         assertThat(stats.estimatedNumberOfOperations(), equalTo(3L));
         assertThat(stats.getTranslogSizeInBytes(), greaterThan(lastSize));
+        // each stats call and the prepare commit synced exactly the operations that were added before
+        assertThat(stats.getSyncCount(), equalTo(3L));
+        assertThat(stats.getSyncedOperations(), equalTo(3L));
+        assertEquals(1.0, stats.getAverageSyncBatchSize(), 0.0);
 
         translog.commit();
         stats = stats();
@@ -320,7 +335,7 @@ public class TranslogTests extends ESTestCase {
         assertThat(stats.estimatedNumberOfOperations(), equalTo(0L));
         assertThat(stats.getTranslogSizeInBytes(), equalTo(firstOperationPosition));
         assertEquals(6, total.estimatedNumberOfOperations());
-        assertEquals(431, total.getTranslogSizeInBytes());
+        assertEquals(458, total.getTranslogSizeInBytes());
 
         BytesStreamOutput out = new BytesStreamOutput();
         total.writeTo(out);
@@ -328,10 +343,14 @@ public class TranslogTests extends ESTestCase {
         copy.readFrom(StreamInput.wrap(out.bytes()));
 
         assertEquals(6, copy.estimatedNumberOfOperations());
-        assertEquals(431, copy.getTranslogSizeInBytes());
+        assertEquals(458, copy.getTranslogSizeInBytes());
+        assertEquals(9, copy.getSyncCount());
+        assertEquals(9, copy.getSyncedOperations());
         assertEquals("\"translog\"{\n" +
                 "  \"operations\" : 6,\n" +
-                "  \"size_in_bytes\" : 431\n" +
+                "  \"size_in_bytes\" : 458,\n" +
+                "  \"sync_count\" : 9,\n" +
+                "  \"synced_operations\" : 9\n" +
                 "}", copy.toString().trim());
 
         try {
@@ -346,6 +365,18 @@ public class TranslogTests extends ESTestCase {
         } catch (IllegalArgumentException ex) {
             //all well
         }
+        try {
+            new TranslogStats(1, 1, -1, 1);
+            fail("must be positive");
+        } catch (IllegalArgumentException ex) {
+            //all well
+        }
+        try {
+            new TranslogStats(1, 1, 1, -1);
+            fail("must be positive");
+        } catch (IllegalArgumentException ex) {
+            //all well
+        }
     }
 
     public void testSnapshot() throws IOException {
@@ -481,6 +512,65 @@ public class TranslogTests extends ESTestCase {
 
     }
 
+    public void testRetainsCommittedGenerations() throws IOException {
+        TranslogConfig config = getTranslogConfig(createTempDir(), Settings.settingsBuilder()
+                .put(IndexSettings.INDEX_TRANSLOG_RETENTION_SIZE_SETTING.getKey(), "1gb")
+                .put(IndexSettings.INDEX_TRANSLOG_RETENTION_AGE_SETTING.getKey(), "1h")
+                .build());
+        final int commits = randomIntBetween(1, 5);
+        final Translog.TranslogGeneration translogGeneration;
+        try (Translog translog = new Translog(config)) {
+            final long firstGeneration = translog.currentFileGeneration();
+            for (int i = 0; i < commits; i++) {
+                translog.add(new Translog.Index("test", Integer.toString(i), new byte[]{1}));
+                translog.commit();
+            }
+            assertEquals(0, translog.totalOperations());
+            for (long gen = firstGeneration; gen < translog.currentFileGeneration(); gen++) {
+                assertTrue("translog [" + gen + "] was not retained", Files.exists(config.getTranslogPath().resolve(Translog.getFilename(gen))));
+            }
+            try (Translog.View view = translog.newView(firstGeneration)) {
+                assertNotNull(view);
+                assertEquals(commits, view.totalOperations());
+                Translog.Snapshot snapshot = view.snapshot();
+                for (int i = 0; i < commits; i++) {
+                    assertEquals(Integer.toString(i), ((Translog.Index) snapshot.next()).id());
+                }
+                assertNull(snapshot.next());
+            }
+            assertNull(translog.newView(firstGeneration - 1));
+            assertNull(translog.newView(translog.currentFileGeneration() + 1));
+            translogGeneration = translog.getGeneration();
+        }
+
+        // retained generations are picked up again when the translog is reopened, but they are not replayed
+        config.setTranslogGeneration(translogGeneration);
+        try (Translog translog = new Translog(config)) {
+            assertThat(translog.newSnapshot(), SnapshotMatchers.size(0));
+            try (Translog.View view = translog.newView(translogGeneration.translogFileGeneration - commits)) {
+                assertNotNull(view);
+                assertEquals(commits, view.totalOperations());
+            }
+        }
+    }
+
+    public void testTrimsGenerationsBeyondRetention() throws IOException {
+        TranslogConfig config = getTranslogConfig(createTempDir(), Settings.settingsBuilder()
+                .put(IndexSettings.INDEX_TRANSLOG_RETENTION_SIZE_SETTING.getKey(), "1b")
+                .build());
+        try (Translog translog = new Translog(config)) {
+            final long firstGeneration = translog.currentFileGeneration();
+            translog.add(new Translog.Index("test", "1", new byte[]{1}));
+            translog.commit();
+            assertFileDeleted(translog, firstGeneration);
+            assertNull(translog.newView(firstGeneration));
+            try (Translog.View view = translog.newView(translog.currentFileGeneration())) {
+                assertNotNull(view);
+                assertEquals(0, view.totalOperations());
+            }
+        }
+    }
+
     public void testTranslogChecksums() throws Exception {
         List<Translog.Location> locations = new ArrayList<>();
 
@@ -753,6 +843,77 @@ public class TranslogTests extends ESTestCase {
         }
     }
 
+    public void testConcurrentSyncUpToIsGroupCommitted() throws Exception {
+        final int numThreads = randomIntBetween(2, 8);
+        final int opsPerThread = randomIntBetween(10, 100);
+        final int ops = numThreads * opsPerThread;
+        // every writer adds its operation and then waits until all others have added theirs before syncing, so each round of
+        // numThreads operations must be made durable by the fsync of the first thread that gets to sync in that round
+        final CyclicBarrier added = new CyclicBarrier(numThreads);
+        final List<Throwable> errors = new CopyOnWriteArrayList<>();
+        final Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            final int threadId = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    for (int op = 0; op < opsPerThread; op++) {
+                        final String id = threadId + "_" + op;
+                        final Translog.Location location = translog.add(new Translog.Index("test", id, id.getBytes(Charset.forName("UTF-8"))));
+                        added.await();
+                        translog.ensureSynced(location);
+                        assertFalse("location must be durable once ensureSynced returns",
+                            translog.ensureSynced(location));
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                    added.reset(); // releases the other writers with a BrokenBarrierException
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (errors.isEmpty() == false) {
+            throw new AssertionError(errors.get(0));
+        }
+        assertFalse(translog.syncNeeded());
+        TranslogStats stats = translog.stats();
+        assertEquals(ops, stats.getSyncedOperations());
+        assertThat(stats.getSyncCount(), lessThanOrEqualTo((long) opsPerThread));
+        assertThat(stats.getSyncCount(), lessThan((long) ops));
+        assertThat(stats.getSyncCount(), greaterThan(0L));
+    }
+
+    public void testCompressedSource() throws IOException {
+        Settings settings = Settings.settingsBuilder()
+                .put(IndexMetaData.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+                .put(IndexSettings.INDEX_TRANSLOG_COMPRESS_SETTING.getKey(), true)
+                .build();
+        TranslogConfig config = new TranslogConfig(shardId, createTempDir(), IndexSettingsModule.newIndexSettings(shardId.getIndex(), settings),
+                BigArrays.NON_RECYCLING_INSTANCE);
+        StringBuilder builder = new StringBuilder("{\"field\":\"");
+        for (int i = 0; i < Translog.Index.MIN_COMPRESSIBLE_SOURCE_BYTES; i++) {
+            builder.append("value ");
+        }
+        builder.append("\"}");
+        final byte[] large = builder.toString().getBytes(Charset.forName("UTF-8"));
+        final byte[] small = "{\"field\":\"value\"}".getBytes(Charset.forName("UTF-8"));
+        try (Translog compressed = new Translog(config)) {
+            Translog.Location largeLocation = compressed.add(new Translog.Index("test", "1", large));
+            Translog.Location smallLocation = compressed.add(new Translog.Index("test", "2", small));
+            Translog.Location uncompressedLocation = translog.add(new Translog.Index("test", "1", large));
+            assertThat(largeLocation.size, lessThan(uncompressedLocation.size));
+            assertEquals(new BytesArray(large), compressed.read(largeLocation).getSource().source.toBytesArray());
+            assertEquals(new BytesArray(small), compressed.read(smallLocation).getSource().source.toBytesArray());
+
+            Translog.Snapshot snapshot = compressed.newSnapshot();
+            assertEquals(new Translog.Index("test", "1", large), snapshot.next());
+            assertEquals(new Translog.Index("test", "2", small), snapshot.next());
+            assertNull(snapshot.next());
+        }
+    }
+
     public void testSyncUpTo() throws IOException {
         int translogOperations = randomIntBetween(10, 100);
         int count = 0;
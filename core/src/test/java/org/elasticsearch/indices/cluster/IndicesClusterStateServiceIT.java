@@ -0,0 +1,61 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.cluster;
+
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.notNullValue;
+
+public class IndicesClusterStateServiceIT extends ESIntegTestCase {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.settingsBuilder().put(super.nodeSettings(nodeOrdinal))
+            .put(IndicesClusterStateService.INDICES_CLUSTER_APPLY_CONCURRENCY_SETTING.getKey(), randomIntBetween(1, 8))
+            .build();
+    }
+
+    public void testMappingUpdateAppliedToAllIndices() throws Exception {
+        final int numIndices = randomIntBetween(5, 20);
+        for (int i = 0; i < numIndices; i++) {
+            assertAcked(prepareCreate("test-" + i).setSettings(Settings.builder()
+                .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+                .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, between(0, cluster().numDataNodes() - 1))));
+        }
+        ensureGreen();
+
+        assertAcked(client().admin().indices().preparePutMapping("test-*").setType("doc")
+            .setSource("field", "type=keyword"));
+
+        for (IndicesService indicesService : internalCluster().getDataNodeInstances(IndicesService.class)) {
+            for (IndexService indexService : indicesService) {
+                DocumentMapper mapper = indexService.mapperService().documentMapper("doc");
+                assertThat(mapper, notNullValue());
+                assertThat(mapper.mappers().getMapper("field"), notNullValue());
+            }
+        }
+    }
+}
@@ -30,6 +30,7 @@ import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags;
 import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
 import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.routing.allocation.command.MoveAllocationCommand;
@@ -241,6 +242,51 @@ public class IndexRecoveryIT extends ESIntegTestCase {
         validateIndexRecoveryState(nodeBRecoveryState.getIndex());
     }
 
+    public void testReplicaRecoveryFromRetainedTranslog() throws Exception {
+        logger.info("--> start nodes");
+        internalCluster().startNodesAsync(2).get();
+
+        assertAcked(prepareCreate(INDEX_NAME).setSettings(Settings.builder()
+                .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+                .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 1)));
+        final int numDocs = randomIntBetween(10, 100);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex(INDEX_NAME, INDEX_TYPE, Integer.toString(i)).setSource("foo", "bar").get();
+        }
+        ensureGreen();
+        final ClusterState state = client().admin().cluster().prepareState().get().getState();
+        final String replicaNode = state.nodes().get(
+                state.routingTable().index(INDEX_NAME).shard(0).replicaShards().get(0).currentNodeId()).getName();
+
+        logger.info("--> synced flush");
+        assertThat(client().admin().indices().prepareSyncedFlush(INDEX_NAME).get().failedShards(), equalTo(0));
+
+        final int numExtraDocs = randomIntBetween(1, 50);
+        logger.info("--> restarting node [{}] while indexing [{}] docs", replicaNode, numExtraDocs);
+        internalCluster().restartNode(replicaNode, new InternalTestCluster.RestartCallback() {
+            @Override
+            public Settings onNodeStopped(String nodeName) throws Exception {
+                for (int i = 0; i < numExtraDocs; i++) {
+                    client().prepareIndex(INDEX_NAME, INDEX_TYPE, Integer.toString(numDocs + i)).setSource("foo", "bar").get();
+                }
+                return super.onNodeStopped(nodeName);
+            }
+        });
+        ensureGreen();
+
+        RecoveryResponse response = client().admin().indices().prepareRecoveries(INDEX_NAME).get();
+        List<RecoveryState> recoveryStates = findRecoveriesForTargetNode(replicaNode, response.shardRecoveryStates().get(INDEX_NAME));
+        assertThat(recoveryStates.size(), equalTo(1));
+        RecoveryState recoveryState = recoveryStates.get(0);
+        assertThat(recoveryState.getType(), equalTo(Type.REPLICA));
+        assertThat("no files should be copied", recoveryState.getIndex().recoveredFileCount(), equalTo(0));
+        assertThat(recoveryState.getTranslog().recoveredOperations(), equalTo(numExtraDocs));
+
+        refresh(INDEX_NAME);
+        SearchResponse searchResponse = client(replicaNode).prepareSearch(INDEX_NAME).setPreference("_local").get();
+        assertHitCount(searchResponse, numDocs + numExtraDocs);
+    }
+
     public void testRerouteRecovery() throws Exception {
         logger.info("--> start node A");
         final String nodeA = internalCluster().startNode();
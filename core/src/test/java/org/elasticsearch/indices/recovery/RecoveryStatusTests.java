@@ -20,9 +20,12 @@ package org.elasticsearch.indices.recovery;
 
 import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RAMDirectory;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.transport.LocalTransportAddress;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.index.IndexService;
@@ -32,6 +35,9 @@ import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -86,4 +92,60 @@ public class RecoveryStatusTests extends ESSingleNodeTestCase {
         // we must fail the recovery because marking it as done will try to move the shard to POST_RECOVERY, which will fail because it's started
         status.fail(new RecoveryFailedException(status.state(), "end of test. OK.", null), false);
     }
+
+    public void testWriteFileChunksOutOfOrder() throws IOException {
+        IndexService service = createIndex("foo");
+
+        IndexShard indexShard = service.getShardOrNull(0);
+        DiscoveryNode node = new DiscoveryNode("foo", new LocalTransportAddress("bar"), Version.CURRENT);
+        RecoveryTarget status = new RecoveryTarget(indexShard, node, new RecoveryTargetService.RecoveryListener() {
+            @Override
+            public void onRecoveryDone(RecoveryState state) {
+            }
+
+            @Override
+            public void onRecoveryFailure(RecoveryState state, RecoveryFailedException e, boolean sendShardFailure) {
+            }
+        });
+        final byte[] bytes;
+        final String checksum;
+        try (RAMDirectory dir = new RAMDirectory()) {
+            try (IndexOutput output = dir.createOutput("foo.bar", IOContext.DEFAULT)) {
+                CodecUtil.writeHeader(output, "foo", 0);
+                final int numInts = randomIntBetween(10, 1000);
+                for (int i = 0; i < numInts; i++) {
+                    output.writeInt(i);
+                }
+                CodecUtil.writeFooter(output);
+            }
+            try (IndexInput input = dir.openInput("foo.bar", IOContext.DEFAULT)) {
+                bytes = new byte[(int) input.length()];
+                input.readBytes(bytes, 0, bytes.length);
+                checksum = Store.digestToString(CodecUtil.retrieveChecksum(input));
+            }
+        }
+        StoreFileMetaData metaData = new StoreFileMetaData("foo.bar", bytes.length, checksum);
+        status.state().getIndex().addFileDetail("foo.bar", bytes.length, false);
+
+        // send the chunks in random order like a source that has several chunks in flight might do
+        final int chunkSize = randomIntBetween(1, bytes.length);
+        List<Integer> positions = new ArrayList<>();
+        for (int position = 0; position < bytes.length; position += chunkSize) {
+            positions.add(position);
+        }
+        Collections.shuffle(positions, random());
+        for (int position : positions) {
+            final int length = Math.min(chunkSize, bytes.length - position);
+            status.writeFileChunk(metaData, position, new BytesArray(bytes, position, length), position + length == bytes.length, 0);
+        }
+
+        assertNull(status.getOpenIndexOutput("foo.bar"));
+        try (IndexInput input = status.store().directory().openInput(status.getTempNameForFile("foo.bar"), IOContext.DEFAULT)) {
+            byte[] written = new byte[(int) input.length()];
+            input.readBytes(written, 0, written.length);
+            assertArrayEquals(bytes, written);
+        }
+        assertEquals(bytes.length, status.state().getIndex().recoveredBytes());
+        status.fail(new RecoveryFailedException(status.state(), "end of test. OK.", null), false);
+    }
 }
@@ -44,7 +44,10 @@ import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.discovery.zen.ZenDiscovery;
 import org.elasticsearch.discovery.zen.elect.ElectMasterService;
+import org.elasticsearch.index.IndexModule;
+import org.elasticsearch.index.snapshots.blobstore.SnapshotIndexStore;
 import org.elasticsearch.index.store.IndexStore;
+import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.indices.recovery.RecoveryState;
 import org.elasticsearch.indices.ttl.IndicesTTLService;
 import org.elasticsearch.node.Node;
@@ -76,6 +79,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import static org.elasticsearch.common.settings.Settings.settingsBuilder;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertBlocked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertThrows;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.containsString;
@@ -605,6 +609,53 @@ public class DedicatedClusterSnapshotRestoreIT extends AbstractSnapshotIntegTest
         assertThat(reusedShards.size(), greaterThanOrEqualTo(numberOfShards / 2));
     }
 
+    public void testRelocateMountedIndex() throws Exception {
+        logger.info("--> start 2 nodes");
+        String firstNode = internalCluster().startNode();
+        String secondNode = internalCluster().startNode();
+
+        logger.info("--> create repository");
+        assertAcked(client().admin().cluster().preparePutRepository("test-repo")
+                .setType("fs").setSettings(Settings.settingsBuilder().put("location", randomRepoPath())));
+        assertAcked(prepareCreate("test-idx", 2, settingsBuilder().put("number_of_shards", 1).put("number_of_replicas", 0)));
+        ensureGreen();
+        for (int i = 0; i < 100; i++) {
+            index("test-idx", "doc", Integer.toString(i), "foo", "bar" + i);
+        }
+        refresh();
+
+        logger.info("--> snapshot");
+        assertThat(client().admin().cluster().prepareCreateSnapshot("test-repo", "test-snap").setIndices("test-idx")
+                .setWaitForCompletion(true).get().getSnapshotInfo().state(), equalTo(SnapshotState.SUCCESS));
+
+        logger.info("--> mount the snapshotted index on [{}]", firstNode);
+        assertThat(client().admin().cluster().prepareRestoreSnapshot("test-repo", "test-snap").setIndices("test-idx")
+                .setRenamePattern("test-idx").setRenameReplacement("mounted-idx").setWaitForCompletion(true)
+                .setIndexSettings(settingsBuilder()
+                        .put(IndexModule.INDEX_STORE_TYPE_SETTING.getKey(), SnapshotIndexStore.TYPE)
+                        .put("index.routing.allocation.exclude._name", secondNode))
+                .get().getRestoreInfo().failedShards(), equalTo(0));
+        ensureGreen("mounted-idx");
+
+        logger.info("--> relocate the mounted shard to [{}]", secondNode);
+        assertAcked(client().admin().indices().prepareUpdateSettings("mounted-idx")
+                .setSettings(settingsBuilder().put("index.routing.allocation.exclude._name", firstNode)));
+        ensureGreen("mounted-idx");
+        ClusterState state = client().admin().cluster().prepareState().get().getState();
+        String nodeId = state.routingTable().index("mounted-idx").shard(0).primaryShard().currentNodeId();
+        assertThat(state.nodes().get(nodeId).getName(), equalTo(secondNode));
+        assertHitCount(client().prepareSearch("mounted-idx").setSize(0).get(), 100L);
+        // the relocated shard read the snapshot from the repository instead of getting files from the source
+        assertThat(internalCluster().getInstance(IndicesService.class, secondNode).snapshotBlockCache().misses(), greaterThan(0L));
+
+        logger.info("--> add a replica");
+        assertAcked(client().admin().indices().prepareUpdateSettings("mounted-idx")
+                .setSettings(settingsBuilder().put("index.routing.allocation.exclude._name", "").put("number_of_replicas", 1)));
+        ensureGreen("mounted-idx");
+        assertHitCount(client().prepareSearch("mounted-idx").setPreference("_primary").setSize(0).get(), 100L);
+        assertHitCount(client().prepareSearch("mounted-idx").setPreference("_replica").setSize(0).get(), 100L);
+    }
+
     public void testRegistrationFailure() {
         logger.info("--> start first node");
         internalCluster().startNode();
@@ -19,6 +19,11 @@
 
 package org.elasticsearch.snapshots;
 
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.Version;
@@ -57,13 +62,25 @@ import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.IndexModule;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.engine.FrozenEngine;
+import org.elasticsearch.index.shard.EngineAccess;
+import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.snapshots.blobstore.BlobBlockCache;
+import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardRepository;
+import org.elasticsearch.index.snapshots.blobstore.SnapshotIndexStore;
 import org.elasticsearch.index.store.IndexStore;
+import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.indices.InvalidIndexNameException;
 import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.repositories.RepositoryException;
 
 import java.nio.channels.SeekableByteChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
@@ -74,6 +91,7 @@ import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_REPLICAS;
 import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_SHARDS;
@@ -94,13 +112,393 @@ import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.startsWith;
 
 public class SharedClusterSnapshotRestoreIT extends AbstractSnapshotIntegTestCase {
+    public void testConcurrentFileTransfers() throws Exception {
+        Client client = client();
+
+        logger.info("-->  creating repository");
+        assertAcked(client.admin().cluster().preparePutRepository("test-repo")
+                .setType("fs").setSettings(Settings.settingsBuilder()
+                        .put("location", randomRepoPath())
+                        .put("chunk_size", randomIntBetween(100, 1000), ByteSizeUnit.BYTES)
+                        .put("max_concurrent_file_uploads", randomIntBetween(2, 5))
+                        .put("max_concurrent_file_downloads", randomIntBetween(2, 5))));
+
+        createIndex("test-idx");
+        ensureGreen();
+
+        logger.info("--> indexing some data in several segments");
+        for (int i = 0; i < 100; i++) {
+            index("test-idx", "doc", Integer.toString(i), "foo", "bar" + i);
+            if (rarely()) {
+                refresh();
+            }
+        }
+        refresh();
+
+        logger.info("--> snapshot");
+        CreateSnapshotResponse createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap")
+            .setWaitForCompletion(true).setIndices("test-idx").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), greaterThan(0));
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), equalTo(createSnapshotResponse.getSnapshotInfo().totalShards()));
+
+        SnapshotStatus snapshotStatus = client.admin().cluster().prepareSnapshotStatus("test-repo").addSnapshots("test-snap").get()
+            .getSnapshots().get(0);
+        for (SnapshotIndexShardStatus shardStatus : snapshotStatus.getIndices().get("test-idx").getShards().values()) {
+            assertThat(shardStatus.getStage(), equalTo(SnapshotIndexShardStage.DONE));
+            assertThat(shardStatus.getStats().getProcessedFiles(), equalTo(shardStatus.getStats().getNumberOfFiles()));
+            assertThat(shardStatus.getStats().getProcessedSize(), equalTo(shardStatus.getStats().getTotalSize()));
+        }
+
+        logger.info("--> restore");
+        cluster().wipeIndices("test-idx");
+        RestoreSnapshotResponse restoreSnapshotResponse = client.admin().cluster().prepareRestoreSnapshot("test-repo", "test-snap")
+            .setWaitForCompletion(true).get();
+        assertThat(restoreSnapshotResponse.getRestoreInfo().totalShards(), greaterThan(0));
+        ensureGreen();
+        assertHitCount(client.prepareSearch("test-idx").setSize(0).get(), 100L);
+    }
+
+    public void testDeduplicatedBlobs() throws Exception {
+        Client client = client();
+        Path repo = randomRepoPath();
+
+        logger.info("-->  creating repository");
+        assertAcked(client.admin().cluster().preparePutRepository("test-repo")
+                .setType("fs").setSettings(Settings.settingsBuilder()
+                        .put("location", repo)
+                        .put("chunk_size", randomIntBetween(100, 1000), ByteSizeUnit.BYTES)
+                        .put("deduplicate_blobs", true)));
+
+        createIndex("test-idx");
+        ensureGreen();
+        for (int i = 0; i < 100; i++) {
+            index("test-idx", "doc", Integer.toString(i), "foo", "bar" + i);
+        }
+        flushAndRefresh("test-idx");
+
+        logger.info("--> snapshot the original index");
+        CreateSnapshotResponse createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap-1")
+            .setWaitForCompletion(true).setIndices("test-idx").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), equalTo(createSnapshotResponse.getSnapshotInfo().totalShards()));
+
+        logger.info("--> restore a copy of the index, its segment files are identical to the original ones");
+        RestoreSnapshotResponse restoreSnapshotResponse = client.admin().cluster().prepareRestoreSnapshot("test-repo", "test-snap-1")
+            .setRenamePattern("test-idx").setRenameReplacement("copy-idx").setWaitForCompletion(true).get();
+        assertThat(restoreSnapshotResponse.getRestoreInfo().failedShards(), equalTo(0));
+        ensureGreen();
+
+        logger.info("--> snapshot the copy, it must reuse the blobs of the original index");
+        createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap-2")
+            .setWaitForCompletion(true).setIndices("copy-idx").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), equalTo(createSnapshotResponse.getSnapshotInfo().totalShards()));
+        SnapshotsStatusResponse statusResponse = client.admin().cluster().prepareSnapshotStatus("test-repo").addSnapshots("test-snap-1", "test-snap-2").get();
+        long originalSize = 0;
+        long copySize = 0;
+        for (SnapshotStatus status : statusResponse.getSnapshots()) {
+            if (status.getSnapshotId().getSnapshot().equals("test-snap-1")) {
+                originalSize = status.getIndices().get("test-idx").getStats().getTotalSize();
+            } else {
+                copySize = status.getIndices().get("copy-idx").getStats().getTotalSize();
+            }
+        }
+        assertThat(copySize, lessThan(originalSize));
+
+        logger.info("--> delete the first snapshot, the blobs are still referenced by the copy");
+        assertAcked(client.admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap-1").get());
+        assertThat(numberOfFiles(repo.resolve("blobs")), greaterThan(0));
+        cluster().wipeIndices("copy-idx");
+        restoreSnapshotResponse = client.admin().cluster().prepareRestoreSnapshot("test-repo", "test-snap-2")
+            .setWaitForCompletion(true).get();
+        assertThat(restoreSnapshotResponse.getRestoreInfo().failedShards(), equalTo(0));
+        ensureGreen();
+        assertHitCount(client.prepareSearch("copy-idx").setSize(0).get(), 100L);
+
+        logger.info("--> delete the second snapshot, no blob is referenced anymore");
+        assertAcked(client.admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap-2").get());
+        assertThat(numberOfFiles(repo.resolve("blobs")), equalTo(0));
+    }
+
+    public void testSnapshotWhileDeletingDeduplicatedSnapshot() throws Exception {
+        Client client = client();
+        Path repo = randomRepoPath();
+
+        logger.info("-->  creating repository");
+        assertAcked(client.admin().cluster().preparePutRepository("test-repo")
+                .setType("fs").setSettings(Settings.settingsBuilder()
+                        .put("location", repo)
+                        .put("chunk_size", randomIntBetween(100, 1000), ByteSizeUnit.BYTES)
+                        .put("deduplicate_blobs", true)));
+
+        createIndex("test-idx");
+        ensureGreen();
+        for (int i = 0; i < 100; i++) {
+            index("test-idx", "doc", Integer.toString(i), "foo", "bar" + i);
+        }
+        flushAndRefresh("test-idx");
+        assertThat(client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap-1")
+            .setWaitForCompletion(true).setIndices("test-idx").get().getSnapshotInfo().failedShards(), equalTo(0));
+
+        logger.info("--> restore a copy of the index, its segment files are identical to the original ones");
+        RestoreSnapshotResponse restoreSnapshotResponse = client.admin().cluster().prepareRestoreSnapshot("test-repo", "test-snap-1")
+            .setRenamePattern("test-idx").setRenameReplacement("copy-idx").setWaitForCompletion(true).get();
+        assertThat(restoreSnapshotResponse.getRestoreInfo().failedShards(), equalTo(0));
+        ensureGreen();
+
+        logger.info("--> delete the original snapshot while snapshotting the copy, which reuses the blobs of the original");
+        final ListenableActionFuture<DeleteSnapshotResponse> deleteFuture;
+        final ListenableActionFuture<CreateSnapshotResponse> snapshotFuture;
+        if (randomBoolean()) {
+            deleteFuture = client.admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap-1").execute();
+            snapshotFuture = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap-2")
+                .setWaitForCompletion(true).setIndices("copy-idx").execute();
+        } else {
+            snapshotFuture = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap-2")
+                .setWaitForCompletion(true).setIndices("copy-idx").execute();
+            deleteFuture = client.admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap-1").execute();
+        }
+        // whichever operation comes second is rejected while the first one is running
+        boolean deleted = true;
+        try {
+            assertAcked(deleteFuture.actionGet());
+        } catch (Exception e) {
+            assertThat(ExceptionsHelper.unwrapCause(e), instanceOf(ConcurrentSnapshotExecutionException.class));
+            deleted = false;
+        }
+        boolean snapshotted = true;
+        try {
+            assertThat(snapshotFuture.actionGet().getSnapshotInfo().failedShards(), equalTo(0));
+        } catch (Exception e) {
+            assertThat(ExceptionsHelper.unwrapCause(e), instanceOf(ConcurrentSnapshotExecutionException.class));
+            snapshotted = false;
+        }
+        assertTrue("either the deletion or the snapshot must have succeeded", deleted || snapshotted);
+        if (snapshotted == false) {
+            assertThat(client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap-2")
+                .setWaitForCompletion(true).setIndices("copy-idx").get().getSnapshotInfo().failedShards(), equalTo(0));
+        }
+        if (deleted == false) {
+            assertAcked(client.admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap-1").get());
+        }
+
+        logger.info("--> the snapshot of the copy must still be complete");
+        cluster().wipeIndices("copy-idx");
+        restoreSnapshotResponse = client.admin().cluster().prepareRestoreSnapshot("test-repo", "test-snap-2")
+            .setWaitForCompletion(true).get();
+        assertThat(restoreSnapshotResponse.getRestoreInfo().failedShards(), equalTo(0));
+        ensureGreen();
+        assertHitCount(client.prepareSearch("copy-idx").setSize(0).get(), 100L);
+    }
+
+    public void testConcurrentDeduplicatedUploadsWithFailure() throws Exception {
+        Client client = client();
+        Path repo = randomRepoPath();
+
+        logger.info("-->  creating repositories");
+        assertAcked(client.admin().cluster().preparePutRepository("source-repo")
+                .setType("fs").setSettings(Settings.settingsBuilder().put("location", randomRepoPath())));
+        // uploads of shared blobs are data file writes, the first one on each node fails
+        assertAcked(client.admin().cluster().preparePutRepository("test-repo")
+                .setType("mock").setSettings(Settings.settingsBuilder()
+                        .put("location", repo)
+                        .put("chunk_size", randomIntBetween(100, 1000), ByteSizeUnit.BYTES)
+                        .put("deduplicate_blobs", true)
+                        .put("random", randomAsciiOfLength(10))
+                        .put("random_data_file_io_exception_rate", 1.0)
+                        .put("max_failure_number", 2L)));
+
+        createIndex("test-idx");
+        ensureGreen();
+        for (int i = 0; i < 100; i++) {
+            index("test-idx", "doc", Integer.toString(i), "foo", "bar" + i);
+        }
+        flushAndRefresh("test-idx");
+        assertThat(client.admin().cluster().prepareCreateSnapshot("source-repo", "source-snap")
+            .setWaitForCompletion(true).setIndices("test-idx").get().getSnapshotInfo().failedShards(), equalTo(0));
+
+        logger.info("--> restore copies of the index whose segment files are identical");
+        // more copies than nodes, so at least one copy is snapshotted completely
+        final int numCopies = internalCluster().numDataNodes() + randomIntBetween(1, 3);
+        for (int i = 0; i < numCopies; i++) {
+            RestoreSnapshotResponse restoreSnapshotResponse = client.admin().cluster().prepareRestoreSnapshot("source-repo", "source-snap")
+                .setRenamePattern("test-idx").setRenameReplacement("copy-" + i).setWaitForCompletion(true).get();
+            assertThat(restoreSnapshotResponse.getRestoreInfo().failedShards(), equalTo(0));
+        }
+        ensureGreen();
+
+        logger.info("--> snapshot all copies at once, the shards upload the same shared blobs concurrently");
+        CreateSnapshotResponse createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap")
+            .setWaitForCompletion(true).setPartial(true).setIndices("copy-*").get();
+        final int failures = createSnapshotResponse.getSnapshotInfo().shardFailures().size();
+        assertThat(failures, greaterThan(0));
+        assertThat(getFailureCount("test-repo"), equalTo((long) failures));
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(),
+            equalTo(createSnapshotResponse.getSnapshotInfo().totalShards() - failures));
+        try (Stream<Path> blobs = Files.walk(repo.resolve("blobs"))) {
+            assertFalse("failed upload left pending blobs behind",
+                blobs.anyMatch(blob -> blob.getFileName().toString().startsWith("pending-")));
+        }
+
+        logger.info("--> the copies whose shards were all snapshotted restore completely");
+        final List<String> completeIndices = new ArrayList<>();
+        for (int i = 0; i < numCopies; i++) {
+            completeIndices.add("copy-" + i);
+        }
+        for (SnapshotShardFailure shardFailure : createSnapshotResponse.getSnapshotInfo().shardFailures()) {
+            completeIndices.remove(shardFailure.index());
+        }
+        assertThat(completeIndices.size(), greaterThan(0));
+        cluster().wipeIndices("copy-*");
+        RestoreSnapshotResponse restoreSnapshotResponse = client.admin().cluster().prepareRestoreSnapshot("test-repo", "test-snap")
+            .setIndices(completeIndices.toArray(new String[completeIndices.size()])).setWaitForCompletion(true).get();
+        assertThat(restoreSnapshotResponse.getRestoreInfo().failedShards(), equalTo(0));
+        ensureGreen();
+        for (String index : completeIndices) {
+            assertHitCount(client.prepareSearch(index).setSize(0).get(), 100L);
+        }
+    }
+
+    public void testSearchSnapshotWithoutRestore() throws Exception {
+        Client client = client();
+
+        logger.info("-->  creating repository");
+        assertAcked(client.admin().cluster().preparePutRepository("test-repo")
+                .setType("fs").setSettings(Settings.settingsBuilder()
+                        .put("location", randomRepoPath())
+                        .put("chunk_size", randomIntBetween(100, 1000), ByteSizeUnit.BYTES)));
+
+        createIndex("test-idx");
+        ensureGreen();
+        for (int i = 0; i < 100; i++) {
+            index("test-idx", "doc", Integer.toString(i), "foo", "bar" + i);
+        }
+        flushAndRefresh("test-idx");
+
+        logger.info("--> snapshot");
+        CreateSnapshotResponse createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap")
+            .setWaitForCompletion(true).setIndices("test-idx").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), equalTo(createSnapshotResponse.getSnapshotInfo().totalShards()));
+
+        logger.info("--> search the shard snapshots through a block cache");
+        IndexMetaData indexMetaData = client.admin().cluster().prepareState().get().getState().metaData().index("test-idx");
+        BlobStoreIndexShardRepository repository = (BlobStoreIndexShardRepository) internalCluster().getInstance(RepositoriesService.class)
+            .indexShardRepository("test-repo");
+        long maxCacheSize = randomIntBetween(8192, 65536);
+        BlobBlockCache cache = new BlobBlockCache(createTempDir(), randomIntBetween(128, 4096), randomIntBetween(0, 4), maxCacheSize);
+        int numDocs = 0;
+        int hits = 0;
+        for (int shardId = 0; shardId < indexMetaData.getNumberOfShards(); shardId++) {
+            try (Directory directory = repository.openDirectory(new SnapshotId("test-repo", "test-snap"), Version.CURRENT,
+                    new ShardId(indexMetaData.getIndex(), shardId), cache);
+                 DirectoryReader reader = DirectoryReader.open(directory)) {
+                numDocs += reader.numDocs();
+                hits += new IndexSearcher(reader).count(new TermQuery(new Term("foo", "bar42")));
+            }
+        }
+        assertThat(numDocs, equalTo(100));
+        assertThat(hits, equalTo(1));
+        assertThat(cache.misses(), greaterThan(0L));
+        assertThat(cache.sizeInBytes(), lessThanOrEqualTo(maxCacheSize));
+    }
+
+    public void testMountSnapshot() throws Exception {
+        Client client = client();
+
+        logger.info("-->  creating repository");
+        assertAcked(client.admin().cluster().preparePutRepository("test-repo")
+                .setType("fs").setSettings(Settings.settingsBuilder()
+                        .put("location", randomRepoPath())
+                        .put("chunk_size", randomIntBetween(100, 1000), ByteSizeUnit.BYTES)));
+
+        createIndex("test-idx");
+        ensureGreen();
+        for (int i = 0; i < 100; i++) {
+            index("test-idx", "doc", Integer.toString(i), "foo", "bar" + i);
+        }
+        flushAndRefresh("test-idx");
+
+        logger.info("--> snapshot");
+        CreateSnapshotResponse createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap")
+            .setWaitForCompletion(true).setIndices("test-idx").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), equalTo(createSnapshotResponse.getSnapshotInfo().totalShards()));
+
+        logger.info("--> mount the snapshotted index");
+        RestoreSnapshotResponse restoreSnapshotResponse = client.admin().cluster().prepareRestoreSnapshot("test-repo", "test-snap")
+            .setWaitForCompletion(true).setIndices("test-idx").setRenamePattern("test-idx").setRenameReplacement("mounted-idx")
+            .setIndexSettings(Settings.builder().put(IndexModule.INDEX_STORE_TYPE_SETTING.getKey(), SnapshotIndexStore.TYPE)).get();
+        assertThat(restoreSnapshotResponse.getRestoreInfo().failedShards(), equalTo(0));
+        ensureGreen("mounted-idx");
+
+        Settings mountedSettings = client.admin().indices().prepareGetSettings("mounted-idx").get().getIndexToSettings().get("mounted-idx");
+        assertThat(mountedSettings.get(IndexSettings.INDEX_FROZEN_SETTING.getKey()), equalTo("true"));
+        assertThat(mountedSettings.get(SETTING_NUMBER_OF_REPLICAS), equalTo("0"));
+        assertThat(mountedSettings.get(SnapshotIndexStore.INDEX_STORE_SNAPSHOT_INDEX_SETTING.getKey()), equalTo("test-idx"));
+
+        assertHitCount(client.prepareSearch("mounted-idx").setSize(0).get(), 100L);
+        assertHitCount(client.prepareSearch("mounted-idx").setQuery(matchQuery("foo", "bar42")).get(), 1L);
+        assertBlocked(client.prepareIndex("mounted-idx", "doc", "new").setSource("foo", "bar"), IndexMetaData.INDEX_FROZEN_BLOCK);
+
+        logger.info("--> shards of the mounted index read the snapshot through the node caches");
+        Index mountedIndex = resolveIndex("mounted-idx");
+        long misses = 0;
+        int mountedShards = 0;
+        for (IndicesService indicesService : internalCluster().getDataNodeInstances(IndicesService.class)) {
+            IndexService indexService = indicesService.indexService(mountedIndex);
+            if (indexService == null) {
+                continue;
+            }
+            for (IndexShard shard : indexService) {
+                mountedShards++;
+                assertThat(EngineAccess.engine(shard), instanceOf(FrozenEngine.class));
+                Path indexPath = shard.shardPath().resolveIndex();
+                if (Files.exists(indexPath)) {
+                    try (DirectoryStream<Path> files = Files.newDirectoryStream(indexPath)) {
+                        assertFalse("mounted shards must not copy files", files.iterator().hasNext());
+                    }
+                }
+            }
+            misses += indicesService.snapshotBlockCache().misses();
+        }
+        assertThat(mountedShards, equalTo(createSnapshotResponse.getSnapshotInfo().totalShards()));
+        assertThat(misses, greaterThan(0L));
+
+        logger.info("--> an existing index can't be replaced by a mounted one");
+        assertAcked(client.admin().indices().prepareClose("test-idx"));
+        try {
+            client.admin().cluster().prepareRestoreSnapshot("test-repo", "test-snap").setWaitForCompletion(true).setIndices("test-idx")
+                .setIndexSettings(Settings.builder().put(IndexModule.INDEX_STORE_TYPE_SETTING.getKey(), SnapshotIndexStore.TYPE)).get();
+            fail("mounting over an existing index should fail");
+        } catch (SnapshotRestoreException e) {
+            assertThat(e.getMessage(), containsString("cannot mount index [test-idx] as existing index [test-idx]"));
+        }
+
+        logger.info("--> the mounted snapshot and its repository can't be removed");
+        try {
+            client.admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap").get();
+            fail("deleting a mounted snapshot should fail");
+        } catch (SnapshotException e) {
+            assertThat(e.getMessage(), containsString("cannot delete snapshot that is mounted by indices [mounted-idx]"));
+        }
+        try {
+            client.admin().cluster().prepareDeleteRepository("test-repo").get();
+            fail("unregistering the repository of a mounted snapshot should fail");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), containsString("used by mounted indices [mounted-idx]"));
+        }
+
+        logger.info("--> the snapshot can be deleted once the mounted index is gone");
+        assertAcked(client.admin().indices().prepareDelete("mounted-idx"));
+        assertAcked(client.admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap").get());
+    }
+
     public void testBasicWorkFlow() throws Exception {
         Client client = client();
 
@@ -255,7 +255,8 @@ public class MockRepository extends FsRepository {
             }
 
             private void maybeIOExceptionOrBlock(String blobName) throws IOException {
-                if (blobName.startsWith("__")) {
+                // pending blobs are parts of deduplicated files that are being uploaded
+                if (blobName.startsWith("__") || blobName.startsWith("pending-")) {
                     if (shouldFail(blobName, randomDataFileIOExceptionRate) && (incrementAndGetFailureCount() < maximumNumberOfFailures)) {
                         logger.info("throwing random IOException for file [{}] at path [{}]", blobName, path());
                         throw new IOException("Random IOException");
@@ -40,4 +40,9 @@ public final class MockEngineFactory implements EngineFactory {
     public Engine newReadOnlyEngine(EngineConfig config) {
         return new MockShadowEngine(config, wrapper);
     }
+
+    @Override
+    public Engine newSegmentReplicaEngine(EngineConfig config) {
+        return new MockSegmentReplicaEngine(config, wrapper);
+    }
 }